@@ -0,0 +1,95 @@
+package tfg.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tfg.BatchEvaluator;
+import tfg.CompactSolution;
+import tfg.RandomConstructive;
+import tfg.SolutionBatch;
+
+/**
+ * Evaluación de una población de soluciones: una a una con
+ * {@link CompactSolution#evaluate()} y en bloque con {@link BatchEvaluator}
+ * (escalar y con la API de vectores). Los tiempos son por solución.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@OperationsPerInvocation(BatchEvaluationBenchmark.POPULATION)
+public class BatchEvaluationBenchmark {
+    static final int POPULATION = 64;
+
+    /**
+     * Población de soluciones aleatorias y su lote ya codificado.
+     */
+    @State(Scope.Thread)
+    public static class Population {
+        CompactSolution[] solutions;
+        SolutionBatch batch;
+        BatchEvaluator scalar;
+        BatchEvaluator vector;
+
+        @Setup(Level.Trial)
+        public void setUp(InstanceState state) {
+            RandomConstructive constructive = new RandomConstructive(state.compiled, new SplittableRandom(1L));
+            solutions = new CompactSolution[POPULATION];
+            batch = new SolutionBatch(state.compiled, POPULATION);
+            for (int i = 0; i < POPULATION; i++) {
+                solutions[i] = constructive.runCompact();
+                batch.add(solutions[i]);
+            }
+            scalar = new BatchEvaluator();
+            scalar.setVectorized(false);
+            vector = new BatchEvaluator();
+        }
+    }
+
+    @Benchmark
+    public double evaluateEach(Population population) {
+        double sum = 0.0;
+        for (CompactSolution solution : population.solutions) {
+            solution.evaluate();
+            sum += solution.getTotalCO2();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double batchScalar(Population population) {
+        population.scalar.evaluate(population.batch);
+        return population.batch.getCO2(0);
+    }
+
+    @Benchmark
+    public double batchVector(Population population) {
+        population.vector.evaluate(population.batch);
+        return population.batch.getCO2(0);
+    }
+
+    @Benchmark
+    public double encodeAndBatchVector(Population population) {
+        SolutionBatch batch = population.batch;
+        batch.clear();
+        for (CompactSolution solution : population.solutions) {
+            batch.add(solution);
+        }
+        population.vector.evaluate(batch);
+        return batch.getCO2(0);
+    }
+}
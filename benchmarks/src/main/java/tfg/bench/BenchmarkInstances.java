@@ -0,0 +1,45 @@
+package tfg.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import tfg.Instance;
+import tfg.InstanceGenerator;
+
+/**
+ * Instancias sintéticas para los benchmarks, generadas con
+ * {@link InstanceGenerator} (clientes uniformes, depósito en el centro).
+ */
+final class BenchmarkInstances {
+
+    private BenchmarkInstances() {
+    }
+
+    /**
+     * Genera y carga una instancia sintética.
+     *
+     * @param nodes Número de nodos, depósito incluido
+     * @param fleet Flota: {@code homogeneous} (un tipo) o {@code mixed} (los tres tipos del artículo)
+     * @param seed Semilla de la generación
+     * @return Instancia cargada
+     * @throws IOException Si hay un error al escribir o leer el fichero temporal
+     */
+    static Instance create(int nodes, String fleet, long seed) throws IOException {
+        InstanceGenerator generator = new InstanceGenerator(nodes, seed);
+        if ("homogeneous".equals(fleet)) {
+            generator.clearVehicleTypes();
+            generator.addVehicleType("V1", 16000, 0.931, 0.586, 1.0);
+        } else if (!"mixed".equals(fleet)) {
+            throw new IllegalArgumentException("Flota desconocida: " + fleet);
+        }
+
+        Path file = Files.createTempFile("tfg-bench-" + nodes + "-" + fleet + "-", ".csv");
+        try {
+            generator.write(file);
+            return new Instance(file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package tfg.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tfg.RandomConstructive;
+import tfg.Solution;
+
+/**
+ * Construcción aleatoria ({@link RandomConstructive#run()}), con una semilla
+ * distinta en cada llamada.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+
+    /**
+     * Generador de semillas de cada hilo.
+     */
+    @State(Scope.Thread)
+    public static class Seeds {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(7L);
+        }
+    }
+
+    @Benchmark
+    public Solution randomConstructive(InstanceState state, Seeds seeds) {
+        try {
+            return new RandomConstructive(state.instance, seeds.random.split()).run();
+        } catch (IllegalStateException e) {
+            // Construcción sin solución factible: cuenta igualmente como una llamada
+            return null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package tfg.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tfg.CompactSolution;
+import tfg.IncrementalEvaluator;
+import tfg.Solution;
+
+/**
+ * Evaluación completa de una solución ({@link Solution#evaluate()} y su versión
+ * compacta) y valoración incremental de movimientos 2-opt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    /**
+     * Copias propias de la solución inicial, para no modificar el estado compartido.
+     */
+    @State(Scope.Thread)
+    public static class Copies {
+        Solution solution;
+        CompactSolution compact;
+        IncrementalEvaluator evaluator;
+        int route;
+        int i;
+        int j;
+
+        @Setup(Level.Trial)
+        public void setUp(InstanceState state) {
+            solution = new Solution(state.compiled, state.start.getVehicleRoutes(), 0.0, 0.0);
+            compact = state.compactStart.copy();
+            evaluator = new IncrementalEvaluator(state.compiled);
+            evaluator.load(state.compactStart);
+            for (int r = 0; r < evaluator.getNumberOfRoutes(); r++) {
+                if (evaluator.getRouteSize(r) > evaluator.getRouteSize(route)) {
+                    route = r;
+                }
+            }
+            i = 1;
+            j = Math.max(1, evaluator.getRouteSize(route) / 2);
+        }
+    }
+
+    @Benchmark
+    public double solutionEvaluate(Copies copies) {
+        copies.solution.evaluate();
+        return copies.solution.getTotalCO2();
+    }
+
+    @Benchmark
+    public double compactEvaluate(Copies copies) {
+        copies.compact.evaluate();
+        return copies.compact.getTotalCO2();
+    }
+
+    @Benchmark
+    public double twoOptDelta(Copies copies) {
+        return copies.evaluator.twoOptDelta(copies.route, copies.i, copies.j);
+    }
+}
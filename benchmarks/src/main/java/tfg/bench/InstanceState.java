@@ -0,0 +1,46 @@
+package tfg.bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import tfg.CompactSolution;
+import tfg.CompiledInstance;
+import tfg.Instance;
+import tfg.RandomConstructive;
+import tfg.Solution;
+
+/**
+ * Estado compartido de los benchmarks: una instancia sintética por tamaño y
+ * flota, con su matriz de distancias, listas de vecinos y una solución inicial
+ * fija. Todo se prepara fuera de la medición.
+ */
+@State(Scope.Benchmark)
+public class InstanceState {
+    /** Número de nodos, depósito incluido. */
+    @Param({"20", "200", "2000", "20000"})
+    public int nodes;
+
+    /** Composición de la flota. */
+    @Param({"homogeneous", "mixed"})
+    public String fleet;
+
+    Instance instance;
+    CompiledInstance compiled;
+    Solution start;
+    CompactSolution compactStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        instance = BenchmarkInstances.create(nodes, fleet, 42L);
+        compiled = instance.getCompiled();
+        compiled.getDistances();
+        compiled.getNeighborLists();
+        start = new RandomConstructive(instance, 1L).run();
+        compactStart = CompactSolution.from(start);
+    }
+}
@@ -0,0 +1,82 @@
+package tfg.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tfg.IncrementalEvaluator;
+import tfg.InterRouteSearch;
+import tfg.TwoOpt;
+import tfg.VariableNeighborhoodDescent;
+
+/**
+ * Búsquedas locales desde la misma solución inicial hasta su óptimo local.
+ * Antes de cada llamada se recarga la solución inicial en el evaluador.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalSearchBenchmark {
+
+    /**
+     * Evaluador y búsquedas de cada hilo.
+     */
+    @State(Scope.Thread)
+    public static class Searches {
+        IncrementalEvaluator evaluator;
+        TwoOpt firstImprovement;
+        TwoOpt bestImprovement;
+        InterRouteSearch interRoute;
+        VariableNeighborhoodDescent vnd;
+
+        @Setup(Level.Trial)
+        public void setUp(InstanceState state) {
+            evaluator = new IncrementalEvaluator(state.compiled);
+            firstImprovement = new TwoOpt(state.compiled);
+            bestImprovement = new TwoOpt(state.compiled, state.compiled.getNeighborLists(), TwoOpt.Strategy.BEST_IMPROVEMENT);
+            interRoute = new InterRouteSearch(state.compiled);
+            vnd = VariableNeighborhoodDescent.standard(state.compiled);
+        }
+
+        @Setup(Level.Invocation)
+        public void reload(InstanceState state) {
+            evaluator.load(state.compactStart);
+        }
+    }
+
+    @Benchmark
+    public double twoOptFirstImprovement(Searches searches) {
+        searches.firstImprovement.improve(searches.evaluator);
+        return searches.evaluator.getTotalCO2();
+    }
+
+    @Benchmark
+    public double twoOptBestImprovement(Searches searches) {
+        searches.bestImprovement.improve(searches.evaluator);
+        return searches.evaluator.getTotalCO2();
+    }
+
+    @Benchmark
+    public double interRoute(Searches searches) {
+        searches.interRoute.improve(searches.evaluator);
+        return searches.evaluator.getTotalCO2();
+    }
+
+    @Benchmark
+    public double variableNeighborhoodDescent(Searches searches) {
+        searches.vnd.improve(searches.evaluator);
+        return searches.evaluator.getTotalCO2();
+    }
+}
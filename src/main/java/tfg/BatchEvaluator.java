@@ -0,0 +1,148 @@
+package tfg;
+
+/**
+ * Evaluador en bloque de una población de soluciones ({@link SolutionBatch}).
+ *
+ * Calcula la distancia y el CO2 de todas las soluciones del lote con el mismo
+ * modelo que {@link CompiledInstance#routeCO2(int, int[], int, int)}: cada
+ * solución avanza paso a paso por su secuencia, con la carga acumulada y los
+ * totales de la ruta, y suma los de cada ruta al volver al depósito. Las
+ * operaciones y su orden son los mismos que en {@link CompactSolution#evaluate()}
+ * y las distancias se calculan desde las coordenadas igual que la matriz de
+ * distancias, así que el resultado coincide bit a bit con el de la evaluación
+ * individual (salvo con la matriz {@code heap-float}, que redondea las
+ * distancias a {@code float}).
+ *
+ * Si el módulo {@code jdk.incubator.vector} está disponible (la JVM se lanza
+ * con {@code --add-modules jdk.incubator.vector}), cada carril de un vector
+ * evalúa una solución distinta ({@link VectorBatchKernel}); si no, o si se
+ * desactiva con la propiedad {@code tfg.vector=false}, se usa un bucle escalar
+ * equivalente.
+ */
+public final class BatchEvaluator {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final Kernel VECTOR = loadVectorKernel();
+
+    /**
+     * Núcleo de evaluación de un rango de soluciones del lote.
+     */
+    interface Kernel {
+        /**
+         * Evalúa las soluciones {@code from .. to - 1} y devuelve la primera que no ha evaluado.
+         */
+        int evaluate(SolutionBatch batch, int from, int to);
+    }
+
+    private boolean vectorized = VECTOR != null;
+
+    private static Kernel loadVectorKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("tfg.vector", "true"))
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName("tfg.VectorBatchKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("No se pudo cargar la evaluación vectorial, se usa la escalar: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Indica si la API de vectores está disponible en esta JVM.
+     *
+     * @return {@code true} si se puede evaluar con vectores
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Activa o desactiva la evaluación vectorial (para comparar con la escalar).
+     *
+     * @param vectorized Si se usan vectores cuando están disponibles
+     */
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized && VECTOR != null;
+    }
+
+    /**
+     * Indica si este evaluador usa vectores.
+     *
+     * @return {@code true} si evalúa con la API de vectores
+     */
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    /**
+     * Evalúa todas las soluciones del lote.
+     *
+     * @param batch Lote de soluciones
+     */
+    public void evaluate(SolutionBatch batch) {
+        int from = 0;
+        if (vectorized) {
+            from = VECTOR.evaluate(batch, 0, batch.size());
+        }
+        evaluateScalar(batch, from, batch.size());
+    }
+
+    /**
+     * Evaluación escalar de las soluciones {@code from .. to - 1}.
+     */
+    static void evaluateScalar(SolutionBatch batch, int from, int to) {
+        double[] x = batch.x;
+        double[] y = batch.y;
+        double[] load = batch.load;
+        double[] eo = batch.eo;
+        double[] slope = batch.slope;
+        for (int s = from; s < to; s++) {
+            double totalDistance = 0.0;
+            double totalCO2 = 0.0;
+            double routeDistance = 0.0;
+            double routeCO2 = 0.0;
+            double weight = 0.0;
+            double typeEo = 0.0;
+            double typeSlope = 0.0;
+            int a = batch.index(s, 0);
+            for (int k = 1; k < batch.steps[s]; k++) {
+                int b = batch.index(s, k);
+                double dx = x[a] - x[b];
+                double dy = y[a] - y[b];
+                double d = Math.sqrt(dx * dx + dy * dy);
+                boolean toDepot = Double.isNaN(load[b]);
+                if (Double.isNaN(load[a])) {
+                    // Sale vacío desde el depósito
+                    typeEo = eo[a];
+                    typeSlope = slope[a];
+                    routeDistance = d;
+                    routeCO2 = typeEo * d;
+                    weight = load[b];
+                } else if (!toDepot) {
+                    routeDistance += d;
+                    routeCO2 += typeSlope * weight * d + typeEo * d;
+                    weight += load[b];
+                } else {
+                    // Vuelve al depósito con todo el peso recogido
+                    routeDistance += d;
+                    routeCO2 = routeCO2 + typeSlope * weight * d + typeEo * d;
+                }
+                if (toDepot) {
+                    totalDistance += routeDistance;
+                    totalCO2 += routeCO2;
+                }
+                a = b;
+            }
+            batch.distance[s] = totalDistance;
+            batch.co2[s] = totalCO2;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchEvaluator{" +
+                "vectorial=" + vectorized +
+                '}';
+    }
+}
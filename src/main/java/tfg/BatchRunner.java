@@ -0,0 +1,389 @@
+package tfg;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecución por lotes, sin interacción, de una lista de experimentos sobre
+ * todas las instancias de una carpeta.
+ *
+ * Escribe una tabla CSV (una fila por instancia, una columna por experimento)
+ * con el CO2 de referencia del artículo, el mejor valor conocido y la
+ * desviación porcentual de cada columna respecto a él, y la cota inferior de
+ * la instancia ({@link LowerBound}) con la separación del mejor valor conocido. Cada fila se escribe
+ * en cuanto termina su instancia, de modo que el fichero puede consultarse
+ * durante una ejecución larga. Al final se añaden el promedio de cada columna
+ * y el número de instancias con desviación 0,00%.
+ *
+ * Varias instancias pueden resolverse a la vez en la misma JVM
+ * ({@link #setParallelInstances(int)}): cada una tiene su propia instancia
+ * compilada y sus soluciones, sin estado compartido. Las filas se escriben
+ * siempre en el orden de la carpeta.
+ *
+ * Con {@link #setTraceDirectory(String, String)} se guarda además la traza de
+ * convergencia de cada experimento ({@link ConvergenceTrace}) en un fichero por
+ * instancia, experimento y semilla.
+ *
+ * Con {@link #setTargetGap(double)} cada multiarranque deja de empezar
+ * arranques en cuanto su mejor solución está a menos de esa separación de la
+ * cota inferior; solo entonces se calcula la cota (es O(n²)) y el CSV incluye
+ * las columnas de la cota y la separación.
+ */
+public class BatchRunner {
+    private final String instancesDir;
+    private final List<Experiment> experiments;
+    private final String outputFile;
+    private Map<String, Double> reference;
+    private long seed;
+    private int threads;
+    private int parallelInstances;
+    private String traceDirectory;
+    private String traceFormat;
+    private int routeCacheCapacity;
+    private double targetGap = -1.0;
+
+    /**
+     * Constructor del lote.
+     *
+     * @param instancesDir Carpeta con las instancias CSV
+     * @param experiments Experimentos a ejecutar en cada instancia
+     * @param outputFile Fichero CSV de resultados
+     */
+    public BatchRunner(String instancesDir, List<Experiment> experiments, String outputFile) {
+        this.instancesDir = instancesDir;
+        this.experiments = new ArrayList<>(experiments);
+        this.outputFile = outputFile;
+        this.reference = new HashMap<>();
+        this.seed = 1L;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.parallelInstances = 1;
+    }
+
+    /**
+     * Establece la semilla maestra de todos los experimentos.
+     *
+     * @param seed Semilla
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Establece el número de hilos de cada multiarranque.
+     *
+     * @param threads Número de hilos
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Establece cuántas instancias se resuelven a la vez.
+     * El total de hilos en uso es este valor por el de {@link #setThreads(int)}.
+     *
+     * @param parallelInstances Número de instancias simultáneas (al menos 1)
+     */
+    public void setParallelInstances(int parallelInstances) {
+        this.parallelInstances = Math.max(1, parallelInstances);
+    }
+
+    /**
+     * Establece la carpeta en la que se guardan las trazas de convergencia.
+     *
+     * @param traceDirectory Carpeta de trazas, o {@code null} para no guardarlas
+     * @param format Formato de las trazas: {@code csv} o {@code bin}
+     */
+    public void setTraceDirectory(String traceDirectory, String format) {
+        if (!"csv".equals(format) && !"bin".equals(format)) {
+            throw new IllegalArgumentException("Formato de traza no válido: " + format);
+        }
+        this.traceDirectory = traceDirectory;
+        this.traceFormat = format;
+    }
+
+    /**
+     * Activa una caché de costes de rutas ({@link RouteCostCache}) por instancia,
+     * compartida por todos sus experimentos.
+     *
+     * @param capacity Rutas guardadas por instancia, o 0 para no usar caché
+     */
+    public void setRouteCacheCapacity(int capacity) {
+        this.routeCacheCapacity = Math.max(0, capacity);
+    }
+
+    /**
+     * Establece la separación objetivo respecto a la cota inferior con la que
+     * se detiene cada multiarranque. Con una separación no negativa el CSV
+     * incluye además la cota inferior y la separación del mejor valor conocido.
+     *
+     * @param targetGap Separación relativa (p.ej. 0.05 = 5%), o negativa para ejecutar todos los arranques
+     */
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * Carga los valores de CO2 del artículo desde un CSV {@code Instance,CO2}.
+     * Las líneas cuyo segundo campo no es numérico (p.ej. la cabecera) se ignoran.
+     *
+     * @param file Fichero de referencia
+     * @throws IOException Si hay un error al leer el archivo
+     */
+    public void loadReference(String file) throws IOException {
+        Map<String, Double> values = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split("[,;]");
+                if (parts.length < 2) {
+                    continue;
+                }
+                try {
+                    values.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+                } catch (NumberFormatException e) {
+                    // Cabecera u otra línea no numérica
+                }
+            }
+        }
+        this.reference = values;
+    }
+
+    /**
+     * Ejecuta todos los experimentos en todas las instancias y escribe los resultados.
+     *
+     * @throws IOException Si hay un error al leer instancias o escribir resultados
+     */
+    public void run() throws IOException {
+        List<String> instances = Main.listAvailableInstances(instancesDir);
+        List<double[]> rows = new ArrayList<>();
+
+        // Nombres fijos por posición, para no añadir un hilo nuevo a las métricas en cada lote
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelInstances, Math.max(1, instances.size())),
+                runnable -> new Thread(runnable, "batch-" + threadIndex.getAndIncrement()));
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(outputFile))) {
+            out.write(header());
+            out.newLine();
+            out.flush();
+
+            List<Future<double[]>> pending = new ArrayList<>();
+            for (String name : instances) {
+                pending.add(executor.submit(() -> solve(name)));
+            }
+
+            for (int i = 0; i < instances.size(); i++) {
+                double[] values = await(pending.get(i));
+                rows.add(values);
+
+                out.write(row(instances.get(i), values));
+                out.newLine();
+                out.flush();
+            }
+
+            writeSummary(out, rows);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Ejecuta todos los experimentos sobre una instancia.
+     *
+     * @return Valores: [artículo, experimentos..., mejor conocido, cota inferior]
+     */
+    private double[] solve(String name) throws IOException {
+        int columns = experiments.size();
+        Instance instance = new Instance(instancesDir + File.separator + name + ".csv");
+        RouteCostCache cache = null;
+        if (routeCacheCapacity > 0) {
+            cache = new RouteCostCache(instance.getCompiled(), routeCacheCapacity);
+            instance.getCompiled().setRouteCostCache(cache);
+        }
+
+        double[] values = new double[columns + 3];
+        values[0] = reference.getOrDefault(name, Double.NaN);
+        double best = values[0];
+        ConvergenceTrace trace = traceDirectory == null ? null : new ConvergenceTrace();
+        if (trace != null) {
+            Files.createDirectories(Paths.get(traceDirectory));
+        }
+        for (int e = 0; e < columns; e++) {
+            Multistart.Result result = experiments.get(e).run(instance, seed, threads, trace, targetGap);
+            if (trace != null) {
+                trace.write(Paths.get(traceDirectory,
+                        ConvergenceTrace.fileName(name, experiments.get(e).getName(), seed, traceFormat)));
+                trace.clear();
+            }
+            values[e + 1] = result.getBest() == null ? Double.NaN : result.getBest().getTotalCO2();
+            best = min(best, values[e + 1]);
+            System.out.println(name + "\t" + experiments.get(e).getName() + "\t" + result);
+        }
+        values[columns + 1] = best;
+        values[columns + 2] = targetGap >= 0.0 ? instance.getCompiled().getLowerBound().getValue() : Double.NaN;
+        if (cache != null) {
+            System.out.println(name + "\t" + cache);
+        }
+        return values;
+    }
+
+    private static double[] await(Future<double[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ejecución por lotes interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String header() {
+        StringBuilder sb = new StringBuilder("Instance,Article_CO2");
+        for (Experiment experiment : experiments) {
+            sb.append(',').append(experiment.getName());
+        }
+        sb.append(",Best_known,Dev_Article_%");
+        for (Experiment experiment : experiments) {
+            sb.append(",Dev_").append(experiment.getName()).append("_%");
+        }
+        if (targetGap >= 0.0) {
+            sb.append(",Lower_bound,Gap_%");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Fila de una instancia: valores de CO2 seguidos de sus desviaciones, la
+     * cota inferior y la separación del mejor valor conocido (si hay separación objetivo).
+     */
+    private String row(String name, double[] values) {
+        int columns = experiments.size();
+        double best = values[columns + 1];
+        StringBuilder sb = new StringBuilder(name);
+        for (int c = 0; c <= columns + 1; c++) {
+            sb.append(',').append(format(values[c], "%.7f"));
+        }
+        for (int c = 0; c <= columns; c++) {
+            sb.append(',').append(format(deviation(values[c], best), "%.2f"));
+        }
+        if (targetGap >= 0.0) {
+            sb.append(',').append(format(values[columns + 2], "%.7f"));
+            sb.append(',').append(format(gap(best, values[columns + 2]), "%.2f"));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escribe el promedio de cada columna (también de la cota y la separación, si se calculan)
+     * y cuántas instancias tienen desviación 0,00%.
+     */
+    private void writeSummary(BufferedWriter out, List<double[]> rows) throws IOException {
+        int columns = experiments.size();
+        int valueColumns = columns + 2;
+
+        StringBuilder average = new StringBuilder("Average");
+        for (int c = 0; c < valueColumns; c++) {
+            double sum = 0.0;
+            int count = 0;
+            for (double[] values : rows) {
+                if (!Double.isNaN(values[c])) {
+                    sum += values[c];
+                    count++;
+                }
+            }
+            average.append(',').append(format(count == 0 ? Double.NaN : sum / count, "%.7f"));
+        }
+
+        StringBuilder zeros = new StringBuilder("Zero_deviation_count");
+        for (int c = 0; c < valueColumns; c++) {
+            zeros.append(',');
+        }
+        for (int c = 0; c <= columns; c++) {
+            double sum = 0.0;
+            int count = 0;
+            int zeroCount = 0;
+            for (double[] values : rows) {
+                double dev = deviation(values[c], values[columns + 1]);
+                if (!Double.isNaN(dev)) {
+                    sum += dev;
+                    count++;
+                    if (Math.abs(dev) < 0.005) {
+                        zeroCount++;
+                    }
+                }
+            }
+            average.append(',').append(format(count == 0 ? Double.NaN : sum / count, "%.2f"));
+            zeros.append(',').append(zeroCount);
+        }
+        if (targetGap >= 0.0) {
+            double boundSum = 0.0;
+            double gapSum = 0.0;
+            int gapCount = 0;
+            for (double[] values : rows) {
+                boundSum += values[columns + 2];
+                double gap = gap(values[columns + 1], values[columns + 2]);
+                if (!Double.isNaN(gap)) {
+                    gapSum += gap;
+                    gapCount++;
+                }
+            }
+            average.append(',').append(format(rows.isEmpty() ? Double.NaN : boundSum / rows.size(), "%.7f"));
+            average.append(',').append(format(gapCount == 0 ? Double.NaN : gapSum / gapCount, "%.2f"));
+        }
+
+        out.write(average.toString());
+        out.newLine();
+        out.write(zeros.toString());
+        out.newLine();
+    }
+
+    private static double gap(double best, double bound) {
+        if (Double.isNaN(best) || best <= 0.0) {
+            return Double.NaN;
+        }
+        return Math.max(0.0, (best - bound) / best * 100.0);
+    }
+
+    private static double deviation(double value, double best) {
+        if (Double.isNaN(value) || Double.isNaN(best) || best == 0.0) {
+            return Double.NaN;
+        }
+        return (value - best) / best * 100.0;
+    }
+
+    private static double min(double a, double b) {
+        if (Double.isNaN(a)) {
+            return b;
+        }
+        if (Double.isNaN(b)) {
+            return a;
+        }
+        return Math.min(a, b);
+    }
+
+    private static String format(double value, String pattern) {
+        return Double.isNaN(value) ? "" : String.format(Locale.ROOT, pattern, value);
+    }
+}
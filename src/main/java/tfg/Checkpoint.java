@@ -0,0 +1,364 @@
+package tfg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Fichero de checkpoints de una búsqueda larga ({@link IteratedLocalSearch}),
+ * proyectado en memoria con un formato fijo.
+ *
+ * El fichero tiene una cabecera con la forma y la huella de la instancia
+ * ({@link CompiledInstance#getFingerprint()}), de modo que no se puede
+ * continuar con un CSV modificado u otra instancia del mismo tamaño, y dos huecos del
+ * mismo tamaño (doble buffer). Cada {@link #save(State)} escribe en el hueco que
+ * no contiene el último checkpoint: primero los datos, después su longitud y su
+ * CRC32C (solo de esos bytes, no del hueco entero) y por último el número de
+ * secuencia. Si el proceso muere a mitad de una escritura,
+ * el otro hueco sigue intacto y {@link #load()} lo elige (el de mayor secuencia
+ * con CRC correcto). Guardar son unas pocas escrituras en memoria sin llamadas
+ * al sistema (unos microsegundos para 1000 clientes); el sistema operativo
+ * vuelca las páginas al disco por su cuenta, así que el checkpoint sobrevive a
+ * que se mate el proceso. {@link #close()} fuerza el volcado.
+ *
+ * Cada hueco guarda el estado de {@link State}: contadores, tiempos, estado del
+ * generador aleatorio y las soluciones actual y mejor (número de rutas, unidad
+ * y tamaño de cada ruta y los clientes) una tras otra; el hueco se dimensiona
+ * para el tamaño máximo posible en la instancia. La traza de convergencia no
+ * forma parte del checkpoint: al reanudar empieza de nuevo.
+ */
+public final class Checkpoint implements Closeable {
+    private static final int MAGIC = 0x54464743; // "TFGC"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 64;
+    // Secuencia (8), CRC32C (8), longitud de los datos (4) y relleno (4)
+    private static final int SLOT_HEADER = 24;
+    private static final int STATE_SIZE = 12 * 8 + 4 * 4 + 6 * 8;
+
+    private final CompiledInstance instance;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotSize;
+    private final CRC32C crc = new CRC32C();
+    private long sequence;
+    private int lastSlot = -1;
+    private long lastWriteNanos;
+
+    private Checkpoint(CompiledInstance instance, FileChannel channel, MappedByteBuffer buffer, int slotSize) {
+        this.instance = instance;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotSize = slotSize;
+    }
+
+    /**
+     * Abre (o crea) un fichero de checkpoints para una instancia.
+     *
+     * @param file Fichero
+     * @param instance Instancia compilada
+     * @return Checkpoint abierto
+     * @throws IOException Si no se puede abrir o proyectar el fichero
+     * @throws IllegalArgumentException Si el fichero existe y es de otra instancia
+     */
+    public static Checkpoint open(Path file, CompiledInstance instance) throws IOException {
+        int units = instance.getNumberOfUnits();
+        int customers = instance.getNumberOfCustomers();
+        int solutionSize = 8 + 4 + 8 * units + 4 * customers;
+        int slotSize = SLOT_HEADER + STATE_SIZE + 2 * solutionSize;
+        long size = HEADER_SIZE + 2L * slotSize;
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long existing = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (existing == 0) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, instance.getNumberOfNodes());
+                buffer.putInt(12, units);
+                buffer.putInt(16, customers);
+                buffer.putLong(24, instance.getFingerprint());
+            } else if (existing != size || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != instance.getNumberOfNodes() || buffer.getInt(12) != units
+                    || buffer.getInt(16) != customers || buffer.getLong(24) != instance.getFingerprint()) {
+                throw new IllegalArgumentException("El fichero de checkpoint " + file
+                        + " no corresponde a esta instancia");
+            }
+            Checkpoint checkpoint = new Checkpoint(instance, channel, buffer, slotSize);
+            checkpoint.findLatest();
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private int slotOffset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    /**
+     * Busca el último checkpoint válido para continuar la numeración.
+     */
+    private void findLatest() {
+        for (int slot = 0; slot < 2; slot++) {
+            long seq = buffer.getLong(slotOffset(slot));
+            if (seq > sequence && valid(slot)) {
+                sequence = seq;
+                lastSlot = slot;
+            }
+        }
+    }
+
+    private boolean valid(int slot) {
+        int offset = slotOffset(slot);
+        int length = buffer.getInt(offset + 16);
+        return buffer.getLong(offset) > 0 && length >= STATE_SIZE && length <= slotSize - SLOT_HEADER
+                && buffer.getLong(offset + 8) == checksum(offset, length);
+    }
+
+    private long checksum(int offset, int length) {
+        crc.reset();
+        ByteBuffer payload = buffer.slice(offset + SLOT_HEADER, length);
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    /**
+     * Guarda un checkpoint en el hueco que no contiene el último.
+     *
+     * @param state Estado de la búsqueda
+     */
+    public void save(State state) {
+        long start = System.nanoTime();
+        int slot = lastSlot == 0 ? 1 : 0;
+        int offset = slotOffset(slot);
+        buffer.putLong(offset, 0L); // Invalida el hueco mientras se escribe
+
+        int p = offset + SLOT_HEADER;
+        buffer.putLong(p, state.seed);
+        buffer.putLong(p + 8, state.iteration);
+        buffer.putLong(p + 16, state.stagnation);
+        buffer.putLong(p + 24, state.improvements);
+        buffer.putLong(p + 32, state.bestIteration);
+        buffer.putLong(p + 40, state.bestNanos);
+        buffer.putLong(p + 48, state.elapsedNanos);
+        buffer.putLong(p + 56, state.randomState);
+        // p + 64 .. p + 96 y p + 104 .. p + 112: reservados
+        buffer.putInt(p + 96, state.acceptance);
+        buffer.putInt(p + 100, state.strength);
+        buffer.putDouble(p + 112, state.initialCO2);
+        buffer.putDouble(p + 120, state.currentCO2);
+        buffer.putDouble(p + 128, state.currentDistance);
+        buffer.putDouble(p + 136, state.bestCO2);
+        buffer.putDouble(p + 144, state.bestDistance);
+        p += STATE_SIZE;
+        p += putSolution(p, state.current);
+        p += putSolution(p, state.best);
+
+        int length = p - offset - SLOT_HEADER;
+        buffer.putInt(offset + 16, length);
+        buffer.putLong(offset + 8, checksum(offset, length));
+        buffer.putLong(offset, ++sequence);
+        lastSlot = slot;
+        lastWriteNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Escribe una solución: distancia, número de rutas, unidad y tamaño de cada
+     * ruta y los clientes seguidos.
+     *
+     * @return Bytes escritos
+     */
+    private int putSolution(int offset, CompactSolution solution) {
+        buffer.putDouble(offset, solution.getTotalDistance());
+        buffer.putInt(offset + 8, solution.getNumberOfRoutes());
+        int routes = offset + 12;
+        int nodes = routes + 8 * solution.getNumberOfRoutes();
+        int k = 0;
+        for (int r = 0; r < solution.getNumberOfRoutes(); r++) {
+            buffer.putInt(routes + 8 * r, solution.getRouteUnit(r));
+            buffer.putInt(routes + 8 * r + 4, solution.getRouteSize(r));
+            int first = solution.getRouteStart(r);
+            for (int q = first; q < first + solution.getRouteSize(r); q++) {
+                buffer.putInt(nodes + 4 * k++, solution.getNode(q));
+            }
+        }
+        return nodes + 4 * k - offset;
+    }
+
+    /**
+     * Bytes que ocupa la solución escrita en una posición.
+     */
+    private int solutionLength(int offset) {
+        int routes = buffer.getInt(offset + 8);
+        int length = 12 + 8 * routes;
+        for (int r = 0; r < routes; r++) {
+            length += 4 * buffer.getInt(offset + 12 + 8 * r + 4);
+        }
+        return length;
+    }
+
+    private CompactSolution getSolution(int offset, double co2) {
+        CompactSolution solution = new CompactSolution(instance);
+        int routes = offset + 12;
+        int nodes = routes + 8 * buffer.getInt(offset + 8);
+        int k = 0;
+        for (int r = 0; r < buffer.getInt(offset + 8); r++) {
+            solution.startRoute(buffer.getInt(routes + 8 * r));
+            for (int q = 0; q < buffer.getInt(routes + 8 * r + 4); q++) {
+                solution.add(buffer.getInt(nodes + 4 * k++));
+            }
+        }
+        solution.setTotalDistance(buffer.getDouble(offset));
+        solution.setTotalCO2(co2);
+        return solution;
+    }
+
+    /**
+     * Lee el último checkpoint válido.
+     *
+     * @return Estado guardado, o {@code null} si el fichero no tiene ninguno
+     */
+    public State load() {
+        if (lastSlot < 0) {
+            return null;
+        }
+        int p = slotOffset(lastSlot) + SLOT_HEADER;
+        State state = new State();
+        state.sequence = sequence;
+        state.fingerprint = instance.getFingerprint();
+        state.seed = buffer.getLong(p);
+        state.iteration = buffer.getLong(p + 8);
+        state.stagnation = buffer.getLong(p + 16);
+        state.improvements = buffer.getLong(p + 24);
+        state.bestIteration = buffer.getLong(p + 32);
+        state.bestNanos = buffer.getLong(p + 40);
+        state.elapsedNanos = buffer.getLong(p + 48);
+        state.randomState = buffer.getLong(p + 56);
+        state.acceptance = buffer.getInt(p + 96);
+        state.strength = buffer.getInt(p + 100);
+        state.initialCO2 = buffer.getDouble(p + 112);
+        state.currentCO2 = buffer.getDouble(p + 120);
+        state.currentDistance = buffer.getDouble(p + 128);
+        state.bestCO2 = buffer.getDouble(p + 136);
+        state.bestDistance = buffer.getDouble(p + 144);
+        p += STATE_SIZE;
+        state.current = getSolution(p, state.currentCO2);
+        state.best = getSolution(p + solutionLength(p), state.bestCO2);
+        return state;
+    }
+
+    /**
+     * Obtiene el número de checkpoints guardados en el fichero.
+     *
+     * @return Secuencia del último checkpoint, o 0 si no hay ninguno
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Obtiene la duración del último {@link #save(State)}.
+     *
+     * @return Tiempo en nanosegundos
+     */
+    public long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    /**
+     * Vuelca el fichero al disco y lo cierra.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Estado de una búsqueda local iterada en un checkpoint.
+     */
+    public static final class State {
+        long sequence;
+        long fingerprint;
+        long seed;
+        int acceptance;
+        long iteration;
+        long stagnation;
+        long improvements;
+        long bestIteration;
+        long bestNanos;
+        long elapsedNanos;
+        long randomState;
+        int strength;
+        double initialCO2;
+        double currentCO2;
+        double currentDistance;
+        double bestCO2;
+        double bestDistance;
+        CompactSolution current;
+        CompactSolution best;
+
+        /**
+         * Obtiene el número de secuencia del checkpoint.
+         *
+         * @return Secuencia
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Obtiene la iteración en la que se guardó.
+         *
+         * @return Iteración
+         */
+        public long getIteration() {
+            return iteration;
+        }
+
+        /**
+         * Obtiene el tiempo de búsqueda acumulado al guardarse.
+         *
+         * @return Tiempo en nanosegundos
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Obtiene el CO2 de la mejor solución guardada.
+         *
+         * @return CO2
+         */
+        public double getBestCO2() {
+            return bestCO2;
+        }
+
+        /**
+         * Obtiene la mejor solución guardada.
+         *
+         * @return Mejor solución
+         */
+        public CompactSolution getBest() {
+            return best;
+        }
+
+        @Override
+        public String toString() {
+            return "Checkpoint.State{" +
+                    "secuencia=" + sequence +
+                    ", iteracion=" + iteration +
+                    ", tiempo=" + String.format("%.1f ms", elapsedNanos / 1e6) +
+                    ", mejorCO2=" + String.format("%.7f", bestCO2) +
+                    '}';
+        }
+    }
+}
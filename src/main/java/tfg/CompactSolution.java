@@ -0,0 +1,446 @@
+package tfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Representación compacta de una solución basada en arrays primitivos.
+ *
+ * Todas las rutas se guardan seguidas en un "giant tour" de clientes; la ruta r
+ * ocupa las posiciones {@code routeStart[r] .. routeStart[r + 1] - 1} y la sirve
+ * la unidad de vehículo {@code routeUnit[r]}, de tipo {@code routeType[r]}.
+ * Los arrays se dimensionan una vez por instancia, de modo que copiar una
+ * solución ({@link #copyFrom(CompactSolution)}) son unos pocos
+ * {@link System#arraycopy} sin crear objetos. Está pensada para los algoritmos
+ * que generan y descartan muchas soluciones; {@link Solution} sigue siendo la
+ * representación de entrada/salida.
+ *
+ * Si la instancia tiene caché de costes de rutas ({@link RouteCostCache}), el
+ * hash de cada ruta se extiende en O(1) con cada cliente añadido (o lo aporta
+ * {@link IncrementalEvaluator#store(CompactSolution)}), de modo que
+ * {@link #evaluate()} consulta la caché sin volver a recorrer las rutas.
+ */
+public final class CompactSolution {
+    private static final double CAPACITY_TOLERANCE = 1e-9;
+
+    private final CompiledInstance instance;
+    private final int[] tour;
+    private final int[] routeStart;
+    private final int[] routeUnit;
+    private final int[] routeType;
+    private final long[] routeHash1;
+    private final long[] routeHash2;
+    // Caché para la que se calcularon los hashes de las rutas (null si no hay)
+    private RouteCostCache hashCache;
+    private int numRoutes;
+    private double totalDistance;
+    private double totalCO2;
+
+    /**
+     * Crea una solución vacía para una instancia.
+     *
+     * @param instance Instancia compilada
+     */
+    public CompactSolution(CompiledInstance instance) {
+        this.instance = instance;
+        this.tour = new int[instance.getNumberOfCustomers()];
+        this.routeStart = new int[instance.getNumberOfUnits() + 1];
+        this.routeUnit = new int[instance.getNumberOfUnits()];
+        this.routeType = new int[instance.getNumberOfUnits()];
+        this.routeHash1 = new long[instance.getNumberOfUnits()];
+        this.routeHash2 = new long[instance.getNumberOfUnits()];
+        this.hashCache = instance.getRouteCostCache();
+    }
+
+    /**
+     * Crea una solución compacta equivalente a una {@link Solution}.
+     *
+     * @param solution Solución de origen
+     * @return Solución compacta con las mismas rutas y métricas
+     * @throws IllegalArgumentException Si contiene vehículos o nodos desconocidos
+     */
+    public static CompactSolution from(Solution solution) {
+        CompiledInstance instance = solution.getInstance();
+        CompactSolution compact = new CompactSolution(instance);
+        Map<String, List<String>> routes = solution.getVehicleRoutes();
+        for (int unit = 0; unit < instance.getNumberOfUnits(); unit++) {
+            List<String> route = routes.get(instance.getUnitName(unit));
+            if (route == null || route.isEmpty()) {
+                continue;
+            }
+            compact.startRoute(unit);
+            for (String name : route) {
+                int node = instance.getNodeIndex(name);
+                if (node < 0) {
+                    throw new IllegalArgumentException("Nodo desconocido en la ruta de " + instance.getUnitName(unit) + ": " + name);
+                }
+                compact.add(node);
+            }
+        }
+        for (String vehicle : routes.keySet()) {
+            if (instance.getUnitIndex(vehicle) < 0) {
+                throw new IllegalArgumentException("Vehículo desconocido en la solución: " + vehicle);
+            }
+        }
+        compact.totalDistance = solution.getTotalDistance();
+        compact.totalCO2 = solution.getTotalCO2();
+        return compact;
+    }
+
+    // ------------------------------------------------------------ Construcción
+
+    /**
+     * Vacía la solución.
+     */
+    public void clear() {
+        numRoutes = 0;
+        routeStart[0] = 0;
+        totalDistance = 0.0;
+        totalCO2 = 0.0;
+        hashCache = instance.getRouteCostCache();
+    }
+
+    /**
+     * Abre una nueva ruta al final del giant tour.
+     *
+     * @param unit Unidad de vehículo que la recorre
+     */
+    public void startRoute(int unit) {
+        if (numRoutes == routeUnit.length) {
+            throw new IllegalStateException("No hay más unidades de vehículo disponibles");
+        }
+        routeStart[numRoutes + 1] = routeStart[numRoutes];
+        routeUnit[numRoutes] = unit;
+        int type = instance.getUnitType(unit);
+        routeType[numRoutes] = type;
+        if (hashCache != null) {
+            routeHash1[numRoutes] = hashCache.initialHash1(type);
+            routeHash2[numRoutes] = hashCache.initialHash2(type);
+        }
+        numRoutes++;
+    }
+
+    /**
+     * Añade un cliente al final de la última ruta abierta.
+     *
+     * @param node Índice del cliente
+     */
+    public void add(int node) {
+        tour[routeStart[numRoutes]++] = node;
+        if (hashCache != null) {
+            int r = numRoutes - 1;
+            routeHash1[r] = hashCache.extendHash1(routeHash1[r], node);
+            routeHash2[r] = hashCache.extendHash2(routeHash2[r], node);
+        }
+    }
+
+    /**
+     * Añade una ruta completa cuyo hash ya se conoce, sin recalcularlo.
+     *
+     * @param unit Unidad de vehículo que la recorre
+     * @param nodes Array con los clientes de la ruta
+     * @param from Posición del primer cliente en {@code nodes}
+     * @param length Número de clientes
+     * @param cache Caché para la que se calculó el hash
+     * @param h1 Primera mitad del hash de la ruta
+     * @param h2 Segunda mitad del hash de la ruta
+     */
+    void addRoute(int unit, int[] nodes, int from, int length, RouteCostCache cache, long h1, long h2) {
+        startRoute(unit);
+        if (cache != hashCache) {
+            for (int p = from; p < from + length; p++) {
+                add(nodes[p]);
+            }
+            return;
+        }
+        System.arraycopy(nodes, from, tour, routeStart[numRoutes], length);
+        routeStart[numRoutes] += length;
+        routeHash1[numRoutes - 1] = h1;
+        routeHash2[numRoutes - 1] = h2;
+    }
+
+    /**
+     * Copia el contenido de otra solución de la misma instancia (O(n), sin reservas).
+     *
+     * @param other Solución de origen
+     */
+    public void copyFrom(CompactSolution other) {
+        int length = other.routeStart[other.numRoutes];
+        System.arraycopy(other.tour, 0, tour, 0, length);
+        System.arraycopy(other.routeStart, 0, routeStart, 0, other.numRoutes + 1);
+        System.arraycopy(other.routeUnit, 0, routeUnit, 0, other.numRoutes);
+        System.arraycopy(other.routeType, 0, routeType, 0, other.numRoutes);
+        System.arraycopy(other.routeHash1, 0, routeHash1, 0, other.numRoutes);
+        System.arraycopy(other.routeHash2, 0, routeHash2, 0, other.numRoutes);
+        hashCache = other.hashCache;
+        numRoutes = other.numRoutes;
+        totalDistance = other.totalDistance;
+        totalCO2 = other.totalCO2;
+    }
+
+    /**
+     * Crea una copia independiente.
+     *
+     * @return Copia de la solución
+     */
+    public CompactSolution copy() {
+        CompactSolution copy = new CompactSolution(instance);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    // -------------------------------------------------------------- Evaluación
+
+    /**
+     * Evalúa la solución calculando distancia y CO2 de cada ruta con el tipo de su unidad
+     * (o tomándolos de la caché de costes de rutas de la instancia, si está activada).
+     */
+    public void evaluate() {
+        long start = SolverMetrics.start();
+        double dist = 0.0;
+        double co2 = 0.0;
+        double[] cost = new double[2];
+        RouteCostCache cache = instance.getRouteCostCache();
+        boolean hashed = cache != null && cache == hashCache;
+        for (int r = 0; r < numRoutes; r++) {
+            if (hashed) {
+                cache.routeCost(routeType[r], routeHash1[r], routeHash2[r], tour, routeStart[r], routeStart[r + 1], cost);
+            } else {
+                instance.routeCost(routeType[r], tour, routeStart[r], routeStart[r + 1], cost);
+            }
+            dist += cost[0];
+            co2 += cost[1];
+        }
+        this.totalDistance = dist;
+        this.totalCO2 = co2;
+        SolverMetrics.evaluated(start);
+    }
+
+    /**
+     * Comprueba que la solución es factible para su instancia: cada cliente
+     * aparece exactamente una vez, cada unidad recorre como mucho una ruta y
+     * ninguna ruta supera la capacidad de su tipo de vehículo.
+     *
+     * @throws IllegalArgumentException Si no lo es
+     */
+    public void validate() {
+        boolean[] seen = new boolean[instance.getNumberOfNodes()];
+        boolean[] usedUnit = new boolean[instance.getNumberOfUnits()];
+        for (int r = 0; r < numRoutes; r++) {
+            int unit = routeUnit[r];
+            if (usedUnit[unit]) {
+                throw new IllegalArgumentException("La unidad " + instance.getUnitName(unit) + " recorre varias rutas");
+            }
+            usedUnit[unit] = true;
+            double load = 0.0;
+            for (int p = routeStart[r]; p < routeStart[r + 1]; p++) {
+                int node = tour[p];
+                if (node == instance.getDepot() || seen[node]) {
+                    throw new IllegalArgumentException("Nodo repetido en la solución: " + instance.getNodeName(node));
+                }
+                seen[node] = true;
+                load += instance.getProd(node);
+            }
+            if (load > instance.getTypeLoad(routeType[r]) + CAPACITY_TOLERANCE) {
+                throw new IllegalArgumentException("La ruta de " + instance.getUnitName(unit) + " excede su capacidad ("
+                        + load + " > " + instance.getTypeLoad(routeType[r]) + ")");
+            }
+        }
+        if (getLength() != instance.getNumberOfCustomers()) {
+            throw new IllegalArgumentException("La solución no visita todos los clientes");
+        }
+    }
+
+    /**
+     * Convierte a {@link Solution} con los nombres de unidades y nodos.
+     *
+     * @return Solución equivalente
+     */
+    public Solution toSolution() {
+        Map<String, List<String>> routes = new HashMap<>();
+        for (int r = 0; r < numRoutes; r++) {
+            if (getRouteSize(r) == 0) {
+                continue;
+            }
+            List<String> route = new ArrayList<>(getRouteSize(r));
+            for (int p = routeStart[r]; p < routeStart[r + 1]; p++) {
+                route.add(instance.getNodeName(tour[p]));
+            }
+            routes.put(instance.getUnitName(routeUnit[r]), route);
+        }
+        return new Solution(instance, routes, totalDistance, totalCO2);
+    }
+
+    // ---------------------------------------------------------------- Consultas
+
+    /**
+     * Obtiene la instancia compilada de la solución.
+     *
+     * @return Instancia compilada
+     */
+    public CompiledInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Obtiene el número de rutas.
+     *
+     * @return Número de rutas
+     */
+    public int getNumberOfRoutes() {
+        return numRoutes;
+    }
+
+    /**
+     * Obtiene la unidad de vehículo de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Índice de la unidad
+     */
+    public int getRouteUnit(int route) {
+        return routeUnit[route];
+    }
+
+    /**
+     * Obtiene el tipo de vehículo de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Índice del tipo
+     */
+    public int getRouteType(int route) {
+        return routeType[route];
+    }
+
+    /**
+     * Obtiene la posición del giant tour donde empieza una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Posición inicial
+     */
+    public int getRouteStart(int route) {
+        return routeStart[route];
+    }
+
+    /**
+     * Obtiene el número de clientes de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Clientes de la ruta
+     */
+    public int getRouteSize(int route) {
+        return routeStart[route + 1] - routeStart[route];
+    }
+
+    /**
+     * Obtiene el cliente en una posición del giant tour.
+     *
+     * @param position Posición en el giant tour
+     * @return Índice del nodo
+     */
+    public int getNode(int position) {
+        return tour[position];
+    }
+
+    /**
+     * Obtiene el número de clientes visitados.
+     *
+     * @return Longitud del giant tour
+     */
+    public int getLength() {
+        return routeStart[numRoutes];
+    }
+
+    /**
+     * Obtiene la distancia total.
+     *
+     * @return Distancia total
+     */
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+
+    /**
+     * Establece la distancia total.
+     *
+     * @param totalDistance Distancia total
+     */
+    public void setTotalDistance(double totalDistance) {
+        this.totalDistance = totalDistance;
+    }
+
+    /**
+     * Obtiene el CO2 total.
+     *
+     * @return Emisiones de CO2 total
+     */
+    public double getTotalCO2() {
+        return totalCO2;
+    }
+
+    /**
+     * Establece el CO2 total.
+     *
+     * @param totalCO2 Emisiones de CO2 total
+     */
+    public void setTotalCO2(double totalCO2) {
+        this.totalCO2 = totalCO2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactSolution)) {
+            return false;
+        }
+        CompactSolution other = (CompactSolution) o;
+        return numRoutes == other.numRoutes
+                && Arrays.equals(routeStart, 0, numRoutes + 1, other.routeStart, 0, numRoutes + 1)
+                && Arrays.equals(routeUnit, 0, numRoutes, other.routeUnit, 0, numRoutes)
+                && Arrays.equals(tour, 0, getLength(), other.tour, 0, other.getLength());
+    }
+
+    @Override
+    public int hashCode() {
+        int h = numRoutes;
+        for (int r = 0; r < numRoutes; r++) {
+            h = 31 * h + routeUnit[r];
+            h = 31 * h + routeStart[r + 1];
+        }
+        for (int p = 0; p < getLength(); p++) {
+            h = 31 * h + tour[p];
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        // Mostrar rutas de vehículos (mismo formato que Solution)
+        for (int r = 0; r < numRoutes; r++) {
+            if (getRouteSize(r) == 0) {
+                continue;
+            }
+            sb.append(instance.getUnitName(routeUnit[r])).append("\t\t[");
+            for (int p = routeStart[r]; p < routeStart[r + 1]; p++) {
+                if (p > routeStart[r]) {
+                    sb.append(", ");
+                }
+                sb.append(instance.getNodeName(tour[p]));
+            }
+            sb.append("]\n");
+        }
+
+        // Mostrar métricas
+        sb.append("\n");
+        sb.append("CO2\t\t").append(String.format("%.7f", totalCO2)).append("\n");
+        sb.append("Distance\t").append(String.format("%.6f", totalDistance));
+
+        return sb.toString();
+    }
+}
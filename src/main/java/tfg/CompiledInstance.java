@@ -0,0 +1,602 @@
+package tfg;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Vista compilada de una instancia del problema VRP.
+ * Guarda los datos leídos del CSV ({@link InstanceReader}) o de su copia
+ * binaria ({@link InstanceCache}) con identificadores enteros y arrays
+ * primitivos, de forma que los algoritmos no tengan que parsear cadenas,
+ * buscar nodos por nombre ni copiar listas en su bucle principal.
+ *
+ * Los nodos se identifican por su posición en el CSV (0..n-1) y los vehículos
+ * por tipo (fila de la sección de vehículos). Cada tipo se expande en tantas
+ * unidades como indique {@code Num_v}, nombradas {@code V1}, {@code V1_1}, ...
+ */
+public final class CompiledInstance {
+    /** Nombre del nodo que representa el depósito. */
+    public static final String DEPOT_NAME = "P";
+
+    private final String[] nodeNames;
+    private final double[] x;
+    private final double[] y;
+    private final double[] prod;
+    private final int depot;
+    private final int[] customers;
+
+    private final String[] typeNames;
+    private final double[] typeLoad;
+    private final double[] typeEf;
+    private final double[] typeEo;
+    private final double[] typeSlope;
+    private final int[] typeUnits;
+
+    private final String[] unitNames;
+    private final int[] unitType;
+
+    private final Map<String, Integer> nodeIndex;
+    private final Map<String, Integer> unitIndex;
+    private final long fingerprint;
+
+    private volatile DistanceMatrix distances;
+    private volatile NeighborLists neighborLists;
+    private volatile SpatialIndex spatialIndex;
+    private volatile LowerBound lowerBound;
+    private volatile RouteCostCache routeCostCache;
+
+    /**
+     * Crea una instancia compilada directamente desde arrays primitivos (lectores
+     * rápidos y formato binario). Los arrays pasan a ser propiedad de la instancia.
+     *
+     * @param nodeNames Nombres de los nodos
+     * @param x Coordenadas x
+     * @param y Coordenadas y
+     * @param prod Producción/demanda de cada nodo
+     * @param typeNames Nombres de los tipos de vehículo
+     * @param typeLoad Capacidad de cada tipo
+     * @param typeEf Emisiones con el vehículo lleno
+     * @param typeEo Emisiones con el vehículo vacío
+     * @param typeUnits Unidades de cada tipo ({@code Num_v})
+     * @throws IllegalArgumentException Si falta el depósito
+     */
+    CompiledInstance(String[] nodeNames, double[] x, double[] y, double[] prod,
+                     String[] typeNames, double[] typeLoad, double[] typeEf, double[] typeEo, int[] typeUnits) {
+        // Nodos
+        int n = nodeNames.length;
+        this.nodeNames = nodeNames;
+        this.x = x;
+        this.y = y;
+        this.prod = prod;
+        this.nodeIndex = new HashMap<>(n * 2);
+        int depotIndex = -1;
+        for (int i = 0; i < n; i++) {
+            nodeIndex.put(nodeNames[i], i);
+            if (DEPOT_NAME.equals(nodeNames[i])) {
+                depotIndex = i;
+            }
+        }
+        if (depotIndex < 0) {
+            throw new IllegalArgumentException("La instancia no contiene el depósito '" + DEPOT_NAME + "'");
+        }
+        this.depot = depotIndex;
+        this.customers = new int[n - 1];
+        for (int i = 0, c = 0; i < n; i++) {
+            if (i != depotIndex) {
+                customers[c++] = i;
+            }
+        }
+
+        // Tipos de vehículo
+        int t = typeNames.length;
+        this.typeNames = typeNames;
+        this.typeLoad = typeLoad;
+        this.typeEf = typeEf;
+        this.typeEo = typeEo;
+        this.typeUnits = typeUnits;
+        this.typeSlope = new double[t];
+        int totalUnits = 0;
+        for (int i = 0; i < t; i++) {
+            typeSlope[i] = (typeEf[i] - typeEo[i]) / typeLoad[i];
+            totalUnits += typeUnits[i];
+        }
+
+        // Unidades de vehículo (mismo nombrado que RandomConstructive)
+        this.unitNames = new String[totalUnits];
+        this.unitType = new int[totalUnits];
+        this.unitIndex = new HashMap<>(totalUnits * 2);
+        int u = 0;
+        for (int i = 0; i < t; i++) {
+            for (int k = 0; k < typeUnits[i]; k++) {
+                String unitName = typeNames[i] + (k > 0 ? "_" + k : "");
+                unitNames[u] = unitName;
+                unitType[u] = i;
+                unitIndex.put(unitName, u);
+                u++;
+            }
+        }
+        this.fingerprint = fingerprint();
+    }
+
+    /**
+     * Huella de 64 bits de los datos que determinan la factibilidad y el coste:
+     * depósito, coordenadas y producción de cada nodo, y capacidad, emisiones y
+     * unidades de cada tipo.
+     */
+    private long fingerprint() {
+        long h = mix(nodeNames.length * 31L + depot);
+        for (int i = 0; i < nodeNames.length; i++) {
+            h = mix(h ^ Double.doubleToLongBits(x[i]));
+            h = mix(h ^ Double.doubleToLongBits(y[i]));
+            h = mix(h ^ Double.doubleToLongBits(prod[i]));
+        }
+        for (int i = 0; i < typeNames.length; i++) {
+            h = mix(h ^ Double.doubleToLongBits(typeLoad[i]));
+            h = mix(h ^ Double.doubleToLongBits(typeEf[i]));
+            h = mix(h ^ Double.doubleToLongBits(typeEo[i]));
+            h = mix(h ^ typeUnits[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Mezcla final de SplitMix64.
+     */
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Parsea un valor numérico obligatorio.
+     */
+    static double parseRequired(String value, String field, String owner) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Falta el campo '" + field + "' en " + owner);
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no numérico en '" + field + "' de " + owner + ": " + value, e);
+        }
+    }
+
+    /**
+     * Parsea un valor numérico opcional; vacío o inválido se toma como 0.
+     */
+    static double parseOptional(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0.0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Obtiene la huella de la instancia: dos procesos que cargan la misma
+     * instancia obtienen la misma, y es muy improbable que coincida la de dos
+     * instancias distintas con el mismo número de nodos y unidades.
+     *
+     * @return Huella de 64 bits
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    // ---------------------------------------------------------------- Nodos
+
+    /**
+     * Obtiene el número de nodos (incluido el depósito).
+     *
+     * @return Número de nodos
+     */
+    public int getNumberOfNodes() {
+        return nodeNames.length;
+    }
+
+    /**
+     * Obtiene el índice del depósito.
+     *
+     * @return Índice del nodo depósito
+     */
+    public int getDepot() {
+        return depot;
+    }
+
+    /**
+     * Obtiene los índices de los nodos cliente (todos menos el depósito).
+     *
+     * @return Copia del array de clientes
+     */
+    public int[] getCustomers() {
+        return customers.clone();
+    }
+
+    /**
+     * Obtiene el número de nodos cliente.
+     *
+     * @return Número de clientes
+     */
+    public int getNumberOfCustomers() {
+        return customers.length;
+    }
+
+    /**
+     * Obtiene el nombre de un nodo.
+     *
+     * @param node Índice del nodo
+     * @return Nombre del nodo
+     */
+    public String getNodeName(int node) {
+        return nodeNames[node];
+    }
+
+    /**
+     * Obtiene el índice de un nodo a partir de su nombre.
+     *
+     * @param name Nombre del nodo
+     * @return Índice del nodo o -1 si no existe
+     */
+    public int getNodeIndex(String name) {
+        Integer index = nodeIndex.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Obtiene la coordenada x de un nodo.
+     *
+     * @param node Índice del nodo
+     * @return Coordenada x
+     */
+    public double getX(int node) {
+        return x[node];
+    }
+
+    /**
+     * Obtiene la coordenada y de un nodo.
+     *
+     * @param node Índice del nodo
+     * @return Coordenada y
+     */
+    public double getY(int node) {
+        return y[node];
+    }
+
+    /**
+     * Obtiene la producción/demanda de un nodo.
+     *
+     * @param node Índice del nodo
+     * @return Producción del nodo
+     */
+    public double getProd(int node) {
+        return prod[node];
+    }
+
+    /**
+     * Obtiene la matriz de distancias de la instancia.
+     * Se construye la primera vez que se solicita (ver {@link DistanceMatrix#create(CompiledInstance)}).
+     *
+     * @return Matriz de distancias
+     */
+    public DistanceMatrix getDistances() {
+        DistanceMatrix result = distances;
+        if (result == null) {
+            synchronized (this) {
+                result = distances;
+                if (result == null) {
+                    result = DistanceMatrix.create(this);
+                    distances = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Establece una matriz de distancias ya construida (p.ej. con un modo concreto).
+     *
+     * @param matrix Matriz de distancias de esta instancia
+     */
+    public void setDistances(DistanceMatrix matrix) {
+        if (matrix.size() != getNumberOfNodes()) {
+            throw new IllegalArgumentException("La matriz no corresponde a la instancia");
+        }
+        this.distances = matrix;
+    }
+
+    /**
+     * Obtiene las listas de candidatos (k clientes más cercanos) de la instancia,
+     * con {@link NeighborLists#DEFAULT_SIZE} vecinos por nodo. Se calculan una vez.
+     *
+     * @return Listas de candidatos
+     */
+    public NeighborLists getNeighborLists() {
+        NeighborLists result = neighborLists;
+        if (result == null) {
+            synchronized (this) {
+                result = neighborLists;
+                if (result == null) {
+                    result = NeighborLists.build(this, NeighborLists.DEFAULT_SIZE);
+                    neighborLists = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene el índice espacial de los clientes. Se construye una vez.
+     *
+     * @return Índice espacial
+     */
+    public SpatialIndex getSpatialIndex() {
+        SpatialIndex result = spatialIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = spatialIndex;
+                if (result == null) {
+                    result = SpatialIndex.build(this);
+                    spatialIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene la cota inferior del CO2 de la instancia. Se calcula una vez.
+     *
+     * @return Cota inferior
+     */
+    public LowerBound getLowerBound() {
+        LowerBound result = lowerBound;
+        if (result == null) {
+            synchronized (this) {
+                result = lowerBound;
+                if (result == null) {
+                    result = LowerBound.compute(this);
+                    lowerBound = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene la caché de costes de rutas de la instancia.
+     *
+     * @return Caché, o {@code null} si no se ha activado
+     */
+    public RouteCostCache getRouteCostCache() {
+        return routeCostCache;
+    }
+
+    /**
+     * Activa (o desactiva) la caché de costes de rutas que usan las evaluaciones
+     * completas de las soluciones de esta instancia.
+     *
+     * @param cache Caché de esta instancia, o {@code null} para desactivarla
+     */
+    public void setRouteCostCache(RouteCostCache cache) {
+        if (cache != null && cache.getInstance() != this) {
+            throw new IllegalArgumentException("La caché no corresponde a la instancia");
+        }
+        this.routeCostCache = cache;
+    }
+
+    /**
+     * Obtiene la distancia euclidiana entre dos nodos.
+     *
+     * @param i Índice del primer nodo
+     * @param j Índice del segundo nodo
+     * @return Distancia euclidiana
+     */
+    public double distance(int i, int j) {
+        return getDistances().get(i, j);
+    }
+
+    // ---------------------------------------------------- Tipos de vehículo
+
+    /**
+     * Obtiene el número de tipos de vehículo.
+     *
+     * @return Número de tipos
+     */
+    public int getNumberOfTypes() {
+        return typeNames.length;
+    }
+
+    /**
+     * Obtiene el nombre de un tipo de vehículo.
+     *
+     * @param type Índice del tipo
+     * @return Nombre del tipo (columna {@code Vehicle})
+     */
+    public String getTypeName(int type) {
+        return typeNames[type];
+    }
+
+    /**
+     * Obtiene la capacidad máxima de un tipo de vehículo.
+     *
+     * @param type Índice del tipo
+     * @return Capacidad (kg)
+     */
+    public double getTypeLoad(int type) {
+        return typeLoad[type];
+    }
+
+    /**
+     * Obtiene las emisiones con el vehículo lleno.
+     *
+     * @param type Índice del tipo
+     * @return Ef del tipo
+     */
+    public double getTypeEf(int type) {
+        return typeEf[type];
+    }
+
+    /**
+     * Obtiene las emisiones con el vehículo vacío.
+     *
+     * @param type Índice del tipo
+     * @return Eo del tipo
+     */
+    public double getTypeEo(int type) {
+        return typeEo[type];
+    }
+
+    /**
+     * Obtiene la pendiente de emisiones por unidad de carga: {@code (Ef - Eo) / Load}.
+     *
+     * @param type Índice del tipo
+     * @return Pendiente de emisiones
+     */
+    public double getTypeSlope(int type) {
+        return typeSlope[type];
+    }
+
+    /**
+     * Obtiene el número de unidades disponibles de un tipo.
+     *
+     * @param type Índice del tipo
+     * @return Valor de {@code Num_v}
+     */
+    public int getTypeUnits(int type) {
+        return typeUnits[type];
+    }
+
+    // -------------------------------------------------- Unidades de vehículo
+
+    /**
+     * Obtiene el número total de unidades de vehículo.
+     *
+     * @return Suma de {@code Num_v} de todos los tipos
+     */
+    public int getNumberOfUnits() {
+        return unitNames.length;
+    }
+
+    /**
+     * Obtiene el nombre de una unidad de vehículo.
+     *
+     * @param unit Índice de la unidad
+     * @return Nombre de la unidad (p.ej. {@code V1_1})
+     */
+    public String getUnitName(int unit) {
+        return unitNames[unit];
+    }
+
+    /**
+     * Obtiene el índice de una unidad a partir de su nombre.
+     *
+     * @param name Nombre de la unidad
+     * @return Índice de la unidad o -1 si no existe
+     */
+    public int getUnitIndex(String name) {
+        Integer index = unitIndex.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Obtiene el tipo de vehículo de una unidad.
+     *
+     * @param unit Índice de la unidad
+     * @return Índice del tipo
+     */
+    public int getUnitType(int unit) {
+        return unitType[unit];
+    }
+
+    // ------------------------------------------------------ Evaluación de rutas
+
+    /**
+     * Calcula la distancia de una ruta que sale y vuelve al depósito.
+     *
+     * @param route Array con los nodos de la ruta
+     * @param from Primera posición (incluida)
+     * @param to Última posición (excluida)
+     * @return Distancia total de la ruta
+     */
+    public double routeDistance(int[] route, int from, int to) {
+        if (from >= to) {
+            return 0.0;
+        }
+        DistanceMatrix matrix = getDistances();
+        double dist = matrix.get(depot, route[from]);
+        for (int i = from; i < to - 1; i++) {
+            dist += matrix.get(route[i], route[i + 1]);
+        }
+        return dist + matrix.get(route[to - 1], depot);
+    }
+
+    /**
+     * Calcula las emisiones de CO2 de una ruta recorrida por un tipo de vehículo.
+     * Cada tramo emite {@code ((Ef - Eo) / Load) * peso * distancia + Eo * distancia},
+     * donde el peso es la carga acumulada al salir del nodo origen del tramo.
+     *
+     * @param type Índice del tipo de vehículo
+     * @param route Array con los nodos de la ruta
+     * @param from Primera posición (incluida)
+     * @param to Última posición (excluida)
+     * @return Emisiones de la ruta
+     */
+    public double routeCO2(int type, int[] route, int from, int to) {
+        if (from >= to) {
+            return 0.0;
+        }
+        double slope = typeSlope[type];
+        double eo = typeEo[type];
+        DistanceMatrix matrix = getDistances();
+
+        // Sale vacío desde el depósito
+        double d = matrix.get(depot, route[from]);
+        double co2 = eo * d;
+        double weight = prod[route[from]];
+
+        // Entre nodos consecutivos con el peso acumulado
+        for (int i = from; i < to - 1; i++) {
+            d = matrix.get(route[i], route[i + 1]);
+            co2 += slope * weight * d + eo * d;
+            weight += prod[route[i + 1]];
+        }
+
+        // Vuelve al depósito con todo el peso recogido
+        d = matrix.get(route[to - 1], depot);
+        return co2 + slope * weight * d + eo * d;
+    }
+
+    /**
+     * Calcula la distancia y el CO2 de una ruta, usando la caché de costes de
+     * rutas si está activada.
+     *
+     * @param type Índice del tipo de vehículo
+     * @param route Array con los nodos de la ruta
+     * @param from Primera posición (incluida)
+     * @param to Última posición (excluida)
+     * @param result Array de al menos 2 posiciones: recibe {@code [distancia, CO2]}
+     */
+    public void routeCost(int type, int[] route, int from, int to, double[] result) {
+        RouteCostCache cache = routeCostCache;
+        if (cache != null) {
+            cache.routeCost(type, route, from, to, result);
+        } else {
+            result[0] = routeDistance(route, from, to);
+            result[1] = routeCO2(type, route, from, to);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledInstance{" +
+                "nodos=" + nodeNames.length +
+                ", tipos=" + typeNames.length +
+                ", unidades=" + unitNames.length +
+                '}';
+    }
+}
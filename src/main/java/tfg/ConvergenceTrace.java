@@ -0,0 +1,192 @@
+package tfg;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traza de convergencia de una ejecución: por cada iteración (o arranque) el
+ * tiempo transcurrido, la iteración, el CO2 actual, el mejor CO2 y la distancia.
+ *
+ * Los registros se guardan en arrays primitivos reservados al crear la traza,
+ * usados como buffer circular: {@link #record} no crea objetos ni bloquea (el
+ * hueco se reserva con un contador atómico, así que varios hilos de un
+ * multiarranque pueden registrar a la vez). Si hay más registros que capacidad
+ * se conservan los más recientes; {@link #getDropped()} indica cuántos se
+ * perdieron. La traza se vuelca al final con {@link #writeCsv(Path)} o
+ * {@link #writeBinary(Path)}, siempre desde un solo hilo y con la ejecución
+ * terminada.
+ */
+public final class ConvergenceTrace {
+    /** Capacidad por defecto (registros). */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int BINARY_MAGIC = 0x54464754; // "TFGT"
+    private static final int BINARY_VERSION = 1;
+
+    private final int capacity;
+    private final long[] nanos;
+    private final long[] iterations;
+    private final double[] current;
+    private final double[] best;
+    private final double[] distance;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Constructor con la capacidad por defecto.
+     */
+    public ConvergenceTrace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor con una capacidad dada.
+     *
+     * @param capacity Número máximo de registros conservados
+     */
+    public ConvergenceTrace(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad de la traza debe ser positiva: " + capacity);
+        }
+        this.capacity = capacity;
+        this.nanos = new long[capacity];
+        this.iterations = new long[capacity];
+        this.current = new double[capacity];
+        this.best = new double[capacity];
+        this.distance = new double[capacity];
+    }
+
+    /**
+     * Nombre de fichero de traza para una instancia, ejecución y semilla.
+     *
+     * @param instanceName Nombre de la instancia (sin extensión)
+     * @param run Nombre de la ejecución (p.ej. el experimento), o {@code null}
+     * @param seed Semilla
+     * @param extension Extensión sin punto ({@code csv} o {@code bin})
+     * @return Nombre de fichero
+     */
+    public static String fileName(String instanceName, String run, long seed, String extension) {
+        String base = run == null ? instanceName : instanceName + "_" + run.replace('+', '-');
+        return base + "_s" + seed + "." + extension;
+    }
+
+    /**
+     * Registra un punto de la traza.
+     *
+     * @param elapsedNanos Tiempo desde el inicio de la ejecución
+     * @param iteration Iteración o arranque
+     * @param currentCO2 CO2 de la solución actual
+     * @param bestCO2 Mejor CO2 hasta el momento
+     * @param totalDistance Distancia de la solución actual
+     */
+    public void record(long elapsedNanos, long iteration, double currentCO2, double bestCO2, double totalDistance) {
+        int slot = (int) (count.getAndIncrement() % capacity);
+        nanos[slot] = elapsedNanos;
+        iterations[slot] = iteration;
+        current[slot] = currentCO2;
+        best[slot] = bestCO2;
+        distance[slot] = totalDistance;
+    }
+
+    /**
+     * Vacía la traza.
+     */
+    public void clear() {
+        count.set(0);
+    }
+
+    /**
+     * Obtiene el número de registros conservados.
+     *
+     * @return Registros disponibles
+     */
+    public int size() {
+        return (int) Math.min(count.get(), capacity);
+    }
+
+    /**
+     * Obtiene el número de registros sobrescritos por falta de capacidad.
+     *
+     * @return Registros perdidos
+     */
+    public long getDropped() {
+        return Math.max(0L, count.get() - capacity);
+    }
+
+    /**
+     * Índice en los arrays del k-ésimo registro conservado (del más antiguo al más reciente).
+     */
+    private int slot(int k) {
+        long total = count.get();
+        long first = Math.max(0L, total - capacity);
+        return (int) ((first + k) % capacity);
+    }
+
+    /**
+     * Escribe la traza en CSV ({@code nanos,iteration,current_co2,best_co2,distance}).
+     *
+     * @param file Fichero de salida
+     * @throws IOException Si hay un error al escribir
+     */
+    public void writeCsv(Path file) throws IOException {
+        int size = size();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("nanos,iteration,current_co2,best_co2,distance\n");
+            StringBuilder row = new StringBuilder(96);
+            for (int k = 0; k < size; k++) {
+                int s = slot(k);
+                row.setLength(0);
+                row.append(nanos[s]).append(',').append(iterations[s]).append(',')
+                        .append(String.format(Locale.ROOT, "%.6f,%.6f,%.6f", current[s], best[s], distance[s]))
+                        .append('\n');
+                out.append(row);
+            }
+        }
+    }
+
+    /**
+     * Escribe la traza en binario (big-endian): magic, versión, número de
+     * registros y, por registro, {@code long nanos, long iteration, double
+     * current, double best, double distance}.
+     *
+     * @param file Fichero de salida
+     * @throws IOException Si hay un error al escribir
+     */
+    public void writeBinary(Path file) throws IOException {
+        int size = size();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+            out.writeInt(size);
+            for (int k = 0; k < size; k++) {
+                int s = slot(k);
+                out.writeLong(nanos[s]);
+                out.writeLong(iterations[s]);
+                out.writeDouble(current[s]);
+                out.writeDouble(best[s]);
+                out.writeDouble(distance[s]);
+            }
+        }
+    }
+
+    /**
+     * Escribe la traza en CSV o en binario según la extensión del fichero
+     * ({@code .bin} para binario).
+     *
+     * @param file Fichero de salida
+     * @throws IOException Si hay un error al escribir
+     */
+    public void write(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(".bin")) {
+            writeBinary(file);
+        } else {
+            writeCsv(file);
+        }
+    }
+}
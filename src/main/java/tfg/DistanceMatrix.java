@@ -0,0 +1,168 @@
+package tfg;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Proveedor de distancias euclidianas entre nodos de una instancia.
+ * Se construye una única vez por instancia y elige automáticamente la
+ * representación según el tamaño:
+ * <ul>
+ *   <li>{@link Mode#HEAP}: matriz triangular de {@code double} en memoria.</li>
+ *   <li>{@link Mode#MAPPED}: matriz triangular en un fichero mapeado en memoria,
+ *       reutilizado entre ejecuciones. Solo se elige automáticamente si se
+ *       indica la carpeta con {@code tfg.distcache}: cada fichero ocupa hasta
+ *       ~4 GB y no se borran, así que sin una carpeta elegida a propósito
+ *       (p.ej. en el servidor, con un CSV distinto por petición) el disco
+ *       crecería sin límite.</li>
+ *   <li>{@link Mode#LAZY}: cálculo al vuelo cuando n² no cabe.</li>
+ * </ul>
+ * El modo puede forzarse con la propiedad de sistema {@code tfg.distances}
+ * ({@code auto}, {@code heap}, {@code heap-float}, {@code mapped}, {@code lazy}).
+ */
+public abstract class DistanceMatrix {
+    /** Máximo de nodos para la matriz en memoria. */
+    static final int HEAP_MAX_NODES = 4096;
+    /** Máximo de nodos para la matriz mapeada (fichero de ~4 GB). */
+    static final int MAPPED_MAX_NODES = 32768;
+
+    /**
+     * Representación de la matriz de distancias.
+     */
+    public enum Mode {
+        AUTO, HEAP, HEAP_FLOAT, MAPPED, LAZY;
+
+        /**
+         * Obtiene el modo configurado en la propiedad {@code tfg.distances}.
+         *
+         * @return Modo configurado o {@link #AUTO}
+         */
+        public static Mode fromProperty() {
+            String value = System.getProperty("tfg.distances", "auto");
+            return Mode.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    protected final int size;
+
+    protected DistanceMatrix(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Obtiene la distancia entre dos nodos.
+     *
+     * @param i Índice del primer nodo
+     * @param j Índice del segundo nodo
+     * @return Distancia euclidiana
+     */
+    public abstract double get(int i, int j);
+
+    /**
+     * Obtiene el modo de representación de esta matriz.
+     *
+     * @return Modo de la matriz
+     */
+    public abstract Mode getMode();
+
+    /**
+     * Obtiene el número de nodos cubiertos.
+     *
+     * @return Número de nodos
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Índice en almacenamiento triangular (sin diagonal) del par {@code (i, j)} con {@code i > j}.
+     */
+    static long triangularIndex(int i, int j) {
+        return (long) i * (i - 1) / 2 + j;
+    }
+
+    /**
+     * Crea la matriz de una instancia con el modo configurado por propiedad.
+     *
+     * @param instance Instancia compilada
+     * @return Matriz de distancias
+     */
+    public static DistanceMatrix create(CompiledInstance instance) {
+        return create(instance, Mode.fromProperty());
+    }
+
+    /**
+     * Crea la matriz de una instancia con un modo concreto.
+     * En modo {@link Mode#AUTO} se elige según el número de nodos (la matriz
+     * mapeada solo si está definida {@code tfg.distcache}). Si no se puede
+     * crear el fichero mapeado se recurre al cálculo al vuelo.
+     *
+     * @param instance Instancia compilada
+     * @param mode Modo de representación
+     * @return Matriz de distancias
+     */
+    public static DistanceMatrix create(CompiledInstance instance, Mode mode) {
+        int n = instance.getNumberOfNodes();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = instance.getX(i);
+            y[i] = instance.getY(i);
+        }
+
+        if (mode == Mode.AUTO) {
+            if (n <= HEAP_MAX_NODES) {
+                mode = Mode.HEAP;
+            } else if (n <= MAPPED_MAX_NODES && isCacheConfigured()) {
+                mode = Mode.MAPPED;
+            } else {
+                mode = Mode.LAZY;
+            }
+        }
+
+        switch (mode) {
+            case HEAP:
+                return new HeapDistanceMatrix(x, y, false);
+            case HEAP_FLOAT:
+                return new HeapDistanceMatrix(x, y, true);
+            case MAPPED:
+                try {
+                    return MappedDistanceMatrix.open(x, y, cacheDirectory());
+                } catch (IOException e) {
+                    System.err.println("No se pudo crear la matriz mapeada, se calcula al vuelo: " + e.getMessage());
+                    return new LazyDistanceMatrix(x, y);
+                }
+            default:
+                return new LazyDistanceMatrix(x, y);
+        }
+    }
+
+    /**
+     * Indica si se ha elegido una carpeta para las matrices mapeadas.
+     */
+    static boolean isCacheConfigured() {
+        String dir = System.getProperty("tfg.distcache");
+        return dir != null && !dir.isEmpty();
+    }
+
+    /**
+     * Carpeta donde se guardan las matrices mapeadas ({@code tfg.distcache};
+     * si no se indica, solo se usa al forzar {@link Mode#MAPPED}).
+     */
+    static Path cacheDirectory() {
+        String dir = System.getProperty("tfg.distcache");
+        if (dir == null || dir.isEmpty()) {
+            return Paths.get(System.getProperty("java.io.tmpdir"), "tfg-distances");
+        }
+        return Paths.get(dir);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "nodos=" + size +
+                ", modo=" + getMode() +
+                '}';
+    }
+}
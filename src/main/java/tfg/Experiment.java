@@ -0,0 +1,261 @@
+package tfg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Experimento de la batería de pruebas: un multiarranque de N construcciones
+ * aleatorias (aleatoria pura o de ahorros perturbados), con o sin búsqueda local
+ * y, opcionalmente, recombinación de las rutas de todos los arranques.
+ *
+ * Se describe con una cadena corta:
+ * <ul>
+ *   <li>{@code R100}: 100 construcciones aleatorias.</li>
+ *   <li>{@code R1+LS}: 1 construcción aleatoria mejorada con 2-opt.</li>
+ *   <li>{@code R100+LS}: 100 construcciones aleatorias mejoradas con 2-opt.</li>
+ *   <li>{@code R100+VND}: 100 construcciones aleatorias mejoradas con 2-opt y
+ *       los vecindarios entre rutas ({@link VariableNeighborhoodDescent}).</li>
+ *   <li>{@code S10+VND}: 10 construcciones de ahorros con perturbación
+ *       ({@link SavingsConstructive}) mejoradas con VND.</li>
+ *   <li>{@code R100+VND+SP}: como {@code R100+VND}, recombinando al final las
+ *       rutas de todos los arranques por particionamiento de conjuntos
+ *       ({@link RoutePool}).</li>
+ * </ul>
+ */
+public class Experiment {
+    /** Experimentos del plan del Sprint 2. */
+    public static final String DEFAULT_SPECS = "R100,R1+LS,R100+LS";
+
+    private final String name;
+    private final Construction construction;
+    private final int starts;
+    private final Improvement improvement;
+    private boolean recombination;
+
+    /**
+     * Constructivo de cada arranque.
+     */
+    public enum Construction {
+        /** {@link RandomConstructive} (prefijo {@code R}). */
+        RANDOM,
+        /** {@link SavingsConstructive} con ahorros perturbados (prefijo {@code S}). */
+        SAVINGS
+    }
+
+    /**
+     * Mejora aplicada a cada construcción.
+     */
+    public enum Improvement {
+        /** Sin mejora. */
+        NONE,
+        /** Búsqueda local 2-opt. */
+        LS,
+        /** 2-opt más vecindarios entre rutas. */
+        VND
+    }
+
+    /**
+     * Constructor del experimento.
+     *
+     * @param name Nombre (columna en los resultados)
+     * @param starts Número de construcciones aleatorias
+     * @param improvement Mejora aplicada a cada construcción
+     */
+    public Experiment(String name, int starts, Improvement improvement) {
+        this(name, Construction.RANDOM, starts, improvement);
+    }
+
+    /**
+     * Constructor del experimento con un constructivo concreto.
+     *
+     * @param name Nombre (columna en los resultados)
+     * @param construction Constructivo de cada arranque
+     * @param starts Número de construcciones
+     * @param improvement Mejora aplicada a cada construcción
+     */
+    public Experiment(String name, Construction construction, int starts, Improvement improvement) {
+        this.name = name;
+        this.construction = construction;
+        this.starts = starts;
+        this.improvement = improvement;
+    }
+
+    /**
+     * Crea un experimento a partir de su descripción.
+     *
+     * @param spec Descripción, p.ej. {@code R100+LS}, {@code S10+VND} o {@code R100+VND+SP}
+     * @return Experimento
+     * @throws IllegalArgumentException Si la descripción no es válida
+     */
+    public static Experiment parse(String spec) {
+        String value = spec.trim().toUpperCase();
+        Improvement improvement = Improvement.NONE;
+        boolean recombination = false;
+        String[] parts = value.split("\\+");
+        String base = parts[0];
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].equals("SP") && !recombination) {
+                recombination = true;
+            } else if (i == 1) {
+                try {
+                    improvement = Improvement.valueOf(parts[i]);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Mejora no válida en el experimento: " + spec, e);
+                }
+            } else {
+                throw new IllegalArgumentException("Experimento no válido: " + spec);
+            }
+        }
+        Construction construction;
+        if (base.startsWith("R")) {
+            construction = Construction.RANDOM;
+        } else if (base.startsWith("S")) {
+            construction = Construction.SAVINGS;
+        } else {
+            throw new IllegalArgumentException("Experimento no válido: " + spec);
+        }
+        try {
+            int starts = Integer.parseInt(base.substring(1));
+            if (starts <= 0) {
+                throw new IllegalArgumentException("El número de arranques debe ser positivo: " + spec);
+            }
+            Experiment experiment = new Experiment(value, construction, starts, improvement);
+            experiment.setRecombination(recombination);
+            return experiment;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Experimento no válido: " + spec, e);
+        }
+    }
+
+    /**
+     * Crea una lista de experimentos a partir de descripciones separadas por comas.
+     *
+     * @param specs Descripciones, p.ej. {@code R100,R1+LS,R100+LS}
+     * @return Lista de experimentos
+     */
+    public static List<Experiment> parseList(String specs) {
+        List<Experiment> experiments = new ArrayList<>();
+        for (String spec : specs.split(",")) {
+            if (!spec.trim().isEmpty()) {
+                experiments.add(parse(spec));
+            }
+        }
+        return experiments;
+    }
+
+    /**
+     * Ejecuta el experimento sobre una instancia.
+     *
+     * @param instance Instancia del problema
+     * @param seed Semilla maestra
+     * @param threads Hilos del multiarranque
+     * @return Resultado del multiarranque
+     */
+    public Multistart.Result run(Instance instance, long seed, int threads) {
+        return run(instance, seed, threads, null);
+    }
+
+    /**
+     * Ejecuta el experimento sobre una instancia registrando su convergencia.
+     *
+     * @param instance Instancia del problema
+     * @param seed Semilla maestra
+     * @param threads Hilos del multiarranque
+     * @param trace Traza en la que se registra cada arranque, o {@code null}
+     * @return Resultado del multiarranque
+     */
+    public Multistart.Result run(Instance instance, long seed, int threads, ConvergenceTrace trace) {
+        return run(instance, seed, threads, trace, -1.0);
+    }
+
+    /**
+     * Ejecuta el experimento sobre una instancia registrando su convergencia y
+     * omitiendo los arranques que quedan al alcanzar la separación objetivo
+     * respecto a la cota inferior (ver {@link Multistart#setTargetGap(double)}).
+     *
+     * @param instance Instancia del problema
+     * @param seed Semilla maestra
+     * @param threads Hilos del multiarranque
+     * @param trace Traza en la que se registra cada arranque, o {@code null}
+     * @param targetGap Separación objetivo, o negativa para ejecutar todos los arranques
+     * @return Resultado del multiarranque
+     */
+    public Multistart.Result run(Instance instance, long seed, int threads, ConvergenceTrace trace, double targetGap) {
+        Multistart multistart = new Multistart(instance, starts, seed);
+        multistart.setThreads(threads);
+        multistart.setTrace(trace);
+        multistart.setTargetGap(targetGap);
+        CompiledInstance compiled = instance.getCompiled();
+        if (construction == Construction.SAVINGS) {
+            multistart.setConstructive(random -> new SavingsConstructive(compiled, random).runCompact(false));
+        }
+        if (improvement == Improvement.LS) {
+            multistart.setImprovement(() -> new TwoOpt(compiled));
+        } else if (improvement == Improvement.VND) {
+            multistart.setImprovement(() -> VariableNeighborhoodDescent.standard(compiled));
+        }
+        if (recombination) {
+            multistart.setRoutePool(new RoutePool(compiled));
+        }
+        return multistart.run();
+    }
+
+    /**
+     * Obtiene el nombre del experimento.
+     *
+     * @return Nombre
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Obtiene el constructivo de cada arranque.
+     *
+     * @return Constructivo
+     */
+    public Construction getConstruction() {
+        return construction;
+    }
+
+    /**
+     * Obtiene el número de construcciones aleatorias.
+     *
+     * @return Número de arranques
+     */
+    public int getStarts() {
+        return starts;
+    }
+
+    /**
+     * Obtiene la mejora aplicada a cada construcción.
+     *
+     * @return Mejora
+     */
+    public Improvement getImprovement() {
+        return improvement;
+    }
+
+    /**
+     * Indica si se recombinan las rutas de todos los arranques al final.
+     *
+     * @return {@code true} si se recombinan ({@code +SP})
+     */
+    public boolean isRecombination() {
+        return recombination;
+    }
+
+    /**
+     * Establece si se recombinan las rutas de todos los arranques al final.
+     *
+     * @param recombination {@code true} para recombinar
+     */
+    public void setRecombination(boolean recombination) {
+        this.recombination = recombination;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,63 @@
+package tfg;
+
+import java.util.stream.IntStream;
+
+/**
+ * Matriz de distancias en memoria con almacenamiento triangular.
+ * Al ser simétrica solo se guarda {@code d(i, j)} con {@code i > j};
+ * la diagonal es siempre 0. Puede usar {@code double} o {@code float}
+ * (la mitad de memoria a costa de precisión).
+ */
+final class HeapDistanceMatrix extends DistanceMatrix {
+    private final double[] values;
+    private final float[] floatValues;
+
+    /**
+     * Calcula todas las distancias a partir de las coordenadas.
+     *
+     * @param x Coordenadas x
+     * @param y Coordenadas y
+     * @param singlePrecision Si se almacena en {@code float}
+     */
+    HeapDistanceMatrix(double[] x, double[] y, boolean singlePrecision) {
+        super(x.length);
+        long entries = triangularIndex(size, 0);
+        if (entries > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Demasiados nodos para una matriz en memoria: " + size);
+        }
+        this.values = singlePrecision ? null : new double[(int) entries];
+        this.floatValues = singlePrecision ? new float[(int) entries] : null;
+
+        IntStream rows = IntStream.range(1, size);
+        if (size > 1024) {
+            rows = rows.parallel();
+        }
+        rows.forEach(i -> {
+            int base = (int) triangularIndex(i, 0);
+            for (int j = 0; j < i; j++) {
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                double d = Math.sqrt(dx * dx + dy * dy);
+                if (values != null) {
+                    values[base + j] = d;
+                } else {
+                    floatValues[base + j] = (float) d;
+                }
+            }
+        });
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if (i == j) {
+            return 0.0;
+        }
+        int index = i > j ? (int) triangularIndex(i, j) : (int) triangularIndex(j, i);
+        return values != null ? values[index] : floatValues[index];
+    }
+
+    @Override
+    public Mode getMode() {
+        return values != null ? Mode.HEAP : Mode.HEAP_FLOAT;
+    }
+}
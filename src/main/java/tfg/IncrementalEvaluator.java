@@ -0,0 +1,836 @@
+package tfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluador incremental de soluciones para movimientos de búsqueda local.
+ *
+ * Mantiene una ruta por unidad de vehículo, con el depósito como centinela en
+ * la posición 0 y en la posición {@code size + 1}, y para cada posición p los
+ * agregados prefijo:
+ * <ul>
+ *   <li>{@code load[p]}: carga acumulada tras visitar el nodo en p.</li>
+ *   <li>{@code dist[p]}: distancia recorrida desde el depósito hasta p.</li>
+ *   <li>{@code weighted[p]}: suma de carga × distancia de los tramos anteriores a p.</li>
+ * </ul>
+ * Las emisiones de una ruta son {@code Eo * dist + ((Ef - Eo) / Load) * weighted}
+ * evaluados en el depósito final. Con estos prefijos cualquier subsecuencia,
+ * en sentido directo o invertido, se resume en O(1), y los movimientos se valoran
+ * concatenando unas pocas subsecuencias: 2-opt (inversión de segmento),
+ * reubicación, intercambio, 2-opt* e intercambio de segmentos cuestan O(1) y
+ * aplicar un movimiento O(longitud de ruta).
+ *
+ * Si la instancia tiene caché de costes de rutas ({@link RouteCostCache}), el
+ * hash de la secuencia se guarda como un prefijo más y se recalcula junto a los
+ * demás solo desde la posición que cambia, así que
+ * {@link #store(CompactSolution)} entrega el hash de cada ruta sin recorrerla.
+ *
+ * No es seguro para hilos: cada hilo de búsqueda debe usar su propio evaluador.
+ */
+public final class IncrementalEvaluator {
+    private static final double CAPACITY_TOLERANCE = 1e-9;
+
+    private final CompiledInstance instance;
+    private final DistanceMatrix distances;
+    private final int depot;
+    private final double[] prod;
+
+    private final int numRoutes;
+    private final int[] routeType;
+    private final double[] capacity;
+    private final double[] slope;
+    private final double[] eo;
+
+    private final int[][] nodes;
+    private final int[] size;
+    private final double[][] load;
+    private final double[][] dist;
+    private final double[][] weighted;
+    private final long[][] hash1;
+    private final long[][] hash2;
+    private final RouteCostCache[] hashCache;
+    private final double[] routeCO2;
+
+    private final int[] routeOf;
+    private final int[] positionOf;
+
+    // Buffers para reconstruir rutas al aplicar movimientos entre rutas
+    private final int[] scratch1;
+    private final int[] scratch2;
+
+    // Acumulador de concatenación de subsecuencias (sin reservas de memoria)
+    private double accDistance;
+    private double accLoad;
+    private double accWeighted;
+    private int accLast;
+
+    /**
+     * Crea un evaluador con una ruta vacía por cada unidad de vehículo.
+     *
+     * @param instance Instancia compilada
+     */
+    public IncrementalEvaluator(CompiledInstance instance) {
+        this.instance = instance;
+        this.distances = instance.getDistances();
+        this.depot = instance.getDepot();
+
+        int n = instance.getNumberOfNodes();
+        this.prod = new double[n];
+        for (int i = 0; i < n; i++) {
+            prod[i] = i == depot ? 0.0 : instance.getProd(i);
+        }
+
+        this.numRoutes = instance.getNumberOfUnits();
+        this.routeType = new int[numRoutes];
+        this.capacity = new double[numRoutes];
+        this.slope = new double[numRoutes];
+        this.eo = new double[numRoutes];
+        this.nodes = new int[numRoutes][];
+        this.size = new int[numRoutes];
+        this.load = new double[numRoutes][];
+        this.dist = new double[numRoutes][];
+        this.weighted = new double[numRoutes][];
+        this.hash1 = new long[numRoutes][];
+        this.hash2 = new long[numRoutes][];
+        this.hashCache = new RouteCostCache[numRoutes];
+        this.routeCO2 = new double[numRoutes];
+        for (int r = 0; r < numRoutes; r++) {
+            int type = instance.getUnitType(r);
+            routeType[r] = type;
+            capacity[r] = instance.getTypeLoad(type);
+            slope[r] = instance.getTypeSlope(type);
+            eo[r] = instance.getTypeEo(type);
+            allocate(r, 8);
+        }
+
+        this.routeOf = new int[n];
+        this.positionOf = new int[n];
+        this.scratch1 = new int[n + 2];
+        this.scratch2 = new int[n + 2];
+        clear();
+    }
+
+    // ------------------------------------------------------------ Carga/volcado
+
+    /**
+     * Vacía todas las rutas.
+     */
+    public void clear() {
+        Arrays.fill(routeOf, -1);
+        Arrays.fill(positionOf, -1);
+        for (int r = 0; r < numRoutes; r++) {
+            size[r] = 0;
+            nodes[r][0] = depot;
+            nodes[r][1] = depot;
+            recompute(r, 1);
+        }
+    }
+
+    /**
+     * Carga las rutas de una solución.
+     *
+     * @param solution Solución cuyas rutas se cargan
+     * @throws IllegalArgumentException Si contiene vehículos o nodos desconocidos
+     */
+    public void load(Solution solution) {
+        clear();
+        for (Map.Entry<String, List<String>> entry : solution.getVehicleRoutes().entrySet()) {
+            int r = instance.getUnitIndex(entry.getKey());
+            if (r < 0) {
+                throw new IllegalArgumentException("Vehículo desconocido en la solución: " + entry.getKey());
+            }
+            List<String> route = entry.getValue();
+            ensureCapacity(r, route.size() + 2);
+            int[] seq = nodes[r];
+            for (int p = 0; p < route.size(); p++) {
+                int node = instance.getNodeIndex(route.get(p));
+                if (node < 0) {
+                    throw new IllegalArgumentException("Nodo desconocido en la ruta de " + entry.getKey() + ": " + route.get(p));
+                }
+                seq[p + 1] = node;
+            }
+            size[r] = route.size();
+            seq[route.size() + 1] = depot;
+            recompute(r, 1);
+        }
+    }
+
+    /**
+     * Carga una ruta a partir de índices de nodo.
+     *
+     * @param route Índice de la ruta (unidad de vehículo)
+     * @param customers Nodos de la ruta, sin el depósito
+     * @param length Número de nodos a tomar de {@code customers}
+     */
+    public void setRoute(int route, int[] customers, int length) {
+        int[] seq = nodes[route];
+        for (int p = 1; p <= size[route]; p++) {
+            if (routeOf[seq[p]] == route) {
+                routeOf[seq[p]] = -1;
+                positionOf[seq[p]] = -1;
+            }
+        }
+        ensureCapacity(route, length + 2);
+        seq = nodes[route];
+        System.arraycopy(customers, 0, seq, 1, length);
+        size[route] = length;
+        seq[length + 1] = depot;
+        recompute(route, 1);
+    }
+
+    /**
+     * Construye una {@link Solution} con las rutas no vacías y sus métricas.
+     *
+     * @return Solución equivalente al estado actual
+     */
+    public Solution toSolution() {
+        Map<String, List<String>> routes = new HashMap<>();
+        for (int r = 0; r < numRoutes; r++) {
+            if (size[r] == 0) {
+                continue;
+            }
+            List<String> route = new ArrayList<>(size[r]);
+            for (int p = 1; p <= size[r]; p++) {
+                route.add(instance.getNodeName(nodes[r][p]));
+            }
+            routes.put(instance.getUnitName(r), route);
+        }
+        return new Solution(instance, routes, getTotalDistance(), getTotalCO2());
+    }
+
+    /**
+     * Carga las rutas de una solución compacta de la misma instancia.
+     *
+     * @param solution Solución cuyas rutas se cargan
+     */
+    public void load(CompactSolution solution) {
+        clear();
+        for (int k = 0; k < solution.getNumberOfRoutes(); k++) {
+            int r = solution.getRouteUnit(k);
+            int start = solution.getRouteStart(k);
+            int length = solution.getRouteSize(k);
+            ensureCapacity(r, length + 2);
+            int[] seq = nodes[r];
+            for (int p = 0; p < length; p++) {
+                seq[p + 1] = solution.getNode(start + p);
+            }
+            size[r] = length;
+            seq[length + 1] = depot;
+            recompute(r, 1);
+        }
+    }
+
+    /**
+     * Vuelca el estado actual en una solución compacta, sin crear objetos.
+     *
+     * @param target Solución compacta de la misma instancia que se sobrescribe
+     */
+    public void store(CompactSolution target) {
+        target.clear();
+        for (int r = 0; r < numRoutes; r++) {
+            if (size[r] == 0) {
+                continue;
+            }
+            target.addRoute(r, nodes[r], 1, size[r], hashCache[r], hash1[r][size[r]], hash2[r][size[r]]);
+        }
+        target.setTotalDistance(getTotalDistance());
+        target.setTotalCO2(getTotalCO2());
+    }
+
+    // --------------------------------------------------------------- Consultas
+
+    /**
+     * Obtiene la instancia compilada del evaluador.
+     *
+     * @return Instancia compilada
+     */
+    public CompiledInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Obtiene el número de rutas (una por unidad de vehículo).
+     *
+     * @return Número de rutas
+     */
+    public int getNumberOfRoutes() {
+        return numRoutes;
+    }
+
+    /**
+     * Obtiene el número de clientes de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Clientes de la ruta
+     */
+    public int getRouteSize(int route) {
+        return size[route];
+    }
+
+    /**
+     * Obtiene el nodo en una posición de la ruta (0 y {@code size + 1} son el depósito).
+     *
+     * @param route Índice de la ruta
+     * @param position Posición en la ruta
+     * @return Índice del nodo
+     */
+    public int getNode(int route, int position) {
+        return nodes[route][position];
+    }
+
+    /**
+     * Obtiene la ruta que visita un cliente.
+     *
+     * @param node Índice del nodo
+     * @return Índice de la ruta o -1 si no está asignado
+     */
+    public int getRouteOf(int node) {
+        return routeOf[node];
+    }
+
+    /**
+     * Obtiene la posición de un cliente dentro de su ruta.
+     *
+     * @param node Índice del nodo
+     * @return Posición (1..size) o -1 si no está asignado
+     */
+    public int getPositionOf(int node) {
+        return positionOf[node];
+    }
+
+    /**
+     * Obtiene el tipo de vehículo de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Índice del tipo
+     */
+    public int getRouteType(int route) {
+        return routeType[route];
+    }
+
+    /**
+     * Obtiene la carga total recogida por una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Carga total
+     */
+    public double getRouteLoad(int route) {
+        return load[route][size[route] + 1];
+    }
+
+    /**
+     * Obtiene la capacidad del vehículo de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Capacidad
+     */
+    public double getRouteCapacity(int route) {
+        return capacity[route];
+    }
+
+    /**
+     * Obtiene la distancia de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return Distancia de la ruta
+     */
+    public double getRouteDistance(int route) {
+        return dist[route][size[route] + 1];
+    }
+
+    /**
+     * Obtiene las emisiones de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @return CO2 de la ruta
+     */
+    public double getRouteCO2(int route) {
+        return routeCO2[route];
+    }
+
+    /**
+     * Obtiene la distancia total de todas las rutas.
+     *
+     * @return Distancia total
+     */
+    public double getTotalDistance() {
+        double total = 0.0;
+        for (int r = 0; r < numRoutes; r++) {
+            total += dist[r][size[r] + 1];
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene las emisiones totales de todas las rutas.
+     *
+     * @return CO2 total
+     */
+    public double getTotalCO2() {
+        double total = 0.0;
+        for (int r = 0; r < numRoutes; r++) {
+            total += routeCO2[r];
+        }
+        return total;
+    }
+
+    // ------------------------------------------------- Valoración de movimientos
+
+    /**
+     * Variación de CO2 al invertir el segmento de posiciones {@code i..j} de una ruta (2-opt).
+     *
+     * @param route Índice de la ruta
+     * @param i Primera posición del segmento (1..size)
+     * @param j Última posición del segmento (i..size)
+     * @return Variación de CO2 (negativa si mejora)
+     */
+    public double twoOptDelta(int route, int i, int j) {
+        begin();
+        append(route, 0, i - 1, false);
+        append(route, i, j, true);
+        append(route, j + 1, size[route] + 1, false);
+        return end(route) - routeCO2[route];
+    }
+
+    /**
+     * Variación de CO2 al mover el cliente de la posición {@code i} de {@code fromRoute}
+     * tras la posición {@code p} de {@code toRoute}.
+     *
+     * @param fromRoute Ruta de origen
+     * @param i Posición del cliente en la ruta de origen (1..size)
+     * @param toRoute Ruta de destino
+     * @param p Posición tras la que se inserta (0..size)
+     * @return Variación de CO2, o infinito si excede la capacidad
+     */
+    public double relocateDelta(int fromRoute, int i, int toRoute, int p) {
+        int u = nodes[fromRoute][i];
+        if (fromRoute == toRoute) {
+            if (p == i || p == i - 1) {
+                return 0.0;
+            }
+            int end = size[fromRoute] + 1;
+            begin();
+            if (p < i) {
+                append(fromRoute, 0, p, false);
+                appendNode(u);
+                append(fromRoute, p + 1, i - 1, false);
+                append(fromRoute, i + 1, end, false);
+            } else {
+                append(fromRoute, 0, i - 1, false);
+                append(fromRoute, i + 1, p, false);
+                appendNode(u);
+                append(fromRoute, p + 1, end, false);
+            }
+            return end(fromRoute) - routeCO2[fromRoute];
+        }
+
+        if (getRouteLoad(toRoute) + prod[u] > capacity[toRoute] + CAPACITY_TOLERANCE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        begin();
+        append(fromRoute, 0, i - 1, false);
+        append(fromRoute, i + 1, size[fromRoute] + 1, false);
+        double delta = end(fromRoute) - routeCO2[fromRoute];
+
+        begin();
+        append(toRoute, 0, p, false);
+        appendNode(u);
+        append(toRoute, p + 1, size[toRoute] + 1, false);
+        return delta + end(toRoute) - routeCO2[toRoute];
+    }
+
+    /**
+     * Variación de CO2 al intercambiar el cliente en la posición {@code i} de {@code route1}
+     * con el de la posición {@code j} de {@code route2}.
+     *
+     * @param route1 Primera ruta
+     * @param i Posición en la primera ruta (1..size)
+     * @param route2 Segunda ruta
+     * @param j Posición en la segunda ruta (1..size)
+     * @return Variación de CO2, o infinito si excede la capacidad
+     */
+    public double swapDelta(int route1, int i, int route2, int j) {
+        int u = nodes[route1][i];
+        int v = nodes[route2][j];
+        if (route1 == route2) {
+            if (i == j) {
+                return 0.0;
+            }
+            int a = Math.min(i, j);
+            int b = Math.max(i, j);
+            begin();
+            append(route1, 0, a - 1, false);
+            appendNode(nodes[route1][b]);
+            append(route1, a + 1, b - 1, false);
+            appendNode(nodes[route1][a]);
+            append(route1, b + 1, size[route1] + 1, false);
+            return end(route1) - routeCO2[route1];
+        }
+
+        if (getRouteLoad(route1) - prod[u] + prod[v] > capacity[route1] + CAPACITY_TOLERANCE
+                || getRouteLoad(route2) - prod[v] + prod[u] > capacity[route2] + CAPACITY_TOLERANCE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        begin();
+        append(route1, 0, i - 1, false);
+        appendNode(v);
+        append(route1, i + 1, size[route1] + 1, false);
+        double delta = end(route1) - routeCO2[route1];
+
+        begin();
+        append(route2, 0, j - 1, false);
+        appendNode(u);
+        append(route2, j + 1, size[route2] + 1, false);
+        return delta + end(route2) - routeCO2[route2];
+    }
+
+    /**
+     * Variación de CO2 del intercambio de colas 2-opt* entre dos rutas distintas:
+     * la ruta 1 continúa tras la posición {@code i} con la cola de la ruta 2 tras {@code j},
+     * y viceversa. Cada ruta conserva su vehículo.
+     *
+     * @param route1 Primera ruta
+     * @param i Último nodo que conserva la primera ruta (0..size)
+     * @param route2 Segunda ruta
+     * @param j Último nodo que conserva la segunda ruta (0..size)
+     * @return Variación de CO2, o infinito si excede la capacidad
+     */
+    public double twoOptStarDelta(int route1, int i, int route2, int j) {
+        int end1 = size[route1] + 1;
+        int end2 = size[route2] + 1;
+        double[] l1 = load[route1];
+        double[] l2 = load[route2];
+        if (l1[i] + l2[end2] - l2[j] > capacity[route1] + CAPACITY_TOLERANCE
+                || l2[j] + l1[end1] - l1[i] > capacity[route2] + CAPACITY_TOLERANCE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        begin();
+        append(route1, 0, i, false);
+        append(route2, j + 1, end2, false);
+        double delta = end(route1) - routeCO2[route1];
+
+        begin();
+        append(route2, 0, j, false);
+        append(route1, i + 1, end1, false);
+        return delta + end(route2) - routeCO2[route2];
+    }
+
+    /**
+     * Variación de CO2 del intercambio de segmentos (cross-exchange) entre dos rutas
+     * distintas: el segmento {@code i1..j1} de la ruta 1 pasa a la ruta 2 en el lugar
+     * del segmento {@code i2..j2}, y viceversa.
+     *
+     * @param route1 Primera ruta
+     * @param i1 Inicio del segmento en la primera ruta (1..size)
+     * @param j1 Fin del segmento en la primera ruta (i1..size)
+     * @param route2 Segunda ruta
+     * @param i2 Inicio del segmento en la segunda ruta (1..size)
+     * @param j2 Fin del segmento en la segunda ruta (i2..size)
+     * @return Variación de CO2, o infinito si excede la capacidad
+     */
+    public double crossExchangeDelta(int route1, int i1, int j1, int route2, int i2, int j2) {
+        double[] l1 = load[route1];
+        double[] l2 = load[route2];
+        double segment1 = l1[j1] - l1[i1] + prod[nodes[route1][i1]];
+        double segment2 = l2[j2] - l2[i2] + prod[nodes[route2][i2]];
+        if (getRouteLoad(route1) - segment1 + segment2 > capacity[route1] + CAPACITY_TOLERANCE
+                || getRouteLoad(route2) - segment2 + segment1 > capacity[route2] + CAPACITY_TOLERANCE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        begin();
+        append(route1, 0, i1 - 1, false);
+        append(route2, i2, j2, false);
+        append(route1, j1 + 1, size[route1] + 1, false);
+        double delta = end(route1) - routeCO2[route1];
+
+        begin();
+        append(route2, 0, i2 - 1, false);
+        append(route1, i1, j1, false);
+        append(route2, j2 + 1, size[route2] + 1, false);
+        return delta + end(route2) - routeCO2[route2];
+    }
+
+    // ------------------------------------------------- Aplicación de movimientos
+
+    /**
+     * Aplica la inversión del segmento {@code i..j} de una ruta.
+     *
+     * @param route Índice de la ruta
+     * @param i Primera posición del segmento
+     * @param j Última posición del segmento
+     */
+    public void applyTwoOpt(int route, int i, int j) {
+        int[] seq = nodes[route];
+        for (int a = i, b = j; a < b; a++, b--) {
+            int tmp = seq[a];
+            seq[a] = seq[b];
+            seq[b] = tmp;
+        }
+        recompute(route, i);
+    }
+
+    /**
+     * Aplica la reubicación valorada por {@link #relocateDelta(int, int, int, int)}.
+     *
+     * @param fromRoute Ruta de origen
+     * @param i Posición del cliente en la ruta de origen
+     * @param toRoute Ruta de destino
+     * @param p Posición tras la que se inserta
+     */
+    public void applyRelocate(int fromRoute, int i, int toRoute, int p) {
+        int[] seq = nodes[fromRoute];
+        int u = seq[i];
+        if (fromRoute == toRoute) {
+            if (p < i) {
+                System.arraycopy(seq, p + 1, seq, p + 2, i - p - 1);
+                seq[p + 1] = u;
+                recompute(fromRoute, p + 1);
+            } else if (p > i) {
+                System.arraycopy(seq, i + 1, seq, i, p - i);
+                seq[p] = u;
+                recompute(fromRoute, i);
+            }
+            return;
+        }
+
+        // Quitar de la ruta de origen
+        System.arraycopy(seq, i + 1, seq, i, size[fromRoute] + 1 - i);
+        size[fromRoute]--;
+        recompute(fromRoute, i);
+
+        // Insertar en la ruta de destino
+        ensureCapacity(toRoute, size[toRoute] + 3);
+        int[] target = nodes[toRoute];
+        System.arraycopy(target, p + 1, target, p + 2, size[toRoute] + 1 - p);
+        target[p + 1] = u;
+        size[toRoute]++;
+        recompute(toRoute, p + 1);
+    }
+
+    /**
+     * Aplica el intercambio valorado por {@link #swapDelta(int, int, int, int)}.
+     *
+     * @param route1 Primera ruta
+     * @param i Posición en la primera ruta
+     * @param route2 Segunda ruta
+     * @param j Posición en la segunda ruta
+     */
+    public void applySwap(int route1, int i, int route2, int j) {
+        int u = nodes[route1][i];
+        nodes[route1][i] = nodes[route2][j];
+        nodes[route2][j] = u;
+        if (route1 == route2) {
+            recompute(route1, Math.min(i, j));
+        } else {
+            recompute(route1, i);
+            recompute(route2, j);
+        }
+    }
+
+    /**
+     * Aplica el intercambio de colas valorado por {@link #twoOptStarDelta(int, int, int, int)}.
+     *
+     * @param route1 Primera ruta
+     * @param i Último nodo que conserva la primera ruta
+     * @param route2 Segunda ruta
+     * @param j Último nodo que conserva la segunda ruta
+     */
+    public void applyTwoOptStar(int route1, int i, int route2, int j) {
+        int length1 = copy(scratch1, 0, route1, 1, i);
+        length1 = copy(scratch1, length1, route2, j + 1, size[route2]);
+        int length2 = copy(scratch2, 0, route2, 1, j);
+        length2 = copy(scratch2, length2, route1, i + 1, size[route1]);
+        replace(route1, scratch1, length1);
+        replace(route2, scratch2, length2);
+    }
+
+    /**
+     * Aplica el intercambio de segmentos valorado por
+     * {@link #crossExchangeDelta(int, int, int, int, int, int)}.
+     *
+     * @param route1 Primera ruta
+     * @param i1 Inicio del segmento en la primera ruta
+     * @param j1 Fin del segmento en la primera ruta
+     * @param route2 Segunda ruta
+     * @param i2 Inicio del segmento en la segunda ruta
+     * @param j2 Fin del segmento en la segunda ruta
+     */
+    public void applyCrossExchange(int route1, int i1, int j1, int route2, int i2, int j2) {
+        int length1 = copy(scratch1, 0, route1, 1, i1 - 1);
+        length1 = copy(scratch1, length1, route2, i2, j2);
+        length1 = copy(scratch1, length1, route1, j1 + 1, size[route1]);
+        int length2 = copy(scratch2, 0, route2, 1, i2 - 1);
+        length2 = copy(scratch2, length2, route1, i1, j1);
+        length2 = copy(scratch2, length2, route2, j2 + 1, size[route2]);
+        replace(route1, scratch1, length1);
+        replace(route2, scratch2, length2);
+    }
+
+    /**
+     * Copia las posiciones {@code from..to} de una ruta a un buffer.
+     *
+     * @return Nueva longitud ocupada del buffer
+     */
+    private int copy(int[] buffer, int length, int route, int from, int to) {
+        if (from > to) {
+            return length;
+        }
+        System.arraycopy(nodes[route], from, buffer, length, to - from + 1);
+        return length + to - from + 1;
+    }
+
+    /**
+     * Sustituye los clientes de una ruta por los de un buffer.
+     */
+    private void replace(int route, int[] buffer, int length) {
+        ensureCapacity(route, length + 2);
+        System.arraycopy(buffer, 0, nodes[route], 1, length);
+        size[route] = length;
+        nodes[route][length + 1] = depot;
+        recompute(route, 1);
+    }
+
+    // ---------------------------------------------------- Concatenación interna
+
+    /**
+     * Inicia una ruta candidata en el depósito.
+     */
+    private void begin() {
+        accDistance = 0.0;
+        accLoad = 0.0;
+        accWeighted = 0.0;
+        accLast = depot;
+    }
+
+    /**
+     * Añade a la ruta candidata la subsecuencia {@code from..to} de una ruta existente,
+     * en sentido directo o invertido. No hace nada si {@code from > to}.
+     */
+    private void append(int route, int from, int to, boolean reversed) {
+        if (from > to) {
+            return;
+        }
+        int[] seq = nodes[route];
+        double[] l = load[route];
+        double[] d = dist[route];
+        double[] w = weighted[route];
+
+        double segDistance = d[to] - d[from];
+        double before = l[from] - prod[seq[from]];
+        double segLoad = l[to] - before;
+        if (!reversed) {
+            // Tramos internos con la carga recogida desde el inicio del segmento
+            join(seq[from], seq[to], segDistance, segLoad, (w[to] - w[from]) - before * segDistance);
+        } else {
+            // Recorrido al revés: cada tramo lleva lo recogido desde el final del segmento
+            join(seq[to], seq[from], segDistance, segLoad, l[to] * segDistance - (w[to] - w[from]));
+        }
+    }
+
+    /**
+     * Añade un único nodo a la ruta candidata.
+     */
+    private void appendNode(int node) {
+        join(node, node, 0.0, prod[node], 0.0);
+    }
+
+    /**
+     * Une un segmento resumido a la ruta candidata: los tramos del segmento llevan
+     * además toda la carga ya acumulada.
+     */
+    private void join(int first, int last, double segDistance, double segLoad, double segWeighted) {
+        double d = distances.get(accLast, first);
+        accWeighted += accLoad * d + segWeighted + accLoad * segDistance;
+        accDistance += d + segDistance;
+        accLoad += segLoad;
+        accLast = last;
+    }
+
+    /**
+     * Cierra la ruta candidata en el depósito y devuelve su CO2 con el vehículo de la ruta.
+     * Si la carga excede la capacidad devuelve infinito.
+     */
+    private double end(int route) {
+        if (accLoad > capacity[route] + CAPACITY_TOLERANCE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double d = distances.get(accLast, depot);
+        return eo[route] * (accDistance + d) + slope[route] * (accWeighted + accLoad * d);
+    }
+
+    // ------------------------------------------------------ Agregados prefijo
+
+    /**
+     * Recalcula los agregados de una ruta desde una posición hasta el depósito final.
+     */
+    private void recompute(int route, int from) {
+        int[] seq = nodes[route];
+        double[] l = load[route];
+        double[] d = dist[route];
+        double[] w = weighted[route];
+        int end = size[route] + 1;
+        if (from < 1) {
+            from = 1;
+        }
+        l[0] = 0.0;
+        d[0] = 0.0;
+        w[0] = 0.0;
+        RouteCostCache cache = instance.getRouteCostCache();
+        if (cache != hashCache[route]) {
+            // Caché nueva (o retirada): los prefijos de hash anteriores no valen
+            hashCache[route] = cache;
+            from = 1;
+        }
+        if (cache != null) {
+            long[] h1 = hash1[route];
+            long[] h2 = hash2[route];
+            h1[0] = cache.initialHash1(routeType[route]);
+            h2[0] = cache.initialHash2(routeType[route]);
+            for (int p = from; p < end; p++) {
+                h1[p] = cache.extendHash1(h1[p - 1], seq[p]);
+                h2[p] = cache.extendHash2(h2[p - 1], seq[p]);
+            }
+        }
+        for (int p = from; p <= end; p++) {
+            int node = seq[p];
+            double arc = distances.get(seq[p - 1], node);
+            d[p] = d[p - 1] + arc;
+            w[p] = w[p - 1] + l[p - 1] * arc;
+            l[p] = l[p - 1] + prod[node];
+            if (p < end) {
+                routeOf[node] = route;
+                positionOf[node] = p;
+            }
+        }
+        routeCO2[route] = eo[route] * d[end] + slope[route] * w[end];
+    }
+
+    private void allocate(int route, int length) {
+        nodes[route] = new int[length];
+        load[route] = new double[length];
+        dist[route] = new double[length];
+        weighted[route] = new double[length];
+        hash1[route] = new long[length];
+        hash2[route] = new long[length];
+    }
+
+    /**
+     * Garantiza espacio para {@code length} posiciones (incluidos los depósitos).
+     */
+    private void ensureCapacity(int route, int length) {
+        if (nodes[route].length >= length) {
+            return;
+        }
+        int newLength = Math.max(length, nodes[route].length * 2);
+        nodes[route] = Arrays.copyOf(nodes[route], newLength);
+        load[route] = Arrays.copyOf(load[route], newLength);
+        dist[route] = Arrays.copyOf(dist[route], newLength);
+        weighted[route] = Arrays.copyOf(weighted[route], newLength);
+        hash1[route] = Arrays.copyOf(hash1[route], newLength);
+        hash2[route] = Arrays.copyOf(hash2[route], newLength);
+    }
+}
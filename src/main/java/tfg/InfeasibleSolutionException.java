@@ -0,0 +1,23 @@
+package tfg;
+
+/**
+ * Un constructivo no encuentra ninguna asignación factible: algún cliente no
+ * cabe en ninguna unidad libre o la flota no basta para todas las rutas.
+ *
+ * Es la única condición que {@link Multistart} trata como un arranque
+ * fallido; cualquier otra excepción de la construcción o de la búsqueda es un
+ * error y se propaga. Extiende {@link IllegalStateException} para que quien ya
+ * capturaba esta la siga tratando igual.
+ */
+public class InfeasibleSolutionException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor con mensaje.
+     *
+     * @param message Descripción de la causa
+     */
+    public InfeasibleSolutionException(String message) {
+        super(message);
+    }
+}
@@ -1,8 +1,11 @@
 package tfg;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -11,110 +14,87 @@ import java.util.Map;
 /**
  * Clase que representa una instancia del problema VRP.
  * Lee un archivo CSV con información de vehículos y nodos, y lo procesa.
+ *
+ * El CSV se lee con {@link InstanceReader} (fichero mapeado en memoria y parseo
+ * directo a arrays primitivos) y se guarda junto a él una copia binaria
+ * ({@code .bin}) que se carga casi sin parseo en las siguientes ejecuciones
+ * (ver {@link InstanceCache}). Las listas de mapas de vehículos y nodos se
+ * construyen solo si se piden.
  */
 public class Instance {
-    private String fileName;
+    private final String fileName;
+    private final String content;
+    private final CompiledInstance compiled;
     private List<Map<String, String>> vehicles;
     private List<Map<String, String>> nodes;
-    private String content;
 
     /**
      * Constructor que lee un archivo CSV, lo procesa y guarda la información.
-     * 
+     * No conserva el texto del archivo.
+     *
      * @param filePath Ruta del archivo a leer
-     * @throws IOException Si hay un error al leer el archivo
+     * @throws IOException Si hay un error al leer el archivo o su formato no es válido
      */
     public Instance(String filePath) throws IOException {
-        this.fileName = filePath;
-        this.vehicles = new ArrayList<>();
-        this.nodes = new ArrayList<>();
-        this.content = "";
-        readFile(filePath);
+        this(filePath, false);
     }
 
     /**
-     * Método privado que lee el archivo CSV y procesa su contenido.
-     * Separa la información en dos secciones: vehículos y nodos.
-     * 
+     * Constructor que lee un archivo CSV y, opcionalmente, conserva su texto.
+     *
      * @param filePath Ruta del archivo a leer
+     * @param keepContent Si se guarda el texto del archivo (ver {@link #getContent()})
+     * @throws IOException Si hay un error al leer el archivo o su formato no es válido
+     */
+    public Instance(String filePath, boolean keepContent) throws IOException {
+        Path path = Paths.get(filePath);
+        this.fileName = filePath;
+        this.compiled = InstanceCache.load(path);
+        this.content = keepContent ? readContent(path) : "";
+    }
+
+    private Instance(String fileName, CompiledInstance compiled, String content) {
+        this.fileName = fileName;
+        this.compiled = compiled;
+        this.content = content;
+    }
+
+    /**
+     * Crea una instancia a partir del texto de un CSV, sin leer ningún archivo
+     * ni crear su copia binaria.
+     *
+     * @param name Nombre de la instancia (para mensajes y {@link #getFileName()})
+     * @param csv Contenido del CSV
+     * @return Instancia
+     * @throws IOException Si el formato no es válido
+     */
+    public static Instance fromContent(String name, String csv) throws IOException {
+        return new Instance(name, InstanceReader.read(csv.getBytes(StandardCharsets.UTF_8), name), "");
+    }
+
+    /**
+     * Lee el texto del archivo sin las líneas en blanco.
+     *
+     * @param path Ruta del archivo
+     * @return Contenido del archivo
      * @throws IOException Si hay un error al leer el archivo
      */
-    private void readFile(String filePath) throws IOException {
+    private static String readContent(Path path) throws IOException {
         StringBuilder contentBuilder = new StringBuilder();
-        List<String> lines = new ArrayList<>();
-        
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
             String line;
             while ((line = br.readLine()) != null) {
                 if (!line.trim().isEmpty()) {
-                    lines.add(line);
                     contentBuilder.append(line).append("\n");
                 }
             }
         }
-        
-        this.content = contentBuilder.toString();
-        parseCSV(lines);
-    }
-
-    /**
-     * Parsea el CSV separando vehículos y nodos.
-     * 
-     * @param lines Lista de líneas del archivo
-     */
-    private void parseCSV(List<String> lines) {
-        String[] vehicleHeaders = null;
-        String[] nodeHeaders = null;
-        boolean parsingVehicles = false;
-        boolean parsingNodes = false;
-
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            
-            // Saltar líneas vacías
-            if (parts.length == 0 || parts[0].trim().isEmpty()) {
-                continue;
-            }
-
-            // Detectar sección de vehículos
-            if (parts[0].trim().equals("Vehicle")) {
-                vehicleHeaders = parts;
-                parsingVehicles = true;
-                parsingNodes = false;
-                continue;
-            }
-
-            // Detectar sección de nodos
-            if (parts[0].trim().equals("Node")) {
-                nodeHeaders = parts;
-                parsingVehicles = false;
-                parsingNodes = true;
-                continue;
-            }
-
-            // Procesar vehículos
-            if (parsingVehicles && vehicleHeaders != null && !parts[0].trim().isEmpty()) {
-                Map<String, String> vehicle = new HashMap<>();
-                for (int i = 0; i < vehicleHeaders.length && i < parts.length; i++) {
-                    vehicle.put(vehicleHeaders[i].trim(), parts[i].trim());
-                }
-                vehicles.add(vehicle);
-            }
-
-            // Procesar nodos
-            if (parsingNodes && nodeHeaders != null && !parts[0].trim().isEmpty()) {
-                Map<String, String> node = new HashMap<>();
-                for (int i = 0; i < nodeHeaders.length && i < parts.length; i++) {
-                    node.put(nodeHeaders[i].trim(), parts[i].trim());
-                }
-                nodes.add(node);
-            }
-        }
+        return contentBuilder.toString();
     }
 
     /**
      * Obtiene el nombre del archivo.
-     * 
+     *
      * @return Nombre del archivo
      */
     public String getFileName() {
@@ -123,44 +103,86 @@ public class Instance {
 
     /**
      * Obtiene la lista de vehículos parseados.
-     * 
+     *
      * @return Lista de mapas con información de vehículos
      */
-    public List<Map<String, String>> getVehicles() {
+    public synchronized List<Map<String, String>> getVehicles() {
+        if (vehicles == null) {
+            vehicles = new ArrayList<>(compiled.getNumberOfTypes());
+            for (int t = 0; t < compiled.getNumberOfTypes(); t++) {
+                Map<String, String> vehicle = new HashMap<>();
+                vehicle.put("Vehicle", compiled.getTypeName(t));
+                vehicle.put("Load", format(compiled.getTypeLoad(t)));
+                vehicle.put("Num_v", Integer.toString(compiled.getTypeUnits(t)));
+                vehicle.put("Ef", format(compiled.getTypeEf(t)));
+                vehicle.put("Eo", format(compiled.getTypeEo(t)));
+                vehicles.add(vehicle);
+            }
+        }
         return new ArrayList<>(vehicles);
     }
 
     /**
      * Obtiene la lista de nodos parseados.
-     * 
+     *
      * @return Lista de mapas con información de nodos
      */
-    public List<Map<String, String>> getNodes() {
+    public synchronized List<Map<String, String>> getNodes() {
+        if (nodes == null) {
+            nodes = new ArrayList<>(compiled.getNumberOfNodes());
+            for (int i = 0; i < compiled.getNumberOfNodes(); i++) {
+                Map<String, String> node = new HashMap<>();
+                node.put("Node", compiled.getNodeName(i));
+                node.put("coord_x", format(compiled.getX(i)));
+                node.put("coord_y", format(compiled.getY(i)));
+                node.put("prod", format(compiled.getProd(i)));
+                nodes.add(node);
+            }
+        }
         return new ArrayList<>(nodes);
     }
 
+    /**
+     * Formatea un valor numérico como en el CSV (los enteros sin decimales).
+     */
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
     /**
      * Obtiene el número de vehículos.
-     * 
+     *
      * @return Número de vehículos
      */
     public int getNumberOfVehicles() {
-        return vehicles.size();
+        return compiled.getNumberOfTypes();
     }
 
     /**
      * Obtiene el número de nodos.
-     * 
+     *
      * @return Número de nodos
      */
     public int getNumberOfNodes() {
-        return nodes.size();
+        return compiled.getNumberOfNodes();
+    }
+
+    /**
+     * Obtiene la vista compilada (arrays primitivos) de la instancia.
+     *
+     * @return Instancia compilada
+     */
+    public CompiledInstance getCompiled() {
+        return compiled;
     }
 
     /**
      * Obtiene el contenido completo del archivo.
-     * 
-     * @return Contenido del archivo
+     *
+     * @return Contenido del archivo, o cadena vacía si no se conservó
      */
     public String getContent() {
         return content;
@@ -170,8 +192,8 @@ public class Instance {
     public String toString() {
         return "Instance{" +
                 "fileName='" + fileName + '\'' +
-                ", vehículos=" + vehicles.size() +
-                ", nodos=" + nodes.size() +
+                ", vehículos=" + getNumberOfVehicles() +
+                ", nodos=" + getNumberOfNodes() +
                 '}';
     }
 }
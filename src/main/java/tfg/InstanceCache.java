@@ -0,0 +1,230 @@
+package tfg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binario de instancias ({@code .bin}) que se guarda junto al CSV y
+ * permite cargarlas en ejecuciones posteriores casi sin parseo.
+ *
+ * Formato (little-endian): cabecera de 64 bytes (magic, versión, nodos, tipos,
+ * tamaño y fecha de modificación del CSV de origen, bytes de datos y CRC32 de
+ * los datos) seguida de los arrays {@code x}, {@code y}, {@code prod},
+ * {@code Load}, {@code Ef}, {@code Eo}, {@code Num_v} y de los nombres de
+ * tipos y nodos (longitud + UTF-8). El fichero se descarta y se regenera si
+ * el CSV cambia de tamaño o de fecha, si la versión no coincide o si el CRC
+ * no cuadra.
+ *
+ * Se puede desactivar con {@code -Dtfg.instancecache=false}.
+ */
+final class InstanceCache {
+    private static final long MAGIC = 0x544647494E535431L; // "TFGINST1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    private InstanceCache() {
+    }
+
+    /**
+     * Carga una instancia CSV, usando su fichero {@code .bin} si es válido y
+     * creándolo en caso contrario.
+     *
+     * @param csv Fichero CSV
+     * @return Instancia compilada
+     * @throws IOException Si hay un error al leer el CSV o su formato no es válido
+     */
+    static CompiledInstance load(Path csv) throws IOException {
+        if (!enabled()) {
+            return InstanceReader.read(csv);
+        }
+        long csvSize = Files.size(csv);
+        long csvModified = Files.getLastModifiedTime(csv).toMillis();
+        Path bin = sidecar(csv);
+
+        if (Files.exists(bin)) {
+            try {
+                CompiledInstance cached = read(bin, csvSize, csvModified);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (IOException | RuntimeException e) {
+                // Fichero dañado o de otra versión: se regenera
+            }
+        }
+
+        CompiledInstance instance = InstanceReader.read(csv);
+        try {
+            write(instance, bin, csvSize, csvModified);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar la instancia binaria " + bin + ": " + e.getMessage());
+        }
+        return instance;
+    }
+
+    /**
+     * Fichero binario asociado a un CSV: mismo nombre con extensión {@code .bin}.
+     *
+     * @param csv Fichero CSV
+     * @return Ruta del fichero binario
+     */
+    static Path sidecar(Path csv) {
+        String name = csv.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".bin");
+    }
+
+    private static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty("tfg.instancecache", "true"));
+    }
+
+    /**
+     * Lee un fichero binario.
+     *
+     * @return Instancia, o {@code null} si no corresponde al CSV o no es válido
+     */
+    static CompiledInstance read(Path bin, long csvSize, long csvModified) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(bin, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION
+                || buffer.getLong(24) != csvSize || buffer.getLong(32) != csvModified) {
+            return null;
+        }
+        int n = buffer.getInt(12);
+        int t = buffer.getInt(16);
+        long payload = buffer.getLong(40);
+        if (n < 0 || t < 0 || HEADER_BYTES + payload != buffer.capacity()) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_BYTES, (int) payload));
+        if (crc.getValue() != buffer.getLong(48)) {
+            return null;
+        }
+
+        buffer.position(HEADER_BYTES);
+        double[] x = doubles(buffer, n);
+        double[] y = doubles(buffer, n);
+        double[] prod = doubles(buffer, n);
+        double[] load = doubles(buffer, t);
+        double[] ef = doubles(buffer, t);
+        double[] eo = doubles(buffer, t);
+        int[] units = new int[t];
+        buffer.asIntBuffer().get(units);
+        buffer.position(buffer.position() + t * Integer.BYTES);
+        String[] typeNames = strings(buffer, t);
+        String[] nodeNames = strings(buffer, n);
+        return new CompiledInstance(nodeNames, x, y, prod, typeNames, load, ef, eo, units);
+    }
+
+    /**
+     * Escribe el fichero binario en un temporal y lo publica con un movimiento atómico.
+     */
+    static void write(CompiledInstance instance, Path bin, long csvSize, long csvModified) throws IOException {
+        int n = instance.getNumberOfNodes();
+        int t = instance.getNumberOfTypes();
+        byte[][] typeNames = new byte[t][];
+        byte[][] nodeNames = new byte[n][];
+        long payload = (3L * n + 3L * t) * Double.BYTES + (long) t * Integer.BYTES;
+        for (int i = 0; i < t; i++) {
+            typeNames[i] = instance.getTypeName(i).getBytes(StandardCharsets.UTF_8);
+            payload += Integer.BYTES + typeNames[i].length;
+        }
+        for (int i = 0; i < n; i++) {
+            nodeNames[i] = instance.getNodeName(i).getBytes(StandardCharsets.UTF_8);
+            payload += Integer.BYTES + nodeNames[i].length;
+        }
+        long total = HEADER_BYTES + payload;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Instancia demasiado grande para el formato binario");
+        }
+
+        Path directory = bin.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(directory, bin.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, total);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.position(HEADER_BYTES);
+                for (int i = 0; i < n; i++) {
+                    buffer.putDouble(instance.getX(i));
+                }
+                for (int i = 0; i < n; i++) {
+                    buffer.putDouble(instance.getY(i));
+                }
+                for (int i = 0; i < n; i++) {
+                    buffer.putDouble(instance.getProd(i));
+                }
+                for (int i = 0; i < t; i++) {
+                    buffer.putDouble(instance.getTypeLoad(i));
+                }
+                for (int i = 0; i < t; i++) {
+                    buffer.putDouble(instance.getTypeEf(i));
+                }
+                for (int i = 0; i < t; i++) {
+                    buffer.putDouble(instance.getTypeEo(i));
+                }
+                for (int i = 0; i < t; i++) {
+                    buffer.putInt(instance.getTypeUnits(i));
+                }
+                for (byte[] name : typeNames) {
+                    buffer.putInt(name.length).put(name);
+                }
+                for (byte[] name : nodeNames) {
+                    buffer.putInt(name.length).put(name);
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(buffer.slice(HEADER_BYTES, (int) payload));
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, n);
+                buffer.putInt(16, t);
+                buffer.putLong(24, csvSize);
+                buffer.putLong(32, csvModified);
+                buffer.putLong(40, payload);
+                buffer.putLong(48, crc.getValue());
+                buffer.force();
+            }
+            Files.move(tmp, bin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static double[] doubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+
+    private static String[] strings(ByteBuffer buffer, int count) {
+        String[] values = new String[count];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            values[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+}
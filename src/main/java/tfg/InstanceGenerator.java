@@ -0,0 +1,308 @@
+package tfg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de instancias sintéticas en el mismo formato CSV que lee
+ * {@link Instance} (sección {@code Vehicle,Load,Num_v,Ef,Eo} seguida de
+ * {@code Node,coord_x,coord_y,prod}).
+ *
+ * Las filas se escriben en streaming, sin guardar la instancia en memoria, de
+ * modo que se pueden generar instancias de millones de nodos. La demanda total
+ * se calcula en una primera pasada que repite la secuencia aleatoria de las
+ * demandas, ya que la flota se escribe antes que los nodos. Con la misma
+ * semilla y parámetros se obtiene siempre el mismo fichero.
+ *
+ * La flota se dimensiona para que cualquier asignación voraz sea factible: la
+ * capacidad total supera a la demanda en al menos un cliente máximo por unidad,
+ * de modo que una unidad solo puede rechazar a un cliente si queda otra con
+ * hueco. Todas las demandas caben en el vehículo más pequeño.
+ */
+public class InstanceGenerator {
+    /** Lado por defecto del cuadrado de coordenadas para 1000 nodos. */
+    private static final double BASE_SIZE = 100.0;
+
+    /**
+     * Distribución espacial de los clientes.
+     */
+    public enum Layout {
+        /** Clientes uniformes en el cuadrado, depósito en el centro. */
+        UNIFORM,
+        /** Clientes agrupados en torno a centros aleatorios, depósito en el centro. */
+        CLUSTERED,
+        /** Clientes uniformes con el depósito en una esquina. */
+        DEPOT_PERIPHERAL
+    }
+
+    private final int nodes;
+    private final long seed;
+    private Layout layout;
+    private int clusters;
+    private double size;
+    private int minProd;
+    private int maxProd;
+    private double slack;
+    private final List<VehicleType> types;
+
+    /**
+     * Constructor con los tipos de vehículo del artículo y distribución uniforme.
+     *
+     * @param nodes Número de nodos, depósito incluido
+     * @param seed Semilla de la generación
+     */
+    public InstanceGenerator(int nodes, long seed) {
+        if (nodes < 2) {
+            throw new IllegalArgumentException("La instancia debe tener al menos un cliente");
+        }
+        this.nodes = nodes;
+        this.seed = seed;
+        this.layout = Layout.UNIFORM;
+        this.clusters = Math.max(3, (int) Math.sqrt(nodes / 20.0));
+        this.size = BASE_SIZE * Math.sqrt(Math.max(1.0, nodes / 1000.0));
+        this.minProd = 100;
+        this.maxProd = 2500;
+        this.slack = 1.2;
+        this.types = new ArrayList<>();
+        this.types.add(new VehicleType("V1", 16000, 0.931, 0.586, 0.5));
+        this.types.add(new VehicleType("V2", 8000, 0.635, 0.471, 0.3));
+        this.types.add(new VehicleType("V3", 4180, 0.389, 0.316, 0.2));
+    }
+
+    /**
+     * Establece la distribución espacial.
+     *
+     * @param layout Distribución de los clientes
+     */
+    public void setLayout(Layout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Establece el número de grupos de la distribución {@link Layout#CLUSTERED}.
+     *
+     * @param clusters Número de grupos (al menos 1)
+     */
+    public void setClusters(int clusters) {
+        this.clusters = Math.max(1, clusters);
+    }
+
+    /**
+     * Establece el lado del cuadrado de coordenadas.
+     *
+     * @param size Lado del cuadrado
+     */
+    public void setSize(double size) {
+        this.size = size;
+    }
+
+    /**
+     * Establece el rango de demanda de los clientes.
+     *
+     * @param minProd Demanda mínima
+     * @param maxProd Demanda máxima
+     */
+    public void setProdRange(int minProd, int maxProd) {
+        if (minProd < 0 || maxProd < minProd) {
+            throw new IllegalArgumentException("Rango de demanda no válido: " + minProd + ".." + maxProd);
+        }
+        this.minProd = minProd;
+        this.maxProd = maxProd;
+    }
+
+    /**
+     * Establece la holgura de capacidad de la flota respecto a la demanda total.
+     *
+     * @param slack Factor de capacidad (p.ej. 1.2 = 20% más que la demanda)
+     */
+    public void setSlack(double slack) {
+        this.slack = Math.max(1.0, slack);
+    }
+
+    /**
+     * Elimina los tipos de vehículo para definir la flota con {@link #addVehicleType}.
+     */
+    public void clearVehicleTypes() {
+        types.clear();
+    }
+
+    /**
+     * Añade un tipo de vehículo.
+     *
+     * @param name Nombre del tipo
+     * @param load Capacidad
+     * @param ef Factor de emisión a plena carga
+     * @param eo Factor de emisión en vacío
+     * @param share Fracción de la capacidad total que aporta este tipo
+     */
+    public void addVehicleType(String name, double load, double ef, double eo, double share) {
+        types.add(new VehicleType(name, load, ef, eo, share));
+    }
+
+    /**
+     * Genera la instancia y la escribe en un fichero.
+     *
+     * @param file Fichero CSV de salida
+     * @throws IOException Si hay un error al escribir
+     */
+    public void write(Path file) throws IOException {
+        if (types.isEmpty()) {
+            throw new IllegalStateException("No hay tipos de vehículo definidos");
+        }
+        double minLoad = Double.MAX_VALUE;
+        for (VehicleType type : types) {
+            minLoad = Math.min(minLoad, type.load);
+        }
+        if (maxProd > minLoad) {
+            throw new IllegalStateException("La demanda máxima (" + maxProd + ") no cabe en el vehículo más pequeño (" + minLoad + ")");
+        }
+
+        // Primera pasada: demanda total con la misma secuencia que se escribirá
+        SplittableRandom prodRandom = new SplittableRandom(seed);
+        long demand = 0;
+        for (int i = 1; i < nodes; i++) {
+            demand += nextProd(prodRandom);
+        }
+        int[] units = fleet(demand);
+
+        prodRandom = new SplittableRandom(seed);
+        SplittableRandom coordRandom = new SplittableRandom(seed).split();
+        double[] centerX = new double[clusters];
+        double[] centerY = new double[clusters];
+        for (int c = 0; c < clusters; c++) {
+            centerX[c] = coordRandom.nextDouble() * size;
+            centerY[c] = coordRandom.nextDouble() * size;
+        }
+        double sigma = size / (4.0 * Math.sqrt(clusters));
+
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("Vehicle,Load,Num_v,Ef,Eo\n");
+            for (int t = 0; t < types.size(); t++) {
+                VehicleType type = types.get(t);
+                out.write(String.format(Locale.ROOT, "%s,%s,%d,%s,%s\n",
+                        type.name, number(type.load), units[t], number(type.ef), number(type.eo)));
+            }
+            out.write(",,,,\n,,,,\n");
+            out.write("Node,coord_x,coord_y,prod,\n");
+
+            StringBuilder row = new StringBuilder(64);
+            double depot = layout == Layout.DEPOT_PERIPHERAL ? 0.0 : size / 2.0;
+            appendRow(row, "P", depot, depot, 0);
+            out.append(row);
+
+            for (int i = 1; i < nodes; i++) {
+                double x;
+                double y;
+                if (layout == Layout.CLUSTERED) {
+                    int c = coordRandom.nextInt(clusters);
+                    x = clamp(centerX[c] + gaussian(coordRandom) * sigma);
+                    y = clamp(centerY[c] + gaussian(coordRandom) * sigma);
+                } else {
+                    x = coordRandom.nextDouble() * size;
+                    y = coordRandom.nextDouble() * size;
+                }
+                appendRow(row, "F" + i, x, y, nextProd(prodRandom));
+                out.append(row);
+            }
+        }
+    }
+
+    /**
+     * Unidades por tipo: la holgura pedida repartida según la fracción de cada
+     * tipo, más unidades del tipo mayor hasta garantizar la factibilidad.
+     */
+    private int[] fleet(long demand) {
+        double totalShare = 0.0;
+        int largest = 0;
+        for (int t = 0; t < types.size(); t++) {
+            totalShare += types.get(t).share;
+            if (types.get(t).load > types.get(largest).load) {
+                largest = t;
+            }
+        }
+        int[] units = new int[types.size()];
+        double capacity = 0.0;
+        int totalUnits = 0;
+        for (int t = 0; t < types.size(); t++) {
+            VehicleType type = types.get(t);
+            double share = totalShare > 0.0 ? type.share / totalShare : 1.0 / types.size();
+            units[t] = (int) Math.ceil(demand * slack * share / type.load);
+            capacity += units[t] * type.load;
+            totalUnits += units[t];
+        }
+        // Capacidad - unidades * demanda máxima >= demanda: ninguna asignación voraz se bloquea
+        while (capacity - (double) totalUnits * maxProd < demand) {
+            units[largest]++;
+            capacity += types.get(largest).load;
+            totalUnits++;
+        }
+        return units;
+    }
+
+    private int nextProd(SplittableRandom random) {
+        return minProd + random.nextInt(maxProd - minProd + 1);
+    }
+
+    private double clamp(double value) {
+        return Math.max(0.0, Math.min(size, value));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller (SplittableRandom no tiene nextGaussian en Java 17)
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+
+    /**
+     * Escribe una fila de nodo con dos decimales sin pasar por {@link String#format}.
+     */
+    private static void appendRow(StringBuilder row, String name, double x, double y, int prod) {
+        row.setLength(0);
+        row.append(name).append(',');
+        appendFixed(row, x);
+        row.append(',');
+        appendFixed(row, y);
+        row.append(',').append(prod).append(",\n");
+    }
+
+    private static void appendFixed(StringBuilder sb, double value) {
+        long hundredths = Math.round(value * 100.0);
+        sb.append(hundredths / 100).append('.');
+        long decimals = hundredths % 100;
+        if (decimals < 10) {
+            sb.append('0');
+        }
+        sb.append(decimals);
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * Tipo de vehículo de la flota generada.
+     */
+    private static final class VehicleType {
+        final String name;
+        final double load;
+        final double ef;
+        final double eo;
+        final double share;
+
+        VehicleType(String name, double load, double ef, double eo, double share) {
+            this.name = name;
+            this.load = load;
+            this.ef = ef;
+            this.eo = eo;
+            this.share = share;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package tfg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lector rápido del CSV de instancias.
+ *
+ * Recorre el fichero mapeado en memoria (o un texto ya cargado) byte a byte y escribe cada campo
+ * directamente en arrays primitivos, sin crear una cadena por línea ni por
+ * campo (solo los nombres de nodos y vehículos se convierten a {@link String}).
+ * Acepta el mismo formato que {@link Instance}: una sección que empieza por
+ * {@code Vehicle} y otra por {@code Node}, con las columnas identificadas por
+ * su cabecera, campos recortados y líneas en blanco o con el primer campo
+ * vacío ignoradas.
+ */
+final class InstanceReader {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final int NONE = 0;
+    private static final int VEHICLES = 1;
+    private static final int NODES = 2;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+
+    // Campos de la línea actual: [fieldStart[k], fieldEnd[k]) ya recortados
+    private int[] fieldStart = new int[8];
+    private int[] fieldEnd = new int[8];
+    private int fields;
+    private byte[] scratch = new byte[64];
+
+    // Columnas de cada sección (-1 si no existe)
+    private int colVehicle = -1;
+    private int colLoad = -1;
+    private int colNumV = -1;
+    private int colEf = -1;
+    private int colEo = -1;
+    private int colNode = -1;
+    private int colX = -1;
+    private int colY = -1;
+    private int colProd = -1;
+
+    private int numTypes;
+    private String[] typeNames = new String[4];
+    private double[] typeLoad = new double[4];
+    private double[] typeEf = new double[4];
+    private double[] typeEo = new double[4];
+    private int[] typeUnits = new int[4];
+
+    private int numNodes;
+    private String[] nodeNames;
+    private double[] x;
+    private double[] y;
+    private double[] prod;
+
+    private InstanceReader(ByteBuffer buffer, int limit) {
+        this.buffer = buffer;
+        this.limit = limit;
+        int estimate = Math.max(16, limit / 24);
+        this.nodeNames = new String[estimate];
+        this.x = new double[estimate];
+        this.y = new double[estimate];
+        this.prod = new double[estimate];
+    }
+
+    /**
+     * Lee y compila una instancia CSV.
+     *
+     * @param file Fichero CSV
+     * @return Instancia compilada
+     * @throws IOException Si hay un error al leer el archivo o su formato no es válido
+     */
+    static CompiledInstance read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("El fichero es demasiado grande para mapearse (" + size + " bytes): " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new InstanceReader(buffer, (int) size).parse(file.toString());
+        }
+    }
+
+    /**
+     * Lee y compila una instancia a partir del texto del CSV.
+     *
+     * @param content Contenido del CSV en UTF-8
+     * @param source Nombre del origen para los mensajes de error
+     * @return Instancia compilada
+     * @throws IOException Si el formato no es válido
+     */
+    static CompiledInstance read(byte[] content, String source) throws IOException {
+        return new InstanceReader(ByteBuffer.wrap(content), content.length).parse(source);
+    }
+
+    private CompiledInstance parse(String source) throws IOException {
+        int section = NONE;
+        int pos = 0;
+        while (pos < limit) {
+            int end = pos;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            splitLine(pos, end);
+            pos = end + 1;
+
+            // Saltar líneas vacías o con el primer campo vacío
+            if (fields == 0 || fieldStart[0] == fieldEnd[0]) {
+                continue;
+            }
+            try {
+                if (fieldEquals(0, "Vehicle")) {
+                    section = VEHICLES;
+                    vehicleHeader();
+                } else if (fieldEquals(0, "Node")) {
+                    section = NODES;
+                    nodeHeader();
+                } else if (section == VEHICLES) {
+                    vehicleRow();
+                } else if (section == NODES) {
+                    nodeRow();
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage() + " (" + source + ")", e);
+            }
+        }
+
+        try {
+            return new CompiledInstance(
+                    Arrays.copyOf(nodeNames, numNodes), Arrays.copyOf(x, numNodes),
+                    Arrays.copyOf(y, numNodes), Arrays.copyOf(prod, numNodes),
+                    Arrays.copyOf(typeNames, numTypes), Arrays.copyOf(typeLoad, numTypes),
+                    Arrays.copyOf(typeEf, numTypes), Arrays.copyOf(typeEo, numTypes),
+                    Arrays.copyOf(typeUnits, numTypes));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + " (" + source + ")", e);
+        }
+    }
+
+    /**
+     * Separa la línea [start, end) en campos por comas, recortando espacios y '\r'.
+     */
+    private void splitLine(int start, int end) {
+        fields = 0;
+        int fieldFrom = start;
+        for (int p = start; p <= end; p++) {
+            if (p == end || buffer.get(p) == ',') {
+                int a = fieldFrom;
+                int b = p;
+                while (a < b && isBlank(buffer.get(a))) {
+                    a++;
+                }
+                while (b > a && isBlank(buffer.get(b - 1))) {
+                    b--;
+                }
+                if (fields == fieldStart.length) {
+                    fieldStart = Arrays.copyOf(fieldStart, fields * 2);
+                    fieldEnd = Arrays.copyOf(fieldEnd, fields * 2);
+                }
+                fieldStart[fields] = a;
+                fieldEnd[fields] = b;
+                fields++;
+                fieldFrom = p + 1;
+            }
+        }
+        // Como String.split: se descartan los campos vacíos finales
+        while (fields > 0 && fieldStart[fields - 1] == fieldEnd[fields - 1]) {
+            fields--;
+        }
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private void vehicleHeader() {
+        colVehicle = colLoad = colNumV = colEf = colEo = -1;
+        for (int k = 0; k < fields; k++) {
+            if (fieldEquals(k, "Vehicle")) {
+                colVehicle = k;
+            } else if (fieldEquals(k, "Load")) {
+                colLoad = k;
+            } else if (fieldEquals(k, "Num_v")) {
+                colNumV = k;
+            } else if (fieldEquals(k, "Ef")) {
+                colEf = k;
+            } else if (fieldEquals(k, "Eo")) {
+                colEo = k;
+            }
+        }
+    }
+
+    private void nodeHeader() {
+        colNode = colX = colY = colProd = -1;
+        for (int k = 0; k < fields; k++) {
+            if (fieldEquals(k, "Node")) {
+                colNode = k;
+            } else if (fieldEquals(k, "coord_x")) {
+                colX = k;
+            } else if (fieldEquals(k, "coord_y")) {
+                colY = k;
+            } else if (fieldEquals(k, "prod")) {
+                colProd = k;
+            }
+        }
+    }
+
+    private void vehicleRow() {
+        if (numTypes == typeNames.length) {
+            int capacity = numTypes * 2;
+            typeNames = Arrays.copyOf(typeNames, capacity);
+            typeLoad = Arrays.copyOf(typeLoad, capacity);
+            typeEf = Arrays.copyOf(typeEf, capacity);
+            typeEo = Arrays.copyOf(typeEo, capacity);
+            typeUnits = Arrays.copyOf(typeUnits, capacity);
+        }
+        String name = string(colVehicle);
+        typeNames[numTypes] = name;
+        double load = required(colLoad, "Load", name);
+        if (!(load > 0.0) || Double.isInfinite(load)) {
+            throw new IllegalArgumentException("La capacidad 'Load' debe ser positiva en " + name + ": " + load);
+        }
+        double units = required(colNumV, "Num_v", name);
+        if (!(units >= 0.0 && units <= Integer.MAX_VALUE) || units != Math.rint(units)) {
+            throw new IllegalArgumentException("'Num_v' debe ser un entero no negativo en " + name + ": " + units);
+        }
+        typeLoad[numTypes] = load;
+        typeUnits[numTypes] = (int) units;
+        typeEf[numTypes] = required(colEf, "Ef", name);
+        typeEo[numTypes] = required(colEo, "Eo", name);
+        numTypes++;
+    }
+
+    private void nodeRow() {
+        if (numNodes == nodeNames.length) {
+            int capacity = numNodes * 2;
+            nodeNames = Arrays.copyOf(nodeNames, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            prod = Arrays.copyOf(prod, capacity);
+        }
+        String name = string(colNode);
+        nodeNames[numNodes] = name;
+        x[numNodes] = required(colX, "coord_x", name);
+        y[numNodes] = required(colY, "coord_y", name);
+        prod[numNodes] = optional(colProd);
+        numNodes++;
+    }
+
+    private boolean present(int column) {
+        return column >= 0 && column < fields && fieldStart[column] < fieldEnd[column];
+    }
+
+    private double required(int column, String field, String owner) {
+        if (!present(column)) {
+            throw new IllegalArgumentException("Falta el campo '" + field + "' en " + owner);
+        }
+        double value = parseNumber(column);
+        if (Double.isNaN(value)) {
+            return CompiledInstance.parseRequired(string(column), field, owner);
+        }
+        return value;
+    }
+
+    private double optional(int column) {
+        if (!present(column)) {
+            return 0.0;
+        }
+        double value = parseNumber(column);
+        if (Double.isNaN(value)) {
+            return CompiledInstance.parseOptional(string(column));
+        }
+        return value;
+    }
+
+    /**
+     * Parsea decimales simples ({@code [-+]dígitos[.dígitos]}) sin crear cadenas.
+     * El resultado es el mismo que el de {@link Double#parseDouble}: mantisa y
+     * potencia de diez son exactas, así que una sola división redondea
+     * correctamente. Devuelve NaN si el campo no es de esta forma (exponentes,
+     * demasiados dígitos...) para que se use el parser estándar.
+     */
+    private double parseNumber(int column) {
+        int p = fieldStart[column];
+        int end = fieldEnd[column];
+        boolean negative = false;
+        byte c = buffer.get(p);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; p < end; p++) {
+            c = buffer.get(p);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.NaN;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private boolean fieldEquals(int column, String text) {
+        int length = fieldEnd[column] - fieldStart[column];
+        if (length != text.length()) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (buffer.get(fieldStart[column] + k) != text.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int column) {
+        if (column < 0 || column >= fields) {
+            return "";
+        }
+        int length = fieldEnd[column] - fieldStart[column];
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(fieldStart[column], scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,235 @@
+package tfg;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Instancias cargadas en memoria, con sus datos derivados (matriz de
+ * distancias, listas de vecinos) ya calculados, para reutilizarlas entre
+ * peticiones de {@link SolverServer}. La cota inferior, que es O(n²), no se
+ * calcula al cargar: la calcula la primera búsqueda con separación objetivo y
+ * queda guardada en la instancia para las siguientes.
+ *
+ * Es una LRU acotada por el tamaño estimado en bytes de cada instancia: al
+ * superar el máximo se descartan las menos usadas recientemente (nunca la
+ * recién cargada, aunque por sí sola lo supere). Si varias peticiones piden a
+ * la vez una instancia que no está, solo una la carga y las demás esperan al
+ * mismo resultado; la carga se hace fuera del cerrojo, así que no bloquea las
+ * consultas de otras instancias. Si falla, no se guarda y el error llega a
+ * todas las que esperaban.
+ */
+public class InstanceStore {
+    /** Bytes por nodo aproximados: coordenadas, producción, nombre, vecinos y rejilla. */
+    private static final long BYTES_PER_NODE = 160L;
+
+    /**
+     * Carga de una instancia que no está en memoria.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Carga la instancia.
+         *
+         * @return Instancia
+         * @throws IOException Si no se puede leer
+         */
+        Instance load() throws IOException;
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static final class Entry {
+        final CompletableFuture<Instance> instance = new CompletableFuture<>();
+        long bytes;
+    }
+
+    /**
+     * Constructor del almacén.
+     *
+     * @param maxBytes Tamaño máximo estimado de las instancias guardadas
+     */
+    public InstanceStore(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("El tamaño máximo debe ser positivo: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Obtiene una instancia, cargándola si no está.
+     *
+     * @param key Clave que identifica el contenido de la instancia
+     * @param loader Carga de la instancia
+     * @return Instancia con sus distancias y vecinos calculados
+     * @throws IOException Si la carga falla
+     */
+    public Instance get(String key, Loader loader) throws IOException {
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+            } else {
+                misses++;
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+        if (owner) {
+            load(key, entry, loader);
+        }
+        try {
+            return entry.instance.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Carga de la instancia interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void load(String key, Entry entry, Loader loader) {
+        Instance instance;
+        try {
+            instance = loader.load();
+            CompiledInstance compiled = instance.getCompiled();
+            compiled.getDistances();
+            compiled.getNeighborLists();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.instance.completeExceptionally(e);
+            return;
+        }
+        synchronized (this) {
+            entry.bytes = estimateBytes(instance.getCompiled());
+            if (entries.get(key) == entry) {
+                bytes += entry.bytes;
+                evict(entry);
+            }
+        }
+        entry.instance.complete(instance);
+    }
+
+    /**
+     * Descarta las entradas menos usadas hasta volver al máximo, sin tocar {@code keep}
+     * ni las que aún se están cargando.
+     */
+    private void evict(Entry keep) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (entry != keep && entry.instance.isDone()) {
+                it.remove();
+                bytes -= entry.bytes;
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Estima la memoria de una instancia cargada: datos por nodo y matriz de
+     * distancias si está en el montículo (la mapeada vive en la caché de
+     * páginas del sistema y la calculada al vuelo no ocupa).
+     *
+     * @param instance Instancia compilada
+     * @return Bytes aproximados
+     */
+    static long estimateBytes(CompiledInstance instance) {
+        long n = instance.getNumberOfNodes();
+        long triangle = n * (n - 1) / 2;
+        switch (instance.getDistances().getMode()) {
+            case HEAP:
+                return n * BYTES_PER_NODE + triangle * Double.BYTES;
+            case HEAP_FLOAT:
+                return n * BYTES_PER_NODE + triangle * Float.BYTES;
+            default:
+                return n * BYTES_PER_NODE;
+        }
+    }
+
+    /**
+     * Obtiene el número de instancias guardadas (incluidas las que se están cargando).
+     *
+     * @return Instancias
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Obtiene el tamaño estimado de las instancias guardadas.
+     *
+     * @return Bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Obtiene el tamaño máximo.
+     *
+     * @return Bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Obtiene el número de peticiones servidas sin cargar la instancia.
+     *
+     * @return Aciertos
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Obtiene el número de cargas de instancias.
+     *
+     * @return Fallos
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Obtiene el número de instancias descartadas por falta de espacio.
+     *
+     * @return Expulsiones
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "InstanceStore{" +
+                "instancias=" + entries.size() +
+                ", bytes=" + bytes +
+                ", max=" + maxBytes +
+                ", aciertos=" + hits +
+                ", fallos=" + misses +
+                ", expulsiones=" + evictions +
+                '}';
+    }
+}
@@ -0,0 +1,330 @@
+package tfg;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Búsqueda local entre rutas: mueve clientes de una unidad de vehículo a otra.
+ *
+ * Operadores:
+ * <ul>
+ *   <li>{@link Operator#RELOCATE}: mueve un cliente a otra ruta.</li>
+ *   <li>{@link Operator#SWAP}: intercambia dos clientes de rutas distintas.</li>
+ *   <li>{@link Operator#TWO_OPT_STAR}: intercambia las colas de dos rutas.</li>
+ *   <li>{@link Operator#CROSS_EXCHANGE}: intercambia segmentos de hasta
+ *       {@link #getMaxSegment()} clientes entre dos rutas.</li>
+ * </ul>
+ * Los movimientos se restringen a listas granulares: para cada cliente u solo
+ * se prueban los que lo dejan junto a uno de sus k vecinos más cercanos, más la
+ * reubicación en una unidad vacía de cada tipo de vehículo. La capacidad se
+ * comprueba en O(1) con las cargas de ruta y el CO2 se valora con
+ * {@link IncrementalEvaluator}, usando los {@code Ef}/{@code Eo}/{@code Load}
+ * del vehículo de cada ruta. Así, explorar el vecindario completo cuesta
+ * O(n·k) y no O(n²).
+ *
+ * Se aplica la primera mejora con bits "don't look": al aplicar un movimiento
+ * se reactivan los clientes de las dos rutas afectadas. No es seguro para hilos.
+ */
+public class InterRouteSearch implements LocalSearch {
+    private static final double EPSILON = 1e-9;
+    private static final int DEFAULT_MAX_SEGMENT = 3;
+
+    /**
+     * Operadores de vecindario entre rutas.
+     */
+    public enum Operator {
+        RELOCATE, SWAP, TWO_OPT_STAR, CROSS_EXCHANGE
+    }
+
+    private final NeighborLists neighbors;
+    private final EnumSet<Operator> operators;
+    private final int maxSegment;
+    private final int[] customers;
+    private final int numTypes;
+
+    // Cola circular de clientes activos (bits don't-look a false)
+    private final int[] queue;
+    private final boolean[] active;
+    private int head;
+    private int count;
+
+    // Una unidad vacía por tipo de vehículo (-1 si no hay)
+    private final int[] emptyRoute;
+
+    // Movimiento de mejora encontrado
+    private Operator moveOperator;
+    private int moveRoute1;
+    private int moveA;
+    private int moveB;
+    private int moveRoute2;
+    private int moveC;
+    private int moveD;
+
+    private final long[] movesEvaluated;
+    private final long[] movesApplied;
+
+    /**
+     * Constructor con todos los operadores y las listas de candidatos de la instancia.
+     *
+     * @param instance Instancia compilada
+     */
+    public InterRouteSearch(CompiledInstance instance) {
+        this(instance, instance.getNeighborLists(), EnumSet.allOf(Operator.class), DEFAULT_MAX_SEGMENT);
+    }
+
+    /**
+     * Constructor completo.
+     *
+     * @param instance Instancia compilada
+     * @param neighbors Listas de candidatos
+     * @param operators Operadores activos
+     * @param maxSegment Longitud máxima de segmento del cross-exchange
+     */
+    public InterRouteSearch(CompiledInstance instance, NeighborLists neighbors, Set<Operator> operators, int maxSegment) {
+        this.neighbors = neighbors;
+        this.operators = operators.isEmpty() ? EnumSet.noneOf(Operator.class) : EnumSet.copyOf(operators);
+        this.maxSegment = Math.max(1, maxSegment);
+        this.customers = instance.getCustomers();
+        this.numTypes = instance.getNumberOfTypes();
+        this.queue = new int[instance.getNumberOfNodes()];
+        this.active = new boolean[instance.getNumberOfNodes()];
+        this.emptyRoute = new int[numTypes];
+        this.movesEvaluated = new long[Operator.values().length];
+        this.movesApplied = new long[Operator.values().length];
+    }
+
+    @Override
+    public boolean improve(IncrementalEvaluator evaluator) {
+        long[] evaluatedBefore = movesEvaluated.clone();
+        long[] appliedBefore = movesApplied.clone();
+        head = 0;
+        count = 0;
+        for (int c : customers) {
+            active[c] = false;
+            if (evaluator.getRouteOf(c) >= 0) {
+                push(c);
+            }
+        }
+        updateEmptyRoutes(evaluator);
+
+        boolean improved = false;
+        while (count > 0) {
+            int u = queue[head];
+            head = head + 1 == queue.length ? 0 : head + 1;
+            count--;
+            active[u] = false;
+
+            moveOperator = null;
+            scan(evaluator, u);
+            if (moveOperator != null) {
+                apply(evaluator);
+                improved = true;
+            }
+        }
+        for (Operator operator : Operator.values()) {
+            int o = operator.ordinal();
+            SolverMetrics.moves(SolverMetrics.Move.valueOf(operator.name()),
+                    movesEvaluated[o] - evaluatedBefore[o], movesApplied[o] - appliedBefore[o]);
+        }
+        return improved;
+    }
+
+    /**
+     * Busca el primer movimiento de mejora que deja al cliente u junto a un vecino cercano.
+     */
+    private void scan(IncrementalEvaluator evaluator, int u) {
+        int route1 = evaluator.getRouteOf(u);
+        if (route1 < 0) {
+            return;
+        }
+        int i = evaluator.getPositionOf(u);
+        int size1 = evaluator.getRouteSize(route1);
+
+        for (int rank = 0; rank < neighbors.size(); rank++) {
+            int v = neighbors.get(u, rank);
+            int route2 = evaluator.getRouteOf(v);
+            if (route2 < 0 || route2 == route1) {
+                continue;
+            }
+            int j = evaluator.getPositionOf(v);
+            int size2 = evaluator.getRouteSize(route2);
+
+            if (operators.contains(Operator.RELOCATE)) {
+                // u detrás o delante de v
+                if (relocate(evaluator, route1, i, route2, j) || relocate(evaluator, route1, i, route2, j - 1)) {
+                    return;
+                }
+            }
+            if (operators.contains(Operator.SWAP)) {
+                // u en el lugar del sucesor o del predecesor de v
+                if ((j < size2 && swap(evaluator, route1, i, route2, j + 1))
+                        || (j > 1 && swap(evaluator, route1, i, route2, j - 1))) {
+                    return;
+                }
+            }
+            if (operators.contains(Operator.TWO_OPT_STAR)) {
+                // ... u, v ... en la ruta 1 o ... v, u ... en la ruta 2
+                if (twoOptStar(evaluator, route1, i, route2, j - 1) || twoOptStar(evaluator, route1, i - 1, route2, j)) {
+                    return;
+                }
+            }
+            if (operators.contains(Operator.CROSS_EXCHANGE)) {
+                // El segmento que empieza en u pasa detrás de v
+                for (int a = 1; a <= maxSegment && i + a - 1 <= size1; a++) {
+                    for (int b = 1; b <= maxSegment && j + b <= size2; b++) {
+                        if (a == 1 && b == 1 && operators.contains(Operator.SWAP)) {
+                            continue;
+                        }
+                        if (crossExchange(evaluator, route1, i, i + a - 1, route2, j + 1, j + b)) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Unidades vacías: abrir una nueva ruta con u o con la cola desde u
+        for (int t = 0; t < numTypes; t++) {
+            int empty = emptyRoute[t];
+            if (empty < 0 || empty == route1) {
+                continue;
+            }
+            if (operators.contains(Operator.RELOCATE) && relocate(evaluator, route1, i, empty, 0)) {
+                return;
+            }
+            if (operators.contains(Operator.TWO_OPT_STAR) && twoOptStar(evaluator, route1, i - 1, empty, 0)) {
+                return;
+            }
+        }
+    }
+
+    private boolean relocate(IncrementalEvaluator evaluator, int route1, int i, int route2, int p) {
+        movesEvaluated[Operator.RELOCATE.ordinal()]++;
+        if (evaluator.relocateDelta(route1, i, route2, p) < -EPSILON) {
+            record(Operator.RELOCATE, route1, i, 0, route2, p, 0);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean swap(IncrementalEvaluator evaluator, int route1, int i, int route2, int j) {
+        movesEvaluated[Operator.SWAP.ordinal()]++;
+        if (evaluator.swapDelta(route1, i, route2, j) < -EPSILON) {
+            record(Operator.SWAP, route1, i, 0, route2, j, 0);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean twoOptStar(IncrementalEvaluator evaluator, int route1, int i, int route2, int j) {
+        movesEvaluated[Operator.TWO_OPT_STAR.ordinal()]++;
+        if (evaluator.twoOptStarDelta(route1, i, route2, j) < -EPSILON) {
+            record(Operator.TWO_OPT_STAR, route1, i, 0, route2, j, 0);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean crossExchange(IncrementalEvaluator evaluator, int route1, int i1, int j1, int route2, int i2, int j2) {
+        movesEvaluated[Operator.CROSS_EXCHANGE.ordinal()]++;
+        if (evaluator.crossExchangeDelta(route1, i1, j1, route2, i2, j2) < -EPSILON) {
+            record(Operator.CROSS_EXCHANGE, route1, i1, j1, route2, i2, j2);
+            return true;
+        }
+        return false;
+    }
+
+    private void record(Operator operator, int route1, int a, int b, int route2, int c, int d) {
+        moveOperator = operator;
+        moveRoute1 = route1;
+        moveA = a;
+        moveB = b;
+        moveRoute2 = route2;
+        moveC = c;
+        moveD = d;
+    }
+
+    /**
+     * Aplica el movimiento encontrado y reactiva los clientes de las dos rutas.
+     */
+    private void apply(IncrementalEvaluator evaluator) {
+        switch (moveOperator) {
+            case RELOCATE:
+                evaluator.applyRelocate(moveRoute1, moveA, moveRoute2, moveC);
+                break;
+            case SWAP:
+                evaluator.applySwap(moveRoute1, moveA, moveRoute2, moveC);
+                break;
+            case TWO_OPT_STAR:
+                evaluator.applyTwoOptStar(moveRoute1, moveA, moveRoute2, moveC);
+                break;
+            default:
+                evaluator.applyCrossExchange(moveRoute1, moveA, moveB, moveRoute2, moveC, moveD);
+                break;
+        }
+        movesApplied[moveOperator.ordinal()]++;
+        activateRoute(evaluator, moveRoute1);
+        activateRoute(evaluator, moveRoute2);
+        updateEmptyRoutes(evaluator);
+    }
+
+    private void activateRoute(IncrementalEvaluator evaluator, int route) {
+        int size = evaluator.getRouteSize(route);
+        for (int p = 1; p <= size; p++) {
+            push(evaluator.getNode(route, p));
+        }
+    }
+
+    private void updateEmptyRoutes(IncrementalEvaluator evaluator) {
+        Arrays.fill(emptyRoute, -1);
+        for (int r = 0; r < evaluator.getNumberOfRoutes(); r++) {
+            int type = evaluator.getRouteType(r);
+            if (emptyRoute[type] < 0 && evaluator.getRouteSize(r) == 0) {
+                emptyRoute[type] = r;
+            }
+        }
+    }
+
+    private void push(int node) {
+        if (active[node]) {
+            return;
+        }
+        active[node] = true;
+        int tail = head + count;
+        if (tail >= queue.length) {
+            tail -= queue.length;
+        }
+        queue[tail] = node;
+        count++;
+    }
+
+    /**
+     * Obtiene los movimientos valorados de un operador desde la creación.
+     *
+     * @param operator Operador
+     * @return Movimientos valorados
+     */
+    public long getMovesEvaluated(Operator operator) {
+        return movesEvaluated[operator.ordinal()];
+    }
+
+    /**
+     * Obtiene los movimientos aplicados de un operador desde la creación.
+     *
+     * @param operator Operador
+     * @return Movimientos aplicados
+     */
+    public long getMovesApplied(Operator operator) {
+        return movesApplied[operator.ordinal()];
+    }
+
+    /**
+     * Obtiene la longitud máxima de segmento del cross-exchange.
+     *
+     * @return Longitud máxima
+     */
+    public int getMaxSegment() {
+        return maxSegment;
+    }
+}
@@ -0,0 +1,270 @@
+package tfg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Isla del modelo de islas: ejecuta una {@link IteratedLocalSearch} propia y,
+ * cada cierto intervalo, envía su mejor solución a un {@link IslandCoordinator}
+ * y recibe la mejor global, que entrega a la búsqueda con
+ * {@link IteratedLocalSearch#offer(CompactSolution)} si es mejor que la suya.
+ *
+ * Cada isla es normalmente un proceso (JVM) distinto, de modo que las búsquedas
+ * no comparten recolector de basura ni montículo. La búsqueda corre en su propio
+ * hilo y el intercambio en el hilo que llama a {@link #run()}; la solución solo
+ * se envía si ha cambiado desde el último intercambio. Si el coordinador no
+ * responde, la isla sigue sola hasta terminar su búsqueda.
+ */
+public class Island {
+    /** Intervalo de migración por defecto (ms). */
+    public static final long DEFAULT_MIGRATION_INTERVAL = 1000L;
+
+    private static final int CONNECT_ATTEMPTS = 50;
+    private static final long CONNECT_RETRY_MILLIS = 200L;
+
+    private final IteratedLocalSearch search;
+    private final int id;
+    private final InetSocketAddress coordinator;
+    private long migrationInterval = DEFAULT_MIGRATION_INTERVAL;
+
+    /**
+     * Constructor de la isla.
+     *
+     * @param search Búsqueda ya configurada (con criterio de parada)
+     * @param id Identificador de la isla
+     * @param coordinator Dirección del coordinador
+     */
+    public Island(IteratedLocalSearch search, int id, InetSocketAddress coordinator) {
+        this.search = search;
+        this.id = id;
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Establece el intervalo entre intercambios con el coordinador.
+     *
+     * @param millis Intervalo en milisegundos (al menos 1)
+     */
+    public void setMigrationInterval(long millis) {
+        this.migrationInterval = Math.max(1L, millis);
+    }
+
+    /**
+     * Ejecuta la búsqueda intercambiando soluciones con el coordinador.
+     *
+     * @return Resultado de la isla
+     * @throws InterruptedException Si se interrumpe la espera de la búsqueda
+     */
+    public Result run() throws InterruptedException {
+        IteratedLocalSearch.Result[] result = new IteratedLocalSearch.Result[1];
+        RuntimeException[] failure = new RuntimeException[1];
+        Thread worker = new Thread(() -> {
+            try {
+                result[0] = search.run();
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            }
+        }, "island-search-" + id);
+        worker.start();
+
+        long sent = 0;
+        long received = 0;
+        long adopted = 0;
+        CompactSolution global = null;
+        Connection connection = connect();
+        try {
+            CompactSolution lastSent = null;
+            while (worker.isAlive()) {
+                worker.join(migrationInterval);
+                boolean done = !worker.isAlive();
+                if (connection == null) {
+                    continue;
+                }
+                CompactSolution local = done && result[0] != null ? result[0].getBestCompact() : search.getBestCompact();
+                CompactSolution outgoing = local != lastSent ? local : null;
+                try {
+                    global = connection.exchange(done ? IslandCoordinator.DONE : IslandCoordinator.MIGRATE,
+                            search.getIterations(), outgoing);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Isla " + id + ": se pierde la conexión con el coordinador: " + e.getMessage());
+                    connection.close();
+                    connection = null;
+                    continue;
+                }
+                if (outgoing != null) {
+                    sent++;
+                    lastSent = outgoing;
+                }
+                if (global != null) {
+                    received++;
+                    if (!done && global.getTotalCO2() < search.getBestCO2() - 1e-9) {
+                        try {
+                            search.offer(global);
+                            adopted++;
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Isla " + id + ": se descarta la solución global: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return new Result(result[0], global, sent, received, adopted);
+    }
+
+    /**
+     * Conecta con el coordinador, reintentando mientras arranca.
+     *
+     * @return Conexión, o {@code null} si no fue posible
+     */
+    private Connection connect() throws InterruptedException {
+        IOException last = null;
+        for (int attempt = 0; attempt < CONNECT_ATTEMPTS; attempt++) {
+            try {
+                return new Connection(coordinator, id, search);
+            } catch (IOException e) {
+                last = e;
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+        System.err.println("Isla " + id + ": no se pudo conectar con el coordinador " + coordinator
+                + " (" + last.getMessage() + "); se continúa sin migración");
+        return null;
+    }
+
+    /**
+     * Conexión TCP con el coordinador.
+     */
+    private static final class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        final int id;
+        final CompiledInstance instance;
+
+        Connection(InetSocketAddress address, int id, IteratedLocalSearch search) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.connect(address);
+                socket.setTcpNoDelay(true);
+                this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            this.id = id;
+            this.instance = search.getInstance().getCompiled();
+        }
+
+        /**
+         * Envía la solución propia (o nada) y recibe la mejor global.
+         */
+        CompactSolution exchange(int type, long iterations, CompactSolution solution) throws IOException {
+            out.writeByte(type);
+            out.writeInt(id);
+            out.writeLong(iterations);
+            out.writeBoolean(solution != null);
+            if (solution != null) {
+                SolutionCodec.write(out, solution);
+            }
+            out.flush();
+            return in.readBoolean() ? SolutionCodec.read(in, instance) : null;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nada que hacer al cerrar
+            }
+        }
+    }
+
+    /**
+     * Resultado de una isla.
+     */
+    public static class Result {
+        private final IteratedLocalSearch.Result search;
+        private final CompactSolution global;
+        private final long sent;
+        private final long received;
+        private final long adopted;
+
+        Result(IteratedLocalSearch.Result search, CompactSolution global, long sent, long received, long adopted) {
+            this.search = search;
+            this.global = global;
+            this.sent = sent;
+            this.received = received;
+            this.adopted = adopted;
+        }
+
+        /**
+         * Obtiene el resultado de la búsqueda local de la isla.
+         *
+         * @return Resultado de la búsqueda
+         */
+        public IteratedLocalSearch.Result getSearch() {
+            return search;
+        }
+
+        /**
+         * Obtiene la mejor solución global recibida en el último intercambio.
+         *
+         * @return Mejor global, o {@code null} si no hubo coordinador
+         */
+        public CompactSolution getGlobal() {
+            return global;
+        }
+
+        /**
+         * Obtiene el número de soluciones enviadas.
+         *
+         * @return Soluciones enviadas
+         */
+        public long getSent() {
+            return sent;
+        }
+
+        /**
+         * Obtiene el número de soluciones recibidas.
+         *
+         * @return Soluciones recibidas
+         */
+        public long getReceived() {
+            return received;
+        }
+
+        /**
+         * Obtiene el número de soluciones recibidas que se entregaron a la búsqueda.
+         *
+         * @return Migraciones adoptadas
+         */
+        public long getAdopted() {
+            return adopted;
+        }
+
+        @Override
+        public String toString() {
+            return "Island.Result{" +
+                    "mejorCO2=" + String.format("%.7f", search.getBest().getTotalCO2()) +
+                    ", globalCO2=" + (global == null ? "-" : String.format("%.7f", global.getTotalCO2())) +
+                    ", iteraciones=" + search.getIterations() +
+                    ", enviadas=" + sent +
+                    ", recibidas=" + received +
+                    ", adoptadas=" + adopted +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package tfg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Coordinador del modelo de islas: servidor TCP que recibe las mejores
+ * soluciones de cada {@link Island}, guarda la mejor global y se la devuelve a
+ * cada isla en cada intercambio (migración de la élite).
+ *
+ * Protocolo, por intercambio: la isla envía un byte de tipo
+ * ({@link #MIGRATE} o {@link #DONE}), su identificador, sus iteraciones, un
+ * byte que indica si adjunta solución y, en su caso, la solución codificada con
+ * {@link SolutionCodec}; el coordinador responde con un byte que indica si hay
+ * mejor global y, en su caso, la solución. Cada isla usa una conexión propia
+ * atendida por un hilo.
+ *
+ * Por defecto escucha solo en la interfaz local, para lanzar varios procesos
+ * en la misma máquina; con {@link #IslandCoordinator(Instance, InetSocketAddress)}
+ * se puede escuchar en otra dirección para repartir islas entre nodos.
+ */
+public class IslandCoordinator implements Closeable {
+    /** Puerto por defecto. */
+    public static final int DEFAULT_PORT = 5555;
+
+    static final int MIGRATE = 1;
+    static final int DONE = 2;
+
+    private final CompiledInstance instance;
+    private final ServerSocket server;
+    private final Set<Integer> finished = new HashSet<>();
+    private CompactSolution best;
+    private int bestIsland = -1;
+    private long exchanges;
+    private long iterations;
+    private Thread acceptor;
+
+    /**
+     * Constructor que escucha en la interfaz local.
+     *
+     * @param instance Instancia del problema (la misma que cargan las islas)
+     * @param port Puerto, o 0 para elegir uno libre
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public IslandCoordinator(Instance instance, int port) throws IOException {
+        this(instance, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Constructor que escucha en una dirección dada.
+     *
+     * @param instance Instancia del problema (la misma que cargan las islas)
+     * @param address Dirección y puerto de escucha
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public IslandCoordinator(Instance instance, InetSocketAddress address) throws IOException {
+        this.instance = instance.getCompiled();
+        this.server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(address);
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha.
+     *
+     * @return Puerto
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Empieza a aceptar islas en un hilo de fondo.
+     */
+    public synchronized void start() {
+        if (acceptor != null) {
+            throw new IllegalStateException("El coordinador ya está en marcha");
+        }
+        acceptor = new Thread(this::accept, "island-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serve(socket), "island-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (SocketException e) {
+                return; // Servidor cerrado
+            } catch (IOException e) {
+                System.err.println("Error al aceptar una isla: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Atiende los intercambios de una isla hasta que termina o se desconecta.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                int type;
+                try {
+                    type = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                int island = in.readInt();
+                long islandIterations = in.readLong();
+                CompactSolution received = in.readBoolean() ? SolutionCodec.read(in, instance) : null;
+                CompactSolution global = exchange(island, islandIterations, received, type == DONE);
+                out.writeBoolean(global != null);
+                if (global != null) {
+                    SolutionCodec.write(out, global);
+                }
+                out.flush();
+                if (type == DONE) {
+                    return;
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error en la conexión con una isla: " + e.getMessage());
+        }
+    }
+
+    private synchronized CompactSolution exchange(int island, long islandIterations, CompactSolution received,
+                                                  boolean done) {
+        exchanges++;
+        if (received != null && (best == null || received.getTotalCO2() < best.getTotalCO2() - 1e-9)) {
+            best = received;
+            bestIsland = island;
+        }
+        if (done) {
+            iterations += islandIterations;
+            finished.add(island);
+            notifyAll();
+        }
+        return best;
+    }
+
+    /**
+     * Espera a que terminen un número de islas.
+     *
+     * @param islands Islas que deben terminar
+     * @param timeoutMillis Tiempo máximo de espera
+     * @return {@code true} si terminaron todas antes del plazo
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public synchronized boolean awaitIslands(int islands, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (finished.size() < islands) {
+            long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene la mejor solución global recibida.
+     *
+     * @return Mejor solución, o {@code null} si no se ha recibido ninguna
+     */
+    public synchronized CompactSolution getBest() {
+        return best;
+    }
+
+    /**
+     * Obtiene la isla que envió la mejor solución global.
+     *
+     * @return Identificador de la isla, o -1
+     */
+    public synchronized int getBestIsland() {
+        return bestIsland;
+    }
+
+    /**
+     * Obtiene el número de intercambios atendidos.
+     *
+     * @return Intercambios
+     */
+    public synchronized long getExchanges() {
+        return exchanges;
+    }
+
+    /**
+     * Obtiene el número de islas que han terminado.
+     *
+     * @return Islas terminadas
+     */
+    public synchronized int getFinished() {
+        return finished.size();
+    }
+
+    /**
+     * Obtiene la suma de las iteraciones de las islas que han terminado.
+     *
+     * @return Iteraciones
+     */
+    public synchronized long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Deja de aceptar islas.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "IslandCoordinator{" +
+                "mejorCO2=" + (best == null ? "-" : String.format("%.7f", best.getTotalCO2())) +
+                ", isla=" + bestIsland +
+                ", terminadas=" + finished.size() +
+                ", intercambios=" + exchanges +
+                ", iteraciones=" + iterations +
+                '}';
+    }
+}
@@ -0,0 +1,734 @@
+package tfg;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Búsqueda local iterada (ILS) con intensidad de perturbación variable al estilo
+ * VNS: parte de una construcción, la lleva a un óptimo local y repite
+ * perturbar → mejorar → aceptar o rechazar hasta agotar el presupuesto.
+ *
+ * La perturbación mueve {@code k} clientes al azar junto a uno de sus vecinos
+ * más cercanos (o los intercambia con él si no caben). {@code k} empieza en la
+ * intensidad mínima, crece en uno tras cada iteración sin nueva mejor solución
+ * (volviendo al mínimo al pasar del máximo) y vuelve al mínimo al mejorar.
+ *
+ * Criterios de aceptación ({@link Acceptance}): solo mejoras, umbral relativo
+ * sobre la mejor (record-to-record) o recocido simulado con temperatura relativa
+ * al CO2 inicial que se enfría geométricamente según la fracción consumida del
+ * presupuesto de tiempo o de iteraciones.
+ *
+ * Se detiene al agotar el tiempo, el número de iteraciones o el número de
+ * iteraciones sin mejorar la mejor solución (lo primero que ocurra; hace falta
+ * al menos uno), al alcanzar la separación objetivo con la cota inferior de la
+ * instancia ({@link #setTargetGap(double)}, ver {@link LowerBound}) o al llamar
+ * a {@link #stop()}. El plazo se comprueba en cada
+ * iteración, así que el tiempo se aprovecha completo salvo la última búsqueda
+ * local en curso. La mejor solución se publica como una copia inmutable en un
+ * campo {@code volatile}, de modo que otro hilo puede leerla en cualquier momento
+ * con {@link #getBest()} mientras la búsqueda sigue. Con
+ * {@link #setTrace(ConvergenceTrace)} se registra la convergencia de cada iteración.
+ *
+ * Otro hilo puede entregar una solución externa con {@link #offer(CompactSolution)}
+ * (p.ej. la mejor de otra isla, ver {@link Island}); al empezar la siguiente
+ * iteración sustituye a la actual si es mejor.
+ *
+ * Con {@link #setCheckpoint(Checkpoint, long)} se guarda periódicamente el
+ * estado completo (soluciones actual y mejor, contadores y estado del generador
+ * {@link SplitMix64}; la traza de convergencia no se guarda) y con {@link #setResume(Checkpoint.State)}
+ * se continúa desde un checkpoint. Al guardar, el evaluador se recarga desde
+ * la solución actual, igual que al reanudar, de modo que con las mismas
+ * opciones la continuación es idéntica bit a bit a la ejecución original (si el
+ * criterio de parada y la aceptación no dependen del tiempo).
+ */
+public class IteratedLocalSearch {
+    private static final double CAPACITY_TOLERANCE = 1e-9;
+
+    /**
+     * Criterio de aceptación de la solución perturbada y mejorada.
+     */
+    public enum Acceptance {
+        /** Solo se acepta si mejora la solución actual. */
+        IMPROVE,
+        /** Se acepta si no empeora la mejor en más del umbral relativo. */
+        THRESHOLD,
+        /** Recocido simulado: se aceptan empeoramientos con probabilidad exp(-Δ/T). */
+        ANNEALING
+    }
+
+    /**
+     * Motivo de parada.
+     */
+    public enum StopReason {
+        /** Se agotó el tiempo. */
+        TIME,
+        /** Se alcanzó el número máximo de iteraciones. */
+        ITERATIONS,
+        /** Se alcanzó el número máximo de iteraciones sin mejora. */
+        STAGNATION,
+        /** La mejor solución está a menos de la separación objetivo de la cota inferior. */
+        GAP,
+        /** Se pidió la parada con {@link #stop()}. */
+        STOPPED
+    }
+
+    private final Instance instance;
+    private final long seed;
+    private Function<RandomGenerator, CompactSolution> constructive;
+    private Supplier<LocalSearch> improvement;
+    private Acceptance acceptance;
+    private int minStrength;
+    private int maxStrength;
+    private double threshold;
+    private double initialTemperature;
+    private double finalTemperature;
+    private long timeLimitNanos;
+    private long maxIterations;
+    private long maxStagnation;
+    private double targetGap = -1.0;
+    private ConvergenceTrace trace;
+    private Checkpoint checkpoint;
+    private long checkpointIntervalNanos;
+    private Checkpoint.State resume;
+
+    private volatile CompactSolution best;
+    private volatile long iterations;
+    private volatile boolean stopRequested;
+    private final AtomicReference<CompactSolution> incoming = new AtomicReference<>();
+
+    /**
+     * Constructor de la búsqueda local iterada.
+     * Por defecto construye con {@link RandomConstructive}, mejora con
+     * {@link VariableNeighborhoodDescent#standard(CompiledInstance)} y solo acepta mejoras.
+     *
+     * @param instance Instancia del problema
+     * @param seed Semilla del generador aleatorio
+     */
+    public IteratedLocalSearch(Instance instance, long seed) {
+        this.instance = instance;
+        this.seed = seed;
+        this.constructive = random -> new RandomConstructive(instance, random).runCompact();
+        this.improvement = () -> VariableNeighborhoodDescent.standard(instance.getCompiled());
+        this.acceptance = Acceptance.IMPROVE;
+        this.minStrength = 1;
+        this.maxStrength = Math.max(1, Math.min(50, instance.getCompiled().getNumberOfCustomers() / 10));
+        this.threshold = 0.01;
+        this.initialTemperature = 0.01;
+        this.finalTemperature = 0.0001;
+    }
+
+    /**
+     * Establece el constructivo de la solución inicial, que la devuelve
+     * evaluada en forma compacta (p.ej. con {@code runCompact()}).
+     *
+     * @param constructive Constructivo a partir del generador de la búsqueda
+     */
+    public void setConstructive(Function<RandomGenerator, CompactSolution> constructive) {
+        this.constructive = constructive;
+    }
+
+    /**
+     * Establece la búsqueda local que se aplica tras cada perturbación.
+     *
+     * @param improvement Fábrica de la búsqueda local
+     */
+    public void setImprovement(Supplier<LocalSearch> improvement) {
+        this.improvement = improvement;
+    }
+
+    /**
+     * Establece el criterio de aceptación.
+     *
+     * @param acceptance Criterio de aceptación
+     */
+    public void setAcceptance(Acceptance acceptance) {
+        this.acceptance = acceptance;
+    }
+
+    /**
+     * Establece el rango de intensidad de la perturbación (clientes movidos).
+     *
+     * @param minStrength Intensidad mínima (al menos 1)
+     * @param maxStrength Intensidad máxima
+     */
+    public void setStrength(int minStrength, int maxStrength) {
+        this.minStrength = Math.max(1, minStrength);
+        this.maxStrength = Math.max(this.minStrength, maxStrength);
+    }
+
+    /**
+     * Establece el umbral del criterio {@link Acceptance#THRESHOLD}.
+     *
+     * @param threshold Empeoramiento relativo admitido respecto a la mejor (p.ej. 0.01 = 1%)
+     */
+    public void setThreshold(double threshold) {
+        this.threshold = Math.max(0.0, threshold);
+    }
+
+    /**
+     * Establece las temperaturas del criterio {@link Acceptance#ANNEALING},
+     * relativas al CO2 de la solución inicial.
+     *
+     * @param initialTemperature Temperatura inicial relativa
+     * @param finalTemperature Temperatura final relativa
+     */
+    public void setTemperature(double initialTemperature, double finalTemperature) {
+        if (initialTemperature <= 0.0 || finalTemperature <= 0.0) {
+            throw new IllegalArgumentException("Las temperaturas deben ser positivas");
+        }
+        this.initialTemperature = initialTemperature;
+        this.finalTemperature = finalTemperature;
+    }
+
+    /**
+     * Establece el presupuesto de tiempo.
+     *
+     * @param millis Tiempo máximo en milisegundos, o 0 para no limitarlo
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimitNanos = Math.max(0L, millis) * 1_000_000L;
+    }
+
+    /**
+     * Establece el número máximo de iteraciones.
+     *
+     * @param maxIterations Iteraciones, o 0 para no limitarlas
+     */
+    public void setMaxIterations(long maxIterations) {
+        this.maxIterations = Math.max(0L, maxIterations);
+    }
+
+    /**
+     * Establece el número máximo de iteraciones seguidas sin mejorar la mejor solución.
+     *
+     * @param maxStagnation Iteraciones sin mejora, o 0 para no limitarlas
+     */
+    public void setMaxStagnation(long maxStagnation) {
+        this.maxStagnation = Math.max(0L, maxStagnation);
+    }
+
+    /**
+     * Establece la separación objetivo respecto a la cota inferior de la
+     * instancia ({@link CompiledInstance#getLowerBound()}): la búsqueda se
+     * detiene en cuanto la mejor solución está demostradamente a menos de esa
+     * fracción del óptimo. No basta como único criterio de parada, porque la
+     * cota puede no alcanzarse nunca: en las instancias generadas de 30-1000
+     * nodos la separación tras unos cientos de iteraciones queda entre un 25 %
+     * y un 58 %, así que objetivos por debajo de ese orden (p.ej. 10 %) no se
+     * alcanzan y solo sirven los que aceptan una calidad garantizada modesta.
+     *
+     * @param targetGap Separación relativa {@code (CO2 - cota) / CO2} (p.ej. 0.05 = 5%), o negativa para no usarla
+     */
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * Establece la traza de convergencia en la que se registra cada iteración.
+     *
+     * @param trace Traza, o {@code null} para no registrar
+     */
+    public void setTrace(ConvergenceTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Establece el fichero en el que se guarda el estado de la búsqueda cada
+     * cierto tiempo (al terminar una iteración) y al terminar.
+     *
+     * @param checkpoint Fichero de checkpoints, o {@code null} para no guardar
+     * @param intervalMillis Tiempo mínimo entre checkpoints en milisegundos
+     */
+    public void setCheckpoint(Checkpoint checkpoint, long intervalMillis) {
+        this.checkpoint = checkpoint;
+        this.checkpointIntervalNanos = Math.max(0L, intervalMillis) * 1_000_000L;
+    }
+
+    /**
+     * Establece el estado desde el que continúa la siguiente ejecución, en lugar
+     * de construir una solución inicial. Los límites de tiempo e iteraciones
+     * cuentan también lo ejecutado antes del checkpoint.
+     *
+     * @param resume Estado leído con {@link Checkpoint#load()}, o {@code null} para empezar de cero
+     */
+    public void setResume(Checkpoint.State resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Pide que la búsqueda termine al acabar la iteración en curso.
+     * Se puede llamar desde cualquier hilo.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Obtiene la instancia de la búsqueda.
+     *
+     * @return Instancia del problema
+     */
+    public Instance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Obtiene la mejor solución encontrada hasta el momento.
+     * Se puede llamar desde cualquier hilo mientras la búsqueda se ejecuta.
+     *
+     * @return Mejor solución, o {@code null} si aún no hay ninguna
+     */
+    public Solution getBest() {
+        CompactSolution snapshot = best;
+        return snapshot == null ? null : snapshot.toSolution();
+    }
+
+    /**
+     * Obtiene la mejor solución encontrada hasta el momento en su representación
+     * compacta. Es una copia que la búsqueda no vuelve a modificar.
+     *
+     * @return Mejor solución, o {@code null} si aún no hay ninguna
+     */
+    public CompactSolution getBestCompact() {
+        return best;
+    }
+
+    /**
+     * Entrega una solución externa de la misma instancia. Al empezar la
+     * siguiente iteración sustituye a la actual (y a la mejor) si es mejor que
+     * ella; si se entregan varias antes, solo cuenta la última. Se puede llamar
+     * desde cualquier hilo; la factibilidad se comprueba en el hilo que llama,
+     * antes de que la búsqueda pueda adoptarla.
+     *
+     * @param solution Solución evaluada, que la búsqueda no modifica
+     * @throws IllegalArgumentException Si es de otra instancia o no es factible
+     */
+    public void offer(CompactSolution solution) {
+        if (solution.getInstance().getFingerprint() != instance.getCompiled().getFingerprint()) {
+            throw new IllegalArgumentException("La solución entregada es de otra instancia");
+        }
+        solution.validate();
+        incoming.set(solution);
+    }
+
+    /**
+     * Obtiene el CO2 de la mejor solución encontrada hasta el momento.
+     *
+     * @return CO2 de la mejor solución, o infinito si aún no hay ninguna
+     */
+    public double getBestCO2() {
+        CompactSolution snapshot = best;
+        return snapshot == null ? Double.POSITIVE_INFINITY : snapshot.getTotalCO2();
+    }
+
+    /**
+     * Obtiene el número de iteraciones realizadas hasta el momento.
+     *
+     * @return Iteraciones
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Ejecuta la búsqueda.
+     *
+     * @return Resultado de la búsqueda
+     * @throws IllegalStateException Si no hay criterio de parada, el constructivo no encuentra solución
+     *         factible o el checkpoint del que se continúa es de otra instancia, semilla o aceptación
+     */
+    public Result run() {
+        if (timeLimitNanos == 0 && maxIterations == 0 && maxStagnation == 0) {
+            throw new IllegalStateException("Falta un criterio de parada (tiempo, iteraciones o estancamiento)");
+        }
+        long startTime = System.nanoTime();
+        CompiledInstance compiled = instance.getCompiled();
+        NeighborLists neighbors = compiled.getNeighborLists();
+        SplitMix64 random = new SplitMix64(seed);
+        LocalSearch search = improvement.get();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        LowerBound bound = targetGap >= 0.0 ? compiled.getLowerBound() : null;
+
+        best = null;
+        iterations = 0;
+        stopRequested = false;
+
+        CompactSolution current = new CompactSolution(compiled);
+        double currentCO2;
+        double currentDistance;
+        double bestCO2;
+        double initialCO2;
+        long bestTime;
+        long bestIteration;
+        int strength;
+        long iteration;
+        long stagnation;
+        long improvements;
+        if (resume == null) {
+            // Solución inicial
+            evaluator.load(constructive.apply(random));
+            search.improve(evaluator);
+            evaluator.store(current);
+            currentCO2 = current.getTotalCO2();
+            currentDistance = current.getTotalDistance();
+            bestCO2 = currentCO2;
+            initialCO2 = currentCO2;
+            best = current.copy();
+            bestTime = System.nanoTime() - startTime;
+            bestIteration = 0;
+            strength = minStrength;
+            iteration = 0;
+            stagnation = 0;
+            improvements = 0;
+            if (trace != null) {
+                trace.record(bestTime, 0, currentCO2, bestCO2, currentDistance);
+            }
+        } else {
+            // Continuación desde un checkpoint
+            if (resume.fingerprint != compiled.getFingerprint()) {
+                throw new IllegalStateException("El checkpoint es de otra instancia (huella "
+                        + Long.toHexString(resume.fingerprint) + ")");
+            }
+            if (resume.seed != seed || resume.acceptance != acceptance.ordinal()) {
+                throw new IllegalStateException("El checkpoint es de otra ejecución (semilla " + resume.seed
+                        + ", aceptación " + Acceptance.values()[resume.acceptance] + ")");
+            }
+            startTime -= resume.elapsedNanos;
+            random.setState(resume.randomState);
+            current.copyFrom(resume.current);
+            evaluator.load(current);
+            currentCO2 = resume.currentCO2;
+            currentDistance = resume.currentDistance;
+            bestCO2 = resume.bestCO2;
+            initialCO2 = resume.initialCO2;
+            best = resume.best.copy();
+            bestTime = resume.bestNanos;
+            bestIteration = resume.bestIteration;
+            strength = resume.strength;
+            iteration = resume.iteration;
+            stagnation = resume.stagnation;
+            improvements = resume.improvements;
+            iterations = iteration;
+        }
+        Checkpoint.State state = checkpoint == null ? null : new Checkpoint.State();
+        long lastCheckpoint = System.nanoTime();
+
+        double t0 = initialTemperature * initialCO2;
+        double tf = finalTemperature * initialCO2;
+        StopReason reason;
+
+        while (true) {
+            long elapsed = System.nanoTime() - startTime;
+            if (stopRequested) {
+                reason = StopReason.STOPPED;
+                break;
+            }
+            if (timeLimitNanos > 0 && elapsed >= timeLimitNanos) {
+                reason = StopReason.TIME;
+                break;
+            }
+            if (maxIterations > 0 && iteration >= maxIterations) {
+                reason = StopReason.ITERATIONS;
+                break;
+            }
+            if (maxStagnation > 0 && stagnation >= maxStagnation) {
+                reason = StopReason.STAGNATION;
+                break;
+            }
+            if (bound != null && bound.gap(bestCO2) <= targetGap) {
+                reason = StopReason.GAP;
+                break;
+            }
+
+            CompactSolution migrant = incoming.getAndSet(null);
+            if (migrant != null && migrant.getTotalCO2() < currentCO2 - 1e-9) {
+                current.copyFrom(migrant);
+                evaluator.load(current);
+                currentCO2 = current.getTotalCO2();
+                currentDistance = current.getTotalDistance();
+                if (currentCO2 < bestCO2 - 1e-9) {
+                    bestCO2 = currentCO2;
+                    best = current.copy();
+                    bestTime = System.nanoTime() - startTime;
+                    bestIteration = iteration;
+                    stagnation = 0;
+                    strength = minStrength;
+                }
+            }
+
+            long iterationStart = System.nanoTime();
+            long phaseStart = iterationStart;
+            perturb(evaluator, compiled, neighbors, random, strength);
+            SolverMetrics.phase("perturbación", "IteratedLocalSearch", phaseStart, evaluator.getTotalCO2());
+            phaseStart = System.nanoTime();
+            search.improve(evaluator);
+            double candidateCO2 = evaluator.getTotalCO2();
+            SolverMetrics.phase("búsqueda local", "IteratedLocalSearch", phaseStart, candidateCO2);
+            SolverMetrics.solution(iterationStart);
+            iteration++;
+            iterations = iteration;
+
+            if (candidateCO2 < bestCO2 - 1e-9) {
+                bestCO2 = candidateCO2;
+                CompactSolution snapshot = new CompactSolution(compiled);
+                evaluator.store(snapshot);
+                best = snapshot;
+                bestTime = System.nanoTime() - startTime;
+                bestIteration = iteration;
+                improvements++;
+                stagnation = 0;
+                strength = minStrength;
+            } else {
+                stagnation++;
+                strength = strength >= maxStrength ? minStrength : strength + 1;
+            }
+
+            if (accept(candidateCO2, currentCO2, bestCO2, t0, tf, elapsed, iteration, random)) {
+                evaluator.store(current);
+                currentCO2 = candidateCO2;
+                currentDistance = current.getTotalDistance();
+            } else {
+                evaluator.load(current);
+            }
+            if (trace != null) {
+                trace.record(System.nanoTime() - startTime, iteration, currentCO2, bestCO2, currentDistance);
+            }
+            if (state != null && System.nanoTime() - lastCheckpoint >= checkpointIntervalNanos) {
+                // Mismo estado del evaluador que al reanudar
+                evaluator.load(current);
+                saveCheckpoint(state, random, current, currentCO2, currentDistance, bestCO2, initialCO2, bestTime,
+                        bestIteration, strength, iteration, stagnation, improvements, System.nanoTime() - startTime);
+                lastCheckpoint = System.nanoTime();
+            }
+        }
+        if (state != null) {
+            saveCheckpoint(state, random, current, currentCO2, currentDistance, bestCO2, initialCO2, bestTime,
+                    bestIteration, strength, iteration, stagnation, improvements, System.nanoTime() - startTime);
+        }
+
+        CompactSolution result = best;
+        return new Result(result.toSolution(), result, reason, iteration, improvements, bestIteration, bestTime,
+                System.nanoTime() - startTime, bound);
+    }
+
+    /**
+     * Guarda el estado de la búsqueda al final de una iteración.
+     */
+    private void saveCheckpoint(Checkpoint.State state, SplitMix64 random, CompactSolution current, double currentCO2,
+                                double currentDistance, double bestCO2, double initialCO2, long bestTime,
+                                long bestIteration, int strength, long iteration, long stagnation, long improvements,
+                                long elapsed) {
+        CompactSolution snapshot = best;
+        state.seed = seed;
+        state.acceptance = acceptance.ordinal();
+        state.iteration = iteration;
+        state.stagnation = stagnation;
+        state.improvements = improvements;
+        state.bestIteration = bestIteration;
+        state.bestNanos = bestTime;
+        state.elapsedNanos = elapsed;
+        state.randomState = random.getState();
+        state.strength = strength;
+        state.initialCO2 = initialCO2;
+        state.currentCO2 = currentCO2;
+        state.currentDistance = currentDistance;
+        state.bestCO2 = bestCO2;
+        state.bestDistance = snapshot.getTotalDistance();
+        state.current = current;
+        state.best = snapshot;
+        checkpoint.save(state);
+    }
+
+    /**
+     * Decide si la solución candidata sustituye a la actual.
+     */
+    private boolean accept(double candidate, double current, double bestCO2, double t0, double tf, long elapsed,
+                           long iteration, RandomGenerator random) {
+        if (candidate < current) {
+            return true;
+        }
+        switch (acceptance) {
+            case THRESHOLD:
+                return candidate <= bestCO2 * (1.0 + threshold);
+            case ANNEALING:
+                double progress = 0.0;
+                if (timeLimitNanos > 0) {
+                    progress = Math.max(progress, (double) elapsed / timeLimitNanos);
+                }
+                if (maxIterations > 0) {
+                    progress = Math.max(progress, (double) iteration / maxIterations);
+                }
+                double temperature = t0 * Math.pow(tf / t0, Math.min(1.0, progress));
+                return random.nextDouble() < Math.exp((current - candidate) / temperature);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Perturba la solución del evaluador moviendo {@code strength} clientes al
+     * azar junto a uno de sus vecinos cercanos, o intercambiándolos con él si
+     * la ruta del vecino no tiene hueco.
+     */
+    private static void perturb(IncrementalEvaluator evaluator, CompiledInstance compiled, NeighborLists neighbors,
+                                RandomGenerator random, int strength) {
+        int[] customers = compiled.getCustomers();
+        if (customers.length < 2 || neighbors.size() == 0) {
+            return;
+        }
+        for (int s = 0; s < strength; s++) {
+            int u = customers[random.nextInt(customers.length)];
+            int v = neighbors.get(u, random.nextInt(neighbors.size()));
+            int fromRoute = evaluator.getRouteOf(u);
+            int i = evaluator.getPositionOf(u);
+            int toRoute = evaluator.getRouteOf(v);
+            int p = evaluator.getPositionOf(v) - (random.nextBoolean() ? 1 : 0);
+
+            if (fromRoute == toRoute) {
+                evaluator.applyRelocate(fromRoute, i, toRoute, p);
+            } else if (evaluator.getRouteLoad(toRoute) + compiled.getProd(u)
+                    <= evaluator.getRouteCapacity(toRoute) + CAPACITY_TOLERANCE) {
+                evaluator.applyRelocate(fromRoute, i, toRoute, p);
+            } else {
+                int j = evaluator.getPositionOf(v);
+                if (evaluator.swapDelta(fromRoute, i, toRoute, j) != Double.POSITIVE_INFINITY) {
+                    evaluator.applySwap(fromRoute, i, toRoute, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resultado de una búsqueda local iterada.
+     */
+    public static class Result {
+        private final Solution best;
+        private final CompactSolution bestCompact;
+        private final StopReason stopReason;
+        private final long iterations;
+        private final long improvements;
+        private final long bestIteration;
+        private final long bestNanos;
+        private final long elapsedNanos;
+        private final LowerBound lowerBound;
+
+        Result(Solution best, CompactSolution bestCompact, StopReason stopReason, long iterations, long improvements,
+               long bestIteration, long bestNanos, long elapsedNanos, LowerBound lowerBound) {
+            this.best = best;
+            this.bestCompact = bestCompact;
+            this.stopReason = stopReason;
+            this.iterations = iterations;
+            this.improvements = improvements;
+            this.bestIteration = bestIteration;
+            this.bestNanos = bestNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.lowerBound = lowerBound;
+        }
+
+        /**
+         * Obtiene la mejor solución encontrada.
+         *
+         * @return Mejor solución
+         */
+        public Solution getBest() {
+            return best;
+        }
+
+        /**
+         * Obtiene la mejor solución encontrada en su representación compacta.
+         *
+         * @return Mejor solución
+         */
+        public CompactSolution getBestCompact() {
+            return bestCompact;
+        }
+
+        /**
+         * Obtiene el motivo de parada.
+         *
+         * @return Motivo de parada
+         */
+        public StopReason getStopReason() {
+            return stopReason;
+        }
+
+        /**
+         * Obtiene el número de iteraciones (perturbación + mejora) realizadas.
+         *
+         * @return Iteraciones
+         */
+        public long getIterations() {
+            return iterations;
+        }
+
+        /**
+         * Obtiene el número de veces que se mejoró la mejor solución.
+         *
+         * @return Mejoras
+         */
+        public long getImprovements() {
+            return improvements;
+        }
+
+        /**
+         * Obtiene la iteración en la que se encontró la mejor solución.
+         *
+         * @return Iteración (0 = solución inicial)
+         */
+        public long getBestIteration() {
+            return bestIteration;
+        }
+
+        /**
+         * Obtiene el tiempo hasta encontrar la mejor solución.
+         *
+         * @return Tiempo en nanosegundos
+         */
+        public long getBestNanos() {
+            return bestNanos;
+        }
+
+        /**
+         * Obtiene el tiempo total de ejecución.
+         *
+         * @return Tiempo en nanosegundos
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Obtiene la cota inferior con la que se comprobó la separación objetivo.
+         *
+         * @return Cota inferior, o {@code null} si no se fijó separación objetivo
+         */
+        public LowerBound getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * Obtiene la separación entre la mejor solución y la cota inferior.
+         *
+         * @return Separación relativa {@code (CO2 - cota) / CO2}, o NaN si no se fijó separación objetivo
+         */
+        public double getGap() {
+            return lowerBound == null ? Double.NaN : lowerBound.gap(best.getTotalCO2());
+        }
+
+        @Override
+        public String toString() {
+            return "IteratedLocalSearch.Result{" +
+                    "mejorCO2=" + String.format("%.7f", best.getTotalCO2()) +
+                    ", iteraciones=" + iterations +
+                    ", mejoras=" + improvements +
+                    ", iteraciónMejor=" + bestIteration +
+                    ", tiempoMejor=" + String.format("%.1f ms", bestNanos / 1e6) +
+                    ", tiempo=" + String.format("%.1f ms", elapsedNanos / 1e6) +
+                    ", parada=" + stopReason +
+                    (lowerBound == null ? "" : ", separación=" + String.format("%.2f%%", getGap() * 100.0)) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package tfg;
+
+/**
+ * Distancias calculadas al vuelo a partir de las coordenadas.
+ * No reserva memoria cuadrática; se usa cuando n² no cabe en memoria ni en disco.
+ */
+final class LazyDistanceMatrix extends DistanceMatrix {
+    private final double[] x;
+    private final double[] y;
+
+    /**
+     * @param x Coordenadas x
+     * @param y Coordenadas y
+     */
+    LazyDistanceMatrix(double[] x, double[] y) {
+        super(x.length);
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        double dx = x[i] - x[j];
+        double dy = y[i] - y[j];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public Mode getMode() {
+        return Mode.LAZY;
+    }
+}
@@ -0,0 +1,15 @@
+package tfg;
+
+/**
+ * Procedimiento de mejora que trabaja sobre el estado de un {@link IncrementalEvaluator}.
+ */
+public interface LocalSearch {
+
+    /**
+     * Mejora in situ las rutas del evaluador hasta alcanzar un óptimo local.
+     *
+     * @param evaluator Evaluador con la solución a mejorar
+     * @return {@code true} si se aplicó algún movimiento de mejora
+     */
+    boolean improve(IncrementalEvaluator evaluator);
+}
@@ -0,0 +1,326 @@
+package tfg;
+
+import java.util.Arrays;
+
+/**
+ * Cota inferior del CO2 de cualquier solución factible de una instancia, con el
+ * mismo modelo que {@link CompiledInstance#routeCO2(int, int[], int, int)}.
+ *
+ * El CO2 de una ruta es {@code Eo * distancia + pendiente * Σ peso * distancia}
+ * y se acota por separado cada término:
+ * <ul>
+ *   <li>Recorrido en vacío: el {@code Eo} mínimo de los tipos con unidades por
+ *   una cota de la distancia total (la mayor de las dos siguientes), o la cota
+ *   radial si es mayor.</li>
+ *   <li>Grados: cada cliente tiene dos aristas (el depósito puede contar dos
+ *   veces, en las rutas de un solo cliente) y el depósito dos por ruta, así que
+ *   la distancia es al menos la mitad de la suma de las dos aristas más baratas
+ *   de cada cliente más las {@code R} aristas más cortas del depósito.</li>
+ *   <li>Árbol: al quitar el depósito, las rutas son {@code R} caminos que cubren
+ *   a los clientes, que pesan al menos el árbol de expansión mínimo de los
+ *   clientes menos sus {@code R - 1} aristas más largas; se suman las {@code 2R}
+ *   aristas del depósito y se toma el mínimo para todos los {@code R} posibles.
+ *   Es O(n²), así que solo se calcula hasta {@link #MST_MAX_NODES} clientes.</li>
+ *   <li>Carga: la producción de cada cliente viaja desde él hasta el depósito,
+ *   y por la desigualdad triangular ese camino mide al menos la distancia
+ *   directa, así que aporta al menos {@code pendiente * prod * d(cliente, P)}
+ *   con la menor pendiente de los tipos en los que cabe.</li>
+ *   <li>Radial: una ruta llega al menos hasta su cliente más lejano y vuelve,
+ *   así que mide al menos {@code 2 * Σ prod * d(cliente, P) / Load} (la media
+ *   ponderada por la carga no supera al máximo). Con {@code Eo} proporcional a
+ *   esa distancia, el recorrido en vacío de todas las rutas es al menos
+ *   {@code 2 * min(Eo / Load) * Σ prod * d(cliente, P)}. Es la cota que manda
+ *   cuando hay muchas rutas cortas, como en las instancias de 1000 clientes.</li>
+ * </ul>
+ * {@code R} es el número mínimo de rutas: las unidades de mayor capacidad que
+ * hacen falta para recoger toda la producción.
+ *
+ * La cota solo es válida si ningún tipo con unidades tiene {@code Ef < Eo} ni
+ * {@code Eo < 0}; en ese caso vale 0. Se calcula una vez por instancia con
+ * {@link CompiledInstance#getLowerBound()}.
+ */
+public final class LowerBound {
+    /** Clientes máximos para los que se calcula la cota del árbol de expansión mínimo. */
+    static final int MST_MAX_NODES = 20000;
+
+    private static final double CAPACITY_TOLERANCE = 1e-9;
+
+    private final double degreeDistance;
+    private final double treeDistance;
+    private final double radialDistance;
+    private final double emptyCO2;
+    private final double loadCO2;
+    private final int minRoutes;
+
+    private LowerBound(double degreeDistance, double treeDistance, double radialDistance, double emptyCO2,
+                       double loadCO2, int minRoutes) {
+        this.degreeDistance = degreeDistance;
+        this.treeDistance = treeDistance;
+        this.radialDistance = radialDistance;
+        this.emptyCO2 = emptyCO2;
+        this.loadCO2 = loadCO2;
+        this.minRoutes = minRoutes;
+    }
+
+    /**
+     * Calcula la cota inferior de una instancia.
+     *
+     * @param instance Instancia compilada
+     * @return Cota inferior
+     */
+    public static LowerBound compute(CompiledInstance instance) {
+        int[] customers = instance.getCustomers();
+        int m = customers.length;
+        int depot = instance.getDepot();
+        double minEo = Double.POSITIVE_INFINITY;
+        double minSlope = Double.POSITIVE_INFINITY;
+        double minEoPerLoad = Double.POSITIVE_INFINITY;
+        double maxLoad = 0.0;
+        int units = 0;
+        for (int t = 0; t < instance.getNumberOfTypes(); t++) {
+            if (instance.getTypeUnits(t) > 0) {
+                minEo = Math.min(minEo, instance.getTypeEo(t));
+                minSlope = Math.min(minSlope, instance.getTypeSlope(t));
+                minEoPerLoad = Math.min(minEoPerLoad, instance.getTypeEo(t) / instance.getTypeLoad(t));
+                maxLoad = Math.max(maxLoad, instance.getTypeLoad(t));
+                units += instance.getTypeUnits(t);
+            }
+        }
+        if (m == 0 || units == 0 || minEo < 0.0 || minSlope < 0.0 || !(maxLoad > 0.0)) {
+            return new LowerBound(0.0, 0.0, 0.0, 0.0, 0.0, 0);
+        }
+
+        double[] depotDistance = new double[m];
+        for (int i = 0; i < m; i++) {
+            depotDistance[i] = instance.distance(depot, customers[i]);
+        }
+        double[] sortedDepot = depotDistance.clone();
+        Arrays.sort(sortedDepot);
+        int routes = Math.min(m, minRoutes(instance, customers, units));
+
+        double degree = 0.0;
+        NeighborLists neighbors = instance.getNeighborLists();
+        for (int i = 0; i < m; i++) {
+            // Las dos aristas más baratas, con el depósito disponible dos veces
+            double first = depotDistance[i];
+            double second = depotDistance[i];
+            for (int r = 0; r < Math.min(2, neighbors.size()); r++) {
+                double d = instance.distance(customers[i], neighbors.get(customers[i], r));
+                if (d < first) {
+                    second = first;
+                    first = d;
+                } else if (d < second) {
+                    second = d;
+                }
+            }
+            degree += first + second;
+        }
+        degree *= 0.5;
+        for (int r = 0; r < routes; r++) {
+            degree += sortedDepot[r];
+        }
+
+        double tree = m <= MST_MAX_NODES ? treeBound(instance, customers, sortedDepot, routes, Math.min(units, m))
+                : 0.0;
+
+        double load = 0.0;
+        double radial = 0.0;
+        for (int i = 0; i < m; i++) {
+            double prod = instance.getProd(customers[i]);
+            load += slopeFor(instance, prod, minSlope) * prod * depotDistance[i];
+            radial += 2.0 * prod * depotDistance[i];
+        }
+        double empty = Math.max(minEo * Math.max(degree, tree), minEoPerLoad * radial);
+        return new LowerBound(degree, tree, radial / maxLoad, empty, load, routes);
+    }
+
+    /**
+     * Número mínimo de rutas: unidades de mayor capacidad necesarias para toda la producción.
+     */
+    private static int minRoutes(CompiledInstance instance, int[] customers, int units) {
+        double total = 0.0;
+        for (int c : customers) {
+            total += instance.getProd(c);
+        }
+        Integer[] types = new Integer[instance.getNumberOfTypes()];
+        for (int t = 0; t < types.length; t++) {
+            types[t] = t;
+        }
+        Arrays.sort(types, (a, b) -> Double.compare(instance.getTypeLoad(b), instance.getTypeLoad(a)));
+        int routes = 0;
+        double capacity = 0.0;
+        for (int t : types) {
+            for (int u = 0; u < instance.getTypeUnits(t); u++) {
+                if (capacity >= total - CAPACITY_TOLERANCE && routes > 0) {
+                    return routes;
+                }
+                capacity += instance.getTypeLoad(t);
+                routes++;
+            }
+        }
+        return Math.max(1, Math.min(routes, units));
+    }
+
+    /**
+     * Cota del árbol: árbol de expansión mínimo de los clientes (Prim, O(m²))
+     * sin sus {@code R - 1} aristas más largas, más {@code 2R} aristas del depósito.
+     */
+    private static double treeBound(CompiledInstance instance, int[] customers, double[] sortedDepot, int minRoutes,
+                                     int maxRoutes) {
+        int m = customers.length;
+        double[] key = new double[m];
+        boolean[] inTree = new boolean[m];
+        double[] edges = new double[m - 1];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        key[0] = 0.0;
+        double mst = 0.0;
+        for (int added = 0; added < m; added++) {
+            int next = -1;
+            for (int i = 0; i < m; i++) {
+                if (!inTree[i] && (next < 0 || key[i] < key[next])) {
+                    next = i;
+                }
+            }
+            inTree[next] = true;
+            if (added > 0) {
+                edges[added - 1] = key[next];
+                mst += key[next];
+            }
+            for (int i = 0; i < m; i++) {
+                if (!inTree[i]) {
+                    double d = instance.distance(customers[next], customers[i]);
+                    if (d < key[i]) {
+                        key[i] = d;
+                    }
+                }
+            }
+        }
+        Arrays.sort(edges);
+
+        // f(R) = MST - (R - 1 aristas más largas) + 2 * (R aristas más cortas del depósito)
+        double removed = 0.0;
+        double depotEdges = 0.0;
+        double best = Double.POSITIVE_INFINITY;
+        for (int r = 1; r <= maxRoutes; r++) {
+            if (r > 1) {
+                removed += edges[m - r];
+            }
+            depotEdges += 2.0 * sortedDepot[r - 1];
+            if (r >= minRoutes) {
+                best = Math.min(best, mst - removed + depotEdges);
+            }
+        }
+        return best == Double.POSITIVE_INFINITY ? 0.0 : best;
+    }
+
+    /**
+     * Menor pendiente de los tipos con unidades en los que cabe la producción de un cliente.
+     */
+    private static double slopeFor(CompiledInstance instance, double prod, double fallback) {
+        double slope = Double.POSITIVE_INFINITY;
+        for (int t = 0; t < instance.getNumberOfTypes(); t++) {
+            if (instance.getTypeUnits(t) > 0 && prod <= instance.getTypeLoad(t) + CAPACITY_TOLERANCE) {
+                slope = Math.min(slope, instance.getTypeSlope(t));
+            }
+        }
+        return slope == Double.POSITIVE_INFINITY ? fallback : slope;
+    }
+
+    /**
+     * Obtiene el valor de la cota.
+     *
+     * @return CO2 mínimo de cualquier solución factible
+     */
+    public double getValue() {
+        return emptyCO2 + loadCO2;
+    }
+
+    /**
+     * Obtiene la cota de la distancia total.
+     *
+     * @return Mayor de las cotas de grados, del árbol y radial
+     */
+    public double getDistance() {
+        return Math.max(Math.max(degreeDistance, treeDistance), radialDistance);
+    }
+
+    /**
+     * Obtiene la cota de distancia por grados.
+     *
+     * @return Distancia
+     */
+    public double getDegreeDistance() {
+        return degreeDistance;
+    }
+
+    /**
+     * Obtiene la cota de distancia del árbol de expansión mínimo.
+     *
+     * @return Distancia, o 0 si la instancia supera {@link #MST_MAX_NODES} clientes
+     */
+    public double getTreeDistance() {
+        return treeDistance;
+    }
+
+    /**
+     * Obtiene la cota radial de la distancia, con la mayor capacidad.
+     *
+     * @return Distancia
+     */
+    public double getRadialDistance() {
+        return radialDistance;
+    }
+
+    /**
+     * Obtiene la parte de la cota debida al recorrido en vacío ({@code Eo}).
+     *
+     * @return CO2
+     */
+    public double getEmptyCO2() {
+        return emptyCO2;
+    }
+
+    /**
+     * Obtiene la parte de la cota debida a la carga.
+     *
+     * @return CO2
+     */
+    public double getLoadCO2() {
+        return loadCO2;
+    }
+
+    /**
+     * Obtiene el número mínimo de rutas usado en la cota.
+     *
+     * @return Rutas
+     */
+    public int getMinRoutes() {
+        return minRoutes;
+    }
+
+    /**
+     * Calcula la separación relativa entre el CO2 de una solución y la cota:
+     * {@code (co2 - cota) / co2}. La solución está demostradamente a menos de
+     * esa fracción del óptimo.
+     *
+     * @param co2 CO2 de una solución factible
+     * @return Separación en [0, 1]
+     */
+    public double gap(double co2) {
+        if (!(co2 > 0.0)) {
+            return co2 == 0.0 ? 0.0 : 1.0;
+        }
+        return Math.max(0.0, (co2 - getValue()) / co2);
+    }
+
+    @Override
+    public String toString() {
+        return "LowerBound{" +
+                "co2=" + String.format("%.7f", getValue()) +
+                ", vacío=" + String.format("%.7f", emptyCO2) +
+                ", carga=" + String.format("%.7f", loadCO2) +
+                ", distancia=" + String.format("%.4f", getDistance()) +
+                ", rutas=" + minRoutes +
+                '}';
+    }
+}
@@ -2,10 +2,13 @@ package tfg;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Clase principal para demostrar el uso de Instance y Solution.
@@ -14,11 +17,36 @@ public class Main {
     private static final String INSTANCES_DIR = "instances";
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--generate")) {
+            runGenerate(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--ils")) {
+            runIteratedLocalSearch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--coordinator")) {
+            runCoordinator(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--island")) {
+            runIsland(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
+        
         Scanner scanner = new Scanner(System.in);
         
         try {
             // Listar instancias disponibles
-            List<String> availableInstances = listAvailableInstances();
+            List<String> availableInstances = listAvailableInstances(INSTANCES_DIR);
             
             if (availableInstances.isEmpty()) {
                 System.err.println("No hay instancias disponibles en la carpeta '" + INSTANCES_DIR + "'");
@@ -98,9 +126,6 @@ public class Main {
             System.out.println("└─────────────────────────────────────────────┘");
             System.out.println();
             
-            // Establecer la instancia en Solution
-            Solution.setInstance(instance);
-            
             // Crear el algoritmo de construcción aleatoria en este caso
             RandomConstructive constructive = new RandomConstructive(instance);
             
@@ -114,6 +139,16 @@ public class Main {
             System.out.println(solution);
             System.out.println();
             
+            // Mejorar la solución con búsqueda local 2-opt
+            TwoOpt twoOpt = new TwoOpt(instance.getCompiled());
+            Solution improved = twoOpt.run(solution);
+            
+            System.out.println("╔════════════════════════════════════════════╗");
+            System.out.println("║      SOLUCIÓN MEJORADA (2-OPT)             ║");
+            System.out.println("╚════════════════════════════════════════════╝");
+            System.out.println(improved);
+            System.out.println();
+            
         } catch (IOException e) {
             System.err.println("Error al leer el archivo: " + e.getMessage());
             e.printStackTrace();
@@ -123,13 +158,473 @@ public class Main {
     }
     
     /**
-     * Lista las instancias disponibles en la carpeta de instancias.
+     * Ejecuta el modo por lotes sin interacción.
+     * Opciones: {@code --instances <carpeta>}, {@code --experiments <lista>},
+     * {@code --reference <csv>}, {@code --output <csv>}, {@code --seed <n>},
+     * {@code --threads <n>}, {@code --parallel <n>}, {@code --trace <carpeta>},
+     * {@code --trace-format csv|bin}, {@code --route-cache <rutas>},
+     * {@code --gap <fracción>} (separación objetivo respecto a la cota inferior).
+     * 
+     * @param args Argumentos de la línea de comandos (el primero es {@code --batch})
+     */
+    private static void runBatch(String[] args) {
+        String instancesDir = INSTANCES_DIR;
+        String experiments = Experiment.DEFAULT_SPECS;
+        String reference = null;
+        String output = "results.csv";
+        long seed = 1L;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int parallel = 1;
+        String trace = null;
+        String traceFormat = "csv";
+        int routeCache = 0;
+        double gap = -1.0;
+        
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta el valor de la opción " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--instances": instancesDir = value; break;
+                    case "--experiments": experiments = value; break;
+                    case "--reference": reference = value; break;
+                    case "--output": output = value; break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--threads": threads = Integer.parseInt(value); break;
+                    case "--parallel": parallel = Integer.parseInt(value); break;
+                    case "--trace": trace = value; break;
+                    case "--trace-format": traceFormat = value.toLowerCase(); break;
+                    case "--route-cache": routeCache = Integer.parseInt(value); break;
+                    case "--gap": gap = Double.parseDouble(value); break;
+                    default: throw new IllegalArgumentException("Opción desconocida: " + option);
+                }
+            }
+            
+            BatchRunner batch = new BatchRunner(instancesDir, Experiment.parseList(experiments), output);
+            batch.setSeed(seed);
+            batch.setThreads(threads);
+            batch.setParallelInstances(parallel);
+            if (trace != null) {
+                batch.setTraceDirectory(trace, traceFormat);
+            }
+            batch.setRouteCacheCapacity(routeCache);
+            batch.setTargetGap(gap);
+            if (reference != null) {
+                batch.loadReference(reference);
+            }
+            batch.run();
+            System.out.println("Resultados escritos en " + output);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error en la ejecución por lotes: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Genera una instancia sintética.
+     * Opciones: {@code --output <csv>} (obligatoria), {@code --nodes <n>},
+     * {@code --layout uniform|clustered|depot_peripheral}, {@code --seed <n>},
+     * {@code --clusters <n>}, {@code --slack <factor>}.
+     * 
+     * @param args Argumentos de la línea de comandos (el primero es {@code --generate})
+     */
+    private static void runGenerate(String[] args) {
+        String output = null;
+        int nodes = 1000;
+        long seed = 1L;
+        InstanceGenerator.Layout layout = InstanceGenerator.Layout.UNIFORM;
+        Integer clusters = null;
+        Double slack = null;
+        
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta el valor de la opción " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--output": output = value; break;
+                    case "--nodes": nodes = Integer.parseInt(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--layout": layout = InstanceGenerator.Layout.valueOf(value.toUpperCase()); break;
+                    case "--clusters": clusters = Integer.parseInt(value); break;
+                    case "--slack": slack = Double.parseDouble(value); break;
+                    default: throw new IllegalArgumentException("Opción desconocida: " + option);
+                }
+            }
+            if (output == null) {
+                throw new IllegalArgumentException("Falta la opción --output");
+            }
+            
+            InstanceGenerator generator = new InstanceGenerator(nodes, seed);
+            generator.setLayout(layout);
+            if (clusters != null) {
+                generator.setClusters(clusters);
+            }
+            if (slack != null) {
+                generator.setSlack(slack);
+            }
+            generator.write(new File(output).toPath());
+            System.out.println("Instancia de " + nodes + " nodos escrita en " + output);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error al generar la instancia: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Ejecuta la búsqueda local iterada sobre una instancia.
+     * Opciones: {@code --instance <csv>} (obligatoria), {@code --time <ms>},
+     * {@code --iterations <n>}, {@code --stagnation <n>}, {@code --gap <fracción>},
+     * {@code --acceptance improve|threshold|annealing}, {@code --construction random|savings},
+     * {@code --seed <n>}, {@code --trace <fichero .csv|.bin>},
+     * {@code --checkpoint <fichero>}, {@code --checkpoint-interval <ms>} y
+     * {@code --resume} (continúa desde el último checkpoint del fichero).
+     * Sin criterio de parada se usan 10 segundos.
+     * 
+     * @param args Argumentos de la línea de comandos (el primero es {@code --ils})
+     */
+    private static void runIteratedLocalSearch(String[] args) {
+        String file = null;
+        long time = 0L;
+        long iterations = 0L;
+        long stagnation = 0L;
+        double gap = -1.0;
+        long seed = 1L;
+        IteratedLocalSearch.Acceptance acceptance = IteratedLocalSearch.Acceptance.IMPROVE;
+        Experiment.Construction construction = Experiment.Construction.RANDOM;
+        String trace = null;
+        String checkpointFile = null;
+        long checkpointInterval = 1000L;
+        boolean resume = false;
+        
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--resume")) {
+                    resume = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta el valor de la opción " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--instance": file = value; break;
+                    case "--time": time = Long.parseLong(value); break;
+                    case "--iterations": iterations = Long.parseLong(value); break;
+                    case "--stagnation": stagnation = Long.parseLong(value); break;
+                    case "--gap": gap = Double.parseDouble(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--acceptance": acceptance = IteratedLocalSearch.Acceptance.valueOf(value.toUpperCase()); break;
+                    case "--construction": construction = Experiment.Construction.valueOf(value.toUpperCase()); break;
+                    case "--trace": trace = value; break;
+                    case "--checkpoint": checkpointFile = value; break;
+                    case "--checkpoint-interval": checkpointInterval = Long.parseLong(value); break;
+                    default: throw new IllegalArgumentException("Opción desconocida: " + option);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("Falta la opción --instance");
+            }
+            if (resume && checkpointFile == null) {
+                throw new IllegalArgumentException("--resume necesita --checkpoint");
+            }
+            if (time == 0L && iterations == 0L && stagnation == 0L) {
+                time = 10_000L;
+            }
+            
+            Instance instance = new Instance(file);
+            CompiledInstance compiled = instance.getCompiled();
+            IteratedLocalSearch ils = new IteratedLocalSearch(instance, seed);
+            ils.setAcceptance(acceptance);
+            ils.setTimeLimit(time);
+            ils.setMaxIterations(iterations);
+            ils.setMaxStagnation(stagnation);
+            ils.setTargetGap(gap);
+            if (construction == Experiment.Construction.SAVINGS) {
+                ils.setConstructive(random -> new SavingsConstructive(compiled, random).runCompact());
+            }
+            ConvergenceTrace convergence = trace == null ? null : new ConvergenceTrace();
+            ils.setTrace(convergence);
+            Checkpoint checkpoint = checkpointFile == null ? null : Checkpoint.open(new File(checkpointFile).toPath(), compiled);
+            IteratedLocalSearch.Result result;
+            try {
+                if (resume) {
+                    Checkpoint.State state = checkpoint.load();
+                    if (state == null) {
+                        throw new IllegalStateException("El fichero " + checkpointFile + " no contiene ningún checkpoint");
+                    }
+                    System.out.println("Continuando desde " + state
+                            + (convergence != null ? " (la traza solo recoge la continuación)" : ""));
+                    ils.setResume(state);
+                }
+                ils.setCheckpoint(checkpoint, checkpointInterval);
+                result = ils.run();
+            } finally {
+                if (checkpoint != null) {
+                    checkpoint.close();
+                }
+            }
+            if (convergence != null) {
+                convergence.write(new File(trace).toPath());
+                System.out.println("Traza de convergencia escrita en " + trace
+                        + (convergence.getDropped() > 0 ? " (" + convergence.getDropped() + " registros antiguos descartados)" : ""));
+            }
+            System.out.println(result);
+            // La cota es O(n²): solo se muestra si ya se calculó para --gap
+            LowerBound bound = result.getLowerBound();
+            if (bound != null) {
+                System.out.println(String.format("Cota inferior: %.7f (separación %.2f%%)", bound.getValue(),
+                        result.getGap() * 100.0));
+            }
+            System.out.println(result.getBest());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Ejecuta el coordinador del modelo de islas: recibe las mejores soluciones
+     * de las islas, les devuelve la mejor global y la muestra al terminar.
+     * Opciones: {@code --instance <csv>} (obligatoria), {@code --islands <n>},
+     * {@code --port <n>}, {@code --time <ms>} (duración de cada isla) y
+     * {@code --spawn}, que lanza las n islas como procesos hijos con las
+     * opciones {@code --seed}, {@code --migration} y {@code --construction}
+     * (la isla i usa la semilla {@code seed + i}).
+     * 
+     * @param args Argumentos de la línea de comandos (el primero es {@code --coordinator})
+     */
+    private static void runCoordinator(String[] args) {
+        String file = null;
+        int islands = 4;
+        int port = IslandCoordinator.DEFAULT_PORT;
+        long time = 10_000L;
+        long seed = 1L;
+        long migration = Island.DEFAULT_MIGRATION_INTERVAL;
+        String construction = "random";
+        boolean spawn = false;
+        
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--spawn")) {
+                    spawn = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta el valor de la opción " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--instance": file = value; break;
+                    case "--islands": islands = Integer.parseInt(value); break;
+                    case "--port": port = Integer.parseInt(value); break;
+                    case "--time": time = Long.parseLong(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--migration": migration = Long.parseLong(value); break;
+                    case "--construction": construction = value; break;
+                    default: throw new IllegalArgumentException("Opción desconocida: " + option);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("Falta la opción --instance");
+            }
+            
+            Instance instance = new Instance(file);
+            try (IslandCoordinator coordinator = new IslandCoordinator(instance, port)) {
+                coordinator.start();
+                System.out.println("Coordinador escuchando en el puerto " + coordinator.getPort()
+                        + ", esperando " + islands + " islas");
+                List<Process> processes = new ArrayList<>();
+                if (spawn) {
+                    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+                    for (int k = 0; k < islands; k++) {
+                        processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                Main.class.getName(), "--island", "--instance", file,
+                                "--port", String.valueOf(coordinator.getPort()), "--id", String.valueOf(k),
+                                "--seed", String.valueOf(seed + k), "--time", String.valueOf(time),
+                                "--migration", String.valueOf(migration), "--construction", construction)
+                                .inheritIO().start());
+                    }
+                }
+                // Margen para el arranque de las JVM y la última búsqueda local
+                if (!coordinator.awaitIslands(islands, time + 60_000L)) {
+                    System.err.println("Solo terminaron " + coordinator.getFinished() + " de " + islands + " islas");
+                }
+                for (Process process : processes) {
+                    process.waitFor();
+                }
+                System.out.println(coordinator);
+                CompactSolution best = coordinator.getBest();
+                if (best != null) {
+                    System.out.println(best.toSolution());
+                }
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error de entrada/salida: " + e.getMessage());
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Coordinador interrumpido");
+        }
+    }
+    
+    /**
+     * Ejecuta una isla del modelo de islas: una búsqueda local iterada que
+     * intercambia su mejor solución con el coordinador.
+     * Opciones: {@code --instance <csv>} (obligatoria), {@code --host <dirección>},
+     * {@code --port <n>}, {@code --id <n>}, {@code --seed <n>}, {@code --time <ms>},
+     * {@code --migration <ms>}, {@code --construction random|savings}.
+     * 
+     * @param args Argumentos de la línea de comandos (el primero es {@code --island})
+     */
+    private static void runIsland(String[] args) {
+        String file = null;
+        String host = "127.0.0.1";
+        int port = IslandCoordinator.DEFAULT_PORT;
+        int id = 0;
+        long seed = 1L;
+        long time = 10_000L;
+        long migration = Island.DEFAULT_MIGRATION_INTERVAL;
+        Experiment.Construction construction = Experiment.Construction.RANDOM;
+        
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta el valor de la opción " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--instance": file = value; break;
+                    case "--host": host = value; break;
+                    case "--port": port = Integer.parseInt(value); break;
+                    case "--id": id = Integer.parseInt(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--time": time = Long.parseLong(value); break;
+                    case "--migration": migration = Long.parseLong(value); break;
+                    case "--construction": construction = Experiment.Construction.valueOf(value.toUpperCase()); break;
+                    default: throw new IllegalArgumentException("Opción desconocida: " + option);
+                }
+            }
+            if (file == null) {
+                throw new IllegalArgumentException("Falta la opción --instance");
+            }
+            
+            Instance instance = new Instance(file);
+            CompiledInstance compiled = instance.getCompiled();
+            IteratedLocalSearch ils = new IteratedLocalSearch(instance, seed);
+            ils.setTimeLimit(time);
+            if (construction == Experiment.Construction.SAVINGS) {
+                ils.setConstructive(random -> new SavingsConstructive(compiled, random).runCompact());
+            }
+            Island island = new Island(ils, id, new InetSocketAddress(host, port));
+            island.setMigrationInterval(migration);
+            System.out.println("Isla " + id + ": " + island.run());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo: " + e.getMessage());
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Isla interrumpida");
+        }
+    }
+    
+    /**
+     * Ejecuta el servidor HTTP del resolvedor hasta que se detiene el proceso.
+     * Opciones: {@code --port <n>}, {@code --instances <carpeta>} (de la que se
+     * pueden pedir instancias por ruta), {@code --solves <n>} (búsquedas
+     * simultáneas, por defecto una por núcleo), {@code --cache-mb <n>} (tamaño
+     * del almacén de instancias), {@code --max-time <ms>} y
+     * {@code --preload <csv,...>}, que carga esas instancias y calienta el JIT
+     * con una búsqueda corta antes de aceptar peticiones.
+     * 
+     * @param args Argumentos de la línea de comandos (el primero es {@code --server})
+     */
+    private static void runServer(String[] args) {
+        int port = SolverServer.DEFAULT_PORT;
+        String instancesDir = INSTANCES_DIR;
+        int solves = Runtime.getRuntime().availableProcessors();
+        long cacheMb = 512L;
+        long maxTime = 60_000L;
+        String preload = null;
+        
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Falta el valor de la opción " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--port": port = Integer.parseInt(value); break;
+                    case "--instances": instancesDir = value; break;
+                    case "--solves": solves = Integer.parseInt(value); break;
+                    case "--cache-mb": cacheMb = Long.parseLong(value); break;
+                    case "--max-time": maxTime = Long.parseLong(value); break;
+                    case "--preload": preload = value; break;
+                    default: throw new IllegalArgumentException("Opción desconocida: " + option);
+                }
+            }
+            
+            InstanceStore store = new InstanceStore(cacheMb << 20);
+            SolverServer server = new SolverServer(port, new File(instancesDir).toPath(), store, solves);
+            server.setMaxTime(maxTime);
+            if (preload != null) {
+                for (String name : preload.split(",")) {
+                    long start = System.nanoTime();
+                    Instance instance = server.preload(name.trim());
+                    IteratedLocalSearch warmup = new IteratedLocalSearch(instance, 1L);
+                    warmup.setTimeLimit(200L);
+                    warmup.run();
+                    System.out.printf("Precargada %s en %.0f ms%n", name.trim(), (System.nanoTime() - start) / 1e6);
+                }
+            }
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                stopped.countDown();
+            }));
+            server.start();
+            System.out.println("Servidor escuchando en http://127.0.0.1:" + server.getPort()
+                    + " (" + solves + " búsquedas simultáneas, hilos virtuales: "
+                    + (server.isVirtualThreads() ? "sí" : "no") + ")");
+            stopped.await();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error de entrada/salida: " + e.getMessage());
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Lista las instancias disponibles en una carpeta, ordenadas por nombre.
      * 
+     * @param directory Carpeta de instancias
      * @return Lista con los nombres de las instancias (sin extensión)
      */
-    private static List<String> listAvailableInstances() {
+    static List<String> listAvailableInstances(String directory) {
         List<String> instances = new ArrayList<>();
-        File instancesDir = new File(INSTANCES_DIR);
+        File instancesDir = new File(directory);
         
         if (!instancesDir.exists() || !instancesDir.isDirectory()) {
             return instances;
@@ -145,6 +640,7 @@ public class Main {
             }
         }
         
+        Collections.sort(instances);
         return instances;
     }
 }
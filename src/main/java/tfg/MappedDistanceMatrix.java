@@ -0,0 +1,163 @@
+package tfg;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Matriz de distancias triangular almacenada fuera del heap en un fichero
+ * mapeado en memoria. El fichero se identifica por el número de nodos y un
+ * hash de las coordenadas, de modo que ejecuciones posteriores sobre la misma
+ * instancia lo reutilizan sin recalcular.
+ *
+ * Formato: cabecera de 64 bytes (magic, versión, n, hash de coordenadas)
+ * seguida de {@code n(n-1)/2} valores {@code double} little-endian.
+ */
+final class MappedDistanceMatrix extends DistanceMatrix {
+    private static final long MAGIC = 0x5446474449535431L; // "TFGDIST1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_BYTES - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final Path file;
+
+    private MappedDistanceMatrix(int size, MappedByteBuffer[] chunks, Path file) {
+        super(size);
+        this.chunks = chunks;
+        this.file = file;
+    }
+
+    /**
+     * Abre la matriz de la carpeta de caché o la crea si no existe o no es válida.
+     *
+     * @param x Coordenadas x
+     * @param y Coordenadas y
+     * @param directory Carpeta de caché
+     * @return Matriz mapeada
+     * @throws IOException Si hay un error al leer o escribir el fichero
+     */
+    static MappedDistanceMatrix open(double[] x, double[] y, Path directory) throws IOException {
+        int n = x.length;
+        long hash = coordinateHash(x, y);
+        long totalBytes = HEADER_BYTES + triangularIndex(n, 0) * Double.BYTES;
+        Path file = directory.resolve("dist-" + n + "-" + Long.toHexString(hash) + ".bin");
+
+        if (Files.exists(file) && Files.size(file) == totalBytes) {
+            MappedByteBuffer[] chunks = map(file, totalBytes, FileChannel.MapMode.READ_ONLY);
+            if (validHeader(chunks[0], n, hash)) {
+                return new MappedDistanceMatrix(n, chunks, file);
+            }
+        }
+
+        // Crear en un fichero temporal y publicarlo con un movimiento atómico
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer[] chunks = map(channel, totalBytes, FileChannel.MapMode.READ_WRITE);
+                fill(chunks, x, y);
+                MappedByteBuffer header = chunks[0];
+                header.putLong(0, MAGIC);
+                header.putInt(8, VERSION);
+                header.putInt(12, n);
+                header.putLong(16, hash);
+                for (MappedByteBuffer chunk : chunks) {
+                    chunk.force();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return new MappedDistanceMatrix(n, map(file, totalBytes, FileChannel.MapMode.READ_ONLY), file);
+    }
+
+    /**
+     * Calcula todas las distancias y las escribe en los bloques mapeados (por filas, en paralelo).
+     */
+    private static void fill(MappedByteBuffer[] chunks, double[] x, double[] y) {
+        IntStream.range(1, x.length).parallel().forEach(i -> {
+            long offset = HEADER_BYTES + triangularIndex(i, 0) * Double.BYTES;
+            for (int j = 0; j < i; j++, offset += Double.BYTES) {
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                chunks[(int) (offset >>> CHUNK_SHIFT)].putDouble((int) (offset & CHUNK_MASK), Math.sqrt(dx * dx + dy * dy));
+            }
+        });
+    }
+
+    private static MappedByteBuffer[] map(Path file, long totalBytes, FileChannel.MapMode mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return map(channel, totalBytes, mode);
+        }
+    }
+
+    /**
+     * Mapea el fichero en bloques de 1 GB (límite de {@link MappedByteBuffer}).
+     * Como la cabecera y los bloques son múltiplos de 8, ningún valor queda partido.
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, long totalBytes, FileChannel.MapMode mode) throws IOException {
+        int count = (int) ((totalBytes + CHUNK_BYTES - 1) >>> CHUNK_SHIFT);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+        for (int k = 0; k < count; k++) {
+            long position = (long) k << CHUNK_SHIFT;
+            chunks[k] = channel.map(mode, position, Math.min(CHUNK_BYTES, totalBytes - position));
+            chunks[k].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+
+    private static boolean validHeader(MappedByteBuffer header, int n, long hash) {
+        return header.getLong(0) == MAGIC
+                && header.getInt(8) == VERSION
+                && header.getInt(12) == n
+                && header.getLong(16) == hash;
+    }
+
+    /**
+     * Hash de las coordenadas que identifica la instancia en la caché.
+     */
+    static long coordinateHash(double[] x, double[] y) {
+        long h = x.length;
+        for (int i = 0; i < x.length; i++) {
+            h = h * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(x[i]);
+            h = h * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(y[i]);
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if (i == j) {
+            return 0.0;
+        }
+        long index = i > j ? triangularIndex(i, j) : triangularIndex(j, i);
+        long offset = HEADER_BYTES + index * Double.BYTES;
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getDouble((int) (offset & CHUNK_MASK));
+    }
+
+    @Override
+    public Mode getMode() {
+        return Mode.MAPPED;
+    }
+
+    /**
+     * Obtiene el fichero que respalda la matriz.
+     *
+     * @return Ruta del fichero mapeado
+     */
+    Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,527 @@
+package tfg;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * Multiarranque paralelo: ejecuta N construcciones aleatorias independientes,
+ * opcionalmente seguidas de una búsqueda local, y se queda con la mejor.
+ * Por defecto construye con {@link RandomConstructive}; se puede usar otro
+ * constructivo aleatorizado con {@link #setConstructive(Function)}.
+ *
+ * Cada arranque i usa su propio {@link SplittableRandom}, derivado de la semilla
+ * maestra antes de repartir el trabajo, de modo que el resultado es el mismo
+ * con cualquier número de hilos. La mejor solución se mantiene sin bloqueos con
+ * una referencia atómica; a igualdad de CO2 gana el arranque de menor índice.
+ * Los candidatos a mejor se guardan como {@link CompactSolution} y solo la
+ * solución final se convierte a {@link Solution}.
+ *
+ * Los arranques se reparten en bloques de {@link SolutionBatch#BLOCK}: cada
+ * hilo construye las soluciones de un bloque sin evaluarlas, las evalúa juntas
+ * con {@link BatchEvaluator} (un carril de vector por solución si la API de
+ * vectores está disponible) y después mejora cada una.
+ *
+ * Con {@link #setRoutePool(RoutePool)} las rutas de todos los arranques se
+ * guardan en un {@link RoutePool} y, al terminar, se recombinan por
+ * particionamiento de conjuntos partiendo de la mejor solución (y el resultado
+ * se vuelve a mejorar con la búsqueda local, si la hay).
+ *
+ * Con {@link #setTargetGap(double)}, en cuanto la mejor solución está
+ * demostradamente cerca del óptimo según la cota inferior de la instancia
+ * ({@link LowerBound}) los arranques pendientes se omiten. Qué arranques llegan
+ * a ejecutarse depende entonces del reparto entre hilos, así que el resultado
+ * solo es reproducible con el mismo número de hilos.
+ */
+public class Multistart {
+    private final Instance instance;
+    private final int starts;
+    private final long seed;
+    private Function<RandomGenerator, CompactSolution> constructive;
+    private Supplier<LocalSearch> improvement;
+    private int threads;
+    private ConvergenceTrace trace;
+    private RoutePool routePool;
+    private double targetGap = -1.0;
+
+    /**
+     * Constructor del multiarranque.
+     *
+     * @param instance Instancia del problema
+     * @param starts Número de arranques
+     * @param seed Semilla maestra
+     */
+    public Multistart(Instance instance, int starts, long seed) {
+        this.instance = instance;
+        this.starts = starts;
+        this.seed = seed;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.constructive = random -> new RandomConstructive(instance, random).runCompact(false);
+    }
+
+    /**
+     * Establece el constructivo de cada arranque. Recibe el generador aleatorio
+     * propio del arranque, devuelve la solución en forma compacta sin necesidad
+     * de evaluarla (p.ej. con {@code runCompact(false)}; se evalúa en lote con
+     * {@link BatchEvaluator}) y debe lanzar {@link InfeasibleSolutionException} si
+     * no encuentra solución factible; el arranque cuenta entonces como fallido.
+     * Cualquier otra excepción detiene el multiarranque.
+     *
+     * @param constructive Constructivo a partir del generador del arranque
+     */
+    public void setConstructive(Function<RandomGenerator, CompactSolution> constructive) {
+        this.constructive = constructive;
+    }
+
+    /**
+     * Establece la búsqueda local que se aplica tras cada construcción.
+     * Se crea una búsqueda por hilo, ya que no son seguras para hilos.
+     *
+     * @param improvement Fábrica de búsquedas locales, o {@code null} para no mejorar
+     */
+    public void setImprovement(Supplier<LocalSearch> improvement) {
+        this.improvement = improvement;
+    }
+
+    /**
+     * Establece el número de hilos de trabajo.
+     *
+     * @param threads Número de hilos (al menos 1)
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Establece la traza de convergencia en la que se registra cada arranque
+     * (en orden de finalización, con el mejor CO2 conocido en ese momento).
+     *
+     * @param trace Traza, o {@code null} para no registrar
+     */
+    public void setTrace(ConvergenceTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Establece el conjunto en el que se guardan las rutas de cada arranque para
+     * recombinarlas al final.
+     *
+     * @param routePool Conjunto de rutas de la misma instancia, o {@code null} para no recombinar
+     */
+    public void setRoutePool(RoutePool routePool) {
+        this.routePool = routePool;
+    }
+
+    /**
+     * Establece la separación objetivo respecto a la cota inferior de la
+     * instancia ({@link CompiledInstance#getLowerBound()}): al alcanzarla no se
+     * empiezan más arranques.
+     *
+     * @param targetGap Separación relativa {@code (CO2 - cota) / CO2} (p.ej. 0.05 = 5%), o negativa para no usarla
+     */
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * Ejecuta todos los arranques y devuelve el resultado agregado.
+     *
+     * @return Resultado del multiarranque
+     */
+    public Result run() {
+        CompiledInstance compiled = instance.getCompiled();
+        compiled.getDistances();
+
+        // Un flujo aleatorio por arranque, independiente del reparto entre hilos
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[starts];
+        for (int i = 0; i < starts; i++) {
+            streams[i] = master.split();
+        }
+
+        double[] values = new double[starts];
+        boolean[] skipped = new boolean[starts];
+        AtomicReference<Best> best = new AtomicReference<>();
+        LowerBound bound = targetGap >= 0.0 ? compiled.getLowerBound() : null;
+        AtomicBoolean reached = new AtomicBoolean();
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(compiled, improvement));
+
+        long startTime = System.nanoTime();
+        int blocks = (starts + SolutionBatch.BLOCK - 1) / SolutionBatch.BLOCK;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(b -> {
+                int from = b * SolutionBatch.BLOCK;
+                int to = Math.min(starts, from + SolutionBatch.BLOCK);
+                runBlock(workers.get(), streams, from, to, values, skipped, best, bound, reached, startTime);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Multiarranque interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        Best result = best.get();
+        double recombinedCO2 = Double.NaN;
+        if (routePool != null && result != null) {
+            long phaseStart = System.nanoTime();
+            CompactSolution recombined = routePool.recombine(result.solution);
+            Worker worker = new Worker(compiled, improvement);
+            if (worker.search != null) {
+                worker.evaluator.load(recombined);
+                worker.search.improve(worker.evaluator);
+                worker.evaluator.store(recombined);
+            }
+            recombinedCO2 = recombined.getTotalCO2();
+            SolverMetrics.phase("recombinación", "Multistart", phaseStart, recombinedCO2);
+            if (recombinedCO2 < result.co2) {
+                result = new Best(recombinedCO2, -1, recombined);
+            }
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        // Agregar en orden de arranque para que la media no dependa de los hilos
+        double sum = 0.0;
+        int completed = 0;
+        int omitted = 0;
+        for (int i = 0; i < starts; i++) {
+            if (skipped[i]) {
+                omitted++;
+            } else if (!Double.isNaN(values[i])) {
+                sum += values[i];
+                completed++;
+            }
+        }
+        return new Result(result == null ? null : result.solution.toSolution(),
+                result == null ? null : result.solution,
+                result == null ? -1 : result.start,
+                completed == 0 ? Double.NaN : sum / completed,
+                completed, starts - completed - omitted, omitted, elapsed, routePool == null ? 0 : routePool.size(),
+                recombinedCO2, bound);
+    }
+
+    /**
+     * Ejecuta los arranques {@code from .. to - 1}: los construye, los evalúa en
+     * lote y mejora y registra cada uno. Un arranque cuya construcción no
+     * encuentra solución factible queda con CO2 NaN; si se alcanza la separación
+     * objetivo, los pendientes del bloque se omiten.
+     */
+    private void runBlock(Worker worker, SplittableRandom[] streams, int from, int to, double[] values,
+                          boolean[] skipped, AtomicReference<Best> best, LowerBound bound, AtomicBoolean reached,
+                          long startTime) {
+        CompactSolution[] solutions = worker.solutions;
+        long[] busy = worker.busy;
+        int[] index = worker.index;
+        worker.batch.clear();
+        for (int i = from; i < to; i++) {
+            solutions[i - from] = null;
+            if (reached.get()) {
+                skipped[i] = true;
+                values[i] = Double.NaN;
+                continue;
+            }
+            long phaseStart = System.nanoTime();
+            try {
+                solutions[i - from] = constructive.apply(streams[i]);
+            } catch (InfeasibleSolutionException e) {
+                values[i] = Double.NaN;
+                continue;
+            }
+            busy[i - from] = System.nanoTime() - phaseStart;
+            index[i - from] = worker.batch.add(solutions[i - from]);
+        }
+        if (worker.batch.size() == 0) {
+            return;
+        }
+
+        long phaseStart = System.nanoTime();
+        worker.batchEvaluator.evaluate(worker.batch);
+        double batchBest = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            if (solutions[i - from] != null) {
+                worker.batch.store(index[i - from], solutions[i - from]);
+                batchBest = Math.min(batchBest, solutions[i - from].getTotalCO2());
+            }
+        }
+        SolverMetrics.phase("evaluación en lote", "Multistart", phaseStart, batchBest);
+
+        for (int i = from; i < to; i++) {
+            CompactSolution solution = solutions[i - from];
+            if (solution == null) {
+                continue;
+            }
+            solutions[i - from] = null;
+            if (reached.get()) {
+                skipped[i] = true;
+                values[i] = Double.NaN;
+                continue;
+            }
+            values[i] = runStart(worker, solution, i, busy[i - from], best, startTime);
+            Best current = best.get();
+            if (bound != null && current != null && bound.gap(current.co2) <= targetGap) {
+                reached.set(true);
+            }
+        }
+    }
+
+    /**
+     * Completa un arranque ya construido y evaluado: mejora opcional y registro del mejor.
+     *
+     * @param constructionNanos Tiempo que llevó construirlo
+     * @return CO2 obtenido
+     */
+    private double runStart(Worker worker, CompactSolution solution, int start, long constructionNanos,
+                            AtomicReference<Best> best, long startTime) {
+        // Inicio ficticio para que las métricas cuenten construcción y mejora, no la espera del bloque
+        long solutionStart = System.nanoTime() - constructionNanos;
+        long phaseStart;
+        double co2 = solution.getTotalCO2();
+        SolverMetrics.phase("construcción", "Multistart", solutionStart, co2);
+        double distance = solution.getTotalDistance();
+        if (worker.search != null) {
+            phaseStart = System.nanoTime();
+            worker.evaluator.load(solution);
+            worker.search.improve(worker.evaluator);
+            co2 = worker.evaluator.getTotalCO2();
+            distance = worker.evaluator.getTotalDistance();
+            SolverMetrics.phase("búsqueda local", "Multistart", phaseStart, co2);
+        }
+        SolverMetrics.solution(solutionStart);
+
+        // Solo se copia la solución si puede ser la mejor; se guarda en forma
+        // compacta y se convierte a Solution una única vez al final
+        if (routePool != null) {
+            if (worker.search != null) {
+                worker.evaluator.store(worker.scratch);
+                routePool.add(worker.scratch);
+            } else {
+                routePool.add(solution);
+            }
+        }
+        if (isBetter(best.get(), co2, start)) {
+            CompactSolution candidate;
+            if (worker.search != null) {
+                candidate = new CompactSolution(worker.evaluator.getInstance());
+                worker.evaluator.store(candidate);
+            } else {
+                candidate = solution;
+            }
+            Best offer = new Best(co2, start, candidate);
+            Best current = best.get();
+            while (isBetter(current, co2, start) && !best.compareAndSet(current, offer)) {
+                current = best.get();
+            }
+        }
+        if (trace != null) {
+            trace.record(System.nanoTime() - startTime, start, co2, best.get().co2, distance);
+        }
+        return co2;
+    }
+
+    private static boolean isBetter(Best current, double co2, int start) {
+        return current == null || co2 < current.co2 || (co2 == current.co2 && start < current.start);
+    }
+
+    /**
+     * Mejor solución encontrada y el arranque que la produjo.
+     */
+    private static final class Best {
+        final double co2;
+        final int start;
+        final CompactSolution solution;
+
+        Best(double co2, int start, CompactSolution solution) {
+            this.co2 = co2;
+            this.start = start;
+            this.solution = solution;
+        }
+    }
+
+    /**
+     * Estado reutilizable de un hilo de trabajo.
+     */
+    private static final class Worker {
+        final IncrementalEvaluator evaluator;
+        final LocalSearch search;
+        final CompactSolution scratch;
+        final SolutionBatch batch;
+        final BatchEvaluator batchEvaluator = new BatchEvaluator();
+        final CompactSolution[] solutions = new CompactSolution[SolutionBatch.BLOCK];
+        final long[] busy = new long[SolutionBatch.BLOCK];
+        final int[] index = new int[SolutionBatch.BLOCK];
+
+        Worker(CompiledInstance compiled, Supplier<LocalSearch> improvement) {
+            this.search = improvement == null ? null : improvement.get();
+            this.evaluator = search == null ? null : new IncrementalEvaluator(compiled);
+            this.scratch = search == null ? null : new CompactSolution(compiled);
+            this.batch = new SolutionBatch(compiled, SolutionBatch.BLOCK);
+        }
+    }
+
+    /**
+     * Resultado de un multiarranque.
+     */
+    public static class Result {
+        private final Solution best;
+        private final CompactSolution bestCompact;
+        private final int bestStart;
+        private final double averageCO2;
+        private final int completed;
+        private final int failures;
+        private final int skipped;
+        private final long elapsedNanos;
+        private final int poolSize;
+        private final double recombinedCO2;
+        private final LowerBound lowerBound;
+
+        Result(Solution best, CompactSolution bestCompact, int bestStart, double averageCO2, int completed, int failures,
+               int skipped, long elapsedNanos, int poolSize, double recombinedCO2, LowerBound lowerBound) {
+            this.best = best;
+            this.bestCompact = bestCompact;
+            this.bestStart = bestStart;
+            this.averageCO2 = averageCO2;
+            this.completed = completed;
+            this.failures = failures;
+            this.skipped = skipped;
+            this.elapsedNanos = elapsedNanos;
+            this.poolSize = poolSize;
+            this.recombinedCO2 = recombinedCO2;
+            this.lowerBound = lowerBound;
+        }
+
+        /**
+         * Obtiene la mejor solución encontrada.
+         *
+         * @return Mejor solución, o {@code null} si ningún arranque fue factible
+         */
+        public Solution getBest() {
+            return best;
+        }
+
+        /**
+         * Obtiene la mejor solución encontrada en su representación compacta.
+         *
+         * @return Mejor solución, o {@code null} si ningún arranque fue factible
+         */
+        public CompactSolution getBestCompact() {
+            return bestCompact;
+        }
+
+        /**
+         * Obtiene el índice del arranque que produjo la mejor solución.
+         *
+         * @return Índice del arranque, o -1 si no hubo solución o la mejor es la recombinada
+         */
+        public int getBestStart() {
+            return bestStart;
+        }
+
+        /**
+         * Obtiene el CO2 medio de los arranques factibles.
+         *
+         * @return CO2 medio
+         */
+        public double getAverageCO2() {
+            return averageCO2;
+        }
+
+        /**
+         * Obtiene el número de arranques que produjeron solución.
+         *
+         * @return Arranques completados
+         */
+        public int getCompleted() {
+            return completed;
+        }
+
+        /**
+         * Obtiene el número de arranques sin solución factible.
+         *
+         * @return Arranques fallidos
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * Obtiene el número de arranques omitidos al alcanzar la separación objetivo.
+         *
+         * @return Arranques omitidos
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Obtiene el tiempo total de ejecución.
+         *
+         * @return Tiempo en nanosegundos
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Obtiene el número de rutas distintas del conjunto de recombinación.
+         *
+         * @return Columnas del conjunto, o 0 si no se recombinó
+         */
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        /**
+         * Obtiene el CO2 de la solución recombinada (tras la búsqueda local, si la hay).
+         *
+         * @return CO2 recombinado, o NaN si no se recombinó
+         */
+        public double getRecombinedCO2() {
+            return recombinedCO2;
+        }
+
+        /**
+         * Obtiene la cota inferior con la que se comprobó la separación objetivo.
+         *
+         * @return Cota inferior, o {@code null} si no se fijó separación objetivo
+         */
+        public LowerBound getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * Obtiene la separación entre la mejor solución y la cota inferior.
+         *
+         * @return Separación relativa {@code (CO2 - cota) / CO2}, o NaN si no se fijó separación objetivo o no hay solución
+         */
+        public double getGap() {
+            return lowerBound == null || best == null ? Double.NaN : lowerBound.gap(best.getTotalCO2());
+        }
+
+        @Override
+        public String toString() {
+            return "Multistart.Result{" +
+                    "mejorCO2=" + (best == null ? "-" : String.format("%.7f", best.getTotalCO2())) +
+                    ", arranque=" + bestStart +
+                    ", mediaCO2=" + String.format("%.7f", averageCO2) +
+                    ", completados=" + completed +
+                    ", fallidos=" + failures +
+                    (skipped > 0 ? ", omitidos=" + skipped : "") +
+                    ", tiempo=" + String.format("%.1f ms", elapsedNanos / 1e6) +
+                    (poolSize > 0 ? ", rutas=" + poolSize + ", recombinadoCO2=" + String.format("%.7f", recombinedCO2) : "") +
+                    (lowerBound == null || best == null ? "" : ", separación=" + String.format("%.2f%%", getGap() * 100.0)) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package tfg;
+
+/**
+ * Listas de candidatos: para cada nodo, sus k clientes más cercanos ordenados
+ * por distancia creciente. Se guardan en un único array plano de {@code n * k}.
+ * Se calculan con {@link SpatialIndex}.
+ */
+public final class NeighborLists {
+    /** Tamaño por defecto de las listas de candidatos. */
+    public static final int DEFAULT_SIZE = 16;
+
+    private final int size;
+    private final int[] neighbors;
+
+    private NeighborLists(int size, int[] neighbors) {
+        this.size = size;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Calcula las listas de los k clientes más cercanos de cada nodo con el
+     * índice espacial de la instancia ({@link CompiledInstance#getSpatialIndex()}),
+     * sin recorrer todos los pares ni usar la matriz de distancias. Las filas se
+     * calculan en paralelo.
+     *
+     * @param instance Instancia compilada
+     * @param k Número de vecinos por nodo
+     * @return Listas de candidatos
+     */
+    public static NeighborLists build(CompiledInstance instance, int k) {
+        int size = Math.max(0, Math.min(k, instance.getNumberOfCustomers() - 1));
+        return new NeighborLists(size, instance.getSpatialIndex().nearestAll(size));
+    }
+
+    /**
+     * Crea listas a partir de un array plano ya calculado.
+     *
+     * @param size Vecinos por nodo
+     * @param neighbors Array plano de {@code n * size} índices
+     * @return Listas de candidatos
+     */
+    static NeighborLists of(int size, int[] neighbors) {
+        return new NeighborLists(size, neighbors);
+    }
+
+    /**
+     * Obtiene el número de vecinos por nodo.
+     *
+     * @return Tamaño de cada lista
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtiene el r-ésimo vecino más cercano de un nodo.
+     *
+     * @param node Índice del nodo
+     * @param rank Posición en la lista (0 = más cercano)
+     * @return Índice del vecino
+     */
+    public int get(int node, int rank) {
+        return neighbors[node * size + rank];
+    }
+}
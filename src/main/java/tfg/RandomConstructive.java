@@ -1,17 +1,42 @@
 package tfg;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Clase que implementa el algoritmo de construcción aleatoria.
  * Genera soluciones asignando aleatoriamente nodos a vehículos.
+ *
+ * Los clientes se recorren en un orden aleatorio (barajados una vez) y cada uno
+ * se asigna a una unidad elegida uniformemente entre las que aún tienen hueco
+ * para él. Las capacidades residuales se guardan en un árbol de segmentos de
+ * máximos: la raíz indica en O(1) si queda alguna unidad válida, de modo que
+ * solo se declara la instancia infactible cuando de verdad ninguna unidad admite
+ * al cliente. La elección se hace primero por rechazo (unos pocos intentos
+ * uniformes) y, si fallan, recorriendo solo las ramas del árbol con hueco
+ * suficiente; ambas formas dan una unidad uniforme entre las válidas. Cada
+ * cliente cuesta O(log m) si el rechazo acierta y O(min(v log m, m)) si hay
+ * que enumerar sus v unidades válidas, así que el peor caso es O(n·m); en la
+ * práctica el recorrido solo se da cuando quedan pocas unidades con hueco
+ * (v pequeño), que es justo cuando el rechazo falla.
  */
 public class RandomConstructive {
-    private Instance instance;
-    private Random random;
+    /** Intentos uniformes antes de recorrer el árbol de capacidades. */
+    private static final int REJECTION_ATTEMPTS = 8;
+    private static final double CAPACITY_TOLERANCE = 1e-9;
+
+    private final CompiledInstance instance;
+    private final RandomGenerator random;
+
+    // Árbol de segmentos de máximos sobre la capacidad residual de cada unidad
+    private double[] tree;
+    private int leaves;
+    private int[] candidates;
+
+    // Métricas de la construcción en curso (ver SolverMetrics)
+    private long attempts;
+    private long rejections;
 
     /**
      * Constructor del algoritmo RandomConstructive.
@@ -19,8 +44,7 @@ public class RandomConstructive {
      * @param instance Instancia del problema
      */
     public RandomConstructive(Instance instance) {
-        this.instance = instance;
-        this.random = new Random();
+        this(instance.getCompiled(), new Random());
     }
 
     /**
@@ -30,94 +54,179 @@ public class RandomConstructive {
      * @param seed Semilla para el generador de números aleatorios
      */
     public RandomConstructive(Instance instance, long seed) {
+        this(instance.getCompiled(), new Random(seed));
+    }
+
+    /**
+     * Constructor del algoritmo RandomConstructive con un generador dado
+     * (p.ej. un {@link java.util.SplittableRandom} por ejecución de un multiarranque).
+     * 
+     * @param instance Instancia del problema
+     * @param random Generador de números aleatorios
+     */
+    public RandomConstructive(Instance instance, RandomGenerator random) {
+        this(instance.getCompiled(), random);
+    }
+
+    /**
+     * Constructor sobre la instancia compilada.
+     * 
+     * @param instance Instancia compilada
+     * @param random Generador de números aleatorios
+     */
+    public RandomConstructive(CompiledInstance instance, RandomGenerator random) {
         this.instance = instance;
-        this.random = new Random(seed);
+        this.random = random;
     }
 
     /**
      * Ejecuta el algoritmo y devuelve una solución generada aleatoriamente.
      * 
      * @return Solución evaluada generada aleatoriamente
+     * @throws InfeasibleSolutionException Si ninguna unidad tiene hueco para algún cliente
      */
     public Solution run() {
-        Solution solution = new Solution();
-
-        // Obtener información de la instancia
-        List<Map<String, String>> nodes = instance.getNodes();
-        List<Map<String, String>> vehicles = instance.getVehicles();
-
-        // Filtrar nodos (excluir el depósito 'P')
-        List<String> customerNodes = new ArrayList<>();
-        for (Map<String, String> node : nodes) {
-            String nodeName = node.get("Node");
-            if (!nodeName.equals("P")) {
-                customerNodes.add(nodeName);
-            }
+        return runCompact().toSolution();
+    }
+
+    /**
+     * Ejecuta el algoritmo y devuelve la solución en forma compacta.
+     *
+     * @return Solución evaluada generada aleatoriamente
+     * @throws InfeasibleSolutionException Si ninguna unidad tiene hueco para algún cliente
+     */
+    public CompactSolution runCompact() {
+        return runCompact(true);
+    }
+
+    /**
+     * Ejecuta el algoritmo y devuelve la solución en forma compacta, evaluada o no.
+     *
+     * @param evaluate Si se calculan su distancia y CO2; {@code false} cuando se
+     *                 van a evaluar después en lote (ver {@link Multistart})
+     * @return Solución construida
+     * @throws InfeasibleSolutionException Si ninguna unidad tiene hueco para algún cliente
+     */
+    public CompactSolution runCompact(boolean evaluate) {
+        int numUnits = instance.getNumberOfUnits();
+        int[] customers = instance.getCustomers().clone();
+        int n = customers.length;
+        if (numUnits == 0 && n > 0) {
+            throw new InfeasibleSolutionException("No hay vehículos disponibles para asignar todos los nodos");
+        }
+
+        // Barajar los clientes (Fisher-Yates)
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = customers[i];
+            customers[i] = customers[j];
+            customers[j] = tmp;
         }
 
-        // Obtener lista de vehículos disponibles y capacidades por unidad
-        List<String> availableVehicles = new ArrayList<>();
-        Map<String, Double> vehicleCapacityByUnit = new java.util.HashMap<>();
-        for (Map<String, String> vehicle : vehicles) {
-            String vehicleName = vehicle.get("Vehicle");
-            int numVehicles = Integer.parseInt(vehicle.get("Num_v"));
-            double capacity = Double.parseDouble(vehicle.get("Load"));
-
-            for (int i = 0; i < numVehicles; i++) {
-                String unitName = vehicleName + (i > 0 ? "_" + i : "");
-                availableVehicles.add(unitName);
-                vehicleCapacityByUnit.put(unitName, capacity);
+        buildTree(numUnits);
+        attempts = 0;
+        rejections = 0;
+
+        // Asignar cada cliente a una unidad con hueco
+        int[] unitOf = new int[n];
+        int[] routeSize = new int[numUnits + 1];
+        for (int i = 0; i < n; i++) {
+            int node = customers[i];
+            double prod = instance.getProd(node);
+            if (tree[1] + CAPACITY_TOLERANCE < prod) {
+                SolverMetrics.constructive(attempts, rejections, true);
+                throw new InfeasibleSolutionException("Capacidad insuficiente: no se puede asignar el nodo " + instance.getNodeName(node));
             }
+            int unit = chooseUnit(prod);
+            unitOf[i] = unit;
+            routeSize[unit + 1]++;
+            update(unit, tree[leaves + unit] - prod);
         }
 
-        // Cargar actual por vehículo unidad
-        Map<String, Double> routeLoadByVehicle = new java.util.HashMap<>();
+        SolverMetrics.constructive(attempts, rejections, false);
 
-        // Asignar aleatoriamente nodos a vehículos
-        for (String node : customerNodes) {
-            if (availableVehicles.isEmpty()) {
-                throw new IllegalStateException("No hay vehículos disponibles para asignar todos los nodos");
-            }
+        // Agrupar los clientes por unidad conservando el orden de asignación
+        for (int u = 0; u < numUnits; u++) {
+            routeSize[u + 1] += routeSize[u];
+        }
+        int[] order = new int[n];
+        int[] next = Arrays.copyOf(routeSize, numUnits);
+        for (int i = 0; i < n; i++) {
+            order[next[unitOf[i]]++] = customers[i];
+        }
 
-            // Peso (producción) del nodo
-            double nodeProd = 0.0;
-            for (Map<String, String> n : nodes) {
-                if (node.equals(n.get("Node"))) {
-                    String prodStr = n.get("prod");
-                    nodeProd = (prodStr == null || prodStr.isEmpty()) ? 0.0 : Double.parseDouble(prodStr);
-                    break;
+        CompactSolution solution = new CompactSolution(instance);
+        for (int u = 0; u < numUnits; u++) {
+            if (routeSize[u + 1] > routeSize[u]) {
+                solution.startRoute(u);
+                for (int p = routeSize[u]; p < routeSize[u + 1]; p++) {
+                    solution.add(order[p]);
                 }
             }
+        }
+        if (evaluate) {
+            solution.evaluate();
+        }
+        return solution;
+    }
 
-            // Intentar asignar el nodo a un vehículo que no exceda la capacidad
-            boolean assigned = false;
-            int attempts = 0;
-            while (!assigned && attempts < availableVehicles.size()) {
-                int randomVehicleIndex = random.nextInt(availableVehicles.size());
-                String vehicleUnit = availableVehicles.get(randomVehicleIndex);
-                double capacity = vehicleCapacityByUnit.get(vehicleUnit);
-                double currentLoad = routeLoadByVehicle.getOrDefault(vehicleUnit, 0.0);
-
-                if (currentLoad + nodeProd <= capacity + 1e-9) { // permitir pequeña tolerancia
-                    Map<String, List<String>> routes = solution.getVehicleRoutes();
-                    List<String> route = routes.getOrDefault(vehicleUnit, new ArrayList<>());
-                    route.add(node);
-                    solution.addRoute(vehicleUnit, route);
-                    routeLoadByVehicle.put(vehicleUnit, currentLoad + nodeProd);
-                    assigned = true;
-                } else {
-                    attempts++;
-                }
-            }
+    /**
+     * Inicializa el árbol con la capacidad de cada unidad (las hojas sobrantes a -∞).
+     */
+    private void buildTree(int numUnits) {
+        leaves = 1;
+        while (leaves < numUnits) {
+            leaves <<= 1;
+        }
+        tree = new double[2 * leaves];
+        Arrays.fill(tree, Double.NEGATIVE_INFINITY);
+        for (int u = 0; u < numUnits; u++) {
+            tree[leaves + u] = instance.getTypeLoad(instance.getUnitType(u));
+        }
+        for (int k = leaves - 1; k >= 1; k--) {
+            tree[k] = Math.max(tree[2 * k], tree[2 * k + 1]);
+        }
+        candidates = new int[numUnits];
+    }
 
-            if (!assigned) {
-                throw new IllegalStateException("Capacidad insuficiente: no se puede asignar el nodo " + node);
-            }
+    private void update(int unit, double residual) {
+        int k = leaves + unit;
+        tree[k] = residual;
+        for (k >>= 1; k >= 1; k >>= 1) {
+            tree[k] = Math.max(tree[2 * k], tree[2 * k + 1]);
         }
+    }
 
-        // Evaluar la solución
-        solution.evaluate();
+    /**
+     * Elige uniformemente una unidad con capacidad residual suficiente
+     * (se sabe que existe al menos una).
+     */
+    private int chooseUnit(double prod) {
+        int numUnits = candidates.length;
+        double needed = prod - CAPACITY_TOLERANCE;
+        for (int attempt = 0; attempt < REJECTION_ATTEMPTS; attempt++) {
+            int unit = random.nextInt(numUnits);
+            attempts++;
+            if (tree[leaves + unit] >= needed) {
+                return unit;
+            }
+            rejections++;
+        }
+        // Pocas unidades válidas: se enumeran descendiendo solo por ramas con hueco
+        attempts++;
+        int count = collect(1, needed, 0);
+        return candidates[random.nextInt(count)];
+    }
 
-        return solution;
+    private int collect(int k, double needed, int count) {
+        if (tree[k] < needed) {
+            return count;
+        }
+        if (k >= leaves) {
+            candidates[count] = k - leaves;
+            return count + 1;
+        }
+        count = collect(2 * k, needed, count);
+        return collect(2 * k + 1, needed, count);
     }
 }
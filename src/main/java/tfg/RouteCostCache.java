@@ -0,0 +1,358 @@
+package tfg;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Caché acotada y concurrente del coste (distancia y CO2) de rutas completas,
+ * indexada por tipo de vehículo y secuencia de nodos.
+ *
+ * La clave es un hash de 128 bits (dos hashes de 64 bits independientes) al
+ * estilo Zobrist: cada nodo tiene dos claves aleatorias y la secuencia se
+ * combina de forma polinómica ({@code h = h·P + z[nodo]}), de modo que importa
+ * el orden (el CO2 depende del sentido de la ruta) y el hash se extiende nodo a
+ * nodo en O(1). El tipo de vehículo fija el valor inicial. No se guardan las
+ * secuencias: con 128 bits la probabilidad de colisión es despreciable.
+ *
+ * La tabla es asociativa por conjuntos de {@value #WAYS} entradas; al llenarse
+ * un conjunto se expulsa la entrada usada hace más tiempo (LRU dentro del
+ * conjunto). Los conjuntos se reparten entre {@value #STRIPES} cerrojos
+ * ({@link StampedLock}); las consultas leen de forma optimista sin bloquear, así
+ * que varios hilos que resuelven la misma instancia pueden compartir la caché
+ * con poca contención. El coste de una ruta que no está se calcula fuera del
+ * cerrojo. El reloj LRU de cada grupo de cerrojo es un contador atómico en su
+ * propia línea de caché, para que los aciertos sin cerrojo no pierdan
+ * incrementos ni compitan por la línea de los grupos vecinos.
+ *
+ * Calcular el hash desde cero cuesta O(longitud de la ruta), del mismo orden
+ * que evaluarla con la matriz de distancias en memoria. Por eso
+ * {@link CompactSolution} lo extiende en O(1) con cada cliente que añade e
+ * {@link IncrementalEvaluator} lo guarda como un agregado prefijo más de cada
+ * ruta, que al aplicar un movimiento solo se recalcula desde la primera
+ * posición cambiada; ambos consultan la caché con
+ * {@link #routeCost(int, long, long, int[], int, int, double[])} sin volver a
+ * recorrer la ruta. Aun así la caché compensa sobre todo cuando la evaluación
+ * es cara: {@link Solution} (nombres a índices), distancias calculadas al
+ * vuelo o en disco, o rutas que se repiten mucho entre arranques. Por eso no
+ * se activa por defecto.
+ *
+ * Se activa para una instancia con {@link CompiledInstance#setRouteCostCache(RouteCostCache)};
+ * a partir de ahí {@link Solution#evaluate()} y {@link CompactSolution#evaluate()}
+ * solo recalculan las rutas que no han visto antes.
+ */
+public final class RouteCostCache {
+    /** Capacidad por defecto (rutas). */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int WAYS = 4;
+    private static final int STRIPES = 64;
+    private static final long P1 = 0x9E3779B97F4A7C15L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    /** Separación entre relojes: 16 longs (128 bytes) para no compartir línea de caché. */
+    private static final int CLOCK_STRIDE = 16;
+
+    private final CompiledInstance instance;
+    private final long[] nodeKey1;
+    private final long[] nodeKey2;
+    private final long[] typeKey1;
+    private final long[] typeKey2;
+
+    private final int setMask;
+    private final long[] entryKey1;
+    private final long[] entryKey2;
+    private final double[] entryDistance;
+    private final double[] entryCO2;
+    private final long[] entryStamp;
+    private final StampedLock[] locks;
+    private final AtomicLongArray clocks;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor con la capacidad por defecto.
+     *
+     * @param instance Instancia compilada
+     */
+    public RouteCostCache(CompiledInstance instance) {
+        this(instance, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor con una capacidad dada (se redondea a potencia de dos).
+     *
+     * @param instance Instancia compilada
+     * @param capacity Número máximo de rutas guardadas
+     */
+    public RouteCostCache(CompiledInstance instance, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad de la caché debe ser positiva: " + capacity);
+        }
+        this.instance = instance;
+        SplittableRandom random = new SplittableRandom(0x5EEDL);
+        int n = instance.getNumberOfNodes();
+        int t = instance.getNumberOfTypes();
+        this.nodeKey1 = new long[n];
+        this.nodeKey2 = new long[n];
+        for (int i = 0; i < n; i++) {
+            nodeKey1[i] = random.nextLong();
+            nodeKey2[i] = random.nextLong();
+        }
+        this.typeKey1 = new long[t];
+        this.typeKey2 = new long[t];
+        for (int i = 0; i < t; i++) {
+            typeKey1[i] = random.nextLong();
+            typeKey2[i] = random.nextLong();
+        }
+
+        int sets = Integer.highestOneBit(Math.max(STRIPES, (capacity + WAYS - 1) / WAYS));
+        if (sets * WAYS < capacity && sets < (1 << 28)) {
+            sets <<= 1;
+        }
+        this.setMask = sets - 1;
+        int entries = sets * WAYS;
+        this.entryKey1 = new long[entries];
+        this.entryKey2 = new long[entries];
+        this.entryDistance = new double[entries];
+        this.entryCO2 = new double[entries];
+        this.entryStamp = new long[entries];
+        this.locks = new StampedLock[STRIPES];
+        for (int s = 0; s < STRIPES; s++) {
+            locks[s] = new StampedLock();
+        }
+        this.clocks = new AtomicLongArray(STRIPES * CLOCK_STRIDE);
+    }
+
+    /**
+     * Obtiene la instancia de la caché.
+     *
+     * @return Instancia compilada
+     */
+    public CompiledInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Obtiene la distancia y el CO2 de una ruta, de la caché o calculándolos.
+     *
+     * @param type Tipo de vehículo
+     * @param route Array con los nodos de la ruta
+     * @param from Primera posición (incluida)
+     * @param to Última posición (excluida)
+     * @param result Array de al menos 2 posiciones: recibe {@code [distancia, CO2]}
+     */
+    public void routeCost(int type, int[] route, int from, int to, double[] result) {
+        long h1 = typeKey1[type];
+        long h2 = typeKey2[type];
+        for (int i = from; i < to; i++) {
+            h1 = h1 * P1 + nodeKey1[route[i]];
+            h2 = h2 * P2 + nodeKey2[route[i]];
+        }
+        routeCost(type, h1, h2, route, from, to, result);
+    }
+
+    /**
+     * Hash inicial (primera mitad) de una ruta vacía de un tipo de vehículo.
+     */
+    long initialHash1(int type) {
+        return typeKey1[type];
+    }
+
+    /**
+     * Hash inicial (segunda mitad) de una ruta vacía de un tipo de vehículo.
+     */
+    long initialHash2(int type) {
+        return typeKey2[type];
+    }
+
+    /**
+     * Extiende la primera mitad del hash de una ruta con un nodo más al final.
+     */
+    long extendHash1(long hash, int node) {
+        return hash * P1 + nodeKey1[node];
+    }
+
+    /**
+     * Extiende la segunda mitad del hash de una ruta con un nodo más al final.
+     */
+    long extendHash2(long hash, int node) {
+        return hash * P2 + nodeKey2[node];
+    }
+
+    /**
+     * Obtiene la distancia y el CO2 de una ruta cuyo hash ya se conoce
+     * (construido con {@link #initialHash1(int)} y {@link #extendHash1(long, int)},
+     * y sus equivalentes de la segunda mitad), sin volver a recorrerla salvo
+     * que no esté en la caché.
+     *
+     * @param type Tipo de vehículo
+     * @param h1 Primera mitad del hash de la ruta
+     * @param h2 Segunda mitad del hash de la ruta
+     * @param route Array con los nodos de la ruta
+     * @param from Primera posición (incluida)
+     * @param to Última posición (excluida)
+     * @param result Array de al menos 2 posiciones: recibe {@code [distancia, CO2]}
+     */
+    void routeCost(int type, long h1, long h2, int[] route, int from, int to, double[] result) {
+        // Mezcla final para repartir bien los conjuntos
+        h1 ^= h1 >>> 29;
+        h1 *= 0xBF58476D1CE4E5B9L;
+        h1 ^= h1 >>> 32;
+
+        int set = (int) h1 & setMask;
+        int stripe = set & (STRIPES - 1);
+        int base = set * WAYS;
+        StampedLock lock = locks[stripe];
+
+        // Lectura optimista sin bloquear; si un escritor interfiere se repite con cerrojo
+        long stamp = lock.tryOptimisticRead();
+        int found = find(base, h1, h2);
+        double distance = found >= 0 ? entryDistance[found] : 0.0;
+        double co2 = found >= 0 ? entryCO2[found] : 0.0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = find(base, h1, h2);
+                distance = found >= 0 ? entryDistance[found] : 0.0;
+                co2 = found >= 0 ? entryCO2[found] : 0.0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (found >= 0) {
+            // Actualización sin cerrojo del orden LRU: el reloj es atómico y una
+            // carrera con un escritor solo altera la elección de la víctima
+            entryStamp[found] = clocks.incrementAndGet(stripe * CLOCK_STRIDE);
+            result[0] = distance;
+            result[1] = co2;
+            hits.increment();
+            return;
+        }
+
+        misses.increment();
+        distance = instance.routeDistance(route, from, to);
+        co2 = instance.routeCO2(type, route, from, to);
+        result[0] = distance;
+        result[1] = co2;
+
+        stamp = lock.writeLock();
+        try {
+            if (find(base, h1, h2) >= 0) {
+                return; // Otro hilo la añadió mientras se calculaba
+            }
+            int victim = base;
+            for (int w = base + 1; w < base + WAYS; w++) {
+                if (entryStamp[w] < entryStamp[victim]) {
+                    victim = w;
+                }
+            }
+            if (entryStamp[victim] != 0) {
+                evictions.increment();
+            }
+            entryKey1[victim] = h1;
+            entryKey2[victim] = h2;
+            entryDistance[victim] = distance;
+            entryCO2[victim] = co2;
+            entryStamp[victim] = clocks.incrementAndGet(stripe * CLOCK_STRIDE);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Busca una clave en un conjunto.
+     *
+     * @return Índice de la entrada, o -1 si no está
+     */
+    private int find(int base, long h1, long h2) {
+        for (int w = base; w < base + WAYS; w++) {
+            if (entryKey1[w] == h1 && entryKey2[w] == h2 && entryStamp[w] != 0) {
+                return w;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Vacía la caché y sus estadísticas.
+     */
+    public void clear() {
+        for (int s = 0; s < STRIPES; s++) {
+            long stamp = locks[s].writeLock();
+            try {
+                for (int set = s; set <= setMask; set += STRIPES) {
+                    for (int w = set * WAYS; w < (set + 1) * WAYS; w++) {
+                        entryStamp[w] = 0;
+                    }
+                }
+                clocks.set(s * CLOCK_STRIDE, 0L);
+            } finally {
+                locks[s].unlockWrite(stamp);
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /**
+     * Obtiene el número máximo de rutas guardadas.
+     *
+     * @return Capacidad
+     */
+    public int getCapacity() {
+        return entryStamp.length;
+    }
+
+    /**
+     * Obtiene el número de consultas resueltas con la caché.
+     *
+     * @return Aciertos
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Obtiene el número de consultas que tuvieron que calcular la ruta.
+     *
+     * @return Fallos
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Obtiene el número de rutas expulsadas por falta de espacio.
+     *
+     * @return Expulsiones
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Obtiene la proporción de aciertos.
+     *
+     * @return Aciertos / consultas, o 0 si no hubo consultas
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteCostCache{" +
+                "capacidad=" + getCapacity() +
+                ", aciertos=" + getHits() +
+                ", fallos=" + getMisses() +
+                ", expulsiones=" + getEvictions() +
+                ", tasaAciertos=" + String.format("%.1f%%", getHitRate() * 100.0) +
+                '}';
+    }
+}
@@ -0,0 +1,674 @@
+package tfg;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Conjunto de rutas distintas recogidas de muchas soluciones, con su CO2 y su
+ * tipo de vehículo, y recombinación por particionamiento de conjuntos: elegir
+ * las rutas de menor CO2 total que visitan cada cliente exactamente una vez sin
+ * usar más unidades de cada tipo que {@code Num_v}.
+ *
+ * Dos rutas son la misma columna si visitan el mismo conjunto de clientes con
+ * el mismo tipo de vehículo; se guarda el orden de menor CO2 (a igualdad, el
+ * menor lexicográficamente, de modo que el contenido no depende del orden en
+ * que lleguen las soluciones). Cada ruta se añade además con todos los tipos en
+ * cuya capacidad cabe, ya que el CO2 depende de {@code Ef}/{@code Eo}/{@code Load}.
+ * La identidad del conjunto se comprueba con dos hashes de 64 bits
+ * independientes del orden (suma de claves aleatorias por cliente).
+ *
+ * La recombinación es una ramificación y poda en profundidad: en cada nivel se
+ * toma el cliente sin cubrir con menos columnas y se prueban las columnas
+ * compatibles que lo cubren, de menor a mayor CO2 por cliente. La cota inferior
+ * de los clientes pendientes es la suma, para cada uno, del menor CO2 por
+ * cliente de las columnas que lo contienen. Se parte de una solución conocida
+ * (la mejor del multiarranque), así que el resultado nunca es peor. Con cientos
+ * de clientes el problema completo no se suele poder cerrar, así que después se
+ * resuelven de forma exacta subproblemas de unas pocas rutas cercanas; la
+ * búsqueda se limita por número de nodos y por tiempo.
+ *
+ * {@link #add(CompactSolution)} es seguro para hilos.
+ */
+public final class RoutePool {
+    /** Capacidad por defecto (columnas). */
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+    /** Límite por defecto de nodos de la ramificación y poda. */
+    public static final long DEFAULT_NODE_LIMIT = 2_000_000L;
+
+    private static final double EPSILON = 1e-9;
+    private static final int GROUP_SIZE = 4;
+    private static final long SUBPROBLEM_NODE_LIMIT = 50_000L;
+
+    private final CompiledInstance instance;
+    private final int capacity;
+    private final long[] nodeKey1;
+    private final long[] nodeKey2;
+    private final Map<Key, Integer> index = new HashMap<>();
+
+    // Columnas: nodos de la columna c en nodes[start[c] .. start[c] + length[c] - 1]
+    private int[] nodes = new int[1024];
+    private int[] start = new int[256];
+    private int[] length = new int[256];
+    private int[] type = new int[256];
+    private double[] co2 = new double[256];
+    private int columns;
+    private int used;
+    private long dropped;
+
+    private long nodeLimit = DEFAULT_NODE_LIMIT;
+    private long timeLimitMillis;
+    private long lastNodes;
+    private boolean lastComplete;
+
+    /**
+     * Constructor con la capacidad por defecto.
+     *
+     * @param instance Instancia compilada
+     */
+    public RoutePool(CompiledInstance instance) {
+        this(instance, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor con una capacidad dada.
+     *
+     * @param instance Instancia compilada
+     * @param capacity Número máximo de columnas; las rutas nuevas que no caben se descartan
+     */
+    public RoutePool(CompiledInstance instance, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad del conjunto de rutas debe ser positiva: " + capacity);
+        }
+        this.instance = instance;
+        this.capacity = capacity;
+        SplittableRandom random = new SplittableRandom(0x9001L);
+        int n = instance.getNumberOfNodes();
+        this.nodeKey1 = new long[n];
+        this.nodeKey2 = new long[n];
+        for (int i = 0; i < n; i++) {
+            nodeKey1[i] = random.nextLong();
+            nodeKey2[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Establece el número máximo de nodos explorados por {@link #recombine(CompactSolution)}.
+     *
+     * @param nodeLimit Límite de nodos (al menos 1)
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = Math.max(1L, nodeLimit);
+    }
+
+    /**
+     * Establece el tiempo máximo de {@link #recombine(CompactSolution)}.
+     *
+     * @param timeLimitMillis Tiempo en milisegundos, o 0 para no limitarlo
+     */
+    public void setTimeLimit(long timeLimitMillis) {
+        this.timeLimitMillis = Math.max(0L, timeLimitMillis);
+    }
+
+    // ------------------------------------------------------------ Recogida
+
+    /**
+     * Añade las rutas no vacías de una solución.
+     *
+     * @param solution Solución de la instancia del conjunto
+     */
+    public synchronized void add(CompactSolution solution) {
+        int[] route = new int[instance.getNumberOfCustomers()];
+        for (int r = 0; r < solution.getNumberOfRoutes(); r++) {
+            int size = solution.getRouteSize(r);
+            if (size == 0) {
+                continue;
+            }
+            int first = solution.getRouteStart(r);
+            double load = 0.0;
+            long h1 = 0L;
+            long h2 = 0L;
+            for (int p = 0; p < size; p++) {
+                int node = solution.getNode(first + p);
+                route[p] = node;
+                load += instance.getProd(node);
+                h1 += nodeKey1[node];
+                h2 += nodeKey2[node];
+            }
+            for (int t = 0; t < instance.getNumberOfTypes(); t++) {
+                if (load <= instance.getTypeLoad(t) && instance.getTypeUnits(t) > 0) {
+                    offer(new Key(h1, h2, t), route, size, t, instance.routeCO2(t, route, 0, size));
+                }
+            }
+        }
+    }
+
+    private void offer(Key key, int[] route, int size, int t, double cost) {
+        Integer existing = index.get(key);
+        if (existing != null) {
+            int c = existing;
+            if (cost < co2[c] || (cost == co2[c] && compare(route, size, c) < 0)) {
+                System.arraycopy(route, 0, nodes, start[c], size);
+                co2[c] = cost;
+            }
+            return;
+        }
+        if (columns == capacity) {
+            dropped++;
+            return;
+        }
+        if (columns == start.length) {
+            int grown = Math.min(capacity, columns * 2);
+            start = Arrays.copyOf(start, grown);
+            length = Arrays.copyOf(length, grown);
+            type = Arrays.copyOf(type, grown);
+            co2 = Arrays.copyOf(co2, grown);
+        }
+        if (used + size > nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, used + size));
+        }
+        System.arraycopy(route, 0, nodes, used, size);
+        start[columns] = used;
+        length[columns] = size;
+        type[columns] = t;
+        co2[columns] = cost;
+        index.put(key, columns);
+        used += size;
+        columns++;
+    }
+
+    private int compare(int[] route, int size, int c) {
+        for (int p = 0; p < size; p++) {
+            int diff = Integer.compare(route[p], nodes[start[c] + p]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Obtiene el número de columnas (conjunto de clientes y tipo) distintas.
+     *
+     * @return Columnas guardadas
+     */
+    public synchronized int size() {
+        return columns;
+    }
+
+    /**
+     * Obtiene el número de rutas nuevas descartadas por falta de capacidad.
+     *
+     * @return Rutas descartadas
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    // ------------------------------------------------------- Recombinación
+
+    /**
+     * Busca la combinación de columnas de menor CO2 que cubre cada cliente una
+     * vez y respeta el número de unidades de cada tipo, partiendo de una
+     * solución conocida (que se añade antes al conjunto).
+     *
+     * Primero se intenta resolver el problema completo con parte del límite de
+     * nodos; si no se termina, se recorren las rutas de la mejor solución y se
+     * resuelve de forma exacta el subproblema formado por cada ruta y sus
+     * {@value #GROUP_SIZE} - 1 rutas más cercanas (columnas contenidas en sus
+     * clientes, con las unidades que dejan libres las demás rutas), hasta que
+     * una pasada no mejora o se agotan los límites.
+     *
+     * @param incumbent Solución de partida
+     * @return Mejor solución encontrada (evaluada), o una copia de la de partida si no se mejora
+     */
+    public synchronized CompactSolution recombine(CompactSolution incumbent) {
+        long deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1_000_000L : Long.MAX_VALUE;
+        lastNodes = 0L;
+        lastComplete = false;
+        add(incumbent);
+
+        int[] current = new int[instance.getNumberOfUnits()];
+        int count = 0;
+        for (int r = 0; r < incumbent.getNumberOfRoutes(); r++) {
+            if (incumbent.getRouteSize(r) == 0) {
+                continue;
+            }
+            int column = columnOf(incumbent, r);
+            if (column < 0) {
+                return incumbent.copy(); // Conjunto lleno: la solución de partida no está completa
+            }
+            current[count++] = column;
+        }
+        int[][] columnsOf = columnsByRatio();
+
+        // Problema completo
+        int[] units = new int[instance.getNumberOfTypes()];
+        for (int t = 0; t < units.length; t++) {
+            units[t] = instance.getTypeUnits(t);
+        }
+        Search global = new Search(instance.getCustomers(), columnsOf, units, cost(current, count),
+                Math.max(1L, nodeLimit / 4), deadline);
+        global.run();
+        lastNodes += global.explored;
+        if (global.best != null) {
+            count = global.bestCount;
+            System.arraycopy(global.best, 0, current, 0, count);
+        }
+        lastComplete = !global.stopped;
+
+        // Subproblemas de rutas cercanas
+        boolean improved = !lastComplete;
+        while (improved && lastNodes < nodeLimit && System.nanoTime() < deadline) {
+            improved = false;
+            for (int r = 0; r < count && lastNodes < nodeLimit && System.nanoTime() < deadline; r++) {
+                int[] group = nearestRoutes(current, count, r);
+                Search local = subproblem(current, count, group, columnsOf, deadline);
+                lastNodes += local.explored;
+                if (local.best != null) {
+                    count = replace(current, count, group, local.best, local.bestCount);
+                    improved = true;
+                }
+            }
+        }
+
+        CompactSolution result = build(current, count);
+        return result.getTotalCO2() < incumbent.getTotalCO2() - EPSILON ? result : incumbent.copy();
+    }
+
+    /**
+     * Obtiene el número de nodos explorados en la última recombinación.
+     *
+     * @return Nodos explorados
+     */
+    public synchronized long getLastNodes() {
+        return lastNodes;
+    }
+
+    /**
+     * Indica si la última recombinación resolvió el problema completo sin
+     * alcanzar los límites, es decir, si su resultado es óptimo para las
+     * columnas del conjunto.
+     *
+     * @return {@code true} si la búsqueda fue completa
+     */
+    public synchronized boolean isLastComplete() {
+        return lastComplete;
+    }
+
+    /**
+     * Busca la columna de una ruta de una solución.
+     *
+     * @return Índice de la columna, o -1 si no está
+     */
+    private int columnOf(CompactSolution solution, int route) {
+        long h1 = 0L;
+        long h2 = 0L;
+        int first = solution.getRouteStart(route);
+        for (int p = first; p < first + solution.getRouteSize(route); p++) {
+            h1 += nodeKey1[solution.getNode(p)];
+            h2 += nodeKey2[solution.getNode(p)];
+        }
+        Integer column = index.get(new Key(h1, h2, solution.getRouteType(route)));
+        return column == null ? -1 : column;
+    }
+
+    private double cost(int[] chosen, int count) {
+        double total = 0.0;
+        for (int k = 0; k < count; k++) {
+            total += co2[chosen[k]];
+        }
+        return total;
+    }
+
+    /**
+     * Columnas que contienen a cada cliente, ordenadas por CO2 por cliente
+     * (a igualdad, por índice).
+     */
+    private int[][] columnsByRatio() {
+        int n = instance.getNumberOfNodes();
+        int[] counts = new int[n];
+        for (int c = 0; c < columns; c++) {
+            for (int p = start[c]; p < start[c] + length[c]; p++) {
+                counts[nodes[p]]++;
+            }
+        }
+        int[][] columnsOf = new int[n][];
+        for (int node : instance.getCustomers()) {
+            columnsOf[node] = new int[counts[node]];
+            counts[node] = 0;
+        }
+        double[] ratio = new double[columns];
+        Integer[] byRatio = new Integer[columns];
+        for (int c = 0; c < columns; c++) {
+            ratio[c] = co2[c] / length[c];
+            byRatio[c] = c;
+        }
+        Arrays.sort(byRatio, (a, b) -> ratio[a] != ratio[b] ? Double.compare(ratio[a], ratio[b]) : Integer.compare(a, b));
+        for (int c : byRatio) {
+            for (int p = start[c]; p < start[c] + length[c]; p++) {
+                int node = nodes[p];
+                columnsOf[node][counts[node]++] = c;
+            }
+        }
+        return columnsOf;
+    }
+
+    /**
+     * Posiciones en {@code current} de una ruta y de las {@value #GROUP_SIZE} - 1
+     * rutas con el centroide más cercano al suyo.
+     */
+    private int[] nearestRoutes(int[] current, int count, int route) {
+        double[] cx = new double[count];
+        double[] cy = new double[count];
+        for (int k = 0; k < count; k++) {
+            int c = current[k];
+            for (int p = start[c]; p < start[c] + length[c]; p++) {
+                cx[k] += instance.getX(nodes[p]);
+                cy[k] += instance.getY(nodes[p]);
+            }
+            cx[k] /= length[c];
+            cy[k] /= length[c];
+        }
+        int size = Math.min(GROUP_SIZE, count);
+        int[] group = new int[size];
+        double[] distances = new double[size];
+        group[0] = route;
+        int found = 1;
+        for (int k = 0; k < count; k++) {
+            if (k == route) {
+                continue;
+            }
+            double dx = cx[k] - cx[route];
+            double dy = cy[k] - cy[route];
+            double d = dx * dx + dy * dy;
+            // Inserción ordenada en los size - 1 más cercanos
+            int pos = found < size ? found++ : size;
+            while (pos > 1 && distances[pos - 1] > d) {
+                if (pos < size) {
+                    group[pos] = group[pos - 1];
+                    distances[pos] = distances[pos - 1];
+                }
+                pos--;
+            }
+            if (pos < size) {
+                group[pos] = k;
+                distances[pos] = d;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Resuelve el subproblema de las rutas de un grupo: cubrir sus clientes con
+     * columnas contenidas en ellos, con las unidades que dejan libres las demás rutas.
+     */
+    private Search subproblem(int[] current, int count, int[] group, int[][] columnsOf, long deadline) {
+        int[] units = new int[instance.getNumberOfTypes()];
+        for (int t = 0; t < units.length; t++) {
+            units[t] = instance.getTypeUnits(t);
+        }
+        for (int k = 0; k < count; k++) {
+            units[type[current[k]]]--;
+        }
+        boolean[] inGroup = new boolean[instance.getNumberOfNodes()];
+        int size = 0;
+        for (int k : group) {
+            units[type[current[k]]]++;
+            size += length[current[k]];
+        }
+        int[] customers = new int[size];
+        int filled = 0;
+        double groupCost = 0.0;
+        for (int k : group) {
+            int c = current[k];
+            groupCost += co2[c];
+            for (int p = start[c]; p < start[c] + length[c]; p++) {
+                inGroup[nodes[p]] = true;
+                customers[filled++] = nodes[p];
+            }
+        }
+        int[][] local = new int[instance.getNumberOfNodes()][];
+        int[] buffer = new int[columns];
+        for (int node : customers) {
+            int kept = 0;
+            for (int c : columnsOf[node]) {
+                if (units[type[c]] > 0 && contained(c, inGroup)) {
+                    buffer[kept++] = c;
+                }
+            }
+            local[node] = Arrays.copyOf(buffer, kept);
+        }
+        Search search = new Search(customers, local, units, groupCost,
+                Math.min(SUBPROBLEM_NODE_LIMIT, nodeLimit - lastNodes), deadline);
+        search.run();
+        return search;
+    }
+
+    private boolean contained(int c, boolean[] inGroup) {
+        for (int p = start[c]; p < start[c] + length[c]; p++) {
+            if (!inGroup[nodes[p]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sustituye las rutas de un grupo por las columnas elegidas.
+     *
+     * @return Nuevo número de rutas
+     */
+    private static int replace(int[] current, int count, int[] group, int[] chosen, int chosenCount) {
+        boolean[] remove = new boolean[count];
+        for (int k : group) {
+            remove[k] = true;
+        }
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            if (!remove[k]) {
+                current[kept++] = current[k];
+            }
+        }
+        System.arraycopy(chosen, 0, current, kept, chosenCount);
+        return kept + chosenCount;
+    }
+
+    /**
+     * Construye la solución con las columnas elegidas, asignando a cada una la
+     * siguiente unidad libre de su tipo.
+     */
+    private CompactSolution build(int[] chosen, int count) {
+        int types = instance.getNumberOfTypes();
+        int[] nextUnit = new int[types];
+        Arrays.fill(nextUnit, -1);
+        for (int unit = instance.getNumberOfUnits() - 1; unit >= 0; unit--) {
+            nextUnit[instance.getUnitType(unit)] = unit;
+        }
+        CompactSolution solution = new CompactSolution(instance);
+        int[] order = Arrays.copyOf(chosen, count);
+        Arrays.sort(order);
+        for (int c : order) {
+            solution.startRoute(nextUnit[type[c]]++);
+            for (int p = start[c]; p < start[c] + length[c]; p++) {
+                solution.add(nodes[p]);
+            }
+        }
+        solution.evaluate();
+        return solution;
+    }
+
+    /**
+     * Ramificación y poda sobre un conjunto de clientes y sus columnas.
+     */
+    private final class Search {
+        final boolean[] covered = new boolean[instance.getNumberOfNodes()];
+        final int[] customers;
+        final int[][] columnsOf;
+        final double[] minRatio = new double[instance.getNumberOfNodes()];
+        final int[] order;
+        final int[] unitsLeft;
+        final int[] chosen = new int[instance.getNumberOfUnits()];
+        final long budget;
+        final long deadline;
+        double bestCost;
+        int[] best;
+        int bestCount;
+        long explored;
+        boolean stopped;
+
+        /**
+         * @param customers Clientes que hay que cubrir
+         * @param columnsOf Columnas candidatas de cada cliente, por CO2 por cliente
+         * @param unitsLeft Unidades disponibles de cada tipo (se modifica durante la búsqueda)
+         * @param incumbentCost CO2 que hay que mejorar
+         * @param budget Límite de nodos
+         * @param deadline Instante límite ({@link System#nanoTime()})
+         */
+        Search(int[] customers, int[][] columnsOf, int[] unitsLeft, double incumbentCost, long budget, long deadline) {
+            this.customers = customers;
+            this.columnsOf = columnsOf;
+            this.unitsLeft = unitsLeft;
+            this.bestCost = incumbentCost;
+            this.budget = budget;
+            this.deadline = deadline;
+            for (int node : customers) {
+                int[] list = columnsOf[node];
+                minRatio[node] = list.length == 0 ? Double.POSITIVE_INFINITY : co2[list[0]] / length[list[0]];
+            }
+
+            // Primero los clientes con menos columnas (más restringidos)
+            Integer[] sorted = new Integer[customers.length];
+            for (int k = 0; k < customers.length; k++) {
+                sorted[k] = customers[k];
+            }
+            Arrays.sort(sorted, (a, b) -> columnsOf[a].length != columnsOf[b].length
+                    ? Integer.compare(columnsOf[a].length, columnsOf[b].length) : Integer.compare(a, b));
+            order = new int[customers.length];
+            for (int k = 0; k < order.length; k++) {
+                order[k] = sorted[k];
+            }
+        }
+
+        void run() {
+            double bound = 0.0;
+            for (int node : customers) {
+                bound += minRatio[node];
+            }
+            if (Double.isInfinite(bound)) {
+                return; // Algún cliente no está en ninguna columna
+            }
+            branch(0, 0, 0.0, bound);
+        }
+
+        /**
+         * Explora las combinaciones que completan la parcial actual.
+         *
+         * @param next Posición en {@code order} desde la que buscar un cliente sin cubrir
+         * @param depth Número de columnas elegidas
+         * @param cost CO2 de las columnas elegidas
+         * @param bound Cota inferior del CO2 de los clientes sin cubrir
+         */
+        void branch(int next, int depth, double cost, double bound) {
+            while (next < order.length && covered[order[next]]) {
+                next++;
+            }
+            if (next == order.length) {
+                if (cost < bestCost - EPSILON) {
+                    bestCost = cost;
+                    best = Arrays.copyOf(chosen, depth);
+                    bestCount = depth;
+                }
+                return;
+            }
+            if (depth == chosen.length) {
+                return;
+            }
+            int customer = order[next];
+            for (int c : columnsOf[customer]) {
+                if (stopped) {
+                    return;
+                }
+                if (++explored >= budget || ((explored & 1023) == 0 && System.nanoTime() > deadline)) {
+                    stopped = true;
+                    return;
+                }
+                if (unitsLeft[type[c]] == 0 || conflicts(c)) {
+                    continue;
+                }
+                double covers = 0.0;
+                for (int p = start[c]; p < start[c] + length[c]; p++) {
+                    covers += minRatio[nodes[p]];
+                }
+                double remaining = Math.max(0.0, bound - covers);
+                if (cost + co2[c] + remaining >= bestCost - EPSILON) {
+                    continue;
+                }
+                setCovered(c, true);
+                unitsLeft[type[c]]--;
+                chosen[depth] = c;
+                branch(next + 1, depth + 1, cost + co2[c], remaining);
+                unitsLeft[type[c]]++;
+                setCovered(c, false);
+            }
+        }
+
+        boolean conflicts(int c) {
+            for (int p = start[c]; p < start[c] + length[c]; p++) {
+                if (covered[nodes[p]]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void setCovered(int c, boolean value) {
+            for (int p = start[c]; p < start[c] + length[c]; p++) {
+                covered[nodes[p]] = value;
+            }
+        }
+    }
+
+    /**
+     * Identidad de una columna: conjunto de clientes (dos hashes) y tipo de vehículo.
+     */
+    private static final class Key {
+        final long h1;
+        final long h2;
+        final int type;
+
+        Key(long h1, long h2, int type) {
+            this.h1 = h1;
+            this.h2 = h2;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return h1 == other.h1 && h2 == other.h2 && type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(h1 * 31 + h2) * 31 + type;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RoutePool{" +
+                "columnas=" + columns +
+                ", descartadas=" + dropped +
+                ", nodosUltimaRecombinacion=" + lastNodes +
+                ", completa=" + lastComplete +
+                '}';
+    }
+}
@@ -0,0 +1,624 @@
+package tfg;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Constructivo de ahorros (Clarke–Wright) adaptado a flota heterogénea y a
+ * emisiones dependientes de la carga.
+ *
+ * Parte de una ruta por cliente y va uniendo rutas por sus extremos. El ahorro
+ * de unir dos rutas es la diferencia de CO2 entre tenerlas separadas y unidas,
+ * tomando en cada ruta el sentido y el tipo de vehículo más baratos. Solo se
+ * consideran pares de clientes vecinos (listas de los k más cercanos), así que
+ * hay O(n·k) ahorros en lugar de O(n²); se procesan con un montículo de máximos
+ * sobre arrays primitivos. Como el ahorro real cambia al crecer las rutas, al
+ * extraer un par se recalcula y, si ya no es el mayor, se reinserta con su valor
+ * actual.
+ *
+ * Cada ruta se resume en O(1) por sus extremos, carga total {@code Q}, distancia
+ * interna {@code D} y suma carga × distancia {@code W} (recorrida desde el primer
+ * extremo); la ruta invertida tiene {@code W' = Q·D − W}. Las rutas se identifican
+ * con union-find, la capacidad se comprueba en O(1) y los nodos se enlazan con dos
+ * huecos de adyacencia por nodo, sin copiar rutas.
+ *
+ * Para no agotar los vehículos grandes, cada ruta tiene una clase según los
+ * tipos en los que cabe (ordenados por capacidad) y solo se aceptan uniones que
+ * mantienen, para cada capacidad, no más rutas que la necesitan que unidades
+ * que la tienen. Con eso, al final basta asignar a cada ruta, de mayor a menor
+ * carga, el tipo más barato con unidades libres. Si hay más rutas que unidades
+ * se unen las rutas de menor carga aunque empeore el CO2.
+ *
+ * Con un generador aleatorio los ahorros iniciales se perturban (ver
+ * {@link #setNoise(double)}) para usarlo en un multiarranque.
+ */
+public class SavingsConstructive {
+    private static final double CAPACITY_TOLERANCE = 1e-9;
+    private static final double DEFAULT_NOISE = 0.2;
+
+    private final CompiledInstance instance;
+    private final NeighborLists neighbors;
+    private final RandomGenerator random;
+    private double noise;
+
+    // Instancia
+    private DistanceMatrix distances;
+    private int depot;
+    private int numTypes;
+    private double maxLoad;
+
+    // Clases de capacidad: tipos con unidades por capacidad decreciente
+    private double[] classLoad;
+    private int[] classUnits;
+    private int[] classRoutes;
+
+    // Rutas (datos válidos en la raíz de union-find)
+    private int[] parent;
+    private int[] first;
+    private int[] last;
+    private double[] load;
+    private double[] length;
+    private double[] weighted;
+    private double[] cost;
+    private int[] adjacency;
+
+    // Montículo de ahorros
+    private double[] heapKey;
+    private int[] heapFrom;
+    private int[] heapTo;
+    private int heapSize;
+
+    /**
+     * Constructor determinista con las listas de candidatos de la instancia.
+     *
+     * @param instance Instancia compilada
+     */
+    public SavingsConstructive(CompiledInstance instance) {
+        this(instance, instance.getNeighborLists(), null);
+    }
+
+    /**
+     * Constructor con ahorros perturbados aleatoriamente.
+     *
+     * @param instance Instancia compilada
+     * @param random Generador de números aleatorios
+     */
+    public SavingsConstructive(CompiledInstance instance, RandomGenerator random) {
+        this(instance, instance.getNeighborLists(), random);
+    }
+
+    /**
+     * Constructor completo.
+     *
+     * @param instance Instancia compilada
+     * @param neighbors Listas de candidatos que generan los ahorros
+     * @param random Generador de números aleatorios, o {@code null} para una construcción determinista
+     */
+    public SavingsConstructive(CompiledInstance instance, NeighborLists neighbors, RandomGenerator random) {
+        this.instance = instance;
+        this.neighbors = neighbors;
+        this.random = random;
+        this.noise = random == null ? 0.0 : DEFAULT_NOISE;
+    }
+
+    /**
+     * Establece la perturbación de los ahorros: cada ahorro inicial se multiplica
+     * por un factor uniforme en {@code [1 - noise, 1 + noise]}.
+     * Solo tiene efecto si se indicó un generador aleatorio.
+     *
+     * @param noise Amplitud relativa de la perturbación
+     */
+    public void setNoise(double noise) {
+        this.noise = Math.max(0.0, noise);
+    }
+
+    /**
+     * Ejecuta el algoritmo y devuelve la solución evaluada.
+     *
+     * @return Solución construida
+     * @throws InfeasibleSolutionException Si la flota no tiene capacidad para todos los clientes
+     */
+    public Solution run() {
+        return runCompact().toSolution();
+    }
+
+    /**
+     * Ejecuta el algoritmo y devuelve la solución en forma compacta.
+     *
+     * @return Solución construida y evaluada
+     * @throws InfeasibleSolutionException Si la flota no tiene capacidad para todos los clientes
+     */
+    public CompactSolution runCompact() {
+        return runCompact(true);
+    }
+
+    /**
+     * Ejecuta el algoritmo y devuelve la solución en forma compacta, evaluada o no.
+     *
+     * @param evaluate Si se calculan su distancia y CO2; {@code false} cuando se
+     *                 van a evaluar después en lote (ver {@link Multistart})
+     * @return Solución construida
+     * @throws InfeasibleSolutionException Si la flota no tiene capacidad para todos los clientes
+     */
+    public CompactSolution runCompact(boolean evaluate) {
+        initialize();
+        buildSavings();
+        mergeBySavings();
+
+        int[] roots = routeRoots();
+        roots = reduceRoutes(roots);
+        return buildSolution(roots, evaluate);
+    }
+
+    // ------------------------------------------------------------ Inicialización
+
+    private void initialize() {
+        int n = instance.getNumberOfNodes();
+        distances = instance.getDistances();
+        depot = instance.getDepot();
+        numTypes = instance.getNumberOfTypes();
+        maxLoad = 0.0;
+        for (int t = 0; t < numTypes; t++) {
+            if (instance.getTypeUnits(t) > 0) {
+                maxLoad = Math.max(maxLoad, instance.getTypeLoad(t));
+            }
+        }
+
+        initializeClasses();
+
+        parent = new int[n];
+        first = new int[n];
+        last = new int[n];
+        load = new double[n];
+        length = new double[n];
+        weighted = new double[n];
+        cost = new double[n];
+        adjacency = new int[2 * n];
+        Arrays.fill(adjacency, -1);
+
+        for (int c : instance.getCustomers()) {
+            double q = instance.getProd(c);
+            if (q > maxLoad + CAPACITY_TOLERANCE) {
+                throw new InfeasibleSolutionException("Capacidad insuficiente: no se puede asignar el nodo " + instance.getNodeName(c));
+            }
+            parent[c] = c;
+            first[c] = c;
+            last[c] = c;
+            load[c] = q;
+            cost[c] = routeCost(c, c, q, 0.0, 0.0);
+            classRoutes[classOf(q)]++;
+        }
+    }
+
+    /**
+     * Agrupa las unidades por capacidad decreciente: la clase k reúne las
+     * unidades de los k+1 tipos de mayor capacidad (acumuladas).
+     */
+    private void initializeClasses() {
+        int count = 0;
+        double[] loads = new double[numTypes];
+        for (int t = 0; t < numTypes; t++) {
+            if (instance.getTypeUnits(t) > 0) {
+                loads[count++] = instance.getTypeLoad(t);
+            }
+        }
+        loads = Arrays.copyOf(loads, count);
+        Arrays.sort(loads);
+        // Capacidades distintas en orden decreciente
+        double[] distinct = new double[count];
+        int classes = 0;
+        for (int k = count - 1; k >= 0; k--) {
+            if (classes == 0 || distinct[classes - 1] != loads[k]) {
+                distinct[classes++] = loads[k];
+            }
+        }
+        classLoad = Arrays.copyOf(distinct, Math.max(1, classes));
+        classUnits = new int[classLoad.length];
+        classRoutes = new int[classLoad.length];
+        for (int t = 0; t < numTypes; t++) {
+            if (instance.getTypeUnits(t) > 0) {
+                for (int k = 0; k < classes; k++) {
+                    if (instance.getTypeLoad(t) >= classLoad[k]) {
+                        classUnits[k] += instance.getTypeUnits(t);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Clase de una ruta: la de la menor capacidad en la que cabe (las rutas de
+     * clase k solo pueden usar unidades de las clases 0..k).
+     */
+    private int classOf(double q) {
+        int k = classLoad.length - 1;
+        while (k > 0 && q > classLoad[k] + CAPACITY_TOLERANCE) {
+            k--;
+        }
+        return k;
+    }
+
+    /**
+     * Comprueba que unir dos rutas no deja más rutas que unidades en ninguna de
+     * las clases con capacidad limitada (la última clase, el total de rutas, se
+     * resuelve al final con {@link #reduceRoutes(int[])}).
+     */
+    private boolean fleetAllows(int a, int b) {
+        int merged = classOf(load[a] + load[b]);
+        int lowest = Math.min(classOf(load[a]), classOf(load[b]));
+        int routes = 0;
+        for (int k = 0; k < lowest && k < classLoad.length - 1; k++) {
+            routes += classRoutes[k];
+            if (k >= merged && routes + 1 > classUnits[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ahorro inicial de cada par de clientes vecinos (cada par una sola vez).
+     */
+    private void buildSavings() {
+        int k = neighbors.size();
+        int[] customers = instance.getCustomers();
+        int capacity = Math.max(1, customers.length * k);
+        heapKey = new double[capacity];
+        heapFrom = new int[capacity];
+        heapTo = new int[capacity];
+        heapSize = 0;
+
+        for (int i : customers) {
+            for (int rank = 0; rank < k; rank++) {
+                int j = neighbors.get(i, rank);
+                // El par (i, j) se añade desde i si i < j, o si i no está en la lista de j
+                if (j < i && contains(j, i)) {
+                    continue;
+                }
+                if (load[i] + load[j] > maxLoad + CAPACITY_TOLERANCE) {
+                    continue;
+                }
+                double saving = mergeSaving(i, j);
+                if (saving <= 0.0) {
+                    continue;
+                }
+                if (random != null && noise > 0.0) {
+                    saving *= 1.0 + noise * (2.0 * random.nextDouble() - 1.0);
+                }
+                push(saving, i, j);
+            }
+        }
+    }
+
+    private boolean contains(int node, int candidate) {
+        for (int rank = 0; rank < neighbors.size(); rank++) {
+            if (neighbors.get(node, rank) == candidate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // -------------------------------------------------------------------- Uniones
+
+    /**
+     * Procesa los ahorros de mayor a menor, recalculándolos al extraerlos.
+     */
+    private void mergeBySavings() {
+        while (heapSize > 0) {
+            int i = heapFrom[0];
+            int j = heapTo[0];
+            pop();
+
+            int a = find(i);
+            int b = find(j);
+            if (a == b || !isEnd(a, i) || !isEnd(b, j) || load[a] + load[b] > maxLoad + CAPACITY_TOLERANCE
+                    || !fleetAllows(a, b)) {
+                continue;
+            }
+            double saving = mergeSaving(i, j);
+            if (saving <= 0.0) {
+                continue;
+            }
+            if (heapSize > 0 && saving < heapKey[0]) {
+                // El ahorro ha bajado: se reinserta con su valor actual
+                push(saving, i, j);
+                continue;
+            }
+            merge(i, j);
+        }
+    }
+
+    /**
+     * Ahorro de CO2 de unir la ruta de i y la de j dejando i y j consecutivos.
+     */
+    private double mergeSaving(int i, int j) {
+        int a = find(i);
+        int b = find(j);
+        boolean reverseA = first[a] == i && last[a] != i;
+        boolean reverseB = last[b] == j && first[b] != j;
+        double wa = reverseA ? load[a] * length[a] - weighted[a] : weighted[a];
+        double wb = reverseB ? load[b] * length[b] - weighted[b] : weighted[b];
+        int start = reverseA ? last[a] : first[a];
+        int end = reverseB ? first[b] : last[b];
+        double link = distances.get(i, j);
+        double q = load[a] + load[b];
+        double d = length[a] + link + length[b];
+        double w = wa + load[a] * link + wb + load[a] * length[b];
+        return cost[a] + cost[b] - routeCost(start, end, q, d, w);
+    }
+
+    /**
+     * Une la ruta de i (que acaba en i) con la de j (que empieza en j).
+     */
+    private void merge(int i, int j) {
+        int a = find(i);
+        int b = find(j);
+        if (first[a] == i && last[a] != i) {
+            reverse(a);
+        }
+        if (last[b] == j && first[b] != j) {
+            reverse(b);
+        }
+        double link = distances.get(i, j);
+        double q = load[a] + load[b];
+        double d = length[a] + link + length[b];
+        double w = weighted[a] + load[a] * link + weighted[b] + load[a] * length[b];
+        int start = first[a];
+        int end = last[b];
+
+        classRoutes[classOf(load[a])]--;
+        classRoutes[classOf(load[b])]--;
+        classRoutes[classOf(q)]++;
+
+        link(i, j);
+        link(j, i);
+        int root = union(a, b);
+        first[root] = start;
+        last[root] = end;
+        load[root] = q;
+        length[root] = d;
+        weighted[root] = w;
+        cost[root] = routeCost(start, end, q, d, w);
+    }
+
+    private void reverse(int root) {
+        int tmp = first[root];
+        first[root] = last[root];
+        last[root] = tmp;
+        weighted[root] = load[root] * length[root] - weighted[root];
+    }
+
+    private boolean isEnd(int root, int node) {
+        return first[root] == node || last[root] == node;
+    }
+
+    private void link(int node, int next) {
+        adjacency[2 * node + (adjacency[2 * node] < 0 ? 0 : 1)] = next;
+    }
+
+    /**
+     * CO2 mínimo de una ruta (sentido y tipo con unidades más baratos).
+     *
+     * @return CO2, o infinito si ningún tipo tiene capacidad
+     */
+    private double routeCost(int start, int end, double q, double d, double w) {
+        double toStart = distances.get(depot, start);
+        double toEnd = distances.get(end, depot);
+        double total = toStart + d + toEnd;
+        double forward = w + q * toEnd;
+        double backward = q * d - w + q * toStart;
+        double weightedLoad = Math.min(forward, backward);
+        double best = Double.POSITIVE_INFINITY;
+        for (int t = 0; t < numTypes; t++) {
+            if (instance.getTypeUnits(t) > 0 && q <= instance.getTypeLoad(t) + CAPACITY_TOLERANCE) {
+                best = Math.min(best, instance.getTypeEo(t) * total + instance.getTypeSlope(t) * weightedLoad);
+            }
+        }
+        return best;
+    }
+
+    // --------------------------------------------------------------- Union-find
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private int union(int a, int b) {
+        // La raíz es la de la ruta con más carga: árbol más alto, aproximadamente
+        if (load[a] < load[b]) {
+            parent[a] = b;
+            return b;
+        }
+        parent[b] = a;
+        return a;
+    }
+
+    // ------------------------------------------------------------------ Flota
+
+    private int[] routeRoots() {
+        int[] customers = instance.getCustomers();
+        int count = 0;
+        int[] roots = new int[customers.length];
+        for (int c : customers) {
+            if (find(c) == c) {
+                roots[count++] = c;
+            }
+        }
+        return Arrays.copyOf(roots, count);
+    }
+
+    /**
+     * Si hay más rutas que unidades, une la ruta de menor carga con la que menos
+     * CO2 añade hasta que haya unidades para todas.
+     */
+    private int[] reduceRoutes(int[] roots) {
+        int count = roots.length;
+        int units = instance.getNumberOfUnits();
+        while (count > units) {
+            int smallest = 0;
+            for (int r = 1; r < count; r++) {
+                if (load[roots[r]] < load[roots[smallest]]) {
+                    smallest = r;
+                }
+            }
+            int a = roots[smallest];
+            int bestIndex = -1;
+            int bestI = -1;
+            int bestJ = -1;
+            double bestSaving = Double.NEGATIVE_INFINITY;
+            for (int r = 0; r < count; r++) {
+                int b = roots[r];
+                if (b == a || load[a] + load[b] > maxLoad + CAPACITY_TOLERANCE || !fleetAllows(a, b)) {
+                    continue;
+                }
+                for (int i : new int[]{first[a], last[a]}) {
+                    for (int j : new int[]{first[b], last[b]}) {
+                        double saving = mergeSaving(i, j);
+                        if (saving > bestSaving) {
+                            bestSaving = saving;
+                            bestIndex = r;
+                            bestI = i;
+                            bestJ = j;
+                        }
+                    }
+                }
+            }
+            if (bestIndex < 0) {
+                throw new InfeasibleSolutionException("Capacidad insuficiente: hay más rutas que unidades de vehículo");
+            }
+            merge(bestI, bestJ);
+            int root = find(a);
+            // Quitar las dos rutas unidas y añadir la nueva
+            int high = Math.max(smallest, bestIndex);
+            int low = Math.min(smallest, bestIndex);
+            roots[high] = roots[--count];
+            roots[low] = root;
+        }
+        return Arrays.copyOf(roots, count);
+    }
+
+    /**
+     * Asigna unidades (de mayor a menor carga de ruta, el tipo libre más barato)
+     * y vuelca las rutas en el sentido más barato para su tipo.
+     */
+    private CompactSolution buildSolution(int[] roots, boolean evaluate) {
+        // Unidades libres de cada tipo (las de un tipo son consecutivas)
+        int[] nextUnit = new int[numTypes];
+        int[] endUnit = new int[numTypes];
+        Arrays.fill(nextUnit, -1);
+        for (int u = 0; u < instance.getNumberOfUnits(); u++) {
+            int t = instance.getUnitType(u);
+            if (nextUnit[t] < 0) {
+                nextUnit[t] = u;
+            }
+            endUnit[t] = u + 1;
+        }
+
+        Integer[] order = new Integer[roots.length];
+        for (int r = 0; r < roots.length; r++) {
+            order[r] = roots[r];
+        }
+        Arrays.sort(order, (p, q) -> Double.compare(load[q], load[p]));
+
+        CompactSolution solution = new CompactSolution(instance);
+        for (int root : order) {
+            int type = -1;
+            double best = Double.POSITIVE_INFINITY;
+            boolean backward = false;
+            double toStart = distances.get(depot, first[root]);
+            double toEnd = distances.get(last[root], depot);
+            double total = toStart + length[root] + toEnd;
+            double forwardW = weighted[root] + load[root] * toEnd;
+            double backwardW = load[root] * length[root] - weighted[root] + load[root] * toStart;
+            for (int t = 0; t < numTypes; t++) {
+                if (nextUnit[t] < 0 || nextUnit[t] >= endUnit[t] || load[root] > instance.getTypeLoad(t) + CAPACITY_TOLERANCE) {
+                    continue;
+                }
+                double forward = instance.getTypeEo(t) * total + instance.getTypeSlope(t) * forwardW;
+                double reverse = instance.getTypeEo(t) * total + instance.getTypeSlope(t) * backwardW;
+                if (Math.min(forward, reverse) < best) {
+                    best = Math.min(forward, reverse);
+                    type = t;
+                    backward = reverse < forward;
+                }
+            }
+            if (type < 0) {
+                throw new InfeasibleSolutionException("Capacidad insuficiente: no quedan unidades para una ruta de carga " + load[root]);
+            }
+
+            solution.startRoute(nextUnit[type]++);
+            int previous = -1;
+            int node = backward ? last[root] : first[root];
+            while (node >= 0) {
+                solution.add(node);
+                int next = adjacency[2 * node] == previous ? adjacency[2 * node + 1] : adjacency[2 * node];
+                previous = node;
+                node = next;
+            }
+        }
+        if (evaluate) {
+            solution.evaluate();
+        }
+        return solution;
+    }
+
+    // ----------------------------------------------------------------- Montículo
+
+    private void push(double key, int from, int to) {
+        if (heapSize == heapKey.length) {
+            int capacity = heapSize * 2;
+            heapKey = Arrays.copyOf(heapKey, capacity);
+            heapFrom = Arrays.copyOf(heapFrom, capacity);
+            heapTo = Arrays.copyOf(heapTo, capacity);
+        }
+        int pos = heapSize++;
+        while (pos > 0) {
+            int up = (pos - 1) >>> 1;
+            if (heapKey[up] >= key) {
+                break;
+            }
+            heapKey[pos] = heapKey[up];
+            heapFrom[pos] = heapFrom[up];
+            heapTo[pos] = heapTo[up];
+            pos = up;
+        }
+        heapKey[pos] = key;
+        heapFrom[pos] = from;
+        heapTo[pos] = to;
+    }
+
+    private void pop() {
+        heapSize--;
+        if (heapSize == 0) {
+            return;
+        }
+        double key = heapKey[heapSize];
+        int from = heapFrom[heapSize];
+        int to = heapTo[heapSize];
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKey[child + 1] > heapKey[child]) {
+                child++;
+            }
+            if (heapKey[child] <= key) {
+                break;
+            }
+            heapKey[pos] = heapKey[child];
+            heapFrom[pos] = heapFrom[child];
+            heapTo[pos] = heapTo[child];
+            pos = child;
+        }
+        heapKey[pos] = key;
+        heapFrom[pos] = from;
+        heapTo[pos] = to;
+    }
+}
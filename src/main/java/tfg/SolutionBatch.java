@@ -0,0 +1,241 @@
+package tfg;
+
+/**
+ * Población de soluciones en disposición "structure of arrays" para evaluarlas
+ * en bloque con {@link BatchEvaluator}.
+ *
+ * Cada solución se codifica como la secuencia de pasos que recorre, con el
+ * depósito entre rutas: {@code depósito, clientes de la ruta 0, depósito,
+ * clientes de la ruta 1, ..., depósito} (las rutas vacías se omiten). Por cada
+ * paso se guardan, en arrays separados, las coordenadas y la producción del
+ * nodo; en los depósitos la producción es {@code NaN}, que sirve de marca, y
+ * se guardan además los parámetros de emisiones ({@code Eo} y pendiente) del
+ * vehículo de la ruta que empieza en ellos. Las soluciones se agrupan en
+ * bloques de {@link #BLOCK}: dentro de un bloque, el paso {@code k} de sus
+ * soluciones ocupa {@link #BLOCK} posiciones contiguas (ver
+ * {@link #index(int, int)}), de modo que cada carril de un vector recorre una
+ * solución y la evaluación solo hace lecturas consecutivas. Los pasos que
+ * sobran tras el final de cada solución son depósitos, que no suman nada, así
+ * que todas las soluciones de un bloque avanzan a la vez.
+ *
+ * Los arrays se dimensionan una vez con la capacidad; {@link #clear()} permite
+ * reutilizar el lote entre generaciones sin crear objetos.
+ */
+public final class SolutionBatch {
+    /** Soluciones por bloque (carriles de {@code double} de un vector de 512 bits). */
+    static final int BLOCK = 8;
+
+    private final CompiledInstance instance;
+    private final int capacity;
+    private final int columns;
+    private final int maxSteps;
+    final double[] x;
+    final double[] y;
+    final double[] load;
+    final double[] eo;
+    final double[] slope;
+    final int[] steps;
+    final double[] distance;
+    final double[] co2;
+    private int size;
+
+    /**
+     * Crea un lote vacío.
+     *
+     * @param instance Instancia compilada
+     * @param capacity Número máximo de soluciones
+     */
+    public SolutionBatch(CompiledInstance instance, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("La capacidad del lote debe ser positiva: " + capacity);
+        }
+        this.instance = instance;
+        this.capacity = capacity;
+        this.columns = (capacity + BLOCK - 1) / BLOCK * BLOCK;
+        this.maxSteps = instance.getNumberOfCustomers() + instance.getNumberOfUnits() + 1;
+        long cells = (long) columns * maxSteps;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("El lote es demasiado grande para la instancia: " + capacity
+                    + " soluciones de " + maxSteps + " pasos");
+        }
+        this.x = new double[(int) cells];
+        this.y = new double[(int) cells];
+        this.load = new double[(int) cells];
+        this.eo = new double[(int) cells];
+        this.slope = new double[(int) cells];
+        this.steps = new int[columns];
+        this.distance = new double[columns];
+        this.co2 = new double[columns];
+        for (int s = 0; s < columns; s++) {
+            for (int k = 0; k < maxSteps; k++) {
+                depot(index(s, k));
+            }
+        }
+    }
+
+    /**
+     * Añade una solución al lote.
+     *
+     * @param solution Solución (no hace falta que esté evaluada)
+     * @return Índice de la solución en el lote
+     * @throws IllegalStateException Si el lote está lleno
+     */
+    public int add(CompactSolution solution) {
+        if (size == capacity) {
+            throw new IllegalStateException("El lote está lleno (" + capacity + " soluciones)");
+        }
+        int s = size++;
+        int k = 1; // El paso 0 es el depósito de salida
+        for (int r = 0; r < solution.getNumberOfRoutes(); r++) {
+            int start = solution.getRouteStart(r);
+            int end = start + solution.getRouteSize(r);
+            if (start == end) {
+                continue;
+            }
+            int type = solution.getRouteType(r);
+            int i = index(s, k - 1);
+            eo[i] = instance.getTypeEo(type);
+            slope[i] = instance.getTypeSlope(type);
+            for (int p = start; p < end; p++) {
+                int node = solution.getNode(p);
+                i = index(s, k++);
+                x[i] = instance.getX(node);
+                y[i] = instance.getY(node);
+                load[i] = instance.getProd(node);
+            }
+            depot(index(s, k++));
+        }
+        // Borra lo que quedara de una solución anterior más larga en esta columna
+        for (int q = k; q < steps[s]; q++) {
+            depot(index(s, q));
+        }
+        steps[s] = k;
+        distance[s] = 0.0;
+        co2[s] = 0.0;
+        return s;
+    }
+
+    /**
+     * Escribe un paso por el depósito.
+     */
+    private void depot(int i) {
+        int depot = instance.getDepot();
+        x[i] = instance.getX(depot);
+        y[i] = instance.getY(depot);
+        load[i] = Double.NaN;
+        eo[i] = 0.0;
+        slope[i] = 0.0;
+    }
+
+    /**
+     * Vacía el lote para reutilizarlo.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Posición en los arrays del paso {@code k} de la solución {@code s}.
+     *
+     * @param s Índice de la solución
+     * @param k Paso
+     * @return Índice en los arrays
+     */
+    int index(int s, int k) {
+        return (s / BLOCK) * BLOCK * maxSteps + k * BLOCK + s % BLOCK;
+    }
+
+    /**
+     * Copia los resultados de la evaluación en una solución.
+     *
+     * @param index Índice en el lote
+     * @param solution Solución añadida en ese índice
+     */
+    public void store(int index, CompactSolution solution) {
+        checkIndex(index);
+        solution.setTotalDistance(distance[index]);
+        solution.setTotalCO2(co2[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice fuera del lote: " + index);
+        }
+    }
+
+    /**
+     * Obtiene la instancia del lote.
+     *
+     * @return Instancia compilada
+     */
+    public CompiledInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Obtiene el número de soluciones del lote.
+     *
+     * @return Soluciones añadidas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtiene la capacidad del lote.
+     *
+     * @return Número máximo de soluciones
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Obtiene el número de columnas de los arrays.
+     *
+     * @return Capacidad redondeada a un múltiplo de {@link #BLOCK}
+     */
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Obtiene el máximo de pasos de una solución de la instancia.
+     *
+     * @return Clientes + unidades + 1
+     */
+    int getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Obtiene la distancia de una solución tras {@link BatchEvaluator#evaluate(SolutionBatch)}.
+     *
+     * @param index Índice en el lote
+     * @return Distancia total
+     */
+    public double getDistance(int index) {
+        checkIndex(index);
+        return distance[index];
+    }
+
+    /**
+     * Obtiene el CO2 de una solución tras {@link BatchEvaluator#evaluate(SolutionBatch)}.
+     *
+     * @param index Índice en el lote
+     * @return Emisiones totales
+     */
+    public double getCO2(int index) {
+        checkIndex(index);
+        return co2[index];
+    }
+
+    @Override
+    public String toString() {
+        return "SolutionBatch{" +
+                "soluciones=" + size +
+                ", capacidad=" + capacity +
+                ", pasos=" + maxSteps +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+package tfg;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codificación binaria compacta de una {@link CompactSolution} para enviarla
+ * entre procesos (ver {@link Island}).
+ *
+ * Formato (big-endian, el de {@link DataOutput}): magic {@code "TFGS"},
+ * versión, número de nodos y de unidades y huella de la instancia
+ * ({@link CompiledInstance#getFingerprint()}, para detectar que emisor y
+ * receptor no cargaron la misma aunque coincidan los tamaños), CO2, distancia,
+ * número de rutas y, por ruta, la unidad, el número de clientes y sus índices. Los índices se
+ * escriben como {@code short} si la instancia tiene menos de 65536 nodos y como
+ * {@code int} en otro caso. Una solución de 1000 clientes ocupa unos 2 KB.
+ *
+ * Al leer se comprueba además que la solución es factible (cobertura y
+ * capacidad, con {@link CompactSolution#validate()}) antes de devolverla.
+ */
+public final class SolutionCodec {
+    private static final int MAGIC = 0x54464753; // "TFGS"
+    private static final int VERSION = 2;
+
+    private SolutionCodec() {
+    }
+
+    /**
+     * Escribe una solución.
+     *
+     * @param out Destino
+     * @param solution Solución evaluada
+     * @throws IOException Si hay un error al escribir
+     */
+    public static void write(DataOutput out, CompactSolution solution) throws IOException {
+        CompiledInstance instance = solution.getInstance();
+        boolean wide = instance.getNumberOfNodes() > 0xFFFF;
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(instance.getNumberOfNodes());
+        out.writeInt(instance.getNumberOfUnits());
+        out.writeLong(instance.getFingerprint());
+        out.writeDouble(solution.getTotalCO2());
+        out.writeDouble(solution.getTotalDistance());
+        out.writeInt(solution.getNumberOfRoutes());
+        for (int r = 0; r < solution.getNumberOfRoutes(); r++) {
+            int start = solution.getRouteStart(r);
+            int size = solution.getRouteSize(r);
+            out.writeInt(solution.getRouteUnit(r));
+            out.writeInt(size);
+            for (int p = start; p < start + size; p++) {
+                if (wide) {
+                    out.writeInt(solution.getNode(p));
+                } else {
+                    out.writeShort(solution.getNode(p));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee una solución, comprueba que es factible y la vuelve a evaluar con la instancia local.
+     *
+     * @param in Origen
+     * @param instance Instancia compilada del receptor
+     * @return Solución leída
+     * @throws IOException Si hay un error al leer
+     * @throws IllegalArgumentException Si los datos no son una solución factible de la instancia
+     */
+    public static CompactSolution read(DataInput in, CompiledInstance instance) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Los datos recibidos no son una solución");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versión de solución no soportada: " + version);
+        }
+        int nodes = in.readInt();
+        int units = in.readInt();
+        long fingerprint = in.readLong();
+        if (nodes != instance.getNumberOfNodes() || units != instance.getNumberOfUnits()
+                || fingerprint != instance.getFingerprint()) {
+            throw new IllegalArgumentException("La solución es de otra instancia (" + nodes + " nodos, "
+                    + units + " unidades, huella " + Long.toHexString(fingerprint) + ")");
+        }
+        boolean wide = nodes > 0xFFFF;
+        in.readDouble(); // CO2 del emisor: se recalcula
+        in.readDouble();
+        int routes = in.readInt();
+        if (routes < 0 || routes > units) {
+            throw new IllegalArgumentException("Número de rutas no válido: " + routes);
+        }
+        CompactSolution solution = new CompactSolution(instance);
+        boolean[] seen = new boolean[nodes];
+        boolean[] usedUnit = new boolean[units];
+        int total = 0;
+        for (int r = 0; r < routes; r++) {
+            int unit = in.readInt();
+            int size = in.readInt();
+            if (unit < 0 || unit >= units || usedUnit[unit]) {
+                throw new IllegalArgumentException("Unidad no válida en la solución: " + unit);
+            }
+            if (size < 0 || total + size > instance.getNumberOfCustomers()) {
+                throw new IllegalArgumentException("Tamaño de ruta no válido: " + size);
+            }
+            usedUnit[unit] = true;
+            total += size;
+            solution.startRoute(unit);
+            for (int p = 0; p < size; p++) {
+                int node = wide ? in.readInt() : in.readUnsignedShort();
+                if (node < 0 || node >= nodes || node == instance.getDepot() || seen[node]) {
+                    throw new IllegalArgumentException("Nodo no válido en la solución: " + node);
+                }
+                seen[node] = true;
+                solution.add(node);
+            }
+        }
+        solution.validate();
+        solution.evaluate();
+        return solution;
+    }
+}
@@ -0,0 +1,378 @@
+package tfg;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Métricas del solver, globales a la JVM.
+ *
+ * Los contadores son {@link LongAdder} (repartidos por celdas), de modo que los
+ * hilos de un multiarranque no compiten por la misma línea de caché. En los
+ * bucles internos no se toca ningún contador: las búsquedas y constructivos
+ * acumulan en variables locales y suman una vez por llamada.
+ *
+ * Se publican de dos formas:
+ * <ul>
+ *   <li>JMX: MXBean {@code tfg:type=SolverMetrics} (p.ej. con JConsole o
+ *       VisualVM), registrado al primer uso.</li>
+ *   <li>JFR: eventos {@code tfg.Phase} (duración de cada fase: construcción,
+ *       evaluación en lote, búsqueda local, perturbación) y
+ *       {@code tfg.SolverCounters} (los contadores, cada segundo). Solo cuestan algo si hay una grabación
+ *       activa, p.ej. {@code -XX:StartFlightRecording}.</li>
+ * </ul>
+ *
+ * Se desactiva con {@code -Dtfg.metrics=false}.
+ */
+public final class SolverMetrics implements SolverMetricsMXBean {
+    /** Operadores de búsqueda local con contadores propios. */
+    public enum Move {
+        TWO_OPT, RELOCATE, SWAP, TWO_OPT_STAR, CROSS_EXCHANGE
+    }
+
+    private static final int HISTOGRAM_BUCKETS = 40;
+    private static final SolverMetrics INSTANCE = new SolverMetrics();
+    private static final boolean ENABLED =
+            !"false".equalsIgnoreCase(System.getProperty("tfg.metrics", "true"));
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(INSTANCE, new ObjectName("tfg:type=SolverMetrics"));
+            } catch (JMException | SecurityException e) {
+                System.err.println("No se pudieron registrar las métricas JMX: " + e.getMessage());
+            }
+            FlightRecorder.addPeriodicEvent(CountersEvent.class, INSTANCE::emitCounters);
+        }
+    }
+
+    private final LongAdder evaluateCalls = new LongAdder();
+    private final LongAdder evaluateNanos = new LongAdder();
+    private final LongAdder[] evaluateHistogram = adders(HISTOGRAM_BUCKETS);
+    private final LongAdder[] movesEvaluated = adders(Move.values().length);
+    private final LongAdder[] movesApplied = adders(Move.values().length);
+    private final LongAdder constructiveAttempts = new LongAdder();
+    private final LongAdder capacityRejections = new LongAdder();
+    private final LongAdder constructiveFailures = new LongAdder();
+    private final LongAdder solutions = new LongAdder();
+    // Por hilo de trabajo: soluciones y nanosegundos dedicados a producirlas
+    private final Map<String, LongAdder[]> solutionsByThread = new ConcurrentHashMap<>();
+    private volatile long resetTime = System.nanoTime();
+
+    private SolverMetrics() {
+    }
+
+    /**
+     * Obtiene las métricas de la JVM.
+     *
+     * @return Métricas globales
+     */
+    public static SolverMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Indica si las métricas están activas.
+     *
+     * @return {@code false} si se desactivaron con {@code -Dtfg.metrics=false}
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // ------------------------------------------------------------- Registro
+
+    /**
+     * Instante de inicio para {@link #evaluated(long)} (0 si las métricas están desactivadas).
+     *
+     * @return Marca de tiempo en nanosegundos
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Registra una llamada a {@code evaluate()} iniciada en {@code start}.
+     */
+    static void evaluated(long start) {
+        if (!ENABLED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        INSTANCE.evaluateCalls.increment();
+        INSTANCE.evaluateNanos.add(nanos);
+        int bucket = 64 - Long.numberOfLeadingZeros(Math.max(1L, nanos));
+        INSTANCE.evaluateHistogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)].increment();
+    }
+
+    /**
+     * Suma movimientos valorados y aplicados de un operador.
+     */
+    static void moves(Move move, long evaluated, long applied) {
+        if (!ENABLED) {
+            return;
+        }
+        if (evaluated != 0) {
+            INSTANCE.movesEvaluated[move.ordinal()].add(evaluated);
+        }
+        if (applied != 0) {
+            INSTANCE.movesApplied[move.ordinal()].add(applied);
+        }
+    }
+
+    /**
+     * Suma los intentos y rechazos por capacidad de una construcción.
+     */
+    static void constructive(long attempts, long rejections, boolean failed) {
+        if (!ENABLED) {
+            return;
+        }
+        INSTANCE.constructiveAttempts.add(attempts);
+        INSTANCE.capacityRejections.add(rejections);
+        if (failed) {
+            INSTANCE.constructiveFailures.increment();
+        }
+    }
+
+    /**
+     * Registra una solución completa producida por el hilo actual, cuya
+     * construcción o perturbación empezó en {@code start}.
+     *
+     * Los hilos de un {@link java.util.concurrent.ForkJoinPool} se agrupan por
+     * su índice en el pool, no por nombre, para que cada multiarranque no añada
+     * entradas nuevas; el resto de hilos del solver tienen nombres fijos.
+     */
+    static void solution(long start) {
+        if (!ENABLED) {
+            return;
+        }
+        INSTANCE.solutions.increment();
+        Thread thread = Thread.currentThread();
+        String key = thread instanceof ForkJoinWorkerThread
+                ? "worker-" + ((ForkJoinWorkerThread) thread).getPoolIndex() : thread.getName();
+        LongAdder[] counters = INSTANCE.solutionsByThread.computeIfAbsent(key,
+                k -> new LongAdder[] {new LongAdder(), new LongAdder()});
+        counters[0].increment();
+        counters[1].add(System.nanoTime() - start);
+    }
+
+    /**
+     * Emite un evento JFR con la duración de una fase iniciada en {@code start}
+     * (obtenido con {@link System#nanoTime()}), si hay una grabación activa.
+     *
+     * @param phase Nombre de la fase
+     * @param algorithm Algoritmo que la ejecuta
+     * @param start Inicio de la fase
+     * @param co2 CO2 al terminar la fase
+     */
+    static void phase(String phase, String algorithm, long start, double co2) {
+        if (!ENABLED) {
+            return;
+        }
+        PhaseEvent event = new PhaseEvent();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.algorithm = algorithm;
+            event.nanos = System.nanoTime() - start;
+            event.co2 = co2;
+            event.commit();
+        }
+    }
+
+    private void emitCounters() {
+        CountersEvent event = new CountersEvent();
+        event.evaluateCalls = evaluateCalls.sum();
+        event.evaluateNanos = evaluateNanos.sum();
+        long evaluated = 0;
+        long applied = 0;
+        for (int m = 0; m < movesEvaluated.length; m++) {
+            evaluated += movesEvaluated[m].sum();
+            applied += movesApplied[m].sum();
+        }
+        event.movesEvaluated = evaluated;
+        event.movesApplied = applied;
+        event.capacityRejections = capacityRejections.sum();
+        event.solutions = solutions.sum();
+        event.solutionsPerSecond = getSolutionsPerSecond();
+        event.commit();
+    }
+
+    // --------------------------------------------------------------- MXBean
+
+    @Override
+    public long getEvaluateCalls() {
+        return evaluateCalls.sum();
+    }
+
+    @Override
+    public long getEvaluateNanos() {
+        return evaluateNanos.sum();
+    }
+
+    @Override
+    public Map<Long, Long> getEvaluateHistogram() {
+        Map<Long, Long> histogram = new TreeMap<>();
+        for (int b = 0; b < HISTOGRAM_BUCKETS; b++) {
+            long count = evaluateHistogram[b].sum();
+            if (count > 0) {
+                histogram.put(b == 0 ? 1L : 1L << Math.min(b, 62), count);
+            }
+        }
+        return histogram;
+    }
+
+    @Override
+    public Map<String, Long> getMovesEvaluated() {
+        return byMove(movesEvaluated);
+    }
+
+    @Override
+    public Map<String, Long> getMovesApplied() {
+        return byMove(movesApplied);
+    }
+
+    private static Map<String, Long> byMove(LongAdder[] counters) {
+        Map<String, Long> values = new TreeMap<>();
+        for (Move move : Move.values()) {
+            values.put(move.name(), counters[move.ordinal()].sum());
+        }
+        return values;
+    }
+
+    @Override
+    public long getConstructiveAttempts() {
+        return constructiveAttempts.sum();
+    }
+
+    @Override
+    public long getCapacityRejections() {
+        return capacityRejections.sum();
+    }
+
+    @Override
+    public long getConstructiveFailures() {
+        return constructiveFailures.sum();
+    }
+
+    @Override
+    public long getSolutions() {
+        return solutions.sum();
+    }
+
+    @Override
+    public double getSolutionsPerSecond() {
+        return solutions.sum() / secondsSinceReset();
+    }
+
+    @Override
+    public Map<String, Double> getSolutionsPerSecondByThread() {
+        Map<String, Double> values = new TreeMap<>();
+        solutionsByThread.forEach((thread, counters) ->
+                values.put(thread, counters[0].sum() / Math.max(1e-9, counters[1].sum() / 1e9)));
+        return values;
+    }
+
+    private double secondsSinceReset() {
+        return Math.max(1e-9, (System.nanoTime() - resetTime) / 1e9);
+    }
+
+    @Override
+    public void reset() {
+        evaluateCalls.reset();
+        evaluateNanos.reset();
+        for (LongAdder adder : evaluateHistogram) {
+            adder.reset();
+        }
+        for (int m = 0; m < movesEvaluated.length; m++) {
+            movesEvaluated[m].reset();
+            movesApplied[m].reset();
+        }
+        constructiveAttempts.reset();
+        capacityRejections.reset();
+        constructiveFailures.reset();
+        solutions.reset();
+        solutionsByThread.clear();
+        resetTime = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return "SolverMetrics{" +
+                "evaluate=" + getEvaluateCalls() +
+                " (" + String.format("%.1f ms", getEvaluateNanos() / 1e6) + ")" +
+                ", valorados=" + getMovesEvaluated() +
+                ", aplicados=" + getMovesApplied() +
+                ", intentos=" + getConstructiveAttempts() +
+                ", rechazosCapacidad=" + getCapacityRejections() +
+                ", construccionesFallidas=" + getConstructiveFailures() +
+                ", soluciones=" + getSolutions() +
+                ", solucionesPorSegundo=" + String.format("%.1f", getSolutionsPerSecond()) +
+                '}';
+    }
+
+    /**
+     * Evento JFR con la duración de una fase del solver.
+     */
+    @Name("tfg.Phase")
+    @Label("Fase del solver")
+    @Category("TFG")
+    @Description("Duración de una fase: construcción, búsqueda local o perturbación")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Fase")
+        String phase;
+        @Label("Algoritmo")
+        String algorithm;
+        @Label("Duración (ns)")
+        long nanos;
+        @Label("CO2")
+        double co2;
+    }
+
+    /**
+     * Evento JFR periódico con los contadores acumulados.
+     */
+    @Name("tfg.SolverCounters")
+    @Label("Contadores del solver")
+    @Category("TFG")
+    @Period("1 s")
+    @StackTrace(false)
+    static final class CountersEvent extends Event {
+        @Label("Llamadas a evaluate()")
+        long evaluateCalls;
+        @Label("Tiempo en evaluate() (ns)")
+        long evaluateNanos;
+        @Label("Movimientos valorados")
+        long movesEvaluated;
+        @Label("Movimientos aplicados")
+        long movesApplied;
+        @Label("Rechazos por capacidad")
+        long capacityRejections;
+        @Label("Soluciones")
+        long solutions;
+        @Label("Soluciones por segundo")
+        double solutionsPerSecond;
+    }
+}
@@ -0,0 +1,94 @@
+package tfg;
+
+import java.util.Map;
+
+/**
+ * Interfaz JMX de {@link SolverMetrics} ({@code tfg:type=SolverMetrics}).
+ */
+public interface SolverMetricsMXBean {
+
+    /**
+     * Obtiene el número de llamadas a {@code evaluate()} de las soluciones.
+     *
+     * @return Evaluaciones completas
+     */
+    long getEvaluateCalls();
+
+    /**
+     * Obtiene el tiempo total dedicado a {@code evaluate()}.
+     *
+     * @return Tiempo en nanosegundos
+     */
+    long getEvaluateNanos();
+
+    /**
+     * Obtiene el histograma de duración de {@code evaluate()}: la clave es el
+     * límite superior del cubo en nanosegundos (potencias de dos).
+     *
+     * @return Llamadas por cubo
+     */
+    Map<Long, Long> getEvaluateHistogram();
+
+    /**
+     * Obtiene los movimientos valorados por operador.
+     *
+     * @return Movimientos valorados
+     */
+    Map<String, Long> getMovesEvaluated();
+
+    /**
+     * Obtiene los movimientos aplicados por operador.
+     *
+     * @return Movimientos aplicados
+     */
+    Map<String, Long> getMovesApplied();
+
+    /**
+     * Obtiene los intentos de asignación del constructivo aleatorio.
+     *
+     * @return Intentos
+     */
+    long getConstructiveAttempts();
+
+    /**
+     * Obtiene los intentos del constructivo aleatorio rechazados por capacidad.
+     *
+     * @return Rechazos por capacidad
+     */
+    long getCapacityRejections();
+
+    /**
+     * Obtiene las construcciones que no encontraron solución factible.
+     *
+     * @return Construcciones fallidas
+     */
+    long getConstructiveFailures();
+
+    /**
+     * Obtiene el número de soluciones completas producidas (arranques o iteraciones).
+     *
+     * @return Soluciones
+     */
+    long getSolutions();
+
+    /**
+     * Obtiene las soluciones por segundo desde el último reinicio.
+     *
+     * @return Soluciones por segundo
+     */
+    double getSolutionsPerSecond();
+
+    /**
+     * Obtiene las soluciones por segundo de cada hilo de trabajo desde el
+     * último reinicio, dividiendo por el tiempo que ese hilo ha dedicado a
+     * producirlas y no por el transcurrido.
+     *
+     * @return Soluciones por segundo activo por hilo (índice en el pool o nombre)
+     */
+    Map<String, Double> getSolutionsPerSecondByThread();
+
+    /**
+     * Pone a cero todos los contadores.
+     */
+    void reset();
+}
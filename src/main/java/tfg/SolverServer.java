@@ -0,0 +1,496 @@
+package tfg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor HTTP del resolvedor para una JVM de larga duración: las instancias
+ * se cargan una vez y se guardan con sus distancias y vecinos en un
+ * {@link InstanceStore}, y el código ya compilado por el JIT se reutiliza entre
+ * peticiones, de modo que una instancia repetida se resuelve sin coste de
+ * arranque.
+ *
+ * Rutas:
+ * <ul>
+ *   <li>{@code POST /solve} (o {@code GET}): resuelve con
+ *       {@link IteratedLocalSearch}. Parámetros de la consulta:
+ *       {@code instance} (ruta relativa a la carpeta de instancias; si falta,
+ *       el cuerpo de la petición es el CSV), {@code time} (ms; si solo se
+ *       da {@code iterations}, el máximo del servidor), {@code iterations},
+ *       {@code seed}, {@code construction} ({@code random}/{@code savings}),
+ *       {@code acceptance}, {@code gap} (separación objetivo respecto a la
+ *       cota inferior, en [0, 1), ver
+ *       {@link IteratedLocalSearch#setTargetGap(double)}) y {@code format}
+ *       ({@code text}, con las rutas, {@code CO2} y {@code Distance} como
+ *       {@link Solution#toString()}, o {@code json}, que incluye además la
+ *       cota inferior y la separación si se pidió {@code gap}, y si no
+ *       {@code null}).</li>
+ *   <li>{@code GET /status}: estado del servidor y del almacén de instancias en JSON.</li>
+ * </ul>
+ *
+ * Cada petición se atiende en un hilo virtual si la JVM los tiene (Java 21 o
+ * posterior) y, si no, en un hilo de un grupo que crece según la demanda. Las
+ * búsquedas, que ocupan una CPU cada una, pasan por un semáforo justo que
+ * limita cuántas se ejecutan a la vez; las demás esperan su turno en orden de
+ * llegada sin ocupar CPU. La carga de una instancia que no está en el almacén
+ * (lectura del CSV, distancias, vecinos) se hace también con el permiso
+ * tomado. Los parámetros no válidos y los CSV mal formados se responden con
+ * 400; cualquier otro error, con 500. Por defecto escucha solo en la interfaz local.
+ */
+public class SolverServer implements Closeable {
+    /** Puerto por defecto. */
+    public static final int DEFAULT_PORT = 8080;
+    /** Tiempo de búsqueda por defecto (ms). */
+    public static final long DEFAULT_TIME = 1000L;
+
+    private static final int MAX_INLINE_BYTES = 64 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Path instancesDirectory;
+    private final InstanceStore store;
+    private final Semaphore solves;
+    private final int maxSolves;
+    private long maxTime = 60_000L;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * Constructor que escucha en la interfaz local.
+     *
+     * @param port Puerto, o 0 para elegir uno libre
+     * @param instancesDirectory Carpeta desde la que se pueden pedir instancias por ruta
+     * @param store Almacén de instancias
+     * @param maxSolves Búsquedas simultáneas como máximo
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public SolverServer(int port, Path instancesDirectory, InstanceStore store, int maxSolves) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), instancesDirectory, store, maxSolves);
+    }
+
+    /**
+     * Constructor que escucha en una dirección dada.
+     *
+     * @param address Dirección y puerto de escucha
+     * @param instancesDirectory Carpeta desde la que se pueden pedir instancias por ruta
+     * @param store Almacén de instancias
+     * @param maxSolves Búsquedas simultáneas como máximo
+     * @throws IOException Si no se puede abrir el puerto o no existe la carpeta
+     */
+    public SolverServer(InetSocketAddress address, Path instancesDirectory, InstanceStore store, int maxSolves)
+            throws IOException {
+        if (maxSolves < 1) {
+            throw new IllegalArgumentException("El número de búsquedas simultáneas debe ser positivo: " + maxSolves);
+        }
+        this.instancesDirectory = instancesDirectory.toRealPath();
+        this.store = store;
+        this.maxSolves = maxSolves;
+        this.solves = new Semaphore(maxSolves, true);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "solver-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/status", this::handleStatus);
+    }
+
+    /**
+     * Crea un ejecutor de un hilo virtual por tarea si la JVM lo ofrece.
+     *
+     * @return Ejecutor, o {@code null} en versiones sin hilos virtuales
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Establece el tiempo máximo que puede pedir una búsqueda.
+     *
+     * @param millis Tiempo en milisegundos
+     */
+    public void setMaxTime(long millis) {
+        this.maxTime = Math.max(1L, millis);
+    }
+
+    /**
+     * Empieza a atender peticiones.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha.
+     *
+     * @return Puerto
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Indica si las peticiones se atienden en hilos virtuales.
+     *
+     * @return {@code true} con Java 21 o posterior
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Obtiene el almacén de instancias.
+     *
+     * @return Almacén
+     */
+    public InstanceStore getStore() {
+        return store;
+    }
+
+    /**
+     * Carga una instancia de la carpeta de instancias en el almacén.
+     *
+     * @param path Ruta relativa a la carpeta de instancias
+     * @return Instancia cargada
+     * @throws IOException Si no se puede leer
+     */
+    public Instance preload(String path) throws IOException {
+        return loadFile(path);
+    }
+
+    /**
+     * Deja de atender peticiones y detiene los hilos.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ------------------------------------------------------------------ /solve
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        boolean json = "json".equalsIgnoreCase(params.get("format"));
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("POST") && !method.equals("GET")) {
+                send(exchange, 405, json, error("Método no permitido: " + method, json));
+                return;
+            }
+            long received = System.nanoTime();
+            waiting.incrementAndGet();
+            try {
+                solves.acquire();
+            } finally {
+                waiting.decrementAndGet();
+            }
+            // La lectura del CSV y el cálculo de distancias, vecinos y cota
+            // también ocupan CPU, así que se hacen con el permiso ya tomado
+            long started = System.nanoTime();
+            long loaded;
+            Instance instance;
+            IteratedLocalSearch.Result result;
+            running.incrementAndGet();
+            try {
+                instance = params.containsKey("instance") ? loadFile(params.get("instance"))
+                        : loadInline(exchange.getRequestBody());
+                loaded = System.nanoTime();
+                result = configure(instance, params).run();
+            } finally {
+                running.decrementAndGet();
+                solves.release();
+            }
+            solved.incrementAndGet();
+            String body = json ? toJson(instance, result, loaded - started, started - received)
+                    : result.getBest().toString() + "\n";
+            send(exchange, 200, json, body);
+        } catch (NoSuchFileException e) {
+            failed.incrementAndGet();
+            send(exchange, 404, json, error("No existe la instancia: " + params.get("instance"), json));
+        } catch (IllegalArgumentException e) {
+            failed.incrementAndGet();
+            send(exchange, 400, json, error(e.getMessage(), json));
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            if (e.getCause() instanceof IllegalArgumentException) {
+                // Error de formato del CSV (ver InstanceReader)
+                send(exchange, 400, json, error(e.getMessage(), json));
+            } else {
+                System.err.println("Error al cargar la instancia: " + e);
+                send(exchange, 500, json, error("Error interno: " + e.getMessage(), json));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.incrementAndGet();
+            send(exchange, 503, json, error("Servidor detenido", json));
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("Error al resolver: " + e);
+            send(exchange, 500, json, error("Error interno: " + e, json));
+        }
+    }
+
+    /**
+     * Carga (o toma del almacén) una instancia de la carpeta de instancias.
+     * La clave incluye el tamaño y la fecha del fichero, así que un CSV
+     * modificado se vuelve a cargar.
+     */
+    private Instance loadFile(String path) throws IOException {
+        Path file = instancesDirectory.resolve(path).normalize().toRealPath();
+        if (!file.startsWith(instancesDirectory)) {
+            throw new IllegalArgumentException("La instancia debe estar en " + instancesDirectory + ": " + path);
+        }
+        String key = "file:" + file + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        return store.get(key, () -> new Instance(file.toString()));
+    }
+
+    /**
+     * Carga (o toma del almacén) una instancia enviada en el cuerpo de la
+     * petición, identificada por el SHA-256 de su contenido.
+     */
+    private Instance loadInline(InputStream body) throws IOException {
+        byte[] csv = readLimited(body);
+        if (csv.length == 0) {
+            throw new IllegalArgumentException("Falta el parámetro instance o el CSV en el cuerpo de la petición");
+        }
+        String hash = sha256(csv);
+        String name = "inline-" + hash.substring(0, 12);
+        return store.get("csv:" + hash, () -> Instance.fromContent(name, new String(csv, StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] readLimited(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            if (out.size() + read > MAX_INLINE_BYTES) {
+                throw new IllegalArgumentException("El CSV supera el máximo de " + (MAX_INLINE_BYTES >> 20) + " MB");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Crea la búsqueda con los parámetros de la petición.
+     */
+    private IteratedLocalSearch configure(Instance instance, Map<String, String> params) {
+        long time = parseLong(params, "time", 0L);
+        long iterations = parseLong(params, "iterations", 0L);
+        if (time < 0L || iterations < 0L) {
+            throw new IllegalArgumentException("time e iterations no pueden ser negativos");
+        }
+        if (time == 0L) {
+            // Sin tiempo la búsqueda no tendría límite: con solo iterations se acota a maxTime
+            time = iterations == 0L ? DEFAULT_TIME : maxTime;
+        }
+        if (time > maxTime) {
+            throw new IllegalArgumentException("time supera el máximo del servidor (" + maxTime + " ms)");
+        }
+        IteratedLocalSearch search = new IteratedLocalSearch(instance, parseLong(params, "seed", 1L));
+        search.setTimeLimit(time);
+        search.setMaxIterations(iterations);
+        if (params.containsKey("gap")) {
+            double gap;
+            try {
+                gap = Double.parseDouble(params.get("gap"));
+            } catch (NumberFormatException e) {
+                gap = Double.NaN;
+            }
+            if (!(gap >= 0.0 && gap < 1.0)) {
+                throw new IllegalArgumentException("gap debe estar en [0, 1): " + params.get("gap"));
+            }
+            search.setTargetGap(gap);
+        }
+        if (params.containsKey("acceptance")) {
+            search.setAcceptance(IteratedLocalSearch.Acceptance.valueOf(params.get("acceptance").toUpperCase()));
+        }
+        if (params.containsKey("construction")) {
+            Experiment.Construction construction = Experiment.Construction.valueOf(params.get("construction").toUpperCase());
+            if (construction == Experiment.Construction.SAVINGS) {
+                CompiledInstance compiled = instance.getCompiled();
+                search.setConstructive(random -> new SavingsConstructive(compiled, random).runCompact());
+            }
+        }
+        return search;
+    }
+
+    private static long parseLong(Map<String, String> params, String name, long defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no válido para " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // ----------------------------------------------------------------- /status
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder("{");
+        field(sb, "virtualThreads", virtualThreads);
+        field(sb, "maxSolves", maxSolves);
+        field(sb, "running", running.get());
+        field(sb, "waiting", waiting.get());
+        field(sb, "requests", requests.get());
+        field(sb, "solved", solved.get());
+        field(sb, "failed", failed.get());
+        field(sb, "instances", store.size());
+        field(sb, "instanceBytes", store.getBytes());
+        field(sb, "maxInstanceBytes", store.getMaxBytes());
+        field(sb, "hits", store.getHits());
+        field(sb, "misses", store.getMisses());
+        field(sb, "evictions", store.getEvictions());
+        sb.setLength(sb.length() - 1);
+        send(exchange, 200, true, sb.append("}\n").toString());
+    }
+
+    // --------------------------------------------------------------- Respuesta
+
+    private static String toJson(Instance instance, IteratedLocalSearch.Result result, long loadNanos, long waitNanos) {
+        Solution best = result.getBest();
+        // Solo hay cota si la petición pidió una separación objetivo (se calcula en O(n²))
+        LowerBound bound = result.getLowerBound();
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"instance\":").append(quote(instance.getFileName())).append(',');
+        field(sb, "CO2", best.getTotalCO2());
+        field(sb, "distance", best.getTotalDistance());
+        field(sb, "lowerBound", bound == null ? null : bound.getValue());
+        field(sb, "gap", result.getGap());
+        field(sb, "iterations", result.getIterations());
+        field(sb, "stop", quote(result.getStopReason().toString()));
+        field(sb, "loadMs", loadNanos / 1e6);
+        field(sb, "waitMs", waitNanos / 1e6);
+        field(sb, "solveMs", result.getElapsedNanos() / 1e6);
+        sb.append("\"routes\":{");
+        boolean first = true;
+        for (Map.Entry<String, List<String>> route : best.getVehicleRoutes().entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append(quote(route.getKey())).append(":[");
+            for (int i = 0; i < route.getValue().size(); i++) {
+                sb.append(i > 0 ? "," : "").append(quote(route.getValue().get(i)));
+            }
+            sb.append(']');
+        }
+        return sb.append("}}\n").toString();
+    }
+
+    private static void field(StringBuilder sb, String name, Object value) {
+        // JSON no admite NaN ni infinitos (p.ej. la separación sin cota)
+        if (value instanceof Double && !Double.isFinite((Double) value)) {
+            value = null;
+        }
+        sb.append('"').append(name).append("\":").append(value).append(',');
+    }
+
+    private static String error(String message, boolean json) {
+        return json ? "{\"error\":" + quote(String.valueOf(message)) + "}\n" : "Error: " + message + "\n";
+    }
+
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, boolean json, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                (json ? "application/json" : "text/plain") + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SolverServer{" +
+                "puerto=" + getPort() +
+                ", hilosVirtuales=" + virtualThreads +
+                ", busquedas=" + maxSolves +
+                ", resueltas=" + solved.get() +
+                ", " + store +
+                '}';
+    }
+}
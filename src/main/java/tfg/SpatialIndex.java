@@ -0,0 +1,329 @@
+package tfg;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Índice espacial de los clientes de una instancia: rejilla uniforme sobre las
+ * coordenadas con unos {@value #POINTS_PER_CELL} clientes por celda.
+ *
+ * Los clientes se ordenan por celda (ordenación por recuento, O(n)) y sus
+ * coordenadas se copian en ese orden, de modo que recorrer una celda lee
+ * memoria contigua. Las consultas de k vecinos recorren anillos de celdas
+ * alrededor del punto y paran en cuanto el k-ésimo vecino está más cerca que
+ * cualquier celda por visitar; con clientes repartidos por el plano cuestan
+ * O(k) en promedio, en lugar de O(n) por nodo. No necesita la matriz de
+ * distancias, así que sirve para instancias de 100k+ nodos donde esta no
+ * cabe en memoria.
+ *
+ * Las distancias son euclidianas sobre {@code coord_x}/{@code coord_y}, como
+ * en {@link DistanceMatrix}; a igual distancia gana el nodo de menor índice.
+ * El índice es inmutable y se puede consultar desde varios hilos.
+ */
+public final class SpatialIndex {
+    private static final int POINTS_PER_CELL = 2;
+
+    private final int[] points;
+    private final double[] px;
+    private final double[] py;
+    private final int[] cellStart;
+    private final int columns;
+    private final int rows;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final double[] nodeX;
+    private final double[] nodeY;
+
+    private SpatialIndex(CompiledInstance instance) {
+        int[] customers = instance.getCustomers();
+        int n = instance.getNumberOfNodes();
+        nodeX = new double[n];
+        nodeY = new double[n];
+        for (int i = 0; i < n; i++) {
+            nodeX[i] = instance.getX(i);
+            nodeY[i] = instance.getY(i);
+        }
+
+        double loX = Double.POSITIVE_INFINITY;
+        double loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY;
+        double hiY = Double.NEGATIVE_INFINITY;
+        for (int c : customers) {
+            loX = Math.min(loX, nodeX[c]);
+            loY = Math.min(loY, nodeY[c]);
+            hiX = Math.max(hiX, nodeX[c]);
+            hiY = Math.max(hiY, nodeY[c]);
+        }
+        int m = customers.length;
+        if (m == 0) {
+            loX = loY = 0.0;
+            hiX = hiY = 0.0;
+        }
+        double width = Math.max(hiX - loX, 0.0);
+        double height = Math.max(hiY - loY, 0.0);
+        int cells = Math.max(1, m / POINTS_PER_CELL);
+        double size = Math.sqrt(width * height / cells);
+        if (!(size > 0.0)) {
+            // Puntos alineados o coincidentes: celdas según la dimensión no nula
+            size = Math.max(width, height) / cells;
+        }
+        if (!(size > 0.0)) {
+            size = 1.0;
+        }
+        this.minX = loX;
+        this.minY = loY;
+        this.cellSize = size;
+        this.columns = Math.max(1, Math.min((int) (width / size) + 1, 1 << 15));
+        this.rows = Math.max(1, Math.min((int) (height / size) + 1, 1 << 15));
+
+        // Ordenación por recuento de los clientes por celda
+        int[] cellOf = new int[m];
+        cellStart = new int[columns * rows + 1];
+        for (int k = 0; k < m; k++) {
+            int c = customers[k];
+            cellOf[k] = cell(column(nodeX[c]), row(nodeY[c]));
+            cellStart[cellOf[k] + 1]++;
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] next = Arrays.copyOf(cellStart, columns * rows);
+        points = new int[m];
+        px = new double[m];
+        py = new double[m];
+        for (int k = 0; k < m; k++) {
+            int slot = next[cellOf[k]]++;
+            int c = customers[k];
+            points[slot] = c;
+            px[slot] = nodeX[c];
+            py[slot] = nodeY[c];
+        }
+    }
+
+    /**
+     * Construye el índice de los clientes de una instancia (O(n)).
+     *
+     * @param instance Instancia compilada
+     * @return Índice espacial
+     */
+    public static SpatialIndex build(CompiledInstance instance) {
+        return new SpatialIndex(instance);
+    }
+
+    private int column(double x) {
+        int c = (int) ((x - minX) / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    private int row(double y) {
+        int r = (int) ((y - minY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    private int cell(int column, int row) {
+        return row * columns + column;
+    }
+
+    /**
+     * Obtiene el número de clientes indexados.
+     *
+     * @return Número de clientes
+     */
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Busca los k clientes más cercanos a un punto.
+     *
+     * @param x Coordenada x
+     * @param y Coordenada y
+     * @param k Número de vecinos
+     * @param exclude Nodo que no se devuelve (p.ej. el propio nodo), o -1
+     * @param nodes Recibe los vecinos por distancia creciente (al menos k posiciones)
+     * @param squaredDistances Recibe sus distancias al cuadrado (al menos k posiciones)
+     * @return Número de vecinos encontrados (menor que k si no hay suficientes clientes)
+     */
+    public int nearest(double x, double y, int k, int exclude, int[] nodes, double[] squaredDistances) {
+        if (k <= 0) {
+            return 0;
+        }
+        int count = 0;
+        int cx = column(x);
+        int cy = row(y);
+        int maxRing = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            int x0 = cx - ring;
+            int x1 = cx + ring;
+            int y0 = cy - ring;
+            int y1 = cy + ring;
+            for (int r = Math.max(0, y0); r <= Math.min(rows - 1, y1); r++) {
+                boolean edgeRow = r == y0 || r == y1;
+                int step = edgeRow ? 1 : x1 - x0;
+                for (int c = x0; c <= x1; c += Math.max(1, step)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = cell(c, r);
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                        int node = points[p];
+                        if (node == exclude) {
+                            continue;
+                        }
+                        double dx = px[p] - x;
+                        double dy = py[p] - y;
+                        double d = dx * dx + dy * dy;
+                        if (count < k) {
+                            siftUp(nodes, squaredDistances, count++, node, d);
+                        } else if (less(d, node, squaredDistances[0], nodes[0])) {
+                            siftDown(nodes, squaredDistances, k, node, d);
+                        }
+                    }
+                }
+            }
+            if (count == k) {
+                // Distancia mínima del punto a cualquier celda fuera del bloque visitado
+                double gap = Math.min(Math.min(x - (minX + x0 * cellSize), minX + (x1 + 1) * cellSize - x),
+                        Math.min(y - (minY + y0 * cellSize), minY + (y1 + 1) * cellSize - y));
+                if (gap > 0.0 && squaredDistances[0] < gap * gap) {
+                    break;
+                }
+            }
+        }
+
+        // Extraer del montículo de máximos en orden creciente
+        for (int pos = count - 1; pos > 0; pos--) {
+            int topNode = nodes[0];
+            double topDist = squaredDistances[0];
+            int lastNode = nodes[pos];
+            double lastDist = squaredDistances[pos];
+            siftDown(nodes, squaredDistances, pos, lastNode, lastDist);
+            nodes[pos] = topNode;
+            squaredDistances[pos] = topDist;
+        }
+        return count;
+    }
+
+    /**
+     * Obtiene los k clientes más cercanos a un nodo (sin él mismo).
+     *
+     * @param node Índice del nodo
+     * @param k Número de vecinos
+     * @return Vecinos por distancia creciente
+     */
+    public int[] nearest(int node, int k) {
+        int[] nodes = new int[Math.max(0, k)];
+        double[] distances = new double[nodes.length];
+        int count = nearest(nodeX[node], nodeY[node], k, node, nodes, distances);
+        return count == nodes.length ? nodes : Arrays.copyOf(nodes, count);
+    }
+
+    /**
+     * Obtiene los clientes a una distancia menor o igual que {@code radius} de un punto.
+     *
+     * @param x Coordenada x
+     * @param y Coordenada y
+     * @param radius Radio
+     * @return Clientes dentro del círculo (en orden de celda)
+     */
+    public int[] within(double x, double y, double radius) {
+        if (radius < 0.0 || points.length == 0) {
+            return new int[0];
+        }
+        int c0 = column(x - radius);
+        int c1 = column(x + radius);
+        int r0 = row(y - radius);
+        int r1 = row(y + radius);
+        double limit = radius * radius;
+        int[] result = new int[16];
+        int count = 0;
+        for (int r = r0; r <= r1; r++) {
+            for (int p = cellStart[cell(c0, r)]; p < cellStart[cell(c1, r) + 1]; p++) {
+                double dx = px[p] - x;
+                double dy = py[p] - y;
+                if (dx * dx + dy * dy <= limit) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = points[p];
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Calcula en paralelo los k clientes más cercanos de cada nodo de la instancia
+     * (depósito incluido), en un array plano de {@code n * k} posiciones.
+     *
+     * @param k Vecinos por nodo (no más que clientes menos uno)
+     * @return Vecinos de cada nodo por distancia creciente
+     */
+    public int[] nearestAll(int k) {
+        int n = nodeX.length;
+        int[] neighbors = new int[n * k];
+        if (k <= 0) {
+            return neighbors;
+        }
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int[] nodes = new int[k];
+            double[] distances = new double[k];
+            int count = nearest(nodeX[i], nodeY[i], k, i, nodes, distances);
+            System.arraycopy(nodes, 0, neighbors, i * k, count);
+        });
+        return neighbors;
+    }
+
+    /**
+     * Orden de los candidatos: por distancia y, a igualdad, por índice.
+     */
+    private static boolean less(double d1, int node1, double d2, int node2) {
+        return d1 < d2 || (d1 == d2 && node1 < node2);
+    }
+
+    /**
+     * Inserta en un montículo de máximos de {@code count} elementos.
+     */
+    private static void siftUp(int[] nodes, double[] dist, int count, int node, double d) {
+        int pos = count;
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!less(dist[parent], nodes[parent], d, node)) {
+                break;
+            }
+            nodes[pos] = nodes[parent];
+            dist[pos] = dist[parent];
+            pos = parent;
+        }
+        nodes[pos] = node;
+        dist[pos] = d;
+    }
+
+    /**
+     * Sustituye la raíz de un montículo de máximos de {@code count} elementos.
+     */
+    private static void siftDown(int[] nodes, double[] dist, int count, int node, double d) {
+        int pos = 0;
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && less(dist[child], nodes[child], dist[child + 1], nodes[child + 1])) {
+                child++;
+            }
+            if (!less(d, node, dist[child], nodes[child])) {
+                break;
+            }
+            nodes[pos] = nodes[child];
+            dist[pos] = dist[child];
+            pos = child;
+        }
+        if (count > 0) {
+            nodes[pos] = node;
+            dist[pos] = d;
+        }
+    }
+}
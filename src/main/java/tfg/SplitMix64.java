@@ -0,0 +1,62 @@
+package tfg;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Generador SplitMix64 con el estado accesible, para guardarlo en un
+ * {@link Checkpoint} y continuar la misma secuencia al reanudar.
+ *
+ * Es el algoritmo de {@link java.util.SplittableRandom} con la gamma por
+ * defecto: con la misma semilla produce exactamente los mismos
+ * {@code nextLong()}, {@code nextInt()}, {@code nextInt(bound)},
+ * {@code nextDouble()} y {@code nextBoolean()} que {@code new SplittableRandom(seed)},
+ * así que sustituirlo no cambia los resultados. El estado es un único
+ * {@code long}. No es seguro para hilos.
+ */
+public final class SplitMix64 implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    /**
+     * Constructor con semilla.
+     *
+     * @param seed Semilla (estado inicial)
+     */
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Obtiene el estado actual.
+     *
+     * @return Estado
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restaura un estado obtenido con {@link #getState()}.
+     *
+     * @param state Estado
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    @Override
+    public long nextLong() {
+        long z = state += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public int nextInt() {
+        long z = state += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
@@ -0,0 +1,315 @@
+package tfg;
+
+/**
+ * Búsqueda local 2-opt intra-ruta.
+ *
+ * Un movimiento 2-opt elimina dos arcos de una ruta y reconecta invirtiendo el
+ * segmento intermedio. Como las emisiones dependen de la carga transportada en
+ * cada arco, invertir un segmento cambia el coste de todos sus arcos; por eso
+ * los movimientos se valoran con {@link IncrementalEvaluator#twoOptDelta(int, int, int)}
+ * y no solo con la diferencia de distancias.
+ *
+ * Para cada cliente solo se prueban los movimientos que crean un arco hacia uno
+ * de sus k vecinos más cercanos (o hacia el depósito). Con primera mejora se
+ * usan bits "don't look": un cliente sin movimientos de mejora no se vuelve a
+ * revisar hasta que cambie su ruta. Al mejorar se reactiva toda la ruta
+ * modificada y la búsqueda continúa, de modo que termina en un óptimo local 2-opt.
+ * Con mejor mejora se guarda el mejor movimiento de cada ruta y solo se
+ * vuelve a explorar la ruta que cambia.
+ *
+ * Las estructuras auxiliares se reservan en el constructor: el bucle de
+ * búsqueda no crea objetos. No es seguro para hilos.
+ */
+public class TwoOpt implements LocalSearch {
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Estrategia de aceptación de movimientos.
+     */
+    public enum Strategy {
+        /** Aplica el primer movimiento de mejora encontrado. */
+        FIRST_IMPROVEMENT,
+        /** Aplica en cada paso el mejor movimiento de toda la solución. */
+        BEST_IMPROVEMENT
+    }
+
+    private final CompiledInstance instance;
+    private final NeighborLists neighbors;
+    private final Strategy strategy;
+    private final int[] customers;
+
+    // Cola circular de clientes activos (bits don't-look a false)
+    private final int[] queue;
+    private final boolean[] active;
+    private int head;
+    private int count;
+
+    // Mejor movimiento encontrado en la exploración actual
+    private int bestRoute;
+    private int bestFrom;
+    private int bestTo;
+    private double bestDelta;
+
+    // Mejor movimiento por ruta (solo mejor mejora)
+    private double[] routeBestDelta;
+    private int[] routeBestFrom;
+    private int[] routeBestTo;
+
+    private long movesEvaluated;
+    private long movesApplied;
+    private IncrementalEvaluator evaluator;
+
+    /**
+     * Constructor con primera mejora y las listas de candidatos de la instancia.
+     *
+     * @param instance Instancia compilada
+     */
+    public TwoOpt(CompiledInstance instance) {
+        this(instance, instance.getNeighborLists(), Strategy.FIRST_IMPROVEMENT);
+    }
+
+    /**
+     * Constructor completo.
+     *
+     * @param instance Instancia compilada
+     * @param neighbors Listas de candidatos
+     * @param strategy Estrategia de aceptación
+     */
+    public TwoOpt(CompiledInstance instance, NeighborLists neighbors, Strategy strategy) {
+        this.instance = instance;
+        this.neighbors = neighbors;
+        this.strategy = strategy;
+        this.customers = instance.getCustomers();
+        this.queue = new int[instance.getNumberOfNodes()];
+        this.active = new boolean[instance.getNumberOfNodes()];
+    }
+
+    /**
+     * Mejora una solución y devuelve una nueva solución evaluada.
+     *
+     * @param solution Solución de partida
+     * @return Solución en un óptimo local 2-opt
+     */
+    public Solution run(Solution solution) {
+        if (evaluator == null) {
+            evaluator = new IncrementalEvaluator(instance);
+        }
+        evaluator.load(solution);
+        improve(evaluator);
+        return evaluator.toSolution();
+    }
+
+    @Override
+    public boolean improve(IncrementalEvaluator evaluator) {
+        long evaluatedBefore = movesEvaluated;
+        long appliedBefore = movesApplied;
+        boolean improved;
+        if (strategy == Strategy.BEST_IMPROVEMENT) {
+            improved = bestImprovement(evaluator);
+        } else {
+            head = 0;
+            count = 0;
+            for (int c : customers) {
+                active[c] = false;
+                if (evaluator.getRouteOf(c) >= 0) {
+                    push(c);
+                }
+            }
+            improved = firstImprovement(evaluator);
+        }
+        SolverMetrics.moves(SolverMetrics.Move.TWO_OPT, movesEvaluated - evaluatedBefore, movesApplied - appliedBefore);
+        return improved;
+    }
+
+    /**
+     * Revisa los clientes activos en orden de cola aplicando el primer movimiento de mejora.
+     */
+    private boolean firstImprovement(IncrementalEvaluator evaluator) {
+        boolean improved = false;
+        while (count > 0) {
+            int u = queue[head];
+            head = head + 1 == queue.length ? 0 : head + 1;
+            count--;
+            active[u] = false;
+
+            bestRoute = -1;
+            bestDelta = -EPSILON;
+            scan(evaluator, u, true);
+            if (bestRoute >= 0) {
+                apply(evaluator);
+                improved = true;
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * En cada paso aplica el mejor movimiento de toda la solución. Se guarda el
+     * mejor movimiento de cada ruta y solo se vuelve a explorar la ruta modificada,
+     * ya que los movimientos 2-opt de las demás rutas no cambian de valor.
+     */
+    private boolean bestImprovement(IncrementalEvaluator evaluator) {
+        int numRoutes = evaluator.getNumberOfRoutes();
+        if (routeBestDelta == null || routeBestDelta.length != numRoutes) {
+            routeBestDelta = new double[numRoutes];
+            routeBestFrom = new int[numRoutes];
+            routeBestTo = new int[numRoutes];
+        }
+        for (int r = 0; r < numRoutes; r++) {
+            scanRoute(evaluator, r);
+        }
+
+        boolean improved = false;
+        while (true) {
+            int route = -1;
+            double delta = -EPSILON;
+            for (int r = 0; r < numRoutes; r++) {
+                if (routeBestDelta[r] < delta) {
+                    route = r;
+                    delta = routeBestDelta[r];
+                }
+            }
+            if (route < 0) {
+                return improved;
+            }
+            bestRoute = route;
+            bestFrom = routeBestFrom[route];
+            bestTo = routeBestTo[route];
+            apply(evaluator);
+            scanRoute(evaluator, route);
+            improved = true;
+        }
+    }
+
+    /**
+     * Explora todos los clientes de una ruta y guarda su mejor movimiento.
+     */
+    private void scanRoute(IncrementalEvaluator evaluator, int route) {
+        bestRoute = -1;
+        bestDelta = -EPSILON;
+        int size = evaluator.getRouteSize(route);
+        for (int p = 1; p <= size; p++) {
+            scan(evaluator, evaluator.getNode(route, p), false);
+        }
+        routeBestDelta[route] = bestRoute >= 0 ? bestDelta : 0.0;
+        routeBestFrom[route] = bestFrom;
+        routeBestTo[route] = bestTo;
+    }
+
+    /**
+     * Explora los movimientos 2-opt que crean un arco desde el cliente u.
+     * Con {@code firstOnly} se detiene en el primer movimiento de mejora.
+     */
+    private void scan(IncrementalEvaluator evaluator, int u, boolean firstOnly) {
+        int route = evaluator.getRouteOf(u);
+        if (route < 0) {
+            return;
+        }
+        int size = evaluator.getRouteSize(route);
+        if (size < 2) {
+            return;
+        }
+        int i = evaluator.getPositionOf(u);
+
+        // Arcos hacia el depósito: (P, u) invirtiendo 1..i y (u, P) invirtiendo i..size
+        if (consider(evaluator, route, 1, i) && firstOnly) {
+            return;
+        }
+        if (consider(evaluator, route, i, size) && firstOnly) {
+            return;
+        }
+
+        // Arcos hacia los vecinos cercanos de la misma ruta
+        for (int rank = 0; rank < neighbors.size(); rank++) {
+            int v = neighbors.get(u, rank);
+            if (evaluator.getRouteOf(v) != route) {
+                continue;
+            }
+            int j = evaluator.getPositionOf(v);
+            int a = Math.min(i, j);
+            int b = Math.max(i, j);
+            if (consider(evaluator, route, a + 1, b) && firstOnly) {
+                return;
+            }
+            if (consider(evaluator, route, a, b - 1) && firstOnly) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Valora la inversión del segmento {@code from..to} y la guarda si es la mejor.
+     *
+     * @return {@code true} si mejora al mejor movimiento registrado
+     */
+    private boolean consider(IncrementalEvaluator evaluator, int route, int from, int to) {
+        if (to <= from) {
+            return false;
+        }
+        movesEvaluated++;
+        double delta = evaluator.twoOptDelta(route, from, to);
+        if (delta < bestDelta) {
+            bestDelta = delta;
+            bestRoute = route;
+            bestFrom = from;
+            bestTo = to;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Aplica el mejor movimiento y reactiva los clientes de la ruta: al cambiar
+     * la carga de los arcos, cualquier cliente de la ruta puede tener nuevas mejoras.
+     */
+    private void apply(IncrementalEvaluator evaluator) {
+        evaluator.applyTwoOpt(bestRoute, bestFrom, bestTo);
+        movesApplied++;
+        if (strategy == Strategy.FIRST_IMPROVEMENT) {
+            int size = evaluator.getRouteSize(bestRoute);
+            for (int p = 1; p <= size; p++) {
+                push(evaluator.getNode(bestRoute, p));
+            }
+        }
+    }
+
+    private void push(int node) {
+        if (active[node]) {
+            return;
+        }
+        active[node] = true;
+        int tail = head + count;
+        if (tail >= queue.length) {
+            tail -= queue.length;
+        }
+        queue[tail] = node;
+        count++;
+    }
+
+    /**
+     * Obtiene el número de movimientos valorados desde la creación.
+     *
+     * @return Movimientos valorados
+     */
+    public long getMovesEvaluated() {
+        return movesEvaluated;
+    }
+
+    /**
+     * Obtiene el número de movimientos aplicados desde la creación.
+     *
+     * @return Movimientos aplicados
+     */
+    public long getMovesApplied() {
+        return movesApplied;
+    }
+
+    /**
+     * Obtiene la estrategia de aceptación.
+     *
+     * @return Estrategia
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+}
@@ -0,0 +1,49 @@
+package tfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Descenso por vecindarios variables (VND): aplica las búsquedas en orden y,
+ * cada vez que una mejora la solución, vuelve a empezar por la primera.
+ * Termina cuando ninguna consigue mejorar.
+ */
+public class VariableNeighborhoodDescent implements LocalSearch {
+    private final List<LocalSearch> searches;
+
+    /**
+     * Constructor con las búsquedas en el orden en que se aplican.
+     *
+     * @param searches Búsquedas locales
+     */
+    public VariableNeighborhoodDescent(LocalSearch... searches) {
+        this.searches = new ArrayList<>(Arrays.asList(searches));
+    }
+
+    /**
+     * VND estándar de la instancia: 2-opt intra-ruta seguido de los vecindarios entre rutas.
+     *
+     * @param instance Instancia compilada
+     * @return Descenso por vecindarios variables
+     */
+    public static VariableNeighborhoodDescent standard(CompiledInstance instance) {
+        return new VariableNeighborhoodDescent(new TwoOpt(instance), new InterRouteSearch(instance));
+    }
+
+    @Override
+    public boolean improve(IncrementalEvaluator evaluator) {
+        boolean improved = false;
+        int k = 0;
+        while (k < searches.size()) {
+            if (searches.get(k).improve(evaluator)) {
+                improved = true;
+                // Cada búsqueda termina en su óptimo local: tras la primera se sigue con la siguiente
+                k = k == 0 ? 1 : 0;
+            } else {
+                k++;
+            }
+        }
+        return improved;
+    }
+}
@@ -0,0 +1,95 @@
+package tfg;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Evaluación de un {@link SolutionBatch} con la API de vectores
+ * ({@code jdk.incubator.vector}): cada carril recorre una solución distinta.
+ *
+ * En cada paso se leen seguidos los datos de las soluciones del bloque y las
+ * ramas de la evaluación escalar (salida del depósito, tramo intermedio, vuelta
+ * al depósito) se sustituyen por máscaras, que se obtienen de la marca
+ * {@code NaN} de la producción de los depósitos. Las máscaras se recalculan en
+ * cada paso en vez de arrastrarse entre iteraciones, porque el compilador de
+ * JDK 17 no las mantiene en registros dentro de un bucle. Las operaciones de
+ * cada carril son las mismas y en el mismo orden que en
+ * {@link BatchEvaluator#evaluateScalar}, sin FMA, así que los resultados son
+ * idénticos.
+ *
+ * Solo se carga por reflexión desde {@link BatchEvaluator} cuando el módulo
+ * está presente; sin él, esta clase no llega a resolverse.
+ */
+final class VectorBatchKernel implements BatchEvaluator.Kernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int evaluate(SolutionBatch batch, int from, int to) {
+        int lanes = DOUBLES.length();
+        if (SolutionBatch.BLOCK % lanes != 0 || from % lanes != 0) {
+            return from;
+        }
+        int block = SolutionBatch.BLOCK;
+        double[] x = batch.x;
+        double[] y = batch.y;
+        double[] load = batch.load;
+        double[] eo = batch.eo;
+        double[] slope = batch.slope;
+        DoubleVector zero = DoubleVector.zero(DOUBLES);
+
+        // Los carriles de más del último grupo son columnas libres: se evalúan y se ignoran
+        int s = from;
+        for (; s < to; s += lanes) {
+            int length = 0;
+            for (int j = s; j < Math.min(s + lanes, to); j++) {
+                length = Math.max(length, batch.steps[j]);
+            }
+            int a = batch.index(s, 0);
+            DoubleVector totalDistance = zero;
+            DoubleVector totalCO2 = zero;
+            DoubleVector routeDistance = zero;
+            DoubleVector routeCO2 = zero;
+            DoubleVector weight = zero;
+            DoubleVector typeEo = zero;
+            DoubleVector typeSlope = zero;
+            DoubleVector ax = DoubleVector.fromArray(DOUBLES, x, a);
+            DoubleVector ay = DoubleVector.fromArray(DOUBLES, y, a);
+            DoubleVector aLoad = DoubleVector.fromArray(DOUBLES, load, a);
+            for (int k = 1; k < length; k++, a += block) {
+                int b = a + block;
+                DoubleVector bx = DoubleVector.fromArray(DOUBLES, x, b);
+                DoubleVector by = DoubleVector.fromArray(DOUBLES, y, b);
+                DoubleVector bLoad = DoubleVector.fromArray(DOUBLES, load, b);
+                VectorMask<Double> fromDepot = aLoad.test(VectorOperators.IS_NAN);
+                VectorMask<Double> toDepot = bLoad.test(VectorOperators.IS_NAN);
+                typeEo = typeEo.blend(DoubleVector.fromArray(DOUBLES, eo, a), fromDepot);
+                typeSlope = typeSlope.blend(DoubleVector.fromArray(DOUBLES, slope, a), fromDepot);
+
+                DoubleVector dx = ax.sub(bx);
+                DoubleVector dy = ay.sub(by);
+                DoubleVector d = dx.mul(dx).add(dy.mul(dy)).sqrt();
+                DoubleVector empty = typeEo.mul(d);
+                DoubleVector loaded = typeSlope.mul(weight).mul(d);
+
+                // Tramo intermedio: co2 += slope * peso * d + eo * d
+                // Vuelta al depósito: co2 + slope * peso * d + eo * d
+                DoubleVector inner = routeCO2.add(loaded.add(empty));
+                DoubleVector last = routeCO2.add(loaded).add(empty);
+                routeCO2 = inner.blend(last, toDepot).blend(empty, fromDepot);
+                routeDistance = routeDistance.add(d).blend(d, fromDepot);
+                weight = weight.add(bLoad).blend(bLoad, fromDepot);
+
+                totalDistance = totalDistance.add(zero.blend(routeDistance, toDepot));
+                totalCO2 = totalCO2.add(zero.blend(routeCO2, toDepot));
+                ax = bx;
+                ay = by;
+                aLoad = bLoad;
+            }
+            totalDistance.intoArray(batch.distance, s);
+            totalCO2.intoArray(batch.co2, s);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,53 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link BatchEvaluator}, con el núcleo de vectores (si el módulo
+ * está disponible) y con el bucle escalar, da la misma distancia y CO2 que
+ * {@link CompactSolution#evaluate()} en soluciones aleatorias, incluido un lote
+ * cuyo último bloque no está completo.
+ */
+class BatchEvaluatorTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void vectorAndScalarMatchCompactEvaluation() {
+        for (InstanceGenerator.Layout layout : InstanceGenerator.Layout.values()) {
+            Instance instance = TestInstances.generate(60, 3, layout);
+            CompiledInstance compiled = instance.getCompiled();
+            SplittableRandom random = new SplittableRandom(3);
+            int size = 2 * SolutionBatch.BLOCK + 3;
+            CompactSolution[] solutions = new CompactSolution[size];
+            SolutionBatch batch = new SolutionBatch(compiled, size);
+            for (int i = 0; i < size; i++) {
+                solutions[i] = new RandomConstructive(compiled, random.split()).runCompact(false);
+                batch.add(solutions[i]);
+            }
+
+            BatchEvaluator evaluator = new BatchEvaluator();
+            evaluator.setVectorized(BatchEvaluator.isVectorAvailable());
+            evaluator.evaluate(batch);
+            double[] co2 = new double[size];
+            double[] distance = new double[size];
+            for (int i = 0; i < size; i++) {
+                co2[i] = batch.getCO2(i);
+                distance[i] = batch.getDistance(i);
+            }
+
+            BatchEvaluator.evaluateScalar(batch, 0, size);
+            for (int i = 0; i < size; i++) {
+                solutions[i].evaluate();
+                String message = layout + ", solución " + i;
+                assertEquals(solutions[i].getTotalCO2(), co2[i], TOLERANCE, message);
+                assertEquals(solutions[i].getTotalDistance(), distance[i], TOLERANCE, message);
+                assertEquals(solutions[i].getTotalCO2(), batch.getCO2(i), TOLERANCE, message);
+                assertEquals(solutions[i].getTotalDistance(), batch.getDistance(i), TOLERANCE, message);
+            }
+        }
+    }
+}
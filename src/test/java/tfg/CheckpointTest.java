@@ -0,0 +1,152 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link Checkpoint} recupera el último estado guardado, que el
+ * CRC solo cubre los datos escritos (los bytes sobrantes del hueco no cuentan),
+ * que si los datos del último hueco se corrompen se vuelve al anterior, que no
+ * se abre con otra instancia del mismo tamaño y que una búsqueda detenida y
+ * reanudada acaba igual que la ejecución sin interrumpir.
+ */
+class CheckpointTest {
+    private static final long ITERATIONS = 1500;
+    private static final long STOP_AT = 300;
+
+    @Test
+    void crcCoversOnlyThePayload() throws IOException {
+        Instance instance = TestInstances.generate(50, 5, InstanceGenerator.Layout.UNIFORM);
+        CompiledInstance compiled = instance.getCompiled();
+        CompactSolution solution = new RandomConstructive(instance, new SplittableRandom(5)).runCompact();
+
+        Path file = Files.createTempFile("tfg-checkpoint", ".bin");
+        try {
+            Files.delete(file);
+            try (Checkpoint checkpoint = Checkpoint.open(file, compiled)) {
+                checkpoint.save(state(solution, solution, 10));
+                // Solución actual vacía: los datos no llenan el hueco
+                checkpoint.save(state(new CompactSolution(compiled), solution, 20));
+            }
+            long size = Files.size(file);
+            long slotSize = (size - 64) / 2;
+
+            // Último byte del segundo hueco: fuera de los datos, no invalida el checkpoint
+            corrupt(file, size - 1);
+            try (Checkpoint checkpoint = Checkpoint.open(file, compiled)) {
+                Checkpoint.State state = checkpoint.load();
+                assertEquals(2, state.getSequence());
+                assertEquals(20, state.getIteration());
+                assertEquals(solution, state.getBest());
+            }
+
+            // Iteración guardada en el segundo hueco: se vuelve al primero
+            corrupt(file, 64 + slotSize + 24 + 8);
+            try (Checkpoint checkpoint = Checkpoint.open(file, compiled)) {
+                Checkpoint.State state = checkpoint.load();
+                assertEquals(1, state.getSequence());
+                assertEquals(10, state.getIteration());
+                assertEquals(solution, state.getBest());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void rejectsAnotherInstanceOfTheSameSize() throws IOException {
+        CompiledInstance compiled = TestInstances.generate(50, 5, InstanceGenerator.Layout.UNIFORM).getCompiled();
+        CompiledInstance other = TestInstances.generate(50, 6, InstanceGenerator.Layout.UNIFORM).getCompiled();
+        Path file = Files.createTempFile("tfg-checkpoint", ".bin");
+        try {
+            Files.delete(file);
+            Checkpoint.open(file, compiled).close();
+            assertThrows(IllegalArgumentException.class, () -> Checkpoint.open(file, other));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void resumeContinuesBitIdentically() throws Exception {
+        Instance instance = TestInstances.generate(40, 8, InstanceGenerator.Layout.CLUSTERED);
+        Path straightFile = Files.createTempFile("tfg-checkpoint", ".bin");
+        Path resumedFile = Files.createTempFile("tfg-checkpoint", ".bin");
+        try {
+            Files.delete(straightFile);
+            Files.delete(resumedFile);
+            IteratedLocalSearch.Result straight;
+            try (Checkpoint checkpoint = Checkpoint.open(straightFile, instance.getCompiled())) {
+                straight = search(instance, checkpoint).run();
+            }
+            assertEquals(ITERATIONS, straight.getIterations());
+
+            // Detenida desde otro hilo hacia la iteración STOP_AT, como un proceso que se mata
+            try (Checkpoint checkpoint = Checkpoint.open(resumedFile, instance.getCompiled())) {
+                IteratedLocalSearch interrupted = search(instance, checkpoint);
+                Thread thread = new Thread(interrupted::run);
+                thread.start();
+                while (thread.isAlive() && interrupted.getIterations() < STOP_AT) {
+                    Thread.onSpinWait();
+                }
+                interrupted.stop();
+                thread.join();
+            }
+
+            IteratedLocalSearch.Result resumed;
+            try (Checkpoint checkpoint = Checkpoint.open(resumedFile, instance.getCompiled())) {
+                Checkpoint.State state = checkpoint.load();
+                assertTrue(state.getIteration() < ITERATIONS, "la búsqueda no se detuvo a tiempo");
+                IteratedLocalSearch search = search(instance, checkpoint);
+                search.setResume(state);
+                resumed = search.run();
+            }
+            assertEquals(ITERATIONS, resumed.getIterations());
+            assertEquals(straight.getBestCompact(), resumed.getBestCompact());
+            assertEquals(straight.getBestCompact().getTotalCO2(), resumed.getBestCompact().getTotalCO2());
+            assertEquals(straight.getBestIteration(), resumed.getBestIteration());
+        } finally {
+            Files.deleteIfExists(straightFile);
+            Files.deleteIfExists(resumedFile);
+        }
+    }
+
+    private static IteratedLocalSearch search(Instance instance, Checkpoint checkpoint) {
+        IteratedLocalSearch search = new IteratedLocalSearch(instance, 11L);
+        search.setAcceptance(IteratedLocalSearch.Acceptance.ANNEALING);
+        search.setMaxIterations(ITERATIONS);
+        search.setCheckpoint(checkpoint, 0L);
+        return search;
+    }
+
+    private static Checkpoint.State state(CompactSolution current, CompactSolution best, long iteration) {
+        Checkpoint.State state = new Checkpoint.State();
+        state.seed = 5;
+        state.iteration = iteration;
+        state.currentCO2 = current.getTotalCO2();
+        state.currentDistance = current.getTotalDistance();
+        state.bestCO2 = best.getTotalCO2();
+        state.bestDistance = best.getTotalDistance();
+        state.current = current;
+        state.best = best;
+        return state;
+    }
+
+    private static void corrupt(Path file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que las variaciones de {@link IncrementalEvaluator} coinciden con
+ * la evaluación completa de {@link Solution#evaluate()} tras aplicar
+ * movimientos al azar, y que el camino compacto ({@link CompactSolution})
+ * da el mismo CO2.
+ */
+class IncrementalEvaluatorTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void randomMovesMatchFullEvaluation() {
+        for (InstanceGenerator.Layout layout : InstanceGenerator.Layout.values()) {
+            for (long seed = 1; seed <= 3; seed++) {
+                checkRandomMoves(TestInstances.generate(80, seed, layout), seed);
+            }
+        }
+    }
+
+    private static void checkRandomMoves(Instance instance, long seed) {
+        CompiledInstance compiled = instance.getCompiled();
+        SplittableRandom random = new SplittableRandom(seed);
+        IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+        Solution initial = new RandomConstructive(instance, random).run();
+        evaluator.load(initial);
+        assertEquals(TestInstances.fullCO2(initial), evaluator.getTotalCO2(), TOLERANCE);
+
+        int routes = evaluator.getNumberOfRoutes();
+        int applied = 0;
+        for (int step = 0; step < 3000; step++) {
+            int r1 = random.nextInt(routes);
+            int r2 = random.nextInt(routes);
+            int n1 = evaluator.getRouteSize(r1);
+            int n2 = evaluator.getRouteSize(r2);
+            double before = evaluator.getTotalCO2();
+            double delta;
+            int move = random.nextInt(5);
+            if (move == 0) {
+                if (n1 < 2) {
+                    continue;
+                }
+                int i = 1 + random.nextInt(n1);
+                int j = i + random.nextInt(n1 - i + 1);
+                delta = evaluator.twoOptDelta(r1, i, j);
+                evaluator.applyTwoOpt(r1, i, j);
+            } else if (move == 1) {
+                if (n1 < 1) {
+                    continue;
+                }
+                int i = 1 + random.nextInt(n1);
+                int p = random.nextInt(n2 + 1);
+                delta = evaluator.relocateDelta(r1, i, r2, p);
+                if (delta == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                evaluator.applyRelocate(r1, i, r2, p);
+            } else if (move == 2) {
+                if (n1 < 1 || n2 < 1) {
+                    continue;
+                }
+                int i = 1 + random.nextInt(n1);
+                int j = 1 + random.nextInt(n2);
+                delta = evaluator.swapDelta(r1, i, r2, j);
+                if (delta == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                evaluator.applySwap(r1, i, r2, j);
+            } else if (move == 3) {
+                if (r1 == r2) {
+                    continue;
+                }
+                int i = random.nextInt(n1 + 1);
+                int j = random.nextInt(n2 + 1);
+                delta = evaluator.twoOptStarDelta(r1, i, r2, j);
+                if (delta == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                evaluator.applyTwoOptStar(r1, i, r2, j);
+            } else {
+                if (r1 == r2 || n1 < 1 || n2 < 1) {
+                    continue;
+                }
+                int i1 = 1 + random.nextInt(n1);
+                int j1 = Math.min(n1, i1 + random.nextInt(3));
+                int i2 = 1 + random.nextInt(n2);
+                int j2 = Math.min(n2, i2 + random.nextInt(3));
+                delta = evaluator.crossExchangeDelta(r1, i1, j1, r2, i2, j2);
+                if (delta == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                evaluator.applyCrossExchange(r1, i1, j1, r2, i2, j2);
+            }
+            applied++;
+            assertEquals(before + delta, evaluator.getTotalCO2(), TOLERANCE, "movimiento " + move + " en el paso " + step);
+            if (step % 100 == 0) {
+                assertEquals(TestInstances.fullCO2(evaluator.toSolution()), evaluator.getTotalCO2(), TOLERANCE);
+                assertFeasible(evaluator);
+            }
+        }
+        assertTrue(applied > 1000, "se aplicaron pocos movimientos: " + applied);
+        assertEquals(TestInstances.fullCO2(evaluator.toSolution()), evaluator.getTotalCO2(), TOLERANCE);
+        assertFeasible(evaluator);
+
+        // Camino compacto: volcado, evaluación completa, conversión y recarga
+        CompactSolution compact = new CompactSolution(compiled);
+        evaluator.store(compact);
+        double co2 = compact.getTotalCO2();
+        compact.evaluate();
+        assertEquals(co2, compact.getTotalCO2(), TOLERANCE);
+        assertEquals(TestInstances.fullCO2(compact.toSolution()), compact.getTotalCO2(), TOLERANCE);
+        assertEquals(CompactSolution.from(compact.toSolution()), compact);
+        IncrementalEvaluator reloaded = new IncrementalEvaluator(compiled);
+        reloaded.load(compact);
+        assertEquals(co2, reloaded.getTotalCO2(), TOLERANCE);
+    }
+
+    /**
+     * Cada cliente está exactamente una vez y ninguna ruta supera su capacidad.
+     */
+    static void assertFeasible(IncrementalEvaluator evaluator) {
+        CompiledInstance compiled = evaluator.getInstance();
+        int[] seen = new int[compiled.getNumberOfNodes()];
+        for (int r = 0; r < evaluator.getNumberOfRoutes(); r++) {
+            double load = 0.0;
+            for (int p = 1; p <= evaluator.getRouteSize(r); p++) {
+                int node = evaluator.getNode(r, p);
+                seen[node]++;
+                load += compiled.getProd(node);
+            }
+            assertTrue(load <= evaluator.getRouteCapacity(r) + 1e-6, "ruta " + r + " excede la capacidad");
+        }
+        for (int c : compiled.getCustomers()) {
+            assertEquals(1, seen[c], "cliente " + compiled.getNodeName(c));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link InterRouteSearch}, con cada operador por separado y con
+ * todos, no empeora soluciones aleatorias, mantiene la factibilidad y deja un
+ * CO2 que coincide con la evaluación completa, también por el camino compacto.
+ */
+class InterRouteSearchTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void eachOperatorMatchesFullEvaluation() {
+        for (InterRouteSearch.Operator operator : InterRouteSearch.Operator.values()) {
+            check(EnumSet.of(operator));
+        }
+        check(EnumSet.allOf(InterRouteSearch.Operator.class));
+    }
+
+    private static void check(EnumSet<InterRouteSearch.Operator> operators) {
+        for (InstanceGenerator.Layout layout : InstanceGenerator.Layout.values()) {
+            for (long seed = 1; seed <= 2; seed++) {
+                Instance instance = TestInstances.generate(80, seed, layout);
+                CompiledInstance compiled = instance.getCompiled();
+                InterRouteSearch search = new InterRouteSearch(compiled, compiled.getNeighborLists(), operators, 3);
+                IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+                CompactSolution initial = new RandomConstructive(instance, new SplittableRandom(seed)).runCompact();
+                evaluator.load(initial);
+
+                double before = evaluator.getTotalCO2();
+                search.improve(evaluator);
+                double after = evaluator.getTotalCO2();
+
+                assertTrue(after <= before + TOLERANCE, operators + ": empeora la solución");
+                assertEquals(TestInstances.fullCO2(evaluator.toSolution()), after, TOLERANCE, operators.toString());
+                IncrementalEvaluatorTest.assertFeasible(evaluator);
+
+                CompactSolution compact = new CompactSolution(compiled);
+                evaluator.store(compact);
+                compact.evaluate();
+                assertEquals(after, compact.getTotalCO2(), TOLERANCE, operators.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que la cota de {@link LowerBound} no supera el CO2 de ninguna
+ * solución conocida (la mejorada con la búsqueda local iterada y las
+ * aleatorias) en instancias de cada distribución espacial: una cota inválida
+ * haría que la separación objetivo detuviera la búsqueda antes de tiempo.
+ */
+class LowerBoundTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void boundDoesNotExceedKnownSolutions() {
+        for (InstanceGenerator.Layout layout : InstanceGenerator.Layout.values()) {
+            for (int nodes : new int[] {30, 120}) {
+                for (long seed = 1; seed <= 2; seed++) {
+                    Instance instance = TestInstances.generate(nodes, seed, layout);
+                    LowerBound bound = instance.getCompiled().getLowerBound();
+                    String message = layout + ", " + nodes + " nodos, semilla " + seed;
+                    assertTrue(bound.getValue() > 0.0, message + ": cota no positiva");
+
+                    IteratedLocalSearch search = new IteratedLocalSearch(instance, seed);
+                    search.setMaxIterations(100);
+                    double best = search.run().getBest().getTotalCO2();
+                    assertTrue(bound.getValue() <= best + TOLERANCE,
+                            message + ": cota " + bound.getValue() + " > " + best);
+
+                    SplittableRandom random = new SplittableRandom(seed);
+                    for (int i = 0; i < 5; i++) {
+                        double co2 = new RandomConstructive(instance, random.split()).runCompact().getTotalCO2();
+                        assertTrue(bound.getValue() <= co2 + TOLERANCE, message + ": cota por encima de " + co2);
+                    }
+                }
+            }
+        }
+    }
+}
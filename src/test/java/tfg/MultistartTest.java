@@ -0,0 +1,43 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link Multistart} solo da por fallido un arranque cuando el
+ * constructivo no encuentra solución factible, y que propaga el resto de errores.
+ */
+class MultistartTest {
+
+    @Test
+    void infeasibleStartsCountAsFailures() {
+        Instance instance = TestInstances.generate(40, 1, InstanceGenerator.Layout.UNIFORM);
+        Multistart multistart = new Multistart(instance, 6, 1);
+        multistart.setThreads(2);
+        AtomicInteger calls = new AtomicInteger();
+        multistart.setConstructive(random -> {
+            if (calls.getAndIncrement() % 2 == 0) {
+                throw new InfeasibleSolutionException("Capacidad insuficiente");
+            }
+            return new RandomConstructive(instance, random).runCompact();
+        });
+        Multistart.Result result = multistart.run();
+        assertEquals(3, result.getFailures());
+        assertEquals(3, result.getCompleted());
+    }
+
+    @Test
+    void otherErrorsPropagate() {
+        Instance instance = TestInstances.generate(40, 1, InstanceGenerator.Layout.UNIFORM);
+        Multistart multistart = new Multistart(instance, 4, 1);
+        multistart.setThreads(1);
+        multistart.setConstructive(random -> {
+            throw new IllegalStateException("error de programación");
+        });
+        assertThrows(IllegalStateException.class, multistart::run);
+    }
+}
@@ -0,0 +1,62 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que los hashes de ruta que mantienen {@link IncrementalEvaluator}
+ * y {@link CompactSolution} coinciden con los que calcula {@link RouteCostCache}
+ * desde cero, de modo que la caché acierta y da el mismo coste que sin ella.
+ */
+class RouteCostCacheTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void incrementalHashesHitTheCache() {
+        Instance instance = TestInstances.generate(80, 7, InstanceGenerator.Layout.CLUSTERED);
+        CompiledInstance compiled = instance.getCompiled();
+        RouteCostCache cache = new RouteCostCache(compiled, 1 << 12);
+        compiled.setRouteCostCache(cache);
+        try {
+            SplittableRandom random = new SplittableRandom(7);
+            IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+            evaluator.load(new RandomConstructive(instance, random).runCompact());
+            new InterRouteSearch(compiled).improve(evaluator);
+            for (int step = 0; step < 200; step++) {
+                int r = random.nextInt(evaluator.getNumberOfRoutes());
+                int n = evaluator.getRouteSize(r);
+                if (n >= 2) {
+                    int i = 1 + random.nextInt(n);
+                    evaluator.applyTwoOpt(r, i, i + random.nextInt(n - i + 1));
+                }
+            }
+
+            // Hashes mantenidos por el evaluador: la primera evaluación llena la caché
+            CompactSolution stored = new CompactSolution(compiled);
+            evaluator.store(stored);
+            int routes = stored.getNumberOfRoutes();
+            stored.evaluate();
+            assertEquals(evaluator.getTotalCO2(), stored.getTotalCO2(), TOLERANCE);
+            long misses = cache.getMisses();
+
+            // Hashes extendidos cliente a cliente, y los calculados desde cero por Solution
+            CompactSolution rebuilt = CompactSolution.from(stored.toSolution());
+            long hits = cache.getHits();
+            rebuilt.evaluate();
+            assertEquals(hits + routes, cache.getHits());
+            stored.toSolution().evaluate();
+            assertEquals(hits + 2L * routes, cache.getHits());
+            assertEquals(misses, cache.getMisses());
+            assertEquals(stored.getTotalCO2(), rebuilt.getTotalCO2(), TOLERANCE);
+
+            compiled.setRouteCostCache(null);
+            rebuilt.evaluate();
+            assertEquals(stored.getTotalCO2(), rebuilt.getTotalCO2(), TOLERANCE);
+        } finally {
+            compiled.setRouteCostCache(null);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link RoutePool#recombine(CompactSolution)} devuelve una
+ * solución factible, que no usa más unidades de cada tipo que {@code Num_v},
+ * que nunca es peor que la de partida y que, cuando la búsqueda es completa,
+ * encuentra una partición mejor formada con rutas de soluciones distintas.
+ */
+class RoutePoolTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void recombinationIsFeasibleAndNotWorse() {
+        for (InstanceGenerator.Layout layout : InstanceGenerator.Layout.values()) {
+            Instance instance = TestInstances.generate(60, 2, layout);
+            CompiledInstance compiled = instance.getCompiled();
+            RoutePool pool = new RoutePool(compiled);
+            pool.setNodeLimit(200_000L);
+            InterRouteSearch search = new InterRouteSearch(compiled);
+            IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+            SplittableRandom random = new SplittableRandom(2);
+            CompactSolution incumbent = null;
+            for (int i = 0; i < 20; i++) {
+                evaluator.load(new RandomConstructive(instance, random.split()).runCompact());
+                search.improve(evaluator);
+                CompactSolution solution = new CompactSolution(compiled);
+                evaluator.store(solution);
+                pool.add(solution);
+                if (incumbent == null || solution.getTotalCO2() < incumbent.getTotalCO2()) {
+                    incumbent = solution;
+                }
+            }
+
+            CompactSolution result = pool.recombine(incumbent);
+            result.validate();
+            assertTrue(result.getTotalCO2() <= incumbent.getTotalCO2() + TOLERANCE, layout + ": empeora");
+            int[] used = new int[compiled.getNumberOfTypes()];
+            for (int r = 0; r < result.getNumberOfRoutes(); r++) {
+                used[compiled.getUnitType(result.getRouteUnit(r))]++;
+            }
+            for (int t = 0; t < used.length; t++) {
+                assertTrue(used[t] <= compiled.getTypeUnits(t), layout + ": demasiadas unidades del tipo " + t);
+            }
+            double co2 = result.getTotalCO2();
+            result.evaluate();
+            assertEquals(result.getTotalCO2(), co2, TOLERANCE, layout.toString());
+        }
+    }
+
+    @Test
+    void completeSearchFindsKnownPartition() {
+        // Dos parejas de clientes a cada lado del depósito; ninguna solución
+        // añadida las agrupa a la vez, pero sus rutas sí permiten hacerlo
+        CompiledInstance compiled = new CompiledInstance(
+                new String[] {CompiledInstance.DEPOT_NAME, "F1", "F2", "F3", "F4"},
+                new double[] {0.0, 10.0, 11.0, -10.0, -11.0}, new double[] {0.0, 0.0, 1.0, 0.0, 1.0},
+                new double[] {0.0, 1.0, 1.0, 1.0, 1.0},
+                new String[] {"V1"}, new double[] {2.0}, new double[] {1.0}, new double[] {0.5}, new int[] {3});
+        CompactSolution crossed = solution(compiled, List.of(new int[] {1, 3}, new int[] {2, 4}));
+        CompactSolution right = solution(compiled, List.of(new int[] {1, 2}, new int[] {3}, new int[] {4}));
+        CompactSolution left = solution(compiled, List.of(new int[] {3, 4}, new int[] {1}, new int[] {2}));
+        CompactSolution expected = solution(compiled, List.of(new int[] {1, 2}, new int[] {3, 4}));
+
+        RoutePool pool = new RoutePool(compiled);
+        pool.add(right);
+        pool.add(left);
+        CompactSolution result = pool.recombine(crossed);
+
+        assertTrue(pool.isLastComplete());
+        result.validate();
+        assertTrue(expected.getTotalCO2() < Math.min(crossed.getTotalCO2(),
+                Math.min(right.getTotalCO2(), left.getTotalCO2())));
+        assertEquals(expected.getTotalCO2(), result.getTotalCO2(), TOLERANCE);
+        assertEquals(routes(expected), routes(result));
+    }
+
+    private static CompactSolution solution(CompiledInstance compiled, List<int[]> routes) {
+        CompactSolution solution = new CompactSolution(compiled);
+        for (int r = 0; r < routes.size(); r++) {
+            solution.startRoute(r);
+            for (int node : routes.get(r)) {
+                solution.add(node);
+            }
+        }
+        solution.evaluate();
+        return solution;
+    }
+
+    /**
+     * Conjuntos de clientes de cada ruta, sin tener en cuenta la unidad ni el orden.
+     */
+    private static Set<Set<Integer>> routes(CompactSolution solution) {
+        Set<Set<Integer>> routes = new HashSet<>();
+        for (int r = 0; r < solution.getNumberOfRoutes(); r++) {
+            Set<Integer> route = new HashSet<>();
+            for (int p = 0; p < solution.getRouteSize(r); p++) {
+                route.add(solution.getNode(solution.getRouteStart(r) + p));
+            }
+            routes.add(route);
+        }
+        return routes;
+    }
+}
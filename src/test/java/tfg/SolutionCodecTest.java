@@ -0,0 +1,73 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link SolutionCodec} recupera la misma solución y rechaza las
+ * de otra instancia del mismo tamaño y las que no son factibles.
+ */
+class SolutionCodecTest {
+
+    @Test
+    void roundTrip() throws IOException {
+        Instance instance = TestInstances.generate(60, 3, InstanceGenerator.Layout.UNIFORM);
+        CompactSolution solution = new RandomConstructive(instance, new SplittableRandom(3)).runCompact();
+        CompactSolution read = SolutionCodec.read(input(encode(solution)), instance.getCompiled());
+        assertEquals(solution, read);
+        assertEquals(solution.getTotalCO2(), read.getTotalCO2(), 1e-9);
+    }
+
+    @Test
+    void rejectsOtherInstanceOfSameSize() throws IOException {
+        Instance instance = TestInstances.generate(60, 3, InstanceGenerator.Layout.UNIFORM);
+        Instance other = TestInstances.generate(60, 4, InstanceGenerator.Layout.UNIFORM);
+        assertEquals(instance.getCompiled().getNumberOfUnits(), other.getCompiled().getNumberOfUnits());
+        CompactSolution solution = new RandomConstructive(instance, new SplittableRandom(3)).runCompact();
+        byte[] data = encode(solution);
+        assertThrows(IllegalArgumentException.class, () -> SolutionCodec.read(input(data), other.getCompiled()));
+    }
+
+    @Test
+    void rejectsInfeasibleSolutions() throws IOException {
+        Instance instance = TestInstances.generate(60, 3, InstanceGenerator.Layout.UNIFORM);
+        CompiledInstance compiled = instance.getCompiled();
+
+        // Todos los clientes en la unidad más pequeña
+        int smallest = 0;
+        for (int u = 1; u < compiled.getNumberOfUnits(); u++) {
+            if (compiled.getTypeLoad(compiled.getUnitType(u)) < compiled.getTypeLoad(compiled.getUnitType(smallest))) {
+                smallest = u;
+            }
+        }
+        CompactSolution overloaded = new CompactSolution(compiled);
+        overloaded.startRoute(smallest);
+        for (int c : compiled.getCustomers()) {
+            overloaded.add(c);
+        }
+        byte[] data = encode(overloaded);
+        assertThrows(IllegalArgumentException.class, () -> SolutionCodec.read(input(data), compiled));
+
+        IteratedLocalSearch search = new IteratedLocalSearch(instance, 1);
+        assertThrows(IllegalArgumentException.class, () -> search.offer(overloaded));
+    }
+
+    private static byte[] encode(CompactSolution solution) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SolutionCodec.write(new DataOutputStream(bytes), solution);
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] data) {
+        return new DataInputStream(new ByteArrayInputStream(data));
+    }
+}
@@ -0,0 +1,116 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba las respuestas de error de {@link SolverServer} (400 para
+ * parámetros no válidos, CSV mal formados y rutas fuera de la carpeta de
+ * instancias, 404 para instancias que no existen) sobre un servidor en un
+ * puerto libre, y que {@link InstanceStore} carga una sola vez una instancia
+ * pedida a la vez por varios hilos.
+ */
+class SolverServerTest {
+    private Path base;
+    private SolverServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws IOException {
+        base = Files.createTempDirectory("tfg-server");
+        Path instances = Files.createDirectory(base.resolve("instances"));
+        new InstanceGenerator(30, 1).write(instances.resolve("small.csv"));
+        new InstanceGenerator(30, 2).write(base.resolve("outside.csv"));
+        server = new SolverServer(0, instances, new InstanceStore(64L << 20), 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.close();
+        Files.deleteIfExists(base.resolve("instances").resolve("small.csv"));
+        Files.deleteIfExists(base.resolve("instances"));
+        Files.deleteIfExists(base.resolve("outside.csv"));
+        Files.deleteIfExists(base);
+    }
+
+    @Test
+    void solvesAndReportsErrors() throws Exception {
+        HttpResponse<String> ok = post("instance=small.csv&iterations=5&format=json", "");
+        assertEquals(200, ok.statusCode(), ok.body());
+        assertTrue(ok.body().contains("\"lowerBound\":null"), ok.body());
+
+        assertEquals(400, post("instance=small.csv&gap=2", "").statusCode());
+        assertEquals(400, post("instance=small.csv&gap=NaN", "").statusCode());
+        assertEquals(400, post("instance=small.csv&acceptance=NINGUNA", "").statusCode());
+        assertEquals(400, post("instance=small.csv&time=-1", "").statusCode());
+        assertEquals(400, post("time=10", "Vehicle,Load,Num_v,Ef,Eo\nV1,100,-1,1,0.5\n").statusCode());
+        assertEquals(400, post("time=10", "").statusCode());
+        assertEquals(404, post("instance=missing.csv", "").statusCode());
+        assertEquals(400, post("instance=..%2Foutside.csv", "").statusCode());
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        InstanceStore store = new InstanceStore(64L << 20);
+        Path file = base.resolve("instances").resolve("small.csv");
+        AtomicInteger loads = new AtomicInteger();
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Instance>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    return store.get("small", () -> {
+                        loads.incrementAndGet();
+                        // Da tiempo a que los demás hilos pidan la misma clave
+                        LockSupport.parkNanos(100_000_000L);
+                        return new Instance(file.toString());
+                    });
+                }));
+            }
+            Instance first = results.get(0).get();
+            for (Future<Instance> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, store.getMisses());
+        assertEquals(threads - 1, store.getHits());
+        assertEquals(1, store.size());
+    }
+
+    private HttpResponse<String> post(String query, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + server.getPort() + "/solve?" + query))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,131 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara las consultas de {@link SpatialIndex} con una búsqueda exhaustiva
+ * (distancia al cuadrado y, a igualdad, menor índice): la cota de grados de
+ * {@link LowerBound} solo es válida si los vecinos son exactamente los más
+ * cercanos. Incluye un depósito fuera del rectángulo de los clientes y puntos
+ * alineados o coincidentes.
+ */
+class SpatialIndexTest {
+
+    @Test
+    void generatedInstancesMatchBruteForce() {
+        for (InstanceGenerator.Layout layout : InstanceGenerator.Layout.values()) {
+            check(TestInstances.generate(300, 4, layout).getCompiled());
+        }
+    }
+
+    @Test
+    void depotOutsideTheCustomers() {
+        SplittableRandom random = new SplittableRandom(9);
+        int n = 200;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        x[0] = -500.0;
+        y[0] = 1200.0;
+        for (int i = 1; i < n; i++) {
+            x[i] = random.nextDouble(100.0);
+            y[i] = random.nextDouble(100.0);
+        }
+        check(instance(x, y));
+    }
+
+    @Test
+    void collinearAndCoincidentPoints() {
+        int n = 120;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        // Depósito en la recta, clientes alineados con repeticiones
+        for (int i = 1; i < n; i++) {
+            x[i] = (i % 17) * 2.5;
+        }
+        check(instance(x, y));
+
+        // Todos los clientes en el mismo punto, el depósito aparte
+        double[] same = new double[n];
+        Arrays.fill(same, 7.0);
+        same[0] = 0.0;
+        check(instance(same, same.clone()));
+
+        // Recta vertical con el depósito en otro punto de ella
+        double[] zero = new double[n];
+        double[] vertical = new double[n];
+        for (int i = 0; i < n; i++) {
+            vertical[i] = (i * 7) % 23;
+        }
+        check(instance(zero, vertical));
+    }
+
+    private static void check(CompiledInstance instance) {
+        SpatialIndex index = instance.getSpatialIndex();
+        int m = instance.getNumberOfCustomers();
+        for (int k : new int[] {1, 2, 5, 10, m - 1, m + 3}) {
+            for (int node = 0; node < instance.getNumberOfNodes(); node++) {
+                assertArrayEquals(bruteForce(instance, instance.getX(node), instance.getY(node), k, node),
+                        index.nearest(node, k), "nodo " + node + ", k = " + k);
+            }
+        }
+
+        // Puntos arbitrarios, también lejos de todos los clientes
+        SplittableRandom random = new SplittableRandom(m);
+        for (int q = 0; q < 50; q++) {
+            double px = random.nextDouble(-300.0, 400.0);
+            double py = random.nextDouble(-300.0, 400.0);
+            int k = 1 + random.nextInt(12);
+            int[] nodes = new int[k];
+            double[] distances = new double[k];
+            int count = index.nearest(px, py, k, -1, nodes, distances);
+            assertArrayEquals(bruteForce(instance, px, py, k, -1), Arrays.copyOf(nodes, count),
+                    "punto (" + px + ", " + py + "), k = " + k);
+        }
+
+        int k = Math.min(3, m - 1);
+        int[] all = index.nearestAll(k);
+        for (int node = 0; node < instance.getNumberOfNodes(); node++) {
+            assertArrayEquals(bruteForce(instance, instance.getX(node), instance.getY(node), k, node),
+                    Arrays.copyOfRange(all, node * k, node * k + k), "nearestAll, nodo " + node);
+        }
+    }
+
+    private static int[] bruteForce(CompiledInstance instance, double x, double y, int k, int exclude) {
+        return Arrays.stream(instance.getCustomers())
+                .filter(c -> c != exclude)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingDouble(c -> squared(instance, c, x, y))
+                        .thenComparingInt(c -> c))
+                .limit(Math.max(0, k))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static double squared(CompiledInstance instance, int node, double x, double y) {
+        double dx = instance.getX(node) - x;
+        double dy = instance.getY(node) - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Instancia con el depósito en el nodo 0, producción 1 y un vehículo de sobra.
+     */
+    private static CompiledInstance instance(double[] x, double[] y) {
+        int n = x.length;
+        String[] names = new String[n];
+        double[] prod = new double[n];
+        names[0] = CompiledInstance.DEPOT_NAME;
+        for (int i = 1; i < n; i++) {
+            names[i] = "F" + i;
+            prod[i] = 1.0;
+        }
+        return new CompiledInstance(names, x, y, prod, new String[] {"V1"}, new double[] {n},
+                new double[] {1.0}, new double[] {0.5}, new int[] {1});
+    }
+}
@@ -0,0 +1,48 @@
+package tfg;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Instancias sintéticas para las pruebas, generadas con {@link InstanceGenerator}
+ * en un directorio temporal.
+ */
+final class TestInstances {
+    private TestInstances() {
+    }
+
+    /**
+     * Genera y carga una instancia.
+     *
+     * @param nodes Nodos, depósito incluido
+     * @param seed Semilla de la generación
+     * @param layout Distribución espacial
+     * @return Instancia cargada
+     */
+    static Instance generate(int nodes, long seed, InstanceGenerator.Layout layout) {
+        try {
+            Path dir = Files.createTempDirectory("tfg-test");
+            Path file = dir.resolve("g_" + layout.name().toLowerCase() + "_" + nodes + "_" + seed + ".csv");
+            InstanceGenerator generator = new InstanceGenerator(nodes, seed);
+            generator.setLayout(layout);
+            generator.write(file);
+            Instance instance = new Instance(file.toString());
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+            return instance;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * CO2 de una solución recalculado desde cero con {@link Solution#evaluate()}.
+     */
+    static double fullCO2(Solution solution) {
+        Solution copy = new Solution(solution.getInstance(), solution.getVehicleRoutes(), 0.0, 0.0);
+        copy.evaluate();
+        return copy.getTotalCO2();
+    }
+}
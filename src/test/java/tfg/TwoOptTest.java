@@ -0,0 +1,54 @@
+package tfg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link TwoOpt} no empeora, que su CO2 coincide con la
+ * evaluación completa y que, con listas de candidatos completas, termina en un
+ * óptimo local de todos los movimientos 2-opt de cada ruta.
+ */
+class TwoOptTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void improvesToLocalOptimum() {
+        for (TwoOpt.Strategy strategy : TwoOpt.Strategy.values()) {
+            for (long seed = 1; seed <= 4; seed++) {
+                Instance instance = TestInstances.generate(60, seed, InstanceGenerator.Layout.UNIFORM);
+                CompiledInstance compiled = instance.getCompiled();
+                NeighborLists complete = NeighborLists.build(compiled, compiled.getNumberOfCustomers());
+                TwoOpt search = new TwoOpt(compiled, complete, strategy);
+                IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+                evaluator.load(new RandomConstructive(instance, new SplittableRandom(seed)).run());
+
+                int[] routeBefore = new int[compiled.getNumberOfNodes()];
+                for (int c : compiled.getCustomers()) {
+                    routeBefore[c] = evaluator.getRouteOf(c);
+                }
+                double before = evaluator.getTotalCO2();
+                search.improve(evaluator);
+                double after = evaluator.getTotalCO2();
+
+                assertTrue(after < before, strategy + ": no mejora una solución aleatoria");
+                assertEquals(TestInstances.fullCO2(evaluator.toSolution()), after, TOLERANCE);
+                for (int c : compiled.getCustomers()) {
+                    assertEquals(routeBefore[c], evaluator.getRouteOf(c), "2-opt no cambia clientes de ruta");
+                }
+                for (int r = 0; r < evaluator.getNumberOfRoutes(); r++) {
+                    int size = evaluator.getRouteSize(r);
+                    for (int i = 1; i < size; i++) {
+                        for (int j = i + 1; j <= size; j++) {
+                            assertTrue(evaluator.twoOptDelta(r, i, j) > -1e-7,
+                                    strategy + ": queda una mejora en la ruta " + r + " (" + i + ", " + j + ")");
+                        }
+                    }
+                }
+            }
+        }
+    }
+}